@@ -0,0 +1,303 @@
+package com.custom.orm.processor;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compile-time model of an entity class, read from the same annotations and with the same naming rules
+ * as EntityModelFactory of the runtime, so the generated SQL refers to the same tables and columns.
+ * The processor doesn't depend on the runtime artifact, annotations are recognized by their names.
+ */
+final class EntityDescriptor {
+
+    static final String ANNOTATIONS = "com.custom.orm.annotations.";
+    static final String ENTITY = ANNOTATIONS + "Entity";
+    private static final String TABLE = ANNOTATIONS + "Table";
+    private static final String COLUMN = ANNOTATIONS + "Column";
+    private static final String ID = ANNOTATIONS + "Id";
+    private static final String RELATIONS = ANNOTATIONS + "relations.";
+    private static final String JOIN_COLUMN = RELATIONS + "JoinColumn";
+    private static final String LAZY_REFERENCE = "com.custom.orm.lazy.LazyReference";
+    static final String ONE_TO_ONE = "OneToOne";
+    private static final List<String> RELATION_TYPES = List.of(ONE_TO_ONE, "OneToMany", "ManyToOne", "ManyToMany");
+
+    private static final String DOT = ".";
+
+    private final TypeElement type;
+
+    private final String tableName;
+
+    private final String tableNameWithoutSchema;
+
+    private final List<Column> columns = new ArrayList<>();
+
+    private final List<Relation> relations = new ArrayList<>();
+
+    private Column idColumn;
+
+    private EntityDescriptor(TypeElement type, Elements elements) {
+        this.type = type;
+        this.tableName = resolveTableName(type, elements);
+        this.tableNameWithoutSchema = resolveTableNameWithoutSchema(type, elements);
+
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC))
+                continue;
+
+            AnnotationMirror relationAnnotation = null;
+            String relationType = null;
+            for (String candidate : RELATION_TYPES) {
+                relationAnnotation = find(field, RELATIONS + candidate);
+                if (relationAnnotation != null) {
+                    relationType = candidate;
+                    break;
+                }
+            }
+
+            AnnotationMirror joinColumn = find(field, JOIN_COLUMN);
+            Column column = null;
+            if (relationAnnotation == null || joinColumn != null) {
+                column = new Column(field, resolveColumnName(field, elements), find(field, ID) != null,
+                        joinColumn != null);
+                columns.add(column);
+                if (column.isId() && idColumn == null)
+                    idColumn = column;
+            }
+            if (relationAnnotation != null)
+                relations.add(new Relation(field, relationType,
+                        (String) value(relationAnnotation, "mappedBy", elements), cascade(relationAnnotation, elements),
+                        isLazy(relationAnnotation, elements), column));
+        }
+    }
+
+    static EntityDescriptor of(TypeElement type, Elements elements) {
+        return new EntityDescriptor(type, elements);
+    }
+
+    TypeElement getType() {
+        return type;
+    }
+
+    String getQualifiedName() {
+        return type.getQualifiedName().toString();
+    }
+
+    String getTableName() {
+        return tableName;
+    }
+
+    String getTableNameWithoutSchema() {
+        return tableNameWithoutSchema;
+    }
+
+    List<Column> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    List<Relation> getRelations() {
+        return Collections.unmodifiableList(relations);
+    }
+
+    boolean hasId() {
+        return idColumn != null;
+    }
+
+    Column getIdColumn() {
+        return idColumn;
+    }
+
+    /*
+     * Same rules as EntityModelFactory.resolveTableName()
+     * */
+    private static String resolveTableName(TypeElement type, Elements elements) {
+        AnnotationMirror table = find(type, TABLE);
+        if (table == null)
+            return type.getSimpleName().toString().toLowerCase();
+
+        String name = (String) value(table, "name", elements);
+        String schema = (String) value(table, "schema", elements);
+        return schema.isEmpty() ? name : schema + DOT + name;
+    }
+
+    private static String resolveTableNameWithoutSchema(TypeElement type, Elements elements) {
+        AnnotationMirror table = find(type, TABLE);
+        String name = table == null ? "" : (String) value(table, "name", elements);
+        return name.isEmpty() ? type.getSimpleName().toString().toLowerCase() : name;
+    }
+
+    /*
+     * Same rules as EntityModelFactory.resolveColumnName(), the name of @JoinColumn is taken even if it is empty
+     * */
+    private static String resolveColumnName(VariableElement field, Elements elements) {
+        AnnotationMirror joinColumn = find(field, JOIN_COLUMN);
+        if (joinColumn != null)
+            return (String) value(joinColumn, "name", elements);
+
+        AnnotationMirror column = find(field, COLUMN);
+        String name = column == null ? "" : (String) value(column, "name", elements);
+        return name.isEmpty() ? field.getSimpleName().toString() : name;
+    }
+
+    private static Set<String> cascade(AnnotationMirror relation, Elements elements) {
+        Set<String> result = new LinkedHashSet<>();
+        for (Object item : (List<?>) value(relation, "cascade", elements)) {
+            result.add(((VariableElement) ((AnnotationValue) item).getValue()).getSimpleName().toString());
+        }
+        return result;
+    }
+
+    /*
+     * FetchType.LAZY in the fetch element, annotations of older runtime versions don't have it
+     * */
+    private static boolean isLazy(AnnotationMirror relation, Elements elements) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                elements.getElementValuesWithDefaults(relation).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("fetch"))
+                return ((VariableElement) entry.getValue().getValue()).getSimpleName().contentEquals("LAZY");
+        }
+        return false;
+    }
+
+    static AnnotationMirror find(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotationName))
+                return mirror;
+        }
+        return null;
+    }
+
+    private static Object value(AnnotationMirror mirror, String name, Elements elements) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                elements.getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name))
+                return entry.getValue().getValue();
+        }
+        throw new IllegalArgumentException("Annotation " + mirror + " has no element " + name);
+    }
+
+    /*
+     * A mapped field with its column name
+     * */
+    static final class Column {
+
+        private final VariableElement field;
+
+        private final String name;
+
+        private final boolean id;
+
+        private final boolean joinColumn;
+
+        private Column(VariableElement field, String name, boolean id, boolean joinColumn) {
+            this.field = field;
+            this.name = name;
+            this.id = id;
+            this.joinColumn = joinColumn;
+        }
+
+        VariableElement getField() {
+            return field;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isId() {
+            return id;
+        }
+
+        boolean isJoinColumn() {
+            return joinColumn;
+        }
+    }
+
+    /*
+     * A relation field, joinColumn is the column of its @JoinColumn or null
+     * */
+    static final class Relation {
+
+        private final VariableElement field;
+
+        private final String type;
+
+        private final String mappedBy;
+
+        private final Set<String> cascade;
+
+        private final boolean lazy;
+
+        private final Column joinColumn;
+
+        private Relation(VariableElement field, String type, String mappedBy, Set<String> cascade, boolean lazy,
+                         Column joinColumn) {
+            this.field = field;
+            this.type = type;
+            this.mappedBy = mappedBy;
+            this.cascade = cascade;
+            this.lazy = lazy;
+            this.joinColumn = joinColumn;
+        }
+
+        VariableElement getField() {
+            return field;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        boolean isMappedBy() {
+            return !mappedBy.isEmpty();
+        }
+
+        boolean hasCascade(String... cascadeTypes) {
+            for (String cascadeType : cascadeTypes) {
+                if (cascade.contains(cascadeType))
+                    return true;
+            }
+            return false;
+        }
+
+        boolean isLazy() {
+            return lazy;
+        }
+
+        /*
+         * Whether the field is declared as a LazyReference, which the generated code doesn't create
+         * */
+        boolean isReference() {
+            return field.asType().getKind() == TypeKind.DECLARED && ((TypeElement) ((DeclaredType) field.asType())
+                    .asElement()).getQualifiedName().contentEquals(LAZY_REFERENCE);
+        }
+
+        Column getJoinColumn() {
+            return joinColumn;
+        }
+
+        /*
+         * The class of the field, or null if it is not a class (e.g. a type variable)
+         * */
+        TypeElement getTargetType() {
+            if (field.asType().getKind() != TypeKind.DECLARED)
+                return null;
+            return (TypeElement) ((DeclaredType) field.asType()).asElement();
+        }
+    }
+}
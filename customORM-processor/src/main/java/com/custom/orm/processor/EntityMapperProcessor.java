@@ -0,0 +1,71 @@
+package com.custom.orm.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Generates a mapper (the GeneratedMapper interface of the runtime) for every @Entity class of the compilation.
+ * The mapper holds the SELECT, INSERT, UPDATE and DELETE of the entity and straight-line code binding its insert
+ * columns and hydrating its rows, so SessionImpl doesn't need the reflective mapping for it.
+ * An entity whose mapping can't be reproduced by the generated code gets no mapper (a note explains why) and is
+ * mapped by the reflective path at runtime. A field the mapper can neither access nor reach by a getter or a setter
+ * fails the compilation.
+ */
+@SupportedAnnotationTypes(EntityDescriptor.ENTITY)
+public class EntityMapperProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS)
+                    generate((TypeElement) element);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement entityType) {
+        MapperWriter writer = new MapperWriter(EntityDescriptor.of(entityType, processingEnv.getElementUtils()),
+                processingEnv.getElementUtils(), processingEnv.getTypeUtils());
+
+        if (writer.getUnsupportedReason() != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "No mapper is generated for "
+                    + entityType.getQualifiedName() + ": " + writer.getUnsupportedReason(), entityType);
+            return;
+        }
+
+        String source = writer.write();
+        if (!writer.getErrors().isEmpty()) {
+            writer.getErrors().forEach((field, error) ->
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, error, field));
+            return;
+        }
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(writer.getQualifiedMapperName(),
+                    entityType);
+            try (Writer out = file.openWriter()) {
+                out.write(source);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Mapper of "
+                    + entityType.getQualifiedName() + " can't be written: " + e.getMessage(), entityType);
+        }
+    }
+}
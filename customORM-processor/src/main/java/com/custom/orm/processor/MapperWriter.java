@@ -0,0 +1,531 @@
+package com.custom.orm.processor;
+
+import com.custom.orm.processor.EntityDescriptor.Column;
+import com.custom.orm.processor.EntityDescriptor.Relation;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the source of the mapper of one entity. The select list is built by the same walk as SelectPlan
+ * (own columns except join columns, then the columns of every @OneToOne entity, the owner's class is not
+ * visited again) and the JOIN part by the same rules as EntitiesMapperImpl, so the generated SQL is the one
+ * the reflective path would build. Mappings the generated code can't reproduce are rejected with a reason,
+ * these entities keep the reflective path.
+ * The mapper is in the package of the entity and accesses the fields directly where it can see them (public fields,
+ * fields that aren't private in the same package), other fields by the getter and the setter of the entity
+ * (getX()/isX(), setX()). A field the mapper has to read or write without either is an error of the compilation,
+ * see getErrors().
+ */
+final class MapperWriter {
+
+    static final String SUFFIX = "_Mapper";
+
+    private static final String FIND_QUERY = "SELECT %s FROM %s %s";
+    private static final String JOIN_QUERY = "LEFT JOIN %s ON %s = %s ";
+    private static final String FIND_BY_ID_SQL_QUERY = "%s WHERE %s.%s = ?;";
+    private static final String CREATE_SQL_QUERY = "INSERT INTO %s (%s) VALUES (%s)";
+    private static final String UPDATE_SQL_QUERY = "UPDATE %s SET %s WHERE %s = ?";
+    private static final String DELETE_SQL_QUERY = "DELETE FROM %s WHERE %s = ?";
+    private static final String COMMA_AND_SPACE = ", ";
+    private static final String INDENT = "    ";
+
+    private static final Map<String, String> READERS = Map.ofEntries(
+            Map.entry("java.lang.String", "resultSet.getString(%d)"),
+            Map.entry("java.lang.Long", "ResultSetValues.getLong(resultSet, %d)"),
+            Map.entry("java.lang.Integer", "ResultSetValues.getInteger(resultSet, %d)"),
+            Map.entry("java.lang.Boolean", "ResultSetValues.getBoolean(resultSet, %d)"),
+            Map.entry("java.lang.Double", "ResultSetValues.getDouble(resultSet, %d)"),
+            Map.entry("java.math.BigDecimal", "resultSet.getBigDecimal(%d)"),
+            Map.entry("java.time.LocalDate", "ResultSetValues.getLocalDate(resultSet, %d)"),
+            Map.entry("java.time.LocalDateTime", "ResultSetValues.getLocalDateTime(resultSet, %d)"),
+            Map.entry("java.time.LocalTime", "ResultSetValues.getLocalTime(resultSet, %d)"),
+            Map.entry("long", "resultSet.getLong(%d)"),
+            Map.entry("int", "resultSet.getInt(%d)"),
+            Map.entry("boolean", "resultSet.getBoolean(%d)"),
+            Map.entry("double", "resultSet.getDouble(%d)"),
+            Map.entry("float", "resultSet.getFloat(%d)"),
+            Map.entry("short", "resultSet.getShort(%d)"),
+            Map.entry("byte", "resultSet.getByte(%d)"));
+
+    private final Elements elements;
+
+    private final Types types;
+
+    private final EntityDescriptor root;
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    private final List<String> selectList = new ArrayList<>();
+
+    private final String joinScript;
+
+    private final String packageName;
+
+    /*
+     * Fields the mapper can't read or write, with the reason, they are found while the methods are written
+     * */
+    private final Map<VariableElement, String> errors = new LinkedHashMap<>();
+
+    private String unsupported;
+
+    MapperWriter(EntityDescriptor root, Elements elements, Types types) {
+        this.elements = elements;
+        this.types = types;
+        this.root = root;
+        this.packageName = elements.getPackageOf(root.getType()).getQualifiedName().toString();
+
+        if (!(root.getType().getEnclosingElement() instanceof PackageElement))
+            reject("nested entity classes are not supported");
+        for (Relation relation : root.getRelations()) {
+            if (!relation.getType().equals(EntityDescriptor.ONE_TO_ONE))
+                reject("@" + relation.getType() + " is mapped only by the reflective path");
+        }
+        buildNode(root, null, List.of());
+        this.joinScript = joinScript();
+    }
+
+    /**
+     * Returns why the entity can't have a generated mapper, or null if it can.
+     */
+    String getUnsupportedReason() {
+        return unsupported;
+    }
+
+    /**
+     * Returns the fields the written mapper can't access with the reason, empty if it compiles.
+     */
+    Map<VariableElement, String> getErrors() {
+        return errors;
+    }
+
+    String getMapperName() {
+        return root.getType().getSimpleName() + SUFFIX;
+    }
+
+    String getQualifiedMapperName() {
+        return root.getQualifiedName() + SUFFIX;
+    }
+
+    String write() {
+        String entity = root.getQualifiedName();
+        String findAll = String.format(FIND_QUERY, String.join(COMMA_AND_SPACE, selectList), root.getTableName(),
+                joinScript);
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty())
+            source.append("package ").append(packageName).append(";\n\n");
+        source.append("import com.custom.orm.mapper.GeneratedMapper;\n")
+                .append("import com.custom.orm.mapper.IdentityResolver;\n")
+                .append("import com.custom.orm.mapper.ResultSetValues;\n")
+                .append("import com.custom.orm.metadata.model.EntityModel;\n")
+                .append("import com.custom.orm.metadata.model.EntityModelRegistry;\n\n")
+                .append("import javax.annotation.processing.Generated;\n")
+                .append("import java.sql.PreparedStatement;\n")
+                .append("import java.sql.ResultSet;\n")
+                .append("import java.sql.SQLException;\n\n")
+                .append("@Generated(\"").append(EntityMapperProcessor.class.getName()).append("\")\n")
+                .append("public final class ").append(getMapperName())
+                .append(" implements GeneratedMapper<").append(entity).append("> {\n\n");
+
+        constant(source, "FIND_ALL", findAll);
+        if (root.hasId()) {
+            String idColumnName = root.getIdColumn().getName();
+            constant(source, "FIND_BY_ID", String.format(FIND_BY_ID_SQL_QUERY, findAll,
+                    root.getTableNameWithoutSchema(), idColumnName));
+            constant(source, "UPDATE", String.format(UPDATE_SQL_QUERY, root.getTableName(),
+                    insertColumns().stream().map(column -> column.getName() + " = ?")
+                            .collect(Collectors.joining(COMMA_AND_SPACE)),
+                    idColumnName));
+            constant(source, "DELETE", String.format(DELETE_SQL_QUERY, root.getTableName(), idColumnName));
+        }
+        constant(source, "INSERT", String.format(CREATE_SQL_QUERY, root.getTableName(),
+                insertColumns().stream().map(Column::getName).collect(Collectors.joining(COMMA_AND_SPACE)),
+                insertColumns().stream().map(column -> "?").collect(Collectors.joining(COMMA_AND_SPACE))));
+
+        for (Node node : nodes) {
+            if (node.entity.hasId())
+                source.append(INDENT).append("private static final EntityModel MODEL_").append(node.index)
+                        .append(" = EntityModelRegistry.getModel(").append(node.entity.getQualifiedName())
+                        .append(".class);\n\n");
+        }
+
+        method(source, "Class<" + entity + "> getEntityClass()", "return " + entity + ".class;");
+        method(source, "String getFindAll()", "return FIND_ALL;");
+        method(source, "String getFindById()", root.hasId() ? "return FIND_BY_ID;" : "return null;");
+        method(source, "String getInsert()", "return INSERT;");
+        method(source, "String getUpdate()", root.hasId() ? "return UPDATE;" : "return null;");
+        method(source, "String getDelete()", root.hasId() ? "return DELETE;" : "return null;");
+
+        source.append(INDENT).append("@Override\n")
+                .append(INDENT).append("public ").append(entity)
+                .append(" mapRow(ResultSet resultSet, IdentityResolver identityResolver) throws SQLException {\n")
+                .append(INDENT).append(INDENT).append("return hydrate0(resultSet, identityResolver);\n")
+                .append(INDENT).append("}\n\n");
+
+        writeBindInsert(source, entity);
+        for (Node node : nodes) {
+            writeHydrate(source, node);
+        }
+        source.setLength(source.length() - 1);
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /*
+     * Same walk as SelectPlan.buildNode(), ordinals are assigned in the order the columns are selected
+     * */
+    private Node buildNode(EntityDescriptor entity, Node parent, List<String> toAvoid) {
+        Node node = new Node(nodes.size(), entity, parent);
+        nodes.add(node);
+
+        String table = entity.getTableNameWithoutSchema();
+        for (Column column : entity.getColumns()) {
+            if (column.isJoinColumn())
+                continue;
+
+            selectList.add(table + "." + column.getName() + " AS " + table + "_" + column.getName());
+            node.columns.add(column);
+            node.ordinals.add(selectList.size());
+        }
+
+        for (Relation relation : entity.getRelations()) {
+            if (relation.isLazy() || relation.isReference()) {
+                reject("lazy relation " + entity.getQualifiedName() + "." + relation.getField()
+                        + " is mapped only by the reflective path");
+                continue;
+            }
+            if (!relation.getType().equals(EntityDescriptor.ONE_TO_ONE))
+                continue;
+
+            TypeElement target = relation.getTargetType();
+            if (target == null) {
+                reject("the type of " + relation.getField() + " is not a class");
+                continue;
+            }
+            String targetName = target.getQualifiedName().toString();
+            if (toAvoid.contains(targetName)) {
+                if (parent != null && targetName.equals(parent.entity.getQualifiedName()))
+                    node.backReference = relation;
+                continue;
+            }
+            if (parent != null) {
+                reject("@OneToOne " + entity.getQualifiedName() + "." + relation.getField()
+                        + " is not joined by the find query");
+                continue;
+            }
+            if (relation.getJoinColumn() == null
+                    && !(relation.isMappedBy() && relation.hasCascade("ALL", "ADD"))) {
+                reject("@OneToOne " + relation.getField() + " is not joined by the find query");
+                continue;
+            }
+
+            node.relations.add(relation);
+            node.children.add(buildNode(EntityDescriptor.of(target, elements), node,
+                    List.of(entity.getQualifiedName())));
+        }
+        return node;
+    }
+
+    /*
+     * Same JOIN part as EntitiesMapperImpl.getJoinScript() for @OneToOne: the mappedBy relations with cascade
+     * ALL or ADD, then the @JoinColumn fields
+     * */
+    private String joinScript() {
+        if (unsupported != null)
+            return "";
+
+        String rootTable = root.getTableNameWithoutSchema();
+        StringBuilder result = new StringBuilder();
+
+        Set<String> parentClasses = new LinkedHashSet<>();
+        for (Relation relation : root.getRelations()) {
+            if (relation.isMappedBy() && relation.hasCascade("ALL", "ADD")
+                    && parentClasses.add(relation.getTargetType().getQualifiedName().toString())) {
+                EntityDescriptor target = EntityDescriptor.of(relation.getTargetType(), elements);
+                List<String> foreignKeys = target.getColumns().stream()
+                        .filter(Column::isJoinColumn)
+                        .filter(column -> types.isAssignable(root.getType().asType(), column.getField().asType()))
+                        .map(Column::getName)
+                        .collect(Collectors.toList());
+                if (!root.hasId() || foreignKeys.size() != 1) {
+                    reject(target.getQualifiedName() + " must have one @JoinColumn referencing "
+                            + root.getQualifiedName() + " with an @Id");
+                    return "";
+                }
+                result.append(String.format(JOIN_QUERY, target.getTableNameWithoutSchema(),
+                        rootTable + "." + root.getIdColumn().getName(),
+                        target.getTableNameWithoutSchema() + "." + foreignKeys.get(0)));
+            }
+        }
+
+        boolean hasForeignKey = false;
+        for (Column column : root.getColumns()) {
+            if (!column.isJoinColumn())
+                continue;
+
+            EntityDescriptor target = EntityDescriptor.of(asTypeElement(column.getField().asType()), elements);
+            if (!target.hasId()) {
+                reject(target.getQualifiedName() + " referenced by " + column.getField() + " has no @Id");
+                return "";
+            }
+            result.append(String.format(JOIN_QUERY, target.getTableNameWithoutSchema(),
+                    target.getTableNameWithoutSchema() + "." + target.getIdColumn().getName(),
+                    rootTable + "." + column.getName()));
+            hasForeignKey = true;
+        }
+        if (hasForeignKey)
+            result.setLength(result.length() - 1);
+
+        return result.toString();
+    }
+
+    private void writeBindInsert(StringBuilder source, String entity) {
+        source.append(INDENT).append("@Override\n")
+                .append(INDENT).append("public void bindInsert(").append(entity)
+                .append(" entity, PreparedStatement preparedStatement) throws SQLException {\n");
+
+        List<Column> insertColumns = insertColumns();
+        for (int i = 0; i < insertColumns.size(); i++) {
+            Column column = insertColumns.get(i);
+            String value = get("entity", column.getField());
+            if (column.isJoinColumn()) {
+                TypeElement target = asTypeElement(column.getField().asType());
+                EntityDescriptor targetEntity = EntityDescriptor.of(target, elements);
+                String variable = "value" + (i + 1);
+                source.append(INDENT).append(INDENT).append(target.getQualifiedName()).append(" ").append(variable)
+                        .append(" = ").append(value).append(";\n");
+                value = variable + " == null ? null : " + get(variable, targetEntity.getIdColumn().getField());
+            }
+            source.append(INDENT).append(INDENT).append("preparedStatement.setObject(").append(i + 1).append(", ")
+                    .append(value).append(");\n");
+        }
+        source.append(INDENT).append("}\n\n");
+    }
+
+    /*
+     * Same steps as EntityRowMapper.Node.hydrate()
+     * */
+    private void writeHydrate(StringBuilder source, Node node) {
+        String entity = node.entity.getQualifiedName();
+        String body = INDENT + INDENT;
+
+        source.append(INDENT).append("private static ").append(entity).append(" hydrate").append(node.index)
+                .append("(ResultSet resultSet, ");
+        if (node.parent != null)
+            source.append(node.parent.entity.getQualifiedName()).append(" parent, ");
+        source.append("IdentityResolver identityResolver) throws SQLException {\n");
+
+        int idIndex = node.entity.hasId() ? node.columns.indexOf(node.entity.getIdColumn()) : -1;
+        if (idIndex >= 0) {
+            VariableElement idField = node.entity.getIdColumn().getField();
+            source.append(body).append(boxed(idField.asType())).append(" id = ")
+                    .append(reader(boxedType(idField.asType()), node.ordinals.get(idIndex))).append(";\n");
+            if (node.parent != null) {
+                source.append(body).append("// LEFT JOIN without a matching row\n")
+                        .append(body).append("if (id == null)\n")
+                        .append(body).append(INDENT).append("return null;\n")
+                        .append(body).append("Object known = identityResolver.find(MODEL_").append(node.index)
+                        .append(", id);\n")
+                        .append(body).append("if (known != null)\n")
+                        .append(body).append(INDENT).append("return (").append(entity).append(") known;\n\n");
+            } else {
+                source.append(body).append("if (id != null) {\n")
+                        .append(body).append(INDENT).append("Object known = identityResolver.find(MODEL_")
+                        .append(node.index).append(", id);\n")
+                        .append(body).append(INDENT).append("if (known != null)\n")
+                        .append(body).append(INDENT).append(INDENT).append("return (").append(entity)
+                        .append(") known;\n")
+                        .append(body).append("}\n\n");
+            }
+        }
+
+        source.append(body).append(entity).append(" entity = new ").append(entity).append("();\n");
+        for (int i = 0; i < node.columns.size(); i++) {
+            VariableElement field = node.columns.get(i).getField();
+            String value = i == idIndex ? "id" : reader(field.asType(), node.ordinals.get(i));
+            source.append(body).append(set("entity", field, value)).append(";\n");
+        }
+
+        for (int i = 0; i < node.children.size(); i++) {
+            Node child = node.children.get(i);
+            VariableElement field = node.relations.get(i).getField();
+            String variable = "child" + child.index;
+            source.append(body).append(child.entity.getQualifiedName()).append(" ").append(variable)
+                    .append(" = hydrate").append(child.index).append("(resultSet, entity, identityResolver);\n")
+                    .append(body).append("if (").append(variable).append(" != null)\n")
+                    .append(body).append(INDENT).append(set("entity", field, variable)).append(";\n");
+        }
+        if (node.backReference != null)
+            source.append(body).append(set("entity", node.backReference.getField(), "parent")).append(";\n");
+
+        if (idIndex >= 0) {
+            if (node.parent == null) {
+                source.append(body).append("if (id != null)\n").append(INDENT);
+            }
+            source.append(body).append("identityResolver.register(MODEL_").append(node.index)
+                    .append(", id, entity);\n");
+        }
+        source.append(body).append("return entity;\n")
+                .append(INDENT).append("}\n\n");
+    }
+
+    private List<Column> insertColumns() {
+        return root.getColumns().stream().filter(column -> !column.isId()).collect(Collectors.toList());
+    }
+
+    private String reader(TypeMirror type, int ordinal) {
+        String name = types.erasure(type).toString();
+        String reader = READERS.get(name);
+        if (reader != null)
+            return String.format(reader, ordinal);
+        return "(" + boxed(type) + ") resultSet.getObject(" + ordinal + ")";
+    }
+
+    private TypeMirror boxedType(TypeMirror type) {
+        return type.getKind().isPrimitive() ? types.boxedClass((PrimitiveType) type).asType()
+                : type;
+    }
+
+    private String boxed(TypeMirror type) {
+        return types.erasure(boxedType(type)).toString();
+    }
+
+    private String get(String target, VariableElement field) {
+        if (isAccessible(field))
+            return target + "." + field.getSimpleName();
+
+        String capitalized = capitalize(field.getSimpleName().toString());
+        ExecutableElement getter = findMethod(field, "get" + capitalized, false);
+        if (getter == null && field.asType().getKind() == TypeKind.BOOLEAN)
+            getter = findMethod(field, "is" + capitalized, false);
+        if (getter == null) {
+            error(field, "is private and has no getter, the mapper can't read it");
+            return "null";
+        }
+        return target + "." + getter.getSimpleName() + "()";
+    }
+
+    private String set(String target, VariableElement field, String value) {
+        if (isAccessible(field) && !field.getModifiers().contains(Modifier.FINAL))
+            return target + "." + field.getSimpleName() + " = " + value;
+
+        ExecutableElement setter = findMethod(field, "set" + capitalize(field.getSimpleName().toString()), true);
+        if (setter == null) {
+            error(field, "is private and has no setter, the mapper can't write it");
+            return "";
+        }
+        return target + "." + setter.getSimpleName() + "(" + value + ")";
+    }
+
+    /*
+     * The getter (no parameters, returns the type of the field) or the setter (one parameter of the type
+     * of the field) of the field, declared or inherited by its class and visible to the mapper
+     * */
+    private ExecutableElement findMethod(VariableElement field, String name, boolean setter) {
+        TypeElement owner = (TypeElement) field.getEnclosingElement();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(owner))) {
+            if (!method.getSimpleName().contentEquals(name) || method.getModifiers().contains(Modifier.STATIC)
+                    || !isAccessible(method))
+                continue;
+
+            if (setter && method.getParameters().size() == 1
+                    && types.isSameType(types.erasure(method.getParameters().get(0).asType()),
+                    types.erasure(field.asType())))
+                return method;
+            if (!setter && method.getParameters().isEmpty()
+                    && types.isSameType(types.erasure(method.getReturnType()), types.erasure(field.asType())))
+                return method;
+        }
+        return null;
+    }
+
+    /*
+     * Whether the mapper, a class of the package of the root entity, sees the member
+     * */
+    private boolean isAccessible(Element member) {
+        if (member.getModifiers().contains(Modifier.PUBLIC))
+            return true;
+        return !member.getModifiers().contains(Modifier.PRIVATE)
+                && elements.getPackageOf(member).getQualifiedName().contentEquals(packageName);
+    }
+
+    private void error(VariableElement field, String reason) {
+        errors.putIfAbsent(field, "Field " + ((TypeElement) field.getEnclosingElement()).getQualifiedName() + "."
+                + field.getSimpleName() + " " + reason + " (add the method or make the field package-private)");
+    }
+
+    private TypeElement asTypeElement(TypeMirror type) {
+        return (TypeElement) types.asElement(type);
+    }
+
+    private void reject(String reason) {
+        if (unsupported == null)
+            unsupported = reason;
+    }
+
+    private static void constant(StringBuilder source, String name, String sql) {
+        source.append(INDENT).append("private static final String ").append(name).append(" =\n")
+                .append(INDENT).append(INDENT).append(INDENT).append(literal(sql)).append(";\n\n");
+    }
+
+    private static void method(StringBuilder source, String signature, String body) {
+        source.append(INDENT).append("@Override\n")
+                .append(INDENT).append("public ").append(signature).append(" {\n")
+                .append(INDENT).append(INDENT).append(body).append("\n")
+                .append(INDENT).append("}\n\n");
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String literal(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /*
+     * One entity of the select list, as EntityRowMapper.Node
+     * */
+    private static final class Node {
+
+        private final int index;
+
+        private final EntityDescriptor entity;
+
+        private final Node parent;
+
+        private final List<Column> columns = new ArrayList<>();
+
+        private final List<Integer> ordinals = new ArrayList<>();
+
+        private final List<Relation> relations = new ArrayList<>();
+
+        private final List<Node> children = new ArrayList<>();
+
+        private Relation backReference;
+
+        private Node(int index, EntityDescriptor entity, Node parent) {
+            this.index = index;
+            this.entity = entity;
+            this.parent = parent;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.custom.orm.processor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EntityMapperProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void mapperOfEntityWithOneToOne() throws IOException {
+        Path generated = process(
+                "package demo;\n"
+                        + "import com.custom.orm.annotations.*;\n"
+                        + "import com.custom.orm.annotations.relations.*;\n"
+                        + "import com.custom.orm.enums.*;\n"
+                        + "@Entity @Table(name = \"users\", schema = \"public\")\n"
+                        + "public class User {\n"
+                        + "    @Id private Long id;\n"
+                        + "    @Column(name = \"birthdate\") private java.time.LocalDate birthDate;\n"
+                        + "    @OneToOne(mappedBy = \"user\", cascade = CascadeType.ALL) private Profile profile;\n"
+                        + "    public Long getId() { return id; }\n"
+                        + "    public void setId(Long id) { this.id = id; }\n"
+                        + "    public java.time.LocalDate getBirthDate() { return birthDate; }\n"
+                        + "    void setBirthDate(java.time.LocalDate birthDate) { this.birthDate = birthDate; }\n"
+                        + "    public void setProfile(Profile profile) { this.profile = profile; }\n"
+                        + "}\n",
+                "package demo;\n"
+                        + "import com.custom.orm.annotations.*;\n"
+                        + "import com.custom.orm.annotations.relations.*;\n"
+                        + "import com.custom.orm.enums.*;\n"
+                        + "@Entity\n"
+                        + "public class Profile {\n"
+                        + "    @Id private Long id;\n"
+                        + "    @OneToOne @JoinColumn(name = \"user_id\") private User user;\n"
+                        + "    String passport;\n"
+                        + "    public void setId(Long id) { this.id = id; }\n"
+                        + "    public User getUser() { return user; }\n"
+                        + "    public void setUser(User user) { user.setProfile(this); this.user = user; }\n"
+                        + "}\n");
+
+        String user = read(generated.resolve("demo/User_Mapper.java"));
+        assertTrue(user.contains("\"SELECT users.id AS users_id, users.birthdate AS users_birthdate, "
+                + "profile.id AS profile_id, profile.passport AS profile_passport "
+                + "FROM public.users LEFT JOIN profile ON users.id = profile.user_id \""));
+        assertTrue(user.contains("\"INSERT INTO public.users (birthdate) VALUES (?)\""));
+        assertTrue(user.contains("\"DELETE FROM public.users WHERE id = ?\""));
+        // private fields are written by the setters (a package-private one in the package of the mapper),
+        // the others directly
+        assertTrue(user.contains("entity.setBirthDate(ResultSetValues.getLocalDate(resultSet, 2));"));
+        assertTrue(user.contains("entity.passport = resultSet.getString(4);"));
+        assertTrue(user.contains("entity.setUser(parent);"));
+        assertTrue(user.contains("entity.setProfile(child1);"));
+        assertFalse(user.contains("PropertyAccessor"));
+        assertFalse(user.contains("findAccessor"));
+
+        String profile = read(generated.resolve("demo/Profile_Mapper.java"));
+        assertTrue(profile.contains("FROM profile LEFT JOIN users ON users.id = profile.user_id\""));
+        assertTrue(profile.contains("demo.User value1 = entity.getUser();"));
+        assertTrue(profile.contains("preparedStatement.setObject(1, value1 == null ? null : value1.getId());"));
+        assertTrue(profile.contains("preparedStatement.setObject(2, entity.passport);"));
+    }
+
+    @Test
+    public void entityWithCollectionKeepsReflectivePath() throws IOException {
+        Path generated = process(
+                "package demo;\n"
+                        + "import com.custom.orm.annotations.*;\n"
+                        + "import com.custom.orm.annotations.relations.*;\n"
+                        + "import com.custom.orm.enums.*;\n"
+                        + "@Entity\n"
+                        + "public class Team {\n"
+                        + "    @Id private Long id;\n"
+                        + "    @OneToMany(mappedBy = \"team\") private java.util.List<Team> members;\n"
+                        + "}\n");
+
+        assertFalse(Files.exists(generated.resolve("demo/Team_Mapper.java")));
+    }
+
+    @Test
+    public void entityWithLazyRelationKeepsReflectivePath() throws IOException {
+        Path generated = process(
+                "package demo;\n"
+                        + "import com.custom.orm.annotations.*;\n"
+                        + "import com.custom.orm.annotations.relations.*;\n"
+                        + "import com.custom.orm.enums.*;\n"
+                        + "@Entity\n"
+                        + "public class Account {\n"
+                        + "    @Id private Long id;\n"
+                        + "    @OneToOne(fetch = FetchType.LAZY) @JoinColumn(name = \"owner_id\") private Account owner;\n"
+                        + "}\n");
+
+        assertFalse(Files.exists(generated.resolve("demo/Account_Mapper.java")));
+    }
+
+    @Test
+    public void privateFieldWithoutAccessorsFailsCompilation() throws IOException {
+        List<String> errors = compile(
+                "package demo;\n"
+                        + "import com.custom.orm.annotations.*;\n"
+                        + "@Entity\n"
+                        + "public class Note {\n"
+                        + "    @Id private Long id;\n"
+                        + "    private String text;\n"
+                        + "    public void setId(Long id) { this.id = id; }\n"
+                        + "    public void setText(String text) { this.text = text; }\n"
+                        + "}\n");
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0), errors.get(0).contains("Field demo.Note.text is private and has no getter"));
+        assertFalse(Files.exists(folder.getRoot().toPath().resolve("generated/demo/Note_Mapper.java")));
+    }
+
+    /*
+     * Compiles the given entities against the runtime classes on the class path of the test, together with
+     * the mappers generated for them, and fails on any compilation error
+     * */
+    private Path process(String... entities) throws IOException {
+        assertEquals(List.of(), compile(entities));
+        return folder.getRoot().toPath().resolve("generated");
+    }
+
+    /*
+     * Compiles the given entities with the processor and returns the errors of the compilation
+     * */
+    private List<String> compile(String... entities) throws IOException {
+        Path sources = folder.newFolder("src").toPath();
+        Path generated = folder.newFolder("generated").toPath();
+        Path classes = folder.newFolder("classes").toPath();
+
+        List<String> files = new ArrayList<>();
+        for (String entity : entities) {
+            String name = entity.substring(entity.indexOf("public class ") + 13, entity.indexOf(" {"));
+            files.add(write(sources, "demo/" + name + ".java", entity));
+        }
+
+        List<String> errors = new ArrayList<>();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostic -> {
+                        if (diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                            errors.add(diagnostic.toString());
+                    }, List.of("-classpath", System.getProperty("java.class.path"),
+                            "-s", generated.toString(), "-d", classes.toString()), null,
+                    fileManager.getJavaFileObjectsFromStrings(files));
+            task.setProcessors(List.of(new EntityMapperProcessor()));
+            task.call();
+        }
+        return errors;
+    }
+
+    private String write(Path root, String relativePath, String content) throws IOException {
+        Path file = root.resolve(relativePath.replace('/', File.separatorChar));
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file.toString();
+    }
+
+    private String read(Path file) throws IOException {
+        return Files.readString(file);
+    }
+}
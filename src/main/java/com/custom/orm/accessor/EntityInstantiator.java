@@ -0,0 +1,53 @@
+package com.custom.orm.accessor;
+
+import lombok.SneakyThrows;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+
+/**
+ * Creates new instances of an entity through a method handle of its no-arg constructor.
+ */
+public final class EntityInstantiator {
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private final Class<?> entityClass;
+
+    private final MethodHandle constructor;
+
+    private EntityInstantiator(Class<?> entityClass, MethodHandle constructor) {
+        this.entityClass = entityClass;
+        this.constructor = constructor;
+    }
+
+    /**
+     * Resolves the no-arg constructor of the class. Classes without one still get an instantiator,
+     * the error is reported only if an instance is actually requested.
+     */
+    @SneakyThrows
+    public static EntityInstantiator of(Class<?> entityClass) {
+        Constructor<?> noArgsConstructor;
+        try {
+            noArgsConstructor = entityClass.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            return new EntityInstantiator(entityClass, null);
+        }
+        noArgsConstructor.setAccessible(true);
+        return new EntityInstantiator(entityClass,
+                MethodHandles.lookup().unreflectConstructor(noArgsConstructor).asType(CONSTRUCTOR_TYPE));
+    }
+
+    @SneakyThrows
+    public Object newInstance() {
+        if (constructor == null)
+            throw new UnsupportedOperationException("Entity " + entityClass.getName() + " doesn't have a no-arg constructor!");
+        return (Object) constructor.invokeExact();
+    }
+
+    public boolean canInstantiate() {
+        return constructor != null;
+    }
+}
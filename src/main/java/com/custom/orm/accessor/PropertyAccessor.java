@@ -0,0 +1,59 @@
+package com.custom.orm.accessor;
+
+import lombok.SneakyThrows;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Reads and writes one property of an entity through method handles of its field that are resolved once,
+ * when the entity model is built. Unlike Field.get() or Method.invoke() a call has no access check and no
+ * arguments array, it is an invokeExact() of a handle of a fixed type.
+ * The field is accessed, not the getter and the setter: setters of entities may have side effects
+ * (Profile.setUser() sets the profile of the user) and the ORM sets values they don't take, like a LazyReference.
+ */
+public final class PropertyAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final String name;
+
+    private final MethodHandle getter;
+
+    private final MethodHandle setter;
+
+    private PropertyAccessor(String name, MethodHandle getter, MethodHandle setter) {
+        this.name = name;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * Creates the accessor of the given field. The field has to be accessible already,
+     * then the handles are created without access checks.
+     */
+    @SneakyThrows
+    public static PropertyAccessor of(Field field) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        return new PropertyAccessor(field.getName(),
+                lookup.unreflectGetter(field).asType(GETTER_TYPE),
+                lookup.unreflectSetter(field).asType(SETTER_TYPE));
+    }
+
+    @SneakyThrows
+    public Object get(Object entity) {
+        return (Object) getter.invokeExact(entity);
+    }
+
+    @SneakyThrows
+    public void set(Object entity, Object value) {
+        setter.invokeExact(entity, value);
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,17 @@
+package com.custom.orm.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Puts the entity into the second-level cache shared by all the sessions of a factory, see SecondLevelCache.
+ * Values below 1 mean the defaults "db.cache.maximumSize" and "db.cache.ttlSeconds".
+ */
+@Documented
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+
+    int maximumSize() default 0;
+
+    long ttlSeconds() default 0;
+}
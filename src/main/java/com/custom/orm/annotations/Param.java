@@ -0,0 +1,15 @@
+package com.custom.orm.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Names the argument of a @Query method that is bound to the named parameter (:name) of its SQL.
+ * It can be omitted when the classes are compiled with -parameters.
+ */
+@Documented
+@Target({ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Param {
+
+    String value();
+}
@@ -5,6 +5,13 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * SQL of a method of a repository interface, see SessionFactory.getRepository(). It is either a fragment appended
+ * to the find query of the returned entity (e.g. "WHERE users.age > :age ORDER BY users.lastname") or a whole SELECT
+ * of the same columns as the find query, since the rows are mapped by the row mapper of the entity.
+ * Arguments are bound to the named parameters (:name), see @Param. Collections are bound as arrays,
+ * e.g. "WHERE users.id = ANY(:ids)" with a List<Long>.
+ */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Query {
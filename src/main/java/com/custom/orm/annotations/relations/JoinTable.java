@@ -5,7 +5,23 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Table of the pairs of a @ManyToMany, declared on the owning side (the side without mappedBy).
+ * By default the table is named ownerTable_targetTable, and its columns ownerTable_id and targetTable_id.
+ */
 @Target({ElementType.METHOD, ElementType.FIELD})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface JoinTable {
+
+    String name() default "";
+
+    /**
+     * The column referring to the owning entity.
+     */
+    String joinColumn() default "";
+
+    /**
+     * The column referring to the entity of the collection.
+     */
+    String inverseJoinColumn() default "";
 }
@@ -1,6 +1,7 @@
 package com.custom.orm.annotations.relations;
 
 import com.custom.orm.enums.CascadeType;
+import com.custom.orm.enums.FetchType;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -13,4 +14,9 @@ public @interface ManyToMany {
     String mappedBy() default "";
 
     CascadeType[] cascade() default {};
+
+    /**
+     * LAZY relations are not joined by the find query of the owner.
+     */
+    FetchType fetch() default FetchType.EAGER;
 }
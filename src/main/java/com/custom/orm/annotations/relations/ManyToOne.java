@@ -1,6 +1,7 @@
 package com.custom.orm.annotations.relations;
 
 import com.custom.orm.enums.CascadeType;
+import com.custom.orm.enums.FetchType;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -13,4 +14,10 @@ public @interface ManyToOne {
     String mappedBy() default "";
 
     CascadeType[] cascade() default {};
+
+    /**
+     * LAZY relations are not joined, the field has to be a LazyReference which loads the related entity
+     * on first access within the session.
+     */
+    FetchType fetch() default FetchType.EAGER;
 }
@@ -0,0 +1,185 @@
+package com.custom.orm.cache;
+
+import com.custom.orm.mapper.EntityRowMapper;
+import com.custom.orm.mapper.SelectPlan;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Second-level cache of one entity class. It keeps the rows read by findById in their dehydrated form,
+ * the column values returned by EntityRowMapper.extract(), so every session hydrates its own instances from them
+ * and no live object is shared between sessions.
+ * The region is bounded: the least recently used row is evicted once the maximum size is exceeded, and rows
+ * older than the time to live are treated as missing.
+ * Every invalidation increments the version of the region. A row read from the database is put only if the version
+ * didn't change since the read started, so a row read before a concurrent commit can't overwrite its invalidation.
+ */
+public final class EntityRegion {
+
+    private final Class<?> entityClass;
+
+    private final int maximumSize;
+
+    private final long timeToLiveNanos;
+
+    private final LongSupplier ticker;
+
+    private final SelectPlan<?> selectPlan;
+
+    private final Map<Object, CachedRow> rows = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    private volatile long version;
+
+    EntityRegion(Class<?> entityClass, SelectPlan<?> selectPlan, int maximumSize, long timeToLiveNanos) {
+        this(entityClass, selectPlan, maximumSize, timeToLiveNanos, System::nanoTime);
+    }
+
+    EntityRegion(Class<?> entityClass, SelectPlan<?> selectPlan, int maximumSize, long timeToLiveNanos,
+                 LongSupplier ticker) {
+        if (maximumSize < 1)
+            throw new IllegalArgumentException("Cache size must be positive: " + maximumSize);
+
+        this.entityClass = entityClass;
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLiveNanos;
+        this.ticker = ticker;
+        this.selectPlan = selectPlan;
+    }
+
+    /**
+     * This method returns a copy of the cached row of the entity with the given id, or null.
+     */
+    public Object[] get(Object id) {
+        lock.lock();
+        try {
+            CachedRow cached = rows.get(id);
+            if (cached != null && ticker.getAsLong() - cached.createdAt > timeToLiveNanos) {
+                rows.remove(id);
+                statistics.recordExpiration();
+                cached = null;
+            }
+            if (cached == null) {
+                statistics.recordMiss();
+                return null;
+            }
+            statistics.recordHit();
+            return cached.row.clone();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method caches the row read from the database, unless the region was invalidated since the read started.
+     *
+     * @param versionAtRead the value of getVersion() taken before the query was executed.
+     */
+    public void put(Object id, Object[] row, long versionAtRead) {
+        lock.lock();
+        try {
+            if (version != versionAtRead)
+                return;
+
+            rows.put(id, new CachedRow(row.clone(), ticker.getAsLong()));
+            statistics.recordPut();
+
+            if (rows.size() > maximumSize) {
+                Object eldest = rows.keySet().iterator().next();
+                rows.remove(eldest);
+                statistics.recordEviction();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method removes the row of the entity with the given id.
+     */
+    public void evict(Object id) {
+        lock.lock();
+        try {
+            version++;
+            rows.remove(id);
+            statistics.recordInvalidation();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method removes all the rows of the region.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            version++;
+            rows.clear();
+            statistics.recordInvalidation();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * This method checks whether cached rows contain columns of the given class, either the entity itself
+     * or one of the @OneToOne entities joined by its find query.
+     */
+    public boolean dependsOn(Class<?> otherClass) {
+        return selectPlan.getEntityClasses().contains(otherClass);
+    }
+
+    public Set<Class<?>> getEntityClasses() {
+        return selectPlan.getEntityClasses();
+    }
+
+    /**
+     * Returns the row mapper that extracts the cached rows and hydrates entities from them,
+     * its columns are the columns of the find queries of the entity.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> EntityRowMapper<T> getRowMapper() {
+        return (EntityRowMapper<T>) selectPlan.getRowMapper();
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return rows.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class CachedRow {
+
+        private final Object[] row;
+
+        private final long createdAt;
+
+        private CachedRow(Object[] row, long createdAt) {
+            this.row = row;
+            this.createdAt = createdAt;
+        }
+    }
+}
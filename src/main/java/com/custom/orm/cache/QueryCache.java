@@ -0,0 +1,202 @@
+package com.custom.orm.cache;
+
+import com.custom.orm.util.OrmProperties;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of query results of one session factory, shared by its sessions and keyed by the SQL text and its bound parameters. A result is kept as the list
+ * of its dehydrated rows (see EntityRowMapper.extract()) together with the names of the tables the query reads.
+ * Every table has a version, which is incremented when a change of the table is committed through a session.
+ * A result is valid only while the versions of all its tables are the ones taken before the query was executed,
+ * so a result read before a concurrent commit is never served.
+ * The cache is bounded by "db.queryCache.maximumSize" results (least recently used ones are evicted) and
+ * "db.queryCache.ttlSeconds", and it is used by the sessions only with "db.queryCache.enabled=true".
+ */
+public class QueryCache {
+
+    private final boolean enabled = OrmProperties.getBoolean("db.queryCache.enabled", false);
+
+    private final int maximumSize = OrmProperties.getInt("db.queryCache.maximumSize", 500);
+
+    private final long timeToLiveNanos = TimeUnit.SECONDS.toNanos(OrmProperties.getInt("db.queryCache.ttlSeconds", 300));
+
+    private final Map<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+
+    private final Map<QueryKey, CachedResult> results = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    private volatile LongSupplier ticker = System::nanoTime;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * This method returns the current versions of the tables, they must be taken before the query is executed
+     * and passed to put().
+     */
+    public Map<String, Long> getVersions(Set<String> tables) {
+        Map<String, Long> versions = new HashMap<>();
+        for (String table : tables) {
+            versions.put(table, version(table).get());
+        }
+        return versions;
+    }
+
+    /**
+     * This method returns the cached rows of the query with the given parameters, or null.
+     * The rows are shared and must not be modified.
+     */
+    public List<Object[]> get(String sql, List<?> parameters) {
+        QueryKey key = new QueryKey(sql, parameters);
+        lock.lock();
+        try {
+            CachedResult cached = results.get(key);
+            if (cached != null && ticker.getAsLong() - cached.createdAt > timeToLiveNanos) {
+                results.remove(key);
+                statistics.recordExpiration();
+                cached = null;
+            }
+            if (cached != null && !isCurrent(cached.versions)) {
+                results.remove(key);
+                statistics.recordInvalidation();
+                cached = null;
+            }
+            if (cached == null) {
+                statistics.recordMiss();
+                return null;
+            }
+            statistics.recordHit();
+            return cached.rows;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method caches the rows of the query, unless one of its tables changed since getVersions() was called.
+     *
+     * @param versionsAtRead the versions of all the tables read by the query, taken before it was executed.
+     */
+    public void put(String sql, List<?> parameters, Map<String, Long> versionsAtRead, List<Object[]> rows) {
+        lock.lock();
+        try {
+            if (!isCurrent(versionsAtRead))
+                return;
+
+            results.put(new QueryKey(sql, parameters),
+                    new CachedResult(List.copyOf(rows), Map.copyOf(versionsAtRead), ticker.getAsLong()));
+            statistics.recordPut();
+
+            if (results.size() > maximumSize) {
+                results.remove(results.keySet().iterator().next());
+                statistics.recordEviction();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method invalidates the results of all the queries reading any of the given tables.
+     * Results are not searched, they are removed when they are requested next time.
+     */
+    public void invalidateTables(Collection<String> tables) {
+        for (String table : tables) {
+            version(table).incrementAndGet();
+        }
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return results.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            results.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Replaces the clock, used by tests of the time to live
+     * */
+    void setTicker(LongSupplier newTicker) {
+        ticker = newTicker;
+    }
+
+    private boolean isCurrent(Map<String, Long> versions) {
+        for (Map.Entry<String, Long> entry : versions.entrySet()) {
+            if (version(entry.getKey()).get() != entry.getValue())
+                return false;
+        }
+        return true;
+    }
+
+    private AtomicLong version(String table) {
+        AtomicLong version = tableVersions.get(table);
+        if (version != null)
+            return version;
+        return tableVersions.computeIfAbsent(table, key -> new AtomicLong());
+    }
+
+    private static final class QueryKey {
+
+        private final String sql;
+
+        private final List<?> parameters;
+
+        private QueryKey(String sql, List<?> parameters) {
+            this.sql = sql;
+            this.parameters = Collections.unmodifiableList(new ArrayList<>(parameters));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            QueryKey queryKey = (QueryKey) o;
+            return sql.equals(queryKey.sql) && parameters.equals(queryKey.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, parameters);
+        }
+    }
+
+    private static final class CachedResult {
+
+        private final List<Object[]> rows;
+
+        private final Map<String, Long> versions;
+
+        private final long createdAt;
+
+        private CachedResult(List<Object[]> rows, Map<String, Long> versions, long createdAt) {
+            this.rows = rows;
+            this.versions = versions;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.custom.orm.cache;
+
+import com.custom.orm.annotations.Cacheable;
+import com.custom.orm.mapper.SqlTemplateCache;
+import com.custom.orm.util.OrmProperties;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Second-level cache of the entities annotated with @Cacheable, shared by all the sessions of one session factory.
+ * Every class has its own region bounded by size and time to live ("db.cache.maximumSize", "db.cache.ttlSeconds"
+ * or the values of the annotation). The cache is switched off for all the classes with "db.cache.enabled=false".
+ * Sessions invalidate the rows they wrote only after the transaction is committed, see Transaction.commit().
+ */
+public class SecondLevelCache {
+
+    private final boolean enabled = OrmProperties.getBoolean("db.cache.enabled", true);
+
+    private final int defaultMaximumSize = OrmProperties.getInt("db.cache.maximumSize", 1000);
+
+    private final long defaultTtlSeconds = OrmProperties.getInt("db.cache.ttlSeconds", 600);
+
+    private final Map<Class<?>, Optional<EntityRegion>> regions = new ConcurrentHashMap<>();
+
+    private final SqlTemplateCache sqlTemplates;
+
+    /**
+     * Creates the cache whose regions keep the rows read by the select plans of the given templates.
+     */
+    public SecondLevelCache(SqlTemplateCache sqlTemplates) {
+        this.sqlTemplates = sqlTemplates;
+    }
+
+    /**
+     * This method returns the region of the entity class, or an empty Optional if the class isn't cacheable.
+     */
+    public Optional<EntityRegion> getRegion(Class<?> entityClass) {
+        if (!enabled)
+            return Optional.empty();
+
+        Optional<EntityRegion> region = regions.get(entityClass);
+        if (region != null)
+            return region;
+        return regions.computeIfAbsent(entityClass, this::createRegion);
+    }
+
+    public boolean isCacheable(Class<?> entityClass) {
+        return getRegion(entityClass).isPresent();
+    }
+
+    /**
+     * This method removes the cached rows affected by a committed change of the entity with the given id
+     * (null if the changed rows are unknown, e.g. after COPY). The row of the entity is removed from its region,
+     * and the regions whose rows contain columns of the class through a joined @OneToOne are cleared.
+     */
+    public void invalidate(Class<?> entityClass, Object id) {
+        for (Optional<EntityRegion> candidate : regions.values()) {
+            if (candidate.isEmpty() || !candidate.get().dependsOn(entityClass))
+                continue;
+
+            EntityRegion region = candidate.get();
+            if (region.getEntityClass() == entityClass && id != null)
+                region.evict(id);
+            else
+                region.clear();
+        }
+    }
+
+    /**
+     * This method invalidates the rows of all the given classes, the map holds the changed ids of every class.
+     */
+    public void invalidate(Map<Class<?>, ? extends Collection<Object>> changes) {
+        changes.forEach((entityClass, ids) -> {
+            if (ids.contains(null)) {
+                invalidate(entityClass, null);
+                return;
+            }
+            ids.forEach(id -> invalidate(entityClass, id));
+        });
+    }
+
+    /**
+     * This method returns the statistics of every region created so far.
+     */
+    public Map<Class<?>, CacheStatistics> getStatistics() {
+        Map<Class<?>, CacheStatistics> result = new LinkedHashMap<>();
+        regions.values().forEach(region -> region.ifPresent(found ->
+                result.put(found.getEntityClass(), found.getStatistics())));
+        return result;
+    }
+
+    public Optional<CacheStatistics> getStatistics(Class<?> entityClass) {
+        return getRegion(entityClass).map(EntityRegion::getStatistics);
+    }
+
+    /**
+     * This method removes the rows of all the regions.
+     */
+    public void clear() {
+        regions.values().forEach(region -> region.ifPresent(EntityRegion::clear));
+    }
+
+    private Optional<EntityRegion> createRegion(Class<?> entityClass) {
+        Cacheable cacheable = entityClass.getAnnotation(Cacheable.class);
+        if (cacheable == null)
+            return Optional.empty();
+
+        int maximumSize = cacheable.maximumSize() > 0 ? cacheable.maximumSize() : defaultMaximumSize;
+        long ttlSeconds = cacheable.ttlSeconds() > 0 ? cacheable.ttlSeconds() : defaultTtlSeconds;
+        return Optional.of(new EntityRegion(entityClass, sqlTemplates.getSelectPlan(entityClass), maximumSize,
+                TimeUnit.SECONDS.toNanos(ttlSeconds)));
+    }
+}
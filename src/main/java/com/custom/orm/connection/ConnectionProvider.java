@@ -0,0 +1,12 @@
+package com.custom.orm.connection;
+
+import java.sql.Connection;
+
+public interface ConnectionProvider {
+
+    Connection getConnection();
+
+    int getMaximumPoolSize();
+
+    void close();
+}
@@ -0,0 +1,44 @@
+package com.custom.orm.connection;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+@UtilityClass
+public class ConnectionProviders {
+
+    private volatile ConnectionProvider defaultProvider;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * This method returns the provider used by sessions that were created without an explicit ConnectionProvider.
+     * Unless another provider was registered with setDefault(), a HikariConnectionProvider configured
+     * from app.properties is created on the first call. The creation opens the pool's connections, so it is guarded
+     * by a lock instead of a monitor, which would pin a virtual thread to its carrier for the whole time.
+     */
+    public ConnectionProvider getDefault() {
+        ConnectionProvider provider = defaultProvider;
+        if (provider == null) {
+            lock.lock();
+            try {
+                provider = defaultProvider;
+                if (provider == null) {
+                    provider = new HikariConnectionProvider();
+                    defaultProvider = provider;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return provider;
+    }
+
+    /**
+     * This method replaces the default provider. The previous provider is not closed, it remains the caller's
+     * responsibility.
+     */
+    public void setDefault(ConnectionProvider provider) {
+        defaultProvider = provider;
+    }
+}
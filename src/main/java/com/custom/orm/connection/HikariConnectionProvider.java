@@ -0,0 +1,89 @@
+package com.custom.orm.connection;
+
+import com.custom.orm.exceptions.ConnectionSQLException;
+import com.custom.orm.util.OrmProperties;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class HikariConnectionProvider implements ConnectionProvider {
+
+    private final Logger log = LoggerFactory.getLogger(HikariConnectionProvider.class);
+
+    private static final String POOL_NAME = "customORM-pool";
+    private static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+    private static final int DEFAULT_PREPARE_THRESHOLD = 5;
+    private static final int DEFAULT_PREPARED_STATEMENT_CACHE_QUERIES = 256;
+    private static final int DEFAULT_PREPARED_STATEMENT_CACHE_SIZE_MIB = 5;
+
+    private final HikariDataSource dataSource;
+
+    /**
+     * Creates the pool from the "db.*" properties of app.properties.
+     * Only db.url, db.username and db.password are required, the pool settings fall back to HikariCP defaults.
+     * The "db.statement.*" properties configure the per-connection statement cache of the PostgreSQL driver:
+     * a statement text executed prepareThreshold times on a connection becomes a server-side prepared statement.
+     */
+    public HikariConnectionProvider() {
+        this(createConfig());
+    }
+
+    public HikariConnectionProvider(HikariConfig config) {
+        log.info("Starting connection pool...");
+        dataSource = new HikariDataSource(config);
+        log.info("Connection pool was successfully started: " + dataSource.getPoolName());
+    }
+
+    /**
+     * This method borrows a connection from the pool. Closing the returned connection gives it back to the pool.
+     */
+    @Override
+    public Connection getConnection() {
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new ConnectionSQLException(e);
+        }
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        return dataSource.getMaximumPoolSize();
+    }
+
+    @Override
+    public void close() {
+        log.info("Closing connection pool");
+        dataSource.close();
+    }
+
+    /*
+     * The configuration of the pool read from app.properties, see the constructor
+     * */
+    static HikariConfig createConfig() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(POOL_NAME);
+        config.setJdbcUrl(OrmProperties.getString("db.url"));
+        config.setUsername(OrmProperties.getString("db.username"));
+        config.setPassword(OrmProperties.getString("db.password"));
+        config.setAutoCommit(false);
+        config.setMaximumPoolSize(OrmProperties.getInt("db.pool.maximumPoolSize", DEFAULT_MAXIMUM_POOL_SIZE));
+        config.setMinimumIdle(OrmProperties.getInt("db.pool.minimumIdle", config.getMaximumPoolSize()));
+        config.setIdleTimeout(OrmProperties.getLong("db.pool.idleTimeout", config.getIdleTimeout()));
+        config.setMaxLifetime(OrmProperties.getLong("db.pool.maxLifetime", config.getMaxLifetime()));
+        config.setConnectionTimeout(OrmProperties.getLong("db.pool.connectionTimeout", config.getConnectionTimeout()));
+        config.setLeakDetectionThreshold(OrmProperties.getLong("db.pool.leakDetectionThreshold",
+                config.getLeakDetectionThreshold()));
+        config.addDataSourceProperty("prepareThreshold",
+                OrmProperties.getInt("db.statement.prepareThreshold", DEFAULT_PREPARE_THRESHOLD));
+        config.addDataSourceProperty("preparedStatementCacheQueries",
+                OrmProperties.getInt("db.statement.cacheQueries", DEFAULT_PREPARED_STATEMENT_CACHE_QUERIES));
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB",
+                OrmProperties.getInt("db.statement.cacheSizeMiB", DEFAULT_PREPARED_STATEMENT_CACHE_SIZE_MIB));
+        return config;
+    }
+}
@@ -0,0 +1,125 @@
+package com.custom.orm.connection;
+
+import com.custom.orm.exceptions.ConnectionSQLException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded LRU cache of the prepared statements of one connection, keyed by the SQL text and the generated-keys mode.
+ * Statements returned by the cache stay open and must not be closed by the caller, they are closed when they are
+ * evicted or when the cache is closed. A connection is used by one thread at a time, so the cache is not synchronized.
+ */
+public class StatementCache {
+
+    private final Connection connection;
+
+    private final Map<Key, PreparedStatement> statements;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    public StatementCache(Connection connection, int maximumSize) {
+        if (maximumSize < 1)
+            throw new IllegalArgumentException("Statement cache size must be positive: " + maximumSize);
+
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+                if (size() <= maximumSize)
+                    return false;
+
+                evictions++;
+                close(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * This method returns the cached statement for the SQL text and generated-keys mode
+     * (Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS), or prepares and caches a new one.
+     */
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+
+        PreparedStatement statement = statements.get(key);
+        if (statement != null && !statement.isClosed()) {
+            hits++;
+            return statement;
+        }
+
+        misses++;
+        statement = connection.prepareStatement(sql, autoGeneratedKeys);
+        statements.put(key, statement);
+        return statement;
+    }
+
+    /**
+     * This method closes all the cached statements, the cache can still be used afterwards.
+     */
+    public void close() {
+        List<PreparedStatement> cached = new ArrayList<>(statements.values());
+        statements.clear();
+        cached.forEach(this::close);
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    private void close(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            throw new ConnectionSQLException(e);
+        }
+    }
+
+    private static final class Key {
+
+        private final String sql;
+
+        private final int autoGeneratedKeys;
+
+        private Key(String sql, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return autoGeneratedKeys == key.autoGeneratedKeys && sql.equals(key.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, autoGeneratedKeys);
+        }
+    }
+}
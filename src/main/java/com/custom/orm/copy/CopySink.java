@@ -0,0 +1,19 @@
+package com.custom.orm.copy;
+
+/**
+ * Destination of a COPY ... FROM STDIN payload.
+ */
+public interface CopySink {
+
+    void write(byte[] data, int offset, int length);
+
+    /**
+     * Completes the COPY and returns the number of rows the destination received.
+     */
+    long finish();
+
+    /**
+     * Aborts the COPY, nothing written so far is kept.
+     */
+    void cancel();
+}
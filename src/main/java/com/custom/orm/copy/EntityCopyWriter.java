@@ -0,0 +1,105 @@
+package com.custom.orm.copy;
+
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Encodes entities in the text format of COPY and streams them into a CopySink.
+ * Columns are the insert columns of the entity model (the same columns and order as INSERT).
+ * Rows are encoded into a small buffer that is flushed every FLUSH_THRESHOLD characters,
+ * so the size of the source stream does not matter.
+ */
+public class EntityCopyWriter<T> {
+
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+    private static final String NULL = "\\N";
+    private static final char DELIMITER = '\t';
+    private static final char ROW_END = '\n';
+
+    private final List<ColumnModel> columns;
+
+    private final CopySink sink;
+
+    public EntityCopyWriter(Class<T> entityClass, CopySink sink) {
+        this.columns = EntityModelRegistry.getModel(entityClass).getInsertColumns();
+        this.sink = sink;
+    }
+
+    /**
+     * This method writes all the entities of the stream and completes the COPY.
+     * The stream is closed afterwards. If anything fails, the COPY is cancelled.
+     *
+     * @return number of rows reported by the sink.
+     */
+    public long write(Stream<T> entities) {
+        StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 1024);
+
+        try (entities) {
+            Iterator<T> iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                appendRow(iterator.next(), buffer);
+                if (buffer.length() >= FLUSH_THRESHOLD)
+                    flush(buffer);
+            }
+            flush(buffer);
+            return sink.finish();
+        } catch (RuntimeException e) {
+            sink.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * This method appends one row of the text format: values separated by tabs, NULL as \N, ending with a newline.
+     */
+    void appendRow(T entity, StringBuilder buffer) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0)
+                buffer.append(DELIMITER);
+
+            Object value = columns.get(i).getColumnValue(entity);
+
+            if (value == null)
+                buffer.append(NULL);
+            else
+                appendEscaped(value.toString(), buffer);
+        }
+        buffer.append(ROW_END);
+    }
+
+    private void appendEscaped(String value, StringBuilder buffer) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    buffer.append("\\\\");
+                    break;
+                case '\n':
+                    buffer.append("\\n");
+                    break;
+                case '\r':
+                    buffer.append("\\r");
+                    break;
+                case '\t':
+                    buffer.append("\\t");
+                    break;
+                default:
+                    buffer.append(c);
+            }
+        }
+    }
+
+    private void flush(StringBuilder buffer) {
+        if (buffer.length() == 0)
+            return;
+
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        sink.write(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,46 @@
+package com.custom.orm.copy;
+
+import lombok.SneakyThrows;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.sql.Connection;
+
+/**
+ * CopySink backed by the CopyManager of the PostgreSQL driver. Data is sent to the server as it is written.
+ */
+public class PgCopySink implements CopySink {
+
+    private final CopyIn copyIn;
+
+    private PgCopySink(CopyIn copyIn) {
+        this.copyIn = copyIn;
+    }
+
+    /**
+     * Starts the COPY statement on the given connection. Pooled connections are unwrapped to the driver connection.
+     */
+    @SneakyThrows
+    public static PgCopySink open(Connection connection, String copySql) {
+        return new PgCopySink(connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql));
+    }
+
+    @SneakyThrows
+    @Override
+    public void write(byte[] data, int offset, int length) {
+        copyIn.writeToCopy(data, offset, length);
+    }
+
+    @SneakyThrows
+    @Override
+    public long finish() {
+        return copyIn.endCopy();
+    }
+
+    @SneakyThrows
+    @Override
+    public void cancel() {
+        if (copyIn.isActive())
+            copyIn.cancelCopy();
+    }
+}
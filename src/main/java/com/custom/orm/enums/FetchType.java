@@ -0,0 +1,9 @@
+package com.custom.orm.enums;
+
+/**
+ * When a relation is read: EAGER relations are joined by the find query of the owner,
+ * LAZY relations are loaded by their own query when the field is accessed for the first time.
+ */
+public enum FetchType {
+    EAGER, LAZY
+}
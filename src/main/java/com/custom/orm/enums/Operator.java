@@ -0,0 +1,32 @@
+package com.custom.orm.enums;
+
+/**
+ * Comparison of a column in a condition of a Criteria, the format takes the qualified column name.
+ * IN compares the column with an array bound as one parameter, so the SQL is the same for any number of values.
+ */
+public enum Operator {
+    EQUAL("%s = ?"),
+    NOT_EQUAL("%s <> ?"),
+    LESS_THAN("%s < ?"),
+    LESS_OR_EQUAL("%s <= ?"),
+    GREATER_THAN("%s > ?"),
+    GREATER_OR_EQUAL("%s >= ?"),
+    LIKE("%s LIKE ?"),
+    IN("%s = ANY(?)"),
+    IS_NULL("%s IS NULL"),
+    IS_NOT_NULL("%s IS NOT NULL");
+
+    private final String format;
+
+    Operator(String format) {
+        this.format = format;
+    }
+
+    public String format(String column) {
+        return String.format(format, column);
+    }
+
+    public boolean hasValue() {
+        return this != IS_NULL && this != IS_NOT_NULL;
+    }
+}
@@ -0,0 +1,5 @@
+package com.custom.orm.enums;
+
+public enum RelationType {
+    ONE_TO_ONE, ONE_TO_MANY, MANY_TO_ONE, MANY_TO_MANY
+}
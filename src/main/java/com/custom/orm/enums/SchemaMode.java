@@ -0,0 +1,12 @@
+package com.custom.orm.enums;
+
+public enum SchemaMode {
+    NONE, VALIDATE, CREATE, CREATE_DROP;
+
+    /*
+     * Parses the value of "db.schema.mode": none, validate, create or create-drop
+     * */
+    public static SchemaMode of(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,27 @@
+package com.custom.orm.exceptions;
+
+
+public class EntityMappingException extends RuntimeException {
+
+    public EntityMappingException() {
+        super();
+    }
+
+    public EntityMappingException(String message) {
+        super(message);
+    }
+
+    public EntityMappingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public EntityMappingException(Throwable cause) {
+        super(cause);
+    }
+
+    protected EntityMappingException(String message, Throwable cause,
+                                    boolean enableSuppression,
+                                    boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -0,0 +1,20 @@
+package com.custom.orm.exceptions;
+
+public class LazyInitializationException extends RuntimeException {
+
+    public LazyInitializationException() {
+        super();
+    }
+
+    public LazyInitializationException(String message) {
+        super(message);
+    }
+
+    public LazyInitializationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public LazyInitializationException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,26 @@
+package com.custom.orm.exceptions;
+
+public class QueryDefinitionException extends RuntimeException {
+
+    public QueryDefinitionException() {
+        super();
+    }
+
+    public QueryDefinitionException(String message) {
+        super(message);
+    }
+
+    public QueryDefinitionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public QueryDefinitionException(Throwable cause) {
+        super(cause);
+    }
+
+    protected QueryDefinitionException(String message, Throwable cause,
+                                        boolean enableSuppression,
+                                        boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -0,0 +1,27 @@
+package com.custom.orm.exceptions;
+
+
+public class SchemaValidationException extends RuntimeException {
+
+    public SchemaValidationException() {
+        super();
+    }
+
+    public SchemaValidationException(String message) {
+        super(message);
+    }
+
+    public SchemaValidationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public SchemaValidationException(Throwable cause) {
+        super(cause);
+    }
+
+    protected SchemaValidationException(String message, Throwable cause,
+                                        boolean enableSuppression,
+                                        boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -0,0 +1,26 @@
+package com.custom.orm.exceptions;
+
+public class TransientEntityException extends RuntimeException {
+
+    public TransientEntityException() {
+        super();
+    }
+
+    public TransientEntityException(String message) {
+        super(message);
+    }
+
+    public TransientEntityException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public TransientEntityException(Throwable cause) {
+        super(cause);
+    }
+
+    protected TransientEntityException(String message, Throwable cause,
+                                       boolean enableSuppression,
+                                       boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -0,0 +1,89 @@
+package com.custom.orm.lazy;
+
+import com.custom.orm.metadata.model.EntityModelRegistry;
+
+import java.util.function.Supplier;
+
+/**
+ * Holder of the entity of a relation with FetchType.LAZY, the type of the relation field is LazyReference<Target>.
+ * The row mapper sets an unloaded reference, whose entity is read by the session that loaded the owner
+ * on the first call of get(); a LazyInitializationException is thrown if that session has no active transaction.
+ * When the owner holds the join column the id of the related entity is known without loading it, so the owner can be
+ * written (and its dirty columns found) without loading its references.
+ * Like the session, a reference is used by one thread at a time.
+ */
+public final class LazyReference<T> {
+
+    private final Object id;
+
+    private Supplier<? extends T> loader;
+
+    private T value;
+
+    private LazyReference(Object id, Supplier<? extends T> loader, T value) {
+        this.id = id;
+        this.loader = loader;
+        this.value = value;
+    }
+
+    /**
+     * This method returns an initialized reference to the given entity (null for no entity).
+     */
+    public static <T> LazyReference<T> of(T value) {
+        return new LazyReference<>(null, null, value);
+    }
+
+    public static <T> LazyReference<T> empty() {
+        return of(null);
+    }
+
+    /**
+     * This method returns a reference whose entity is read by the loader on the first get().
+     *
+     * @param id the id of the related entity, or null if it is known only once the entity is loaded.
+     */
+    public static <T> LazyReference<T> unloaded(Object id, Supplier<? extends T> loader) {
+        return new LazyReference<>(id, loader, null);
+    }
+
+    /**
+     * This method returns the related entity, loading it if it is not loaded yet.
+     */
+    public T get() {
+        if (loader != null) {
+            value = loader.get();
+            loader = null;
+        }
+        return value;
+    }
+
+    /**
+     * This method replaces the related entity, the reference becomes initialized.
+     */
+    public void set(T value) {
+        this.value = value;
+        this.loader = null;
+    }
+
+    public boolean isInitialized() {
+        return loader == null;
+    }
+
+    /**
+     * This method returns the id of the related entity without loading it, or null if there is no entity
+     * or the id is not known before loading.
+     */
+    public Object getId() {
+        if (loader != null)
+            return id;
+        return value == null ? null : EntityModelRegistry.getModel(value.getClass()).getId(value);
+    }
+
+    /*
+     * Never loads the entity, so printing the owner doesn't run queries
+     * */
+    @Override
+    public String toString() {
+        return isInitialized() ? "LazyReference[" + value + "]" : "LazyReference[unloaded, id=" + id + "]";
+    }
+}
@@ -0,0 +1,40 @@
+package com.custom.orm.mapper;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Reads one column of the current row by its index with the getter that matches the Java type of the property.
+ * The reader is chosen once, when the row mapper is compiled, instead of branching on the type for every cell.
+ */
+@FunctionalInterface
+public interface ColumnReader {
+
+    Object read(ResultSet resultSet, int index) throws SQLException;
+
+    static ColumnReader forType(Class<?> type) {
+        if (type == String.class)
+            return ResultSet::getString;
+        if (type == Long.class || type == long.class)
+            return ResultSetValues::getLong;
+        if (type == Integer.class || type == int.class)
+            return ResultSetValues::getInteger;
+        if (type == Boolean.class || type == boolean.class)
+            return ResultSetValues::getBoolean;
+        if (type == Double.class || type == double.class)
+            return ResultSetValues::getDouble;
+        if (type == BigDecimal.class)
+            return ResultSet::getBigDecimal;
+        if (type == LocalDate.class)
+            return ResultSetValues::getLocalDate;
+        if (type == LocalDateTime.class)
+            return ResultSetValues::getLocalDateTime;
+        if (type == LocalTime.class)
+            return ResultSetValues::getLocalTime;
+        return ResultSet::getObject;
+    }
+}
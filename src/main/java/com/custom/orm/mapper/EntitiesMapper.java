@@ -10,4 +10,6 @@ public interface EntitiesMapper {
     <T> String getFieldsForSelect(Class<T> entityClass, Class... entityClassesToAvoid);
 
     <T> String getTableColumnName(Class<T> entityClass, Field field);
+
+    <T> Set<String> getQueryTables(Class<T> entityClass);
 }
@@ -1,7 +1,5 @@
 package com.custom.orm.mapper;
 
-import com.custom.orm.annotations.relations.JoinColumn;
-import com.custom.orm.annotations.relations.OneToOne;
 import com.custom.orm.exceptions.CustomClassNotFoundException;
 import com.custom.orm.metadata.ColumnMetaData;
 import com.custom.orm.metadata.ForeignKeyMetaData;
@@ -12,7 +10,7 @@ import com.custom.orm.metadata.implementation.ForeignKeyMetaDataImpl;
 import com.custom.orm.metadata.implementation.MappingMetaDataImpl;
 import com.custom.orm.metadata.implementation.TableMetaDataImpl;
 import java.lang.reflect.Field;
-import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -27,24 +25,30 @@ public class EntitiesMapperImpl implements EntitiesMapper {
     private static final String JOIN_QUERY = "LEFT JOIN %s ON %s = %s ";
     private static final String DOT = ".";
     private static final String UNDERSCORE = "_";
-    private static final String COMMA_AND_SPACE = ", ";
-    private static final String AS = " AS ";
 
     /**
      * This method returns SQL-query, that specifies JOIN-action for find-methods (this query should be attached to the
      * SELECT-query). It should form a row of JOIN-queries corresponding to the entity mapping (currently, it works,
-     * if entity has any number of parent-mappings (so entity may have any number of @OneToOne(mappedBy),
-     *
-     * @OneToMany(mappedBy) or @ManyToOne(mappedBy)), and/or any number of child-mapping.
-     * Please, note that it does not work with @ManyToMany and @OneToMany.
+     * if entity has any number of parent-mappings (so entity may have any number of @OneToOne(mappedBy)
+     * or @ManyToOne(mappedBy)), and/or any number of child-mapping.
+     * Collections (@OneToMany and @ManyToMany) are not joined, which would repeat the row of the entity for every
+     * element. The session reads them by one more query for all the entities loaded together.
      * Please, note that in the upcoming changes this method will work only if parent-entity has CascadeType "ALL" or "GET"
+     * Relations with FetchType.LAZY are not joined, they are loaded when their LazyReference is accessed.
+     * The query is generated on every call, the sessions take it from the SqlTemplateCache of their factory.
      */
     @Override
     public <T> String getFindQuery(Class<T> entityClass) {
+        return buildFindQuery(entityClass, SelectPlan.of(entityClass).getSelectList());
+    }
 
+    /*
+     * Generates the SELECT with the JOIN part, used by SqlTemplateCache on a cache miss
+     * */
+    <T> String buildFindQuery(Class<T> entityClass, String fieldsForSelect) {
         return String.format(
                 FIND_QUERY,
-                getFieldsForSelect(entityClass),
+                fieldsForSelect,
                 tableMetaData.getTableName(entityClass),
                 getJoinScript(entityClass)
         );
@@ -57,12 +61,10 @@ public class EntitiesMapperImpl implements EntitiesMapper {
         String sql;
 
         Set<String> oneToOneForeignKeyClassNames = mappingMetaData.getOneToOneForeignKeyClassNames(entityClass);
-        Set<String> oneToManyForeignKeyClassNames = mappingMetaData.getOneToManyForeignKeyClassNames(entityClass);
         Set<String> manyToOneForeignKeyClassNames = mappingMetaData.getManyToOneForeignKeyClassNames(entityClass);
 
         try {
             sql = getParentFindQuery(oneToOneForeignKeyClassNames, entityClass)
-                    + getParentFindQuery(oneToManyForeignKeyClassNames, entityClass)
                     + getParentFindQuery(manyToOneForeignKeyClassNames, entityClass);
             if (fkMetaData.hasForeignKey(entityClass))
                 sql += getChildFindQuery(entityClass);
@@ -74,8 +76,7 @@ public class EntitiesMapperImpl implements EntitiesMapper {
     }
 
     /**
-     * This method returns JOIN-query for parent-mappings (so for @OneToOne(mappedBy), @OneToMany(mappedBy)
-     * or @ManyToOne(mappedBy))  /
+     * This method returns JOIN-query for parent-mappings (so for @OneToOne(mappedBy) or @ManyToOne(mappedBy))
      */
     private <T> String getParentFindQuery(Set<String> classNames, Class<T> entityClass) throws
             ClassNotFoundException {
@@ -92,7 +93,7 @@ public class EntitiesMapperImpl implements EntitiesMapper {
                     // separate method
                     foreignKeyClassName + DOT + fkMetaData.getForeignKeyColumns(foreignKeyClass)
                             .stream()
-                            .filter(field -> field.getType().isAssignableFrom(entityClass))
+                            .filter(field -> fkMetaData.getForeignKeyReferenceClass(field).isAssignableFrom(entityClass))
                             .map(columnMetaData::getColumnName)
                             .collect(Collectors.joining())));
         }
@@ -101,11 +102,15 @@ public class EntitiesMapperImpl implements EntitiesMapper {
 
     /**
      * This method returns JOIN-query for child-mapping (so for @JoinColumn).
+     * Relations fetched lazily are not joined, only their join column is selected.
      */
     private <T> String getChildFindQuery(Class<T> entityClass) {
         StringBuilder result = new StringBuilder();
 
         for (Field field : fkMetaData.getForeignKeyColumns(entityClass)) {
+            if (mappingMetaData.isLazy(field))
+                continue;
+
             Class referenceClass = fkMetaData.getForeignKeyReferenceClass(field);
             String referenceClassName = fkMetaData.getForeignKeyReferenceClassName(field);
 
@@ -119,36 +124,42 @@ public class EntitiesMapperImpl implements EntitiesMapper {
         return result.toString();
     }
 
+    /**
+     * This method returns the names (without schema) of the tables read by the find query of the entity:
+     * its own table and every table joined by getJoinScript(). A change of any of them changes the result of the query.
+     * Tables of relations fetched lazily and of collections are read by their own queries, so they are not included.
+     */
+    @Override
+    public <T> Set<String> getQueryTables(Class<T> entityClass) {
+        Set<String> tables = new LinkedHashSet<>();
+        tables.add(tableMetaData.getTableNameWithoutSchema(entityClass));
+
+        Set<String> parentClassNames = new LinkedHashSet<>();
+        parentClassNames.addAll(mappingMetaData.getOneToOneForeignKeyClassNames(entityClass));
+        parentClassNames.addAll(mappingMetaData.getManyToOneForeignKeyClassNames(entityClass));
+        try {
+            for (String className : parentClassNames) {
+                tables.add(tableMetaData.getTableNameWithoutSchema(Class.forName(className)));
+            }
+        } catch (ClassNotFoundException e) {
+            throw new CustomClassNotFoundException(e);
+        }
+
+        if (fkMetaData.hasForeignKey(entityClass)) {
+            for (Field field : fkMetaData.getForeignKeyColumns(entityClass)) {
+                if (!mappingMetaData.isLazy(field))
+                    tables.add(fkMetaData.getForeignKeyReferenceClassName(field));
+            }
+        }
+        return tables;
+    }
+
     /*
-     * gets all the fields' names for SELECT query
+     * gets all the fields' names for SELECT query, in the order the compiled row mapper of the entity reads them
      * */
-
     @Override
     public <T> String getFieldsForSelect(Class<T> entityClass, Class... entityClassesToAvoid) {
-        StringBuilder result = new StringBuilder();
-
-        Arrays.stream(entityClass.getDeclaredFields())
-                .filter(field -> !field.isAnnotationPresent(JoinColumn.class))
-                .filter(field -> !field.isAnnotationPresent(OneToOne.class))
-                .forEach(field -> result
-                        .append(getTableColumnValue(entityClass, field))
-                        .append(AS)
-                        .append(getTableColumnName(entityClass, field))
-                        .append(COMMA_AND_SPACE));
-
-        // separate method to clean comma
-        trimFieldsForSelect(result);
-
-        Arrays.stream(entityClass.getDeclaredFields())
-                .filter(field -> field.isAnnotationPresent(OneToOne.class))
-                .filter(field -> Arrays
-                        .stream(entityClassesToAvoid)
-                        .noneMatch(e -> e.equals(field.getType())))
-                .forEach(field -> result
-                        .append(COMMA_AND_SPACE)
-                        .append(getFieldsForSelect(field.getType(), entityClass)));
-
-        return result.toString();
+        return SelectPlan.of(entityClass, entityClassesToAvoid).getSelectList();
     }
 
     /**
@@ -161,20 +172,8 @@ public class EntitiesMapperImpl implements EntitiesMapper {
                 + columnMetaData.getColumnName(field);
     }
 
-    /**
-     * Creates String for SQL AS value to parse in mapping in format tableName.columnName
-     */
-    private <T> String getTableColumnValue(Class<T> entityClass, Field field) {
-        return tableMetaData.getTableNameWithoutSchema(entityClass)
-                + DOT
-                + columnMetaData.getColumnName(field);
-    }
-
     private void trimChildFindQuery(StringBuilder result) {
-        result.delete(result.length() - 1, result.length());
-    }
-
-    private void trimFieldsForSelect(StringBuilder result) {
-        result.delete(result.length() - 2, result.length());
+        if (result.length() > 0)
+            result.delete(result.length() - 1, result.length());
     }
 }
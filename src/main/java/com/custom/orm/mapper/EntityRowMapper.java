@@ -0,0 +1,193 @@
+package com.custom.orm.mapper;
+
+import com.custom.orm.lazy.LazyReference;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.RelationModel;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Row mapper compiled from a SelectPlan. Every selected column is read by its ordinal with a pre-selected
+ * ColumnReader, and the nested @OneToOne entities joined by the same SELECT are hydrated by the same plan.
+ * Mapping is split into extract() and hydrate(), so a row can also be kept as plain column values.
+ * When an IdentityResolver is given, entities it already knows are reused instead of being created again.
+ * Relations fetched lazily get a LazyReference, which is loaded through the RelationLoader of the resolver.
+ */
+public final class EntityRowMapper<T> implements RowMapper<T> {
+
+    private final Node root;
+
+    private final int columnCount;
+
+    EntityRowMapper(Node root, int columnCount) {
+        this.root = root;
+        this.columnCount = columnCount;
+    }
+
+    @Override
+    public T mapRow(ResultSet resultSet) throws SQLException {
+        return hydrate(extract(resultSet));
+    }
+
+    @Override
+    public T mapRow(ResultSet resultSet, IdentityResolver identityResolver) throws SQLException {
+        return hydrate(extract(resultSet), identityResolver);
+    }
+
+    /**
+     * This method reads all the selected columns of the current row, values are stored by ordinal - 1.
+     */
+    public Object[] extract(ResultSet resultSet) throws SQLException {
+        Object[] row = new Object[columnCount];
+        root.extract(resultSet, row);
+        return row;
+    }
+
+    /**
+     * This method builds the entity (with its nested entities) from the values returned by extract().
+     */
+    public T hydrate(Object[] row) {
+        return hydrate(row, IdentityResolver.NONE);
+    }
+
+    /**
+     * This method builds the entity from the values returned by extract(). Entities (including the nested ones)
+     * found by the resolver are returned as they are, new ones are registered in it.
+     */
+    @SuppressWarnings("unchecked")
+    public T hydrate(Object[] row, IdentityResolver identityResolver) {
+        return (T) root.hydrate(row, null, identityResolver);
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /*
+     * One entity of the plan: its own columns with their ordinals, its lazy relations with the ordinals of their
+     * join columns (0 if the relation is mapped by the other side) and the nested entities joined to it.
+     * */
+    static final class Node {
+
+        private final EntityModel model;
+
+        private final ColumnModel[] columns;
+
+        private final int[] ordinals;
+
+        private final ColumnReader[] readers;
+
+        private final int idIndex;
+
+        private final RelationModel[] lazyRelations;
+
+        private final EntityModel[] lazyModels;
+
+        private final int[] lazyOrdinals;
+
+        private final ColumnReader[] lazyReaders;
+
+        private final RelationModel[] relations;
+
+        private final Node[] children;
+
+        private final RelationModel backReference;
+
+        Node(EntityModel model, List<ColumnModel> columns, List<Integer> ordinals, List<RelationModel> lazyRelations,
+             List<Integer> lazyOrdinals, List<RelationModel> relations, List<Node> children, RelationModel backReference) {
+            this.model = model;
+            this.columns = columns.toArray(new ColumnModel[0]);
+            this.ordinals = ordinals.stream().mapToInt(Integer::intValue).toArray();
+            this.readers = columns.stream().map(column -> ColumnReader.forType(column.getJavaType()))
+                    .toArray(ColumnReader[]::new);
+            this.idIndex = columns.indexOf(model.hasId() ? model.getIdColumn() : null);
+            this.lazyRelations = lazyRelations.toArray(new RelationModel[0]);
+            this.lazyModels = lazyRelations.stream()
+                    .map(relation -> EntityModelRegistry.getModel(relation.getTargetClass()))
+                    .toArray(EntityModel[]::new);
+            this.lazyOrdinals = lazyOrdinals.stream().mapToInt(Integer::intValue).toArray();
+            // a join column holds the id of the related entity
+            this.lazyReaders = Arrays.stream(lazyModels)
+                    .map(related -> related.hasId() ? related.getIdColumn().getJavaType() : Object.class)
+                    .map(ColumnReader::forType)
+                    .toArray(ColumnReader[]::new);
+            this.relations = relations.toArray(new RelationModel[0]);
+            this.children = children.toArray(new Node[0]);
+            this.backReference = backReference;
+        }
+
+        private void extract(ResultSet resultSet, Object[] row) throws SQLException {
+            for (int i = 0; i < readers.length; i++) {
+                row[ordinals[i] - 1] = readers[i].read(resultSet, ordinals[i]);
+            }
+            for (int i = 0; i < lazyReaders.length; i++) {
+                if (lazyOrdinals[i] > 0)
+                    row[lazyOrdinals[i] - 1] = lazyReaders[i].read(resultSet, lazyOrdinals[i]);
+            }
+            for (Node child : children) {
+                child.extract(resultSet, row);
+            }
+        }
+
+        private Object hydrate(Object[] row, Object parent, IdentityResolver identityResolver) {
+            Object id = idIndex >= 0 ? row[ordinals[idIndex] - 1] : null;
+
+            // LEFT JOIN without a matching row
+            if (parent != null && idIndex >= 0 && id == null)
+                return null;
+
+            if (id != null) {
+                Object known = identityResolver.find(model, id);
+                if (known != null)
+                    return known;
+            }
+
+            Object entity = model.newInstance();
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].setValue(entity, row[ordinals[i] - 1]);
+            }
+
+            for (int i = 0; i < lazyRelations.length; i++) {
+                Object key = lazyOrdinals[i] > 0 ? row[lazyOrdinals[i] - 1] : id;
+                lazyRelations[i].setValue(entity, reference(i, key, identityResolver));
+            }
+
+            for (int i = 0; i < children.length; i++) {
+                Object child = children[i].hydrate(row, entity, identityResolver);
+                if (child != null || relations[i].isReference())
+                    relations[i].setTarget(entity, child);
+            }
+            if (backReference != null && parent != null)
+                backReference.setTarget(entity, parent);
+
+            // registered once its relations are set, so the resolver sees the complete state
+            if (id != null)
+                identityResolver.register(model, id, entity);
+            return entity;
+        }
+
+        /*
+         * An unloaded reference, unless there is no related entity or the resolver already knows it
+         * */
+        private LazyReference<Object> reference(int index, Object key, IdentityResolver identityResolver) {
+            if (key == null)
+                return LazyReference.empty();
+
+            RelationModel relation = lazyRelations[index];
+            if (relation.isOwningSide()) {
+                Object known = identityResolver.find(lazyModels[index], key);
+                if (known != null)
+                    return LazyReference.of(known);
+            }
+
+            RelationLoader loader = identityResolver.getRelationLoader();
+            loader.register(relation, key);
+            return LazyReference.unloaded(relation.isOwningSide() ? key : null, () -> loader.load(relation, key));
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package com.custom.orm.mapper;
 
-import com.custom.orm.metadata.implementation.TableMetaDataImpl;
-
 import java.lang.reflect.Field;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.List;
 
 public interface FieldsMapper {
 
@@ -13,4 +12,8 @@ public interface FieldsMapper {
     <T> void setGeneratedKeyToObject(T object, PreparedStatement preparedStatement);
 
     <T> void setValuesFromFields(T object, PreparedStatement preparedStatement);
+
+    <T> void setParametersFromFields(T object, PreparedStatement preparedStatement);
+
+    <T> void setGeneratedKeysToObjects(List<T> objects, PreparedStatement preparedStatement);
 }
@@ -1,25 +1,27 @@
 package com.custom.orm.mapper;
 
-import com.custom.orm.annotations.relations.JoinColumn;
-import com.custom.orm.metadata.DeclaredFieldsMetaData;
-import com.custom.orm.metadata.implementation.DeclaredFieldsMetaDataImpl;
-import com.custom.orm.util.StringManipulation;
+import com.custom.orm.accessor.PropertyAccessor;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
 import lombok.SneakyThrows;
 
 import java.lang.reflect.Field;
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 public class FieldsMapperImpl implements FieldsMapper {
 
     private final EntitiesMapper entitiesMapper = new EntitiesMapperImpl();
-    private final DeclaredFieldsMetaData declaredFieldsMetaData = new DeclaredFieldsMetaDataImpl();
 
     /**
      * This method writes the data received from the database
      * (according to the type of this data) into the field of the new instance of the object.
+     * The value is written through the accessor of the entity model, no setter is looked up by name.
      *
      * @param entityClass Type of the class whose object will be written to the database.
      * @param entity The object to be written to the database.
@@ -29,43 +31,41 @@ public class FieldsMapperImpl implements FieldsMapper {
     @SneakyThrows
     @Override
     public <T, E> void fillField(Class<T> entityClass, T entity, ResultSet resultSet, Field field, E previousEntity) {
-        String columnName = entitiesMapper.getTableColumnName(entityClass, field);
+        Optional<PropertyAccessor> foundAccessor = EntityModelRegistry.getModel(entityClass).findAccessor(field);
+        if (foundAccessor.isEmpty())
+            return;
 
-        String setterName = "set" + ((field.getName().charAt(0) + "").toUpperCase()) 
-                + field.getName().substring(1);
-        String getterName = "get" + ((field.getName().charAt(0) + "").toUpperCase())
-                + field.getName().substring(1);
+        PropertyAccessor accessor = foundAccessor.get();
+        String columnName = entitiesMapper.getTableColumnName(entityClass, field);
 
         if (field.getType().equals(String.class)) {
-            String string = resultSet.getString(columnName);
-            entityClass.getMethod(setterName, String.class).invoke(entity, string);
+            accessor.set(entity, resultSet.getString(columnName));
 
         } else if (field.getType().equals(LocalDate.class)) {
-            LocalDate date = resultSet.getDate(columnName).toLocalDate();
-            entityClass.getMethod(setterName, LocalDate.class).invoke(entity, date);
+            Date date = resultSet.getDate(columnName);
+            accessor.set(entity, date == null ? null : date.toLocalDate());
 
         } else if (field.getType().equals(Long.class)) {
-            Long longVal = resultSet.getLong(columnName);
-            entityClass.getMethod(setterName, Long.class).invoke(entity, longVal);
+            accessor.set(entity, resultSet.getLong(columnName));
 
         } else if (field.getType().equals(Integer.class)){
-            int diff = resultSet.getInt(columnName);
-            entityClass.getMethod(setterName, field.getType()).invoke(entity, diff);
+            accessor.set(entity, resultSet.getInt(columnName));
 
         } else if (previousEntity != null
                 && field.getType().equals(previousEntity.getClass())) {
-            entityClass.getMethod(setterName, previousEntity.getClass()).invoke(entity, previousEntity);
+            accessor.set(entity, previousEntity);
 
         } else {
             Class childEntityClass = field.getType();
+            EntityModel childModel = EntityModelRegistry.getModel(childEntityClass);
+            Object childEntity = childModel.newInstance();
 
-            entityClass.getMethod(setterName, childEntityClass)
-                    .invoke(entity, childEntityClass.getConstructor().newInstance());
+            accessor.set(entity, childEntity);
 
-            for (Field theField: childEntityClass.getDeclaredFields()) {
+            for (Field theField: childModel.getPropertyFields()) {
                 fillField(
                         childEntityClass,
-                        entityClass.getMethod(getterName).invoke(entity),
+                        childEntity,
                         resultSet,
                         theField,
                         entity);
@@ -84,34 +84,69 @@ public class FieldsMapperImpl implements FieldsMapper {
     public <T> void setGeneratedKeyToObject(T object, PreparedStatement preparedStatement) {
         ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
         if(generatedKeys.next()){
-            long id = generatedKeys.getLong("id");
-            object.getClass().getMethod("setId", Long.class).invoke(object, id);
+            EntityModel model = EntityModelRegistry.getModel(object.getClass());
+            model.setId(object, generatedKeys.getLong(model.getIdColumn().getName()));
+        }
+    }
+
+    /**
+     * This method gets the keys (ids) of all the records added by the last executed batch
+     * and assigns them to the objects in the order they were added to the batch.
+     *
+     * @param objects The objects of the batch, in the order of addBatch() calls.
+     */
+    @SneakyThrows
+    @Override
+    public <T> void setGeneratedKeysToObjects(List<T> objects, PreparedStatement preparedStatement) {
+        if (objects.isEmpty())
+            return;
+
+        EntityModel model = EntityModelRegistry.getModel(objects.get(0).getClass());
+        String idColumnName = model.getIdColumn().getName();
+
+        try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+            for (T object : objects) {
+                if (!generatedKeys.next())
+                    break;
+                model.setId(object, generatedKeys.getLong(idColumnName));
+            }
         }
     }
 
     /**
      * This method transfers the values from the fields of the object to the database, through PreparedStatement.
+     * Parameters are bound in the order of the insert columns of the entity model.
      *
      * @param object The object to be written to the database.
      */
     @SneakyThrows
     @Override
     public <T> void setValuesFromFields(T object, PreparedStatement preparedStatement) {
-        List<Field> declaredFields = declaredFieldsMetaData.getDeclaredFields(object);
+        setParametersFromFields(object, preparedStatement);
+        preparedStatement.executeUpdate();
+    }
 
-        for (int i = 1; i < declaredFields.size(); i++) {
-            Field field = declaredFields.get(i);
-            field.setAccessible(true);
+    /**
+     * This method binds the values from the fields of the object to the parameters of the INSERT statement
+     * without executing it, so the statement can be added to a batch.
+     * If the entity has a generated mapper, the parameters are bound by it.
+     *
+     * @param object The object to be written to the database.
+     */
+    @SneakyThrows
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> void setParametersFromFields(T object, PreparedStatement preparedStatement) {
+        Optional<GeneratedMapper<T>> generated = GeneratedMappers.find((Class<T>) object.getClass());
+        if (generated.isPresent()) {
+            generated.get().bindInsert(object, preparedStatement);
+            return;
+        }
 
-            if(field.isAnnotationPresent(JoinColumn.class)){
-                Object fieldObject = object.getClass().getMethod("get" + StringManipulation.firstLetterStringToUpperCase(field.getName())).invoke(object);
-                Long idFieldObject = (Long) fieldObject.getClass().getMethod("getId").invoke(fieldObject);
+        List<ColumnModel> insertColumns = EntityModelRegistry.getModel(object.getClass()).getInsertColumns();
 
-                preparedStatement.setObject(i, idFieldObject);
-                continue;
-            }
-            preparedStatement.setObject(i, field.get(object));
+        for (int i = 0; i < insertColumns.size(); i++) {
+            preparedStatement.setObject(i + 1, insertColumns.get(i).getColumnValue(object));
         }
-        preparedStatement.executeUpdate();
     }
 }
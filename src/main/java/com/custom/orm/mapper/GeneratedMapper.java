@@ -0,0 +1,42 @@
+package com.custom.orm.mapper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Mapper of one entity class generated at compile time by the customORM-processor module,
+ * the generated class is named after the entity with the "_Mapper" suffix and lives in the entity's package.
+ * It holds the SQL of the entity and straight-line code that binds and hydrates its columns, so no reflection
+ * is used for them. The select list and the row layout are the same as those of SelectPlan.
+ */
+public interface GeneratedMapper<T> extends RowMapper<T> {
+
+    String SUFFIX = "_Mapper";
+
+    Class<T> getEntityClass();
+
+    String getFindAll();
+
+    /**
+     * Returns null if the entity has no @Id, as well as getUpdate() and getDelete().
+     */
+    String getFindById();
+
+    String getInsert();
+
+    String getUpdate();
+
+    String getDelete();
+
+    /**
+     * This method binds the insert columns of the entity to the parameters of getInsert(),
+     * a @JoinColumn is bound as the id of the referenced entity.
+     */
+    void bindInsert(T entity, PreparedStatement preparedStatement) throws SQLException;
+
+    @Override
+    default T mapRow(ResultSet resultSet) throws SQLException {
+        return mapRow(resultSet, IdentityResolver.NONE);
+    }
+}
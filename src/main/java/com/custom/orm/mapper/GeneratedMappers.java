@@ -0,0 +1,55 @@
+package com.custom.orm.mapper;
+
+import com.custom.orm.exceptions.CustomClassNotFoundException;
+import com.custom.orm.util.OrmProperties;
+import lombok.experimental.UtilityClass;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the mappers generated by the annotation processor. The mapper of a class is looked up once,
+ * by its name, and the result (including its absence) is kept, so classes compiled without the processor
+ * always take the reflective path without repeated lookups.
+ * Generated mappers can be switched off with "db.mapper.generated=false".
+ */
+@UtilityClass
+public class GeneratedMappers {
+
+    private final boolean enabled = OrmProperties.getBoolean("db.mapper.generated", true);
+
+    private final Map<Class<?>, Optional<GeneratedMapper<?>>> mappers = new ConcurrentHashMap<>();
+
+    /**
+     * This method returns the generated mapper of the entity class, or an empty Optional if the class
+     * was compiled without the processor.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Optional<GeneratedMapper<T>> find(Class<T> entityClass) {
+        if (!enabled)
+            return Optional.empty();
+
+        Optional<GeneratedMapper<?>> mapper = mappers.get(entityClass);
+        if (mapper == null)
+            mapper = mappers.computeIfAbsent(entityClass, GeneratedMappers::load);
+        return mapper.map(found -> (GeneratedMapper<T>) found);
+    }
+
+    public boolean isGenerated(Class<?> entityClass) {
+        return find(entityClass).isPresent();
+    }
+
+    private Optional<GeneratedMapper<?>> load(Class<?> entityClass) {
+        try {
+            Class<?> mapperClass = Class.forName(entityClass.getName() + GeneratedMapper.SUFFIX, true,
+                    entityClass.getClassLoader());
+            return Optional.of((GeneratedMapper<?>) mapperClass.getDeclaredConstructor().newInstance());
+        } catch (ClassNotFoundException e) {
+            return Optional.empty();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new CustomClassNotFoundException("Generated mapper of " + entityClass.getName()
+                    + " can't be created", e);
+        }
+    }
+}
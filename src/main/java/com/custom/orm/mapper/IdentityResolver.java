@@ -0,0 +1,39 @@
+package com.custom.orm.mapper;
+
+import com.custom.orm.metadata.model.EntityModel;
+
+/**
+ * Lets the row mapper reuse entities that are already known (for example to the persistence context of a session),
+ * so the same row is always represented by the same instance.
+ */
+public interface IdentityResolver {
+
+    IdentityResolver NONE = new IdentityResolver() {
+        @Override
+        public Object find(EntityModel model, Object id) {
+            return null;
+        }
+
+        @Override
+        public void register(EntityModel model, Object id, Object entity) {
+        }
+    };
+
+    /**
+     * Returns the known instance of the entity with the given id, or null.
+     */
+    Object find(EntityModel model, Object id);
+
+    /**
+     * Called for every entity instance created by the row mapper, after its columns and relations are set.
+     */
+    void register(EntityModel model, Object id, Object entity);
+
+    /**
+     * Returns the loader of the relations fetched lazily by the entities the row mapper creates.
+     * By default they can't be loaded.
+     */
+    default RelationLoader getRelationLoader() {
+        return RelationLoader.DETACHED;
+    }
+}
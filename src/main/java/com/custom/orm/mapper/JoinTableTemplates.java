@@ -0,0 +1,28 @@
+package com.custom.orm.mapper;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable set of the SQL statements of the join table of a @ManyToMany, seen from one side of the relation:
+ * the first parameter of every statement is the id of the entity declaring the collection.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class JoinTableTemplates {
+
+    /**
+     * Selects the pairs (owner id, element id) of all the owners whose ids are bound as one array.
+     */
+    private final String select;
+
+    private final String insert;
+
+    private final String delete;
+
+    /**
+     * Deletes all the pairs of one owner.
+     */
+    private final String deleteAll;
+}
@@ -0,0 +1,29 @@
+package com.custom.orm.mapper;
+
+import com.custom.orm.exceptions.LazyInitializationException;
+import com.custom.orm.metadata.model.RelationModel;
+
+/**
+ * Loads the entity of a relation fetched lazily, it is called by the LazyReference the row mapper sets
+ * on the first access to the relation.
+ */
+@FunctionalInterface
+public interface RelationLoader {
+
+    RelationLoader DETACHED = (relation, key) -> {
+        throw new LazyInitializationException("Relation " + relation.getField() + " can't be loaded outside of a session");
+    };
+
+    /**
+     * @param key the id of the related entity if the owner holds the join column, otherwise the id of the owner.
+     * @return the related entity, or null if there is none.
+     */
+    Object load(RelationModel relation, Object key);
+
+    /**
+     * This method is called for every unloaded reference created by the row mapper, so the loader can load
+     * the relation of several owners with one query when the first of their references is accessed.
+     */
+    default void register(RelationModel relation, Object key) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.custom.orm.mapper;
+
+import com.custom.orm.exceptions.ConnectionSQLException;
+import lombok.experimental.UtilityClass;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+@UtilityClass
+public class ResultSetStreams {
+
+    /**
+     * This method returns a sequential stream over the rows of the result set. Rows are mapped lazily,
+     * one per element consumed, so only the rows fetched by the driver are held in memory.
+     * Closing the stream closes the result set and the statement.
+     * The lazy references of the objects can't be loaded, see of(Statement, ResultSet, RowMapper, IdentityResolver).
+     */
+    public <T> Stream<T> of(Statement statement, ResultSet resultSet, RowMapper<T> rowMapper) {
+        return of(statement, resultSet, rowMapper, IdentityResolver.NONE);
+    }
+
+    /**
+     * This method returns a sequential stream over the rows of the result set, every row is mapped with the resolver,
+     * so the lazy references of the objects are loaded by its relation loader.
+     */
+    public <T> Stream<T> of(Statement statement, ResultSet resultSet, RowMapper<T> rowMapper,
+                            IdentityResolver identityResolver) {
+        return StreamSupport.stream(new ResultSetSpliterator<>(resultSet, rowMapper, identityResolver), false)
+                .onClose(() -> close(statement, resultSet));
+    }
+
+    private void close(Statement statement, ResultSet resultSet) {
+        try (statement; resultSet) {
+            // closed by try-with-resources
+        } catch (SQLException e) {
+            throw new ConnectionSQLException(e);
+        }
+    }
+
+    private static final class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final ResultSet resultSet;
+
+        private final RowMapper<T> rowMapper;
+
+        private final IdentityResolver identityResolver;
+
+        private ResultSetSpliterator(ResultSet resultSet, RowMapper<T> rowMapper, IdentityResolver identityResolver) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.resultSet = resultSet;
+            this.rowMapper = rowMapper;
+            this.identityResolver = identityResolver;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                if (!resultSet.next())
+                    return false;
+                action.accept(rowMapper.mapRow(resultSet, identityResolver));
+                return true;
+            } catch (SQLException e) {
+                throw new ConnectionSQLException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.custom.orm.mapper;
+
+import lombok.experimental.UtilityClass;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Typed readers of one column of the current row, SQL NULL is returned as null.
+ * They are used by ColumnReader and by the mappers generated by the customORM annotation processor.
+ */
+@UtilityClass
+public class ResultSetValues {
+
+    public Long getLong(ResultSet resultSet, int index) throws SQLException {
+        long value = resultSet.getLong(index);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    public Integer getInteger(ResultSet resultSet, int index) throws SQLException {
+        int value = resultSet.getInt(index);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    public Boolean getBoolean(ResultSet resultSet, int index) throws SQLException {
+        boolean value = resultSet.getBoolean(index);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    public Double getDouble(ResultSet resultSet, int index) throws SQLException {
+        double value = resultSet.getDouble(index);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    public LocalDate getLocalDate(ResultSet resultSet, int index) throws SQLException {
+        Date value = resultSet.getDate(index);
+        return value == null ? null : value.toLocalDate();
+    }
+
+    public LocalDateTime getLocalDateTime(ResultSet resultSet, int index) throws SQLException {
+        Timestamp value = resultSet.getTimestamp(index);
+        return value == null ? null : value.toLocalDateTime();
+    }
+
+    public LocalTime getLocalTime(ResultSet resultSet, int index) throws SQLException {
+        Time value = resultSet.getTime(index);
+        return value == null ? null : value.toLocalTime();
+    }
+}
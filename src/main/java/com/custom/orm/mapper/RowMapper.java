@@ -0,0 +1,20 @@
+package com.custom.orm.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public interface RowMapper<T> {
+
+    /**
+     * Maps the current row of the result set, the cursor is not moved.
+     */
+    T mapRow(ResultSet resultSet) throws SQLException;
+
+    /**
+     * Maps the current row, entities already known to the resolver are reused and new ones are registered in it.
+     * By default the resolver is not used.
+     */
+    default T mapRow(ResultSet resultSet, IdentityResolver identityResolver) throws SQLException {
+        return mapRow(resultSet);
+    }
+}
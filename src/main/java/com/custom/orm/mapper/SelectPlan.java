@@ -0,0 +1,157 @@
+package com.custom.orm.mapper;
+
+import com.custom.orm.enums.RelationType;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.RelationModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The list of columns selected for an entity together with the row mapper that reads them.
+ * Both are produced by the same walk over the entity model, so the ordinal of every column in the
+ * SELECT is exactly the one the row mapper reads.
+ * Columns are selected as "table.column AS table_column"; for every @OneToOne field and every @ManyToOne field
+ * with a @JoinColumn the columns of the related entity follow the columns of the owner, as they are joined by
+ * the find query (the owner's class is not visited again).
+ * Relations with FetchType.LAZY are not visited, only the join column of the owning side is selected,
+ * so the row mapper can set a LazyReference that knows the id of the related entity.
+ */
+public final class SelectPlan<T> {
+
+    private static final String DOT = ".";
+    private static final String UNDERSCORE = "_";
+    private static final String AS = " AS ";
+    private static final String COMMA_AND_SPACE = ", ";
+
+    private final List<String> selectedColumns;
+
+    private final List<String> aliases;
+
+    private final Set<Class<?>> entityClasses;
+
+    private final EntityRowMapper<T> rowMapper;
+
+    private SelectPlan(List<String> selectedColumns, List<String> aliases, Set<Class<?>> entityClasses,
+                       EntityRowMapper.Node root) {
+        this.selectedColumns = List.copyOf(selectedColumns);
+        this.aliases = List.copyOf(aliases);
+        this.entityClasses = Collections.unmodifiableSet(entityClasses);
+        this.rowMapper = new EntityRowMapper<>(root, selectedColumns.size());
+    }
+
+    public static <T> SelectPlan<T> of(Class<T> entityClass, Class<?>... entityClassesToAvoid) {
+        List<String> selectedColumns = new ArrayList<>();
+        List<String> aliases = new ArrayList<>();
+        Set<Class<?>> entityClasses = new LinkedHashSet<>();
+        EntityRowMapper.Node root = buildNode(entityClass, null, Arrays.asList(entityClassesToAvoid),
+                selectedColumns, aliases, entityClasses);
+        return new SelectPlan<>(selectedColumns, aliases, entityClasses, root);
+    }
+
+    /**
+     * Returns the select list, e.g. "users.id AS users_id, users.firstname AS users_firstname".
+     */
+    public String getSelectList() {
+        List<String> result = new ArrayList<>(selectedColumns.size());
+        for (int i = 0; i < selectedColumns.size(); i++) {
+            result.add(selectedColumns.get(i) + AS + aliases.get(i));
+        }
+        return String.join(COMMA_AND_SPACE, result);
+    }
+
+    /**
+     * Returns the aliases of the selected columns, the alias at index i is read from ordinal i + 1.
+     */
+    public List<String> getAliases() {
+        return aliases;
+    }
+
+    /**
+     * Returns the classes whose columns are selected, starting with the entity itself.
+     * A row read by the plan depends on the tables of all of them.
+     */
+    public Set<Class<?>> getEntityClasses() {
+        return entityClasses;
+    }
+
+    public EntityRowMapper<T> getRowMapper() {
+        return rowMapper;
+    }
+
+    private static EntityRowMapper.Node buildNode(Class<?> entityClass, Class<?> parentClass, List<Class<?>> toAvoid,
+                                                  List<String> selectedColumns, List<String> aliases,
+                                                  Set<Class<?>> entityClasses) {
+        EntityModel model = EntityModelRegistry.getModel(entityClass);
+        entityClasses.add(entityClass);
+        String table = model.getTableNameWithoutSchema();
+
+        List<ColumnModel> columns = new ArrayList<>();
+        List<Integer> ordinals = new ArrayList<>();
+        for (ColumnModel column : model.getColumns()) {
+            if (column.isJoinColumn())
+                continue;
+
+            selectedColumns.add(table + DOT + column.getName());
+            aliases.add(table + UNDERSCORE + column.getName());
+            columns.add(column);
+            ordinals.add(selectedColumns.size());
+        }
+
+        List<RelationModel> lazyRelations = new ArrayList<>();
+        List<Integer> lazyOrdinals = new ArrayList<>();
+        for (RelationModel relation : model.getRelations()) {
+            if (!relation.isLazy() || !relation.isReference())
+                continue;
+            // the back reference to the owner is set from the owner itself
+            if (relation.getType() == RelationType.ONE_TO_ONE && toAvoid.contains(relation.getTargetClass()))
+                continue;
+
+            int ordinal = 0;
+            if (relation.isOwningSide()) {
+                selectedColumns.add(table + DOT + relation.getJoinColumn().getName());
+                aliases.add(table + UNDERSCORE + relation.getJoinColumn().getName());
+                ordinal = selectedColumns.size();
+            }
+            lazyRelations.add(relation);
+            lazyOrdinals.add(ordinal);
+        }
+
+        List<RelationModel> relations = new ArrayList<>();
+        List<EntityRowMapper.Node> children = new ArrayList<>();
+        RelationModel backReference = null;
+        for (RelationModel relation : model.getRelations()) {
+            if (!isJoined(relation))
+                continue;
+            Class<?> relatedClass = relation.getTargetClass();
+            if (toAvoid.contains(relatedClass)) {
+                if (relatedClass.equals(parentClass))
+                    backReference = relation;
+                continue;
+            }
+            if (relation.isLazy())
+                continue;
+
+            relations.add(relation);
+            children.add(buildNode(relatedClass, entityClass, List.of(entityClass), selectedColumns, aliases,
+                    entityClasses));
+        }
+
+        return new EntityRowMapper.Node(model, columns, ordinals, lazyRelations, lazyOrdinals, relations, children,
+                backReference);
+    }
+
+    /*
+     * The related entities joined by the find query, see EntitiesMapperImpl.getJoinScript()
+     * */
+    private static boolean isJoined(RelationModel relation) {
+        return relation.getType() == RelationType.ONE_TO_ONE
+                || relation.getType() == RelationType.MANY_TO_ONE && relation.isOwningSide();
+    }
+}
@@ -0,0 +1,241 @@
+package com.custom.orm.mapper;
+
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.JoinTableModel;
+import com.custom.orm.metadata.model.RelationModel;
+import com.custom.orm.util.OrmProperties;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * SQL statements and select plans of the entities of one session factory, generated on the first request
+ * and shared by its sessions, repositories and caches.
+ */
+public class SqlTemplateCache {
+
+    private static final String FIND_BY_ID_SQL_QUERY = "%s WHERE %s.%s = ?;";
+    private static final String FIND_BY_ANY_SQL_QUERY = "%s WHERE %s.%s = ANY(?)";
+    private static final String FIND_BY_ID_RANGE_SQL_QUERY = "%s WHERE %s.%s BETWEEN ? AND ?";
+    private static final String ID_BOUNDS_SQL_QUERY = "SELECT MIN(%s), MAX(%s) FROM %s";
+    private static final String CREATE_SQL_QUERY = "INSERT INTO %s (%s) VALUES (%s)";
+    private static final String UPDATE_SQL_QUERY = "UPDATE %s SET %s WHERE %s = ?";
+    private static final String DELETE_SQL_QUERY = "DELETE FROM %s WHERE %s = ?";
+    private static final String COPY_IN_SQL_QUERY = "COPY %s (%s) FROM STDIN (FORMAT text)";
+    private static final String JOIN_TABLE_SELECT_SQL_QUERY = "SELECT %s, %s FROM %s WHERE %s = ANY(?)";
+    private static final String JOIN_TABLE_INSERT_SQL_QUERY = "INSERT INTO %s (%s, %s) VALUES (?, ?)";
+    private static final String JOIN_TABLE_DELETE_SQL_QUERY = "DELETE FROM %s WHERE %s = ? AND %s = ?";
+    private static final String JOIN_TABLE_DELETE_ALL_SQL_QUERY = "DELETE FROM %s WHERE %s = ?";
+    private static final String SET_COLUMN = " = ?";
+    private static final String COMMA_AND_SPACE = ", ";
+
+    /*
+     * Every combination of dirty columns has its own UPDATE, up to 2^n per entity, so only the first ones are kept
+     * */
+    private static final int PARTIAL_UPDATES_PER_ENTITY = OrmProperties.getInt("db.sql.partialUpdatesPerEntity", 64);
+
+    private final Map<Class<?>, SqlTemplates> templates = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, Map<List<ColumnModel>, String>> partialUpdates = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, Map<ColumnModel, String>> findByAnyColumn = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, String> findByIdRange = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, String> idBounds = new ConcurrentHashMap<>();
+
+    private final Map<RelationModel, JoinTableTemplates> joinTables = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, SelectPlan<?>> selectPlans = new ConcurrentHashMap<>();
+
+    private final EntitiesMapperImpl entitiesMapper = new EntitiesMapperImpl();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * This method returns the statements of the given entity class. They are generated on the first request
+     * and reused afterwards, so at steady state the miss counter no longer grows.
+     */
+    public SqlTemplates getTemplates(Class<?> entityClass) {
+        SqlTemplates cached = templates.get(entityClass);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        return templates.computeIfAbsent(entityClass, key -> {
+            misses.increment();
+            return create(key);
+        });
+    }
+
+    /**
+     * This method returns the UPDATE of only the given columns of the entity, the id is bound as the last parameter.
+     * The statement is generated once per set of columns, the list is used as a key and must not be modified.
+     * At most "db.sql.partialUpdatesPerEntity" sets are cached per entity, the statements of further sets
+     * are generated on every call.
+     */
+    public String getUpdate(Class<?> entityClass, List<ColumnModel> columns) {
+        Map<List<ColumnModel>, String> updates = partialUpdates.get(entityClass);
+        if (updates == null)
+            updates = partialUpdates.computeIfAbsent(entityClass, key -> new ConcurrentHashMap<>());
+
+        String cached = updates.get(columns);
+        if (cached != null)
+            return cached;
+        if (updates.size() >= PARTIAL_UPDATES_PER_ENTITY)
+            return buildUpdate(EntityModelRegistry.getModel(entityClass), columns);
+        return updates.computeIfAbsent(columns, key -> buildUpdate(EntityModelRegistry.getModel(entityClass), key));
+    }
+
+    /**
+     * This method returns the statements of the join table of the @ManyToMany relation, seen from its side.
+     */
+    public JoinTableTemplates getJoinTableTemplates(RelationModel relation) {
+        JoinTableTemplates cached = joinTables.get(relation);
+        if (cached != null)
+            return cached;
+        return joinTables.computeIfAbsent(relation, key -> {
+            JoinTableModel joinTable = key.resolveJoinTable();
+            String name = joinTable.getName();
+            String joinColumn = joinTable.getJoinColumn();
+            String inverseJoinColumn = joinTable.getInverseJoinColumn();
+
+            return new JoinTableTemplates(
+                    String.format(JOIN_TABLE_SELECT_SQL_QUERY, joinColumn, inverseJoinColumn, name, joinColumn),
+                    String.format(JOIN_TABLE_INSERT_SQL_QUERY, name, joinColumn, inverseJoinColumn),
+                    String.format(JOIN_TABLE_DELETE_SQL_QUERY, name, joinColumn, inverseJoinColumn),
+                    String.format(JOIN_TABLE_DELETE_ALL_SQL_QUERY, name, joinColumn));
+        });
+    }
+
+    /**
+     * This method returns the find query of the entity restricted to the rows whose column has one of the values
+     * of an array, e.g. the ids or the join column values of the lazy relations loaded in one batch.
+     * The array is bound as the only parameter, so the text is the same for any number of values.
+     */
+    public String getFindByAny(Class<?> entityClass, ColumnModel column) {
+        Map<ColumnModel, String> queries = findByAnyColumn.get(entityClass);
+        if (queries == null)
+            queries = findByAnyColumn.computeIfAbsent(entityClass, key -> new ConcurrentHashMap<>());
+
+        String cached = queries.get(column);
+        if (cached != null)
+            return cached;
+        return queries.computeIfAbsent(column, key -> String.format(FIND_BY_ANY_SQL_QUERY,
+                        getTemplates(entityClass).getFindAll(),
+                        EntityModelRegistry.getModel(entityClass).getTableNameWithoutSchema(), key.getName()));
+    }
+
+    /**
+     * This method returns the find query of the entity restricted to the rows whose id is between the two bound
+     * parameters, both inclusive. It reads one partition of a parallel scan.
+     */
+    public String getFindByIdRange(Class<?> entityClass) {
+        String cached = findByIdRange.get(entityClass);
+        if (cached != null)
+            return cached;
+        return findByIdRange.computeIfAbsent(entityClass, key -> {
+            EntityModel model = EntityModelRegistry.getModel(key);
+            return String.format(FIND_BY_ID_RANGE_SQL_QUERY, getTemplates(key).getFindAll(),
+                    model.getTableNameWithoutSchema(), model.getIdColumn().getName());
+        });
+    }
+
+    /**
+     * This method returns the query of the smallest and the largest id of the entity table.
+     */
+    public String getIdBounds(Class<?> entityClass) {
+        String cached = idBounds.get(entityClass);
+        if (cached != null)
+            return cached;
+        return idBounds.computeIfAbsent(entityClass, key -> {
+            EntityModel model = EntityModelRegistry.getModel(key);
+            String idColumnName = model.getIdColumn().getName();
+            return String.format(ID_BOUNDS_SQL_QUERY, idColumnName, idColumnName, model.getTableName());
+        });
+    }
+
+    /**
+     * This method returns the select plan of the entity class, built once. Its row mapper reads the rows of findAll
+     * and findById also when the entity has a generated mapper, so it is used wherever rows are kept dehydrated.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> SelectPlan<T> getSelectPlan(Class<T> entityClass) {
+        SelectPlan<?> cached = selectPlans.get(entityClass);
+        if (cached != null)
+            return (SelectPlan<T>) cached;
+        return (SelectPlan<T>) selectPlans.computeIfAbsent(entityClass, key -> SelectPlan.of(key));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * This method returns the number of partial UPDATE statements cached for the entity class.
+     */
+    public int getPartialUpdateCount(Class<?> entityClass) {
+        Map<List<ColumnModel>, String> updates = partialUpdates.get(entityClass);
+        return updates == null ? 0 : updates.size();
+    }
+
+    private SqlTemplates create(Class<?> entityClass) {
+        EntityModel model = EntityModelRegistry.getModel(entityClass);
+        String copyIn = String.format(COPY_IN_SQL_QUERY, model.getTableName(), model.getInsertColumnNames());
+        Set<String> tables = Set.copyOf(entitiesMapper.getQueryTables(entityClass));
+
+        Optional<? extends GeneratedMapper<?>> generated = GeneratedMappers.find(entityClass);
+        if (generated.isPresent()) {
+            GeneratedMapper<?> mapper = generated.get();
+            return new SqlTemplates(entityClass, mapper.getFindAll(), mapper.getFindById(), mapper.getInsert(),
+                    mapper.getUpdate(), mapper.getDelete(), copyIn, tables, mapper);
+        }
+
+        SelectPlan<?> selectPlan = getSelectPlan(entityClass);
+        String findAll = entitiesMapper.buildFindQuery(entityClass, selectPlan.getSelectList());
+
+        String findById = null;
+        String update = null;
+        String delete = null;
+
+        if (model.hasId()) {
+            String idColumnName = model.getIdColumn().getName();
+
+            findById = String.format(FIND_BY_ID_SQL_QUERY, findAll, model.getTableNameWithoutSchema(), idColumnName);
+            update = buildUpdate(model, model.getInsertColumns());
+            delete = String.format(DELETE_SQL_QUERY, model.getTableName(), idColumnName);
+        }
+
+        String insert = String.format(CREATE_SQL_QUERY, model.getTableName(),
+                model.getInsertColumnNames(), model.getInsertPlaceholders());
+
+        return new SqlTemplates(entityClass, findAll, findById, insert, update, delete, copyIn, tables,
+                selectPlan.getRowMapper());
+    }
+
+    private String buildUpdate(EntityModel model, List<ColumnModel> columns) {
+        return String.format(UPDATE_SQL_QUERY, model.getTableName(),
+                columns.stream()
+                        .map(column -> column.getName() + SET_COLUMN)
+                        .collect(joining(COMMA_AND_SPACE)),
+                model.getIdColumn().getName());
+    }
+}
@@ -0,0 +1,52 @@
+package com.custom.orm.mapper;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * Immutable set of the SQL statements generated for one entity class.
+ * All of them use "?" placeholders, so executing them only requires binding parameters.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class SqlTemplates {
+
+    private final Class<?> entityClass;
+
+    private final String findAll;
+
+    private final String findById;
+
+    private final String insert;
+
+    /**
+     * Updates every insert column, the id is bound as the last parameter.
+     */
+    private final String update;
+
+    private final String delete;
+
+    /**
+     * COPY ... FROM STDIN of the insert columns in the text format.
+     */
+    private final String copyIn;
+
+    /**
+     * Names (without schema) of the tables read by findAll and findById.
+     */
+    private final Set<String> tables;
+
+    private final RowMapper<?> rowMapper;
+
+    /**
+     * Returns the row mapper compiled together with the find queries, it reads the columns of findAll and findById.
+     * It is the generated mapper of the entity if there is one, otherwise the EntityRowMapper of its SelectPlan.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> RowMapper<T> getRowMapper() {
+        return (RowMapper<T>) rowMapper;
+    }
+}
@@ -18,4 +18,6 @@ public interface ForeignKeyMetaData {
     <T> Class getForeignKeyReferenceClass(Field field);
 
     String getForeignKeyReferenceColumnName(Field field);
+
+    String getForeignKeyType(Field field);
 }
@@ -14,4 +14,6 @@ public interface MappingMetaData {
     <T> Set<String> getManyToOneForeignKeyClassNames(Class<T> entityClass);
 
     boolean checkCascadeType(Field oneToOneField, CascadeType type1, CascadeType type2);
+
+    boolean isLazy(Field relationField);
 }
@@ -1,38 +1,23 @@
 package com.custom.orm.metadata.implementation;
 
-import com.custom.orm.annotations.Column;
-import com.custom.orm.annotations.Id;
-import com.custom.orm.annotations.relations.JoinColumn;
-import com.custom.orm.annotations.relations.OneToOne;
-import com.custom.orm.enums.FieldType;
 import com.custom.orm.metadata.ColumnMetaData;
-import lombok.SneakyThrows;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModelFactory;
+import com.custom.orm.metadata.model.EntityModelRegistry;
 import java.lang.reflect.Field;
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
-
-import static java.util.Optional.ofNullable;
-import static java.util.stream.Collectors.joining;
 
 public class ColumnMetaDataImpl implements ColumnMetaData {
 
-    private static final String COMMA_AND_SPACE = ", ";
-    private static final String QUESTION_MARK = "?";
-
     /**
      * This method returns the name of the given column.
      * It returns either name specified in @Column or the field's name itself.
      */
     @Override
     public String getColumnName(Field field) {
-        return ofNullable(field.getAnnotation(JoinColumn.class))
-                .map(JoinColumn::name)
-                .orElse(ofNullable(field.getAnnotation(Column.class))
-                        .filter(annotation -> annotation.name().length() > 0)
-                        .map(Column::name)
-                        .orElse(field.getName()));
-
+        return EntityModelRegistry.getModel(field.getDeclaringClass())
+                .findColumn(field)
+                .map(ColumnModel::getName)
+                .orElseGet(() -> EntityModelFactory.resolveColumnName(field));
     }
 
     /**
@@ -45,48 +30,22 @@ public class ColumnMetaDataImpl implements ColumnMetaData {
      */
     @Override
     public String getColumnType(Field field) {
-        if (field.isAnnotationPresent(Column.class)
-                && !(field.getAnnotation(Column.class).type().equals(FieldType.DEFAULT)))
-            return field.getAnnotation(Column.class).type().toString();
-
-        if (field.isAnnotationPresent(Id.class))
-            return "SERIAL";
-
-        String fieldType = field.getType().getSimpleName();
-
-        switch (fieldType) {
-            case ("Long"):
-                return "BIGINT";
-            case ("Integer"):
-                return "INTEGER";
-            case ("String"):
-                return "VARCHAR";
-            case ("LocalDateTime"):
-                return "DATETIME";
-            case ("LocalDate"):
-                return "DATE";
-            case ("LocalTime"):
-                return "TIME";
-            case ("Boolean"):
-                return "BOOLEAN";
-        }
-        return "BIGINT";
+        return EntityModelRegistry.getModel(field.getDeclaringClass())
+                .findColumn(field)
+                .map(ColumnModel::getSqlType)
+                .orElseGet(() -> EntityModelFactory.resolveColumnType(field));
     }
 
     /**
-     * This method returns the field name that is the primary key in the database.
+     * This method returns the column name that is the primary key in the database.
      * This field is marked with the @Id annotation.
      *
      * @param object type of the class whose object will be written to the database.
-     * @return String with a field name.
+     * @return String with a column name.
      */
     @Override
     public <T> String getIdColumnName(Class<T> object) {
-        return Arrays.stream(object.getDeclaredFields())
-                .filter(field -> field.isAnnotationPresent(Id.class))
-                .findFirst()
-                .orElseThrow(() -> new UnsupportedOperationException("Entity doesn't have ID!"))
-                .getName();
+        return EntityModelRegistry.getModel(object).getIdColumn().getName();
     }
 
     /**
@@ -96,45 +55,30 @@ public class ColumnMetaDataImpl implements ColumnMetaData {
      * @param object The object to be written to the database.
      * @return String with a value that is the primary key in the database
      */
-    @SneakyThrows
     @Override
     public <T> String getIdColumnValues(T object) {
-        Field idField = Arrays.stream(object.getClass().getDeclaredFields())
-                .filter(field -> field.isAnnotationPresent(Id.class))
-                .findFirst()
-                .orElseThrow(() -> new UnsupportedOperationException("Entity doesn't have ID!"));
-
-        idField.setAccessible(true);
-
-        return idField.get(object).toString();
+        return EntityModelRegistry.getModel(object.getClass()).getId(object).toString();
     }
 
     /**
      * This method returns a string of "?" characters that correspond to the number of object fields that will need
      * to be passed in the SQL request to the PreparedStatement.
-     * Fields of the object that are marked with the @Id annotation and the @OneToOne annotation,
-     * but at the same time are not marked with the @JoinColumn annotation - these fields are skipped.
+     * Fields of the object that are marked with the @Id annotation and relation fields
+     * that are not marked with the @JoinColumn annotation - these fields are skipped.
      * Object fields marked with the @JoinColumn annotation are taken into account.
      *
      * @param object The object to be written to the database.
      * @return String of operators that correspond to the number of object fields.
      */
-    @SneakyThrows
     @Override
     public <T> String getOperatorsFromFields(T object) {
-        List<Field> declaredFields = Arrays.asList(object.getClass().getDeclaredFields());
-
-        return declaredFields.stream()
-                .filter(field -> !field.isAnnotationPresent(Id.class))
-                .filter(field -> !(field.isAnnotationPresent(OneToOne.class) && !field.isAnnotationPresent(JoinColumn.class)))
-                .map(field -> QUESTION_MARK)
-                .collect(joining(COMMA_AND_SPACE));
+        return EntityModelRegistry.getModel(object.getClass()).getInsertPlaceholders();
     }
 
     /**
      * This method returns a string with the names of all the object's fields.
-     * Fields of the object that are marked with the @Id annotation and the @OneToOne annotation,
-     * but at the same time are not marked with the @JoinColumn annotation - these fields are skipped.
+     * Fields of the object that are marked with the @Id annotation and relation fields
+     * that are not marked with the @JoinColumn annotation - these fields are skipped.
      * Object fields marked with the @JoinColumn annotation are taken into account.
      *
      * @param object The object to be written to the database.
@@ -142,27 +86,6 @@ public class ColumnMetaDataImpl implements ColumnMetaData {
      */
     @Override
     public <T> String getColumnNames(T object) {
-        Field[] declaredFields = object.getClass().getDeclaredFields();
-
-        List<Field> collect = Arrays.stream(declaredFields)
-                .filter(field -> !field.isAnnotationPresent(Id.class))
-                .filter(field -> !(field.isAnnotationPresent(OneToOne.class) && !field.isAnnotationPresent(JoinColumn.class)))
-                .collect(Collectors.toList());
-
-        StringBuilder sb = new StringBuilder();
-
-        for (int i = 0; i < collect.size(); i++) {
-            if (collect.get(i).isAnnotationPresent(Column.class)) {
-                sb.append(collect.get(i).getAnnotation(Column.class).name());
-            } else if (collect.get(i).isAnnotationPresent(JoinColumn.class)) {
-                sb.append(collect.get(i).getAnnotation(JoinColumn.class).name());
-            } else {
-                sb.append(collect.get(i).getName());
-            }
-            if (i < collect.size() - 1) {
-                sb.append(COMMA_AND_SPACE);
-            }
-        }
-        return sb.toString();
+        return EntityModelRegistry.getModel(object.getClass()).getInsertColumnNames();
     }
 }
@@ -1,37 +1,31 @@
 package com.custom.orm.metadata.implementation;
 
-import com.custom.orm.annotations.Id;
-import com.custom.orm.annotations.relations.JoinColumn;
-import com.custom.orm.annotations.relations.OneToOne;
 import com.custom.orm.enums.CascadeType;
+import com.custom.orm.enums.RelationType;
 import com.custom.orm.metadata.DeclaredFieldsMetaData;
-import com.custom.orm.metadata.MappingMetaData;
-import lombok.SneakyThrows;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.RelationModel;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
-import static com.custom.orm.util.StringManipulation.*;
 import static java.util.stream.Collectors.*;
 
 public class DeclaredFieldsMetaDataImpl implements DeclaredFieldsMetaData {
 
-      MappingMetaData mappingMetaData = new MappingMetaDataImpl();
-
     /**
-     * Get all the declared fields of the object, excluding the fields when they are marked by the @OneToOne annotation
-     * but not marked by the @JoinColumn annotation.
+     * Get all the persistent fields of the object, excluding the relation fields that are not marked
+     * by the @JoinColumn annotation.
      *
      * @param object The object to be written to the database.
      * @return List of object fields to be written to the database.
      */
     @Override
     public <T> List<Field> getDeclaredFields(T object) {
-        return Arrays.stream(object.getClass().getDeclaredFields())
-                .filter(field -> !(field.isAnnotationPresent(OneToOne.class) && !field.isAnnotationPresent(JoinColumn.class)))
+        return EntityModelRegistry.getModel(object.getClass()).getColumns().stream()
+                .map(ColumnModel::getField)
                 .collect(toList());
     }
 
@@ -41,20 +35,15 @@ public class DeclaredFieldsMetaDataImpl implements DeclaredFieldsMetaData {
      * @param object The object to update to the database.
      * @return List of all object fields to be updated in the database.
      */
-    @SneakyThrows
     @Override
     public <T> List<Field> getDeclaredFieldsForUpdate(T object) {
 
         List<Field> fieldsForUpdate = new ArrayList<>();
-        List<Field> declaredFields = getDeclaredFields(object);
-        for (Field field : declaredFields) {
-            field.setAccessible(true);
-
-            Object value = field.get(object);
-            if (value == null || field.isAnnotationPresent(Id.class)) {
+        for (ColumnModel column : EntityModelRegistry.getModel(object.getClass()).getInsertColumns()) {
+            if (column.getColumnValue(object) == null) {
                 continue;
             }
-            fieldsForUpdate.add(field);
+            fieldsForUpdate.add(column.getField());
         }
         return fieldsForUpdate;
     }
@@ -67,9 +56,9 @@ public class DeclaredFieldsMetaDataImpl implements DeclaredFieldsMetaData {
      */
     @Override
     public <T> List<Field> getOneToOneDeclaredFields(T object) {
-        return Arrays.stream(object.getClass().getDeclaredFields())
-                .filter(field -> field.isAnnotationPresent(OneToOne.class))
-                .filter(field -> !field.isAnnotationPresent(JoinColumn.class))
+        return EntityModelRegistry.getModel(object.getClass()).getRelations(RelationType.ONE_TO_ONE).stream()
+                .filter(relation -> !relation.isOwningSide())
+                .map(RelationModel::getField)
                 .collect(toList());
     }
 
@@ -79,19 +68,15 @@ public class DeclaredFieldsMetaDataImpl implements DeclaredFieldsMetaData {
      * @param object The object to be written to the database.
      * @return List of objects that are obtained from fields.
      */
-    @SneakyThrows
     @Override
     public <T> List<Object> getObjectsFromFieldsOneToOne(T object, CascadeType type1, CascadeType type2) {
-        List<Field> oneToOneFields = getOneToOneDeclaredFields(object)
-                .stream()
-                .filter(field -> mappingMetaData.checkCascadeType(field, type1, type2))
-                .collect(Collectors.toList());
-
         List<Object> objectsFromFields = new ArrayList<>();
-        Object objectFromField;
-        for (Field oneToOneField : oneToOneFields) {
-            objectFromField = object.getClass().getMethod("get" + firstLetterStringToUpperCase(oneToOneField.getName())).invoke(object);
-            if(objectFromField != null) {
+        for (RelationModel relation : EntityModelRegistry.getModel(object.getClass()).getRelations(RelationType.ONE_TO_ONE)) {
+            if (relation.isOwningSide() || !relation.hasCascade(type1, type2))
+                continue;
+
+            Object objectFromField = relation.getTarget(object);
+            if (objectFromField != null) {
                 objectsFromFields.add(objectFromField);
             }
         }
@@ -5,8 +5,11 @@ import com.custom.orm.exceptions.ForeignKeyNotFoundException;
 import com.custom.orm.metadata.ColumnMetaData;
 import com.custom.orm.metadata.ForeignKeyMetaData;
 import com.custom.orm.metadata.TableMetaData;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.RelationModel;
 import java.lang.reflect.Field;
-import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -21,8 +24,7 @@ public class ForeignKeyMetaDataImpl implements ForeignKeyMetaData {
      */
     @Override
     public boolean hasForeignKey(Class<?> entityClass) {
-        return Arrays.stream(entityClass.getDeclaredFields())
-                .anyMatch(field -> field.isAnnotationPresent(JoinColumn.class));
+        return EntityModelRegistry.getModel(entityClass).hasForeignKey();
     }
 
     /**
@@ -37,14 +39,15 @@ public class ForeignKeyMetaDataImpl implements ForeignKeyMetaData {
      * This method returns set of all fields of the given entity that are foreign key
      * (in other words, all fields that are annotated with @JoinColumn).
      */
+    @Override
     public Set<Field> getForeignKeyColumns(Class<?> entityClass) {
         if (!hasForeignKey(entityClass))
             throw new ForeignKeyNotFoundException(
                     "Table " + tableMetaData.getTableName(entityClass) + " does not contain foreign key!");
 
-        return Arrays.stream(entityClass.getDeclaredFields())
-                .filter(field -> field.isAnnotationPresent(JoinColumn.class))
-                .collect(Collectors.toSet());
+        return EntityModelRegistry.getModel(entityClass).getJoinColumns().stream()
+                .map(ColumnModel::getField)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     /**
@@ -70,7 +73,7 @@ public class ForeignKeyMetaDataImpl implements ForeignKeyMetaData {
             throw new ForeignKeyNotFoundException(
                     "Column " + columnMetaData.getColumnName(field) + " does not contain foreign key!");
 
-        return tableMetaData.getTableNameWithoutSchema(field.getType());
+        return tableMetaData.getTableNameWithoutSchema(getReferenceClass(field));
     }
 
     /**
@@ -82,7 +85,7 @@ public class ForeignKeyMetaDataImpl implements ForeignKeyMetaData {
             throw new ForeignKeyNotFoundException(
                     "Column " + columnMetaData.getColumnName(field) + " does not contain foreign key!");
 
-        return field.getType();
+        return getReferenceClass(field);
     }
 
     /**
@@ -95,6 +98,29 @@ public class ForeignKeyMetaDataImpl implements ForeignKeyMetaData {
             throw new ForeignKeyNotFoundException(
                     "Column " + columnMetaData.getColumnName(field) + " does not contain foreign key!");
 
-        return columnMetaData.getIdColumnName(field.getType());
+        return columnMetaData.getIdColumnName(getReferenceClass(field));
+    }
+
+    /**
+     * This method returns the SQL type of the foreign key column of the given field. The keys of a lazy relation
+     * are bound as an array of this type when the relation is fetched for several owners at once.
+     */
+    @Override
+    public String getForeignKeyType(Field field) {
+        if (!isForeignKey(field))
+            throw new ForeignKeyNotFoundException(
+                    "Column " + columnMetaData.getColumnName(field) + " does not contain foreign key!");
+
+        return columnMetaData.getColumnType(field);
+    }
+
+    /*
+     * The target class of the relation, which differs from the type of the field for a LazyReference
+     * */
+    private Class<?> getReferenceClass(Field field) {
+        return EntityModelRegistry.getModel(field.getDeclaringClass())
+                .findRelation(field)
+                .<Class<?>>map(RelationModel::getTargetClass)
+                .orElse(field.getType());
     }
 }
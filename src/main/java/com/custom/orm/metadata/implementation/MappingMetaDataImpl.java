@@ -1,14 +1,13 @@
 package com.custom.orm.metadata.implementation;
 
-import com.custom.orm.annotations.relations.ManyToOne;
-import com.custom.orm.annotations.relations.OneToMany;
-import com.custom.orm.annotations.relations.OneToOne;
 import com.custom.orm.enums.CascadeType;
+import com.custom.orm.enums.RelationType;
 import com.custom.orm.metadata.MappingMetaData;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.RelationModel;
 
 import java.lang.reflect.Field;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -16,36 +15,25 @@ public class MappingMetaDataImpl implements MappingMetaData {
 
     /**
      * This method returns a set of class names of fields of the given entity that are annotated with @OneToOne.
+     * Relations fetched lazily are not included, they are not joined.
      */
     @Override
     public <T> Set<String> getOneToOneForeignKeyClassNames(Class<T> entityClass) {
-        if (Arrays.stream(entityClass.getDeclaredFields())
-                .anyMatch(field -> field.isAnnotationPresent(OneToOne.class)))
-
-            return Arrays.stream(entityClass.getDeclaredFields())
-                    .filter(field -> field.isAnnotationPresent(OneToOne.class))
-                    .filter(field -> checkCascadeType(field, CascadeType.ALL, CascadeType.ADD))
-                    .filter(field -> field.getAnnotation(OneToOne.class).mappedBy().length() > 0)
-                    .map(field -> field.getType().getName())
-                    .collect(Collectors.toSet());
-
-        return new HashSet<>();
+        return EntityModelRegistry.getModel(entityClass).getRelations(RelationType.ONE_TO_ONE).stream()
+                .filter(relation -> relation.hasCascade(CascadeType.ALL, CascadeType.ADD))
+                .filter(RelationModel::isMappedBy)
+                .filter(relation -> !relation.isLazy())
+                .map(relation -> relation.getTargetClass().getName())
+                .collect(Collectors.toSet());
     }
 
     /**
-     * This method returns a set of class names of fields of the given entity that are annotated with @OneToMany.
+     * This method returns a set of class names of the elements of the fields of the given entity that are annotated
+     * with @OneToMany (the element type of the collection, not the type of the field).
      */
     @Override
     public <T> Set<String> getOneToManyForeignKeyClassNames(Class<T> entityClass) {
-        if (Arrays.stream(entityClass.getDeclaredFields()).anyMatch(field -> field.isAnnotationPresent(OneToMany.class) &&
-                        checkCascadeType(field, CascadeType.ALL, CascadeType.GET))) {
-            return Arrays.stream(entityClass.getDeclaredFields())
-                    .filter(field -> field.isAnnotationPresent(OneToMany.class))
-                    .filter(field -> field.getAnnotation(OneToMany.class).mappedBy().length() > 0)
-                    .map(field -> field.getType().getName())
-                    .collect(Collectors.toSet());
-        }
-        return new HashSet<>();
+        return getParentClassNames(EntityModelRegistry.getModel(entityClass), RelationType.ONE_TO_MANY);
     }
 
     /**
@@ -53,23 +41,11 @@ public class MappingMetaDataImpl implements MappingMetaData {
      */
     @Override
     public <T> Set<String> getManyToOneForeignKeyClassNames(Class<T> entityClass) {
-        if (Arrays.stream(entityClass.getDeclaredFields())
-                .anyMatch(field -> field.isAnnotationPresent(ManyToOne.class) &&
-                        (Arrays.asList(field.getAnnotation(ManyToOne.class).cascade()).contains(CascadeType.ALL) ||
-                                Arrays.asList(field.getAnnotation(ManyToOne.class).cascade()).contains(CascadeType.GET))
-                )
-        )
-            return Arrays.stream(entityClass.getDeclaredFields())
-                    .filter(field -> field.isAnnotationPresent(ManyToOne.class))
-                    .filter(field -> field.getAnnotation(ManyToOne.class).mappedBy().length() > 0)
-                    .map(field -> field.getType().getName())
-                    .collect(Collectors.toSet());
-
-        return new HashSet<>();
+        return getParentClassNames(EntityModelRegistry.getModel(entityClass), RelationType.MANY_TO_ONE);
     }
 
     /**
-     * This method checks whether a field (containing the @OneToOne annotation) has a CascadeType passed in the parameters.
+     * This method checks whether a relation field has a CascadeType passed in the parameters.
      *
      * @param oneToOneField The field of the object that is marked by the annotation @OneToOne.
      * @param type1 CascadeType which can contain an object.
@@ -77,7 +53,35 @@ public class MappingMetaDataImpl implements MappingMetaData {
      */
     @Override
     public boolean checkCascadeType(Field oneToOneField, CascadeType type1, CascadeType type2) {
-        return Arrays.asList(oneToOneField.getAnnotation(OneToOne.class).cascade()).contains(type1) ||
-                Arrays.asList(oneToOneField.getAnnotation(OneToOne.class).cascade()).contains(type2);
+        return EntityModelRegistry.getModel(oneToOneField.getDeclaringClass())
+                .findRelation(oneToOneField)
+                .map(relation -> relation.hasCascade(type1, type2))
+                .orElse(false);
+    }
+
+    /**
+     * This method checks whether the relation field is fetched lazily, so it is not joined by the find query.
+     */
+    @Override
+    public boolean isLazy(Field relationField) {
+        return EntityModelRegistry.getModel(relationField.getDeclaringClass())
+                .findRelation(relationField)
+                .map(RelationModel::isLazy)
+                .orElse(false);
+    }
+
+    /*
+     * Returns class names of mappedBy relations of the given type, if at least one of them has CascadeType ALL or GET.
+     * Relations fetched lazily are skipped
+     * */
+    private Set<String> getParentClassNames(EntityModel model, RelationType type) {
+        if (model.getRelations(type).stream().noneMatch(relation -> relation.hasCascade(CascadeType.ALL, CascadeType.GET)))
+            return Set.of();
+
+        return model.getRelations(type).stream()
+                .filter(RelationModel::isMappedBy)
+                .filter(relation -> !relation.isLazy())
+                .map(relation -> relation.getTargetClass().getName())
+                .collect(Collectors.toSet());
     }
 }
@@ -1,19 +1,15 @@
 package com.custom.orm.metadata.implementation;
 
-import com.custom.orm.annotations.Column;
-import com.custom.orm.annotations.ComposedPrimaryKey;
-import com.custom.orm.annotations.Id;
-import com.custom.orm.metadata.ColumnMetaData;
 import com.custom.orm.metadata.PrimaryKeyMetaData;
-import java.util.Arrays;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import org.apache.commons.lang3.StringUtils;
 
-import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.joining;
 
 public class PrimaryKeyMetaDataImpl implements PrimaryKeyMetaData {
 
-    private final ColumnMetaData columnMetaData = new ColumnMetaDataImpl();
-
     private final static String COMMA_AND_SPACE = ", ";
 
     /**
@@ -22,10 +18,8 @@ public class PrimaryKeyMetaDataImpl implements PrimaryKeyMetaData {
      */
     @Override
     public String getPrimaryKeyColumnName(Class<?> entityClass) {
-        return Arrays.stream(entityClass.getDeclaredFields())
-                .filter(field -> field.isAnnotationPresent(Id.class))
-                .map(columnMetaData::getColumnName)
-                .collect(joining());
+        EntityModel model = EntityModelRegistry.getModel(entityClass);
+        return model.hasId() ? model.getIdColumn().getName() : StringUtils.EMPTY;
     }
 
     /**
@@ -37,12 +31,8 @@ public class PrimaryKeyMetaDataImpl implements PrimaryKeyMetaData {
      */
     @Override
     public String getComposedPrimaryKeyColumnsNames(Class<?> entityClass) {
-        return Arrays.stream(entityClass.getDeclaredFields())
-                .filter(field -> field.isAnnotationPresent(ComposedPrimaryKey.class))
-                .map(field -> ofNullable(field.getAnnotation(Column.class))
-                        .map(Column::name)
-                        .filter(name -> name.length() > 0)
-                        .orElse(field.getName()))
+        return EntityModelRegistry.getModel(entityClass).getComposedPrimaryKeyColumns().stream()
+                .map(ColumnModel::getName)
                 .collect(joining(COMMA_AND_SPACE));
     }
 }
@@ -1,16 +1,10 @@
 package com.custom.orm.metadata.implementation;
 
-import com.custom.orm.annotations.Table;
 import com.custom.orm.metadata.TableMetaData;
-import org.apache.commons.lang3.StringUtils;
-
-import static java.util.Optional.ofNullable;
+import com.custom.orm.metadata.model.EntityModelRegistry;
 
 public class TableMetaDataImpl implements TableMetaData {
 
-    private static final String EMPTY_LINE = StringUtils.EMPTY;
-    private static final String DOT = ".";
-
     /**
      * This method returns the name of the table in the database, which is the analog of the class on the Java application side.
      * If a class is annotated with the @Table annotation, the table name and database schema are taken from this annotation.
@@ -20,10 +14,7 @@ public class TableMetaDataImpl implements TableMetaData {
      */
     @Override
     public <T> String getTableName(Class<T> object) {
-        return ofNullable(object.getAnnotation(Table.class))
-                .map(tableAnnotation -> tableAnnotation.schema().equals(EMPTY_LINE) ?
-                        tableAnnotation.name() : tableAnnotation.schema() + DOT + tableAnnotation.name())
-                .orElse(object.getSimpleName().toLowerCase());
+        return EntityModelRegistry.getModel(object).getTableName();
     }
 
     /**
@@ -34,10 +25,7 @@ public class TableMetaDataImpl implements TableMetaData {
      */
     @Override
     public <T> String getTableNameWithoutSchema(Class<T> object) {
-        return ofNullable(object.getAnnotation(Table.class))
-                .map(Table::name)
-                .filter(name -> name.length() > 0)
-                .orElse(object.getSimpleName().toLowerCase());
+        return EntityModelRegistry.getModel(object).getTableNameWithoutSchema();
     }
 
 }
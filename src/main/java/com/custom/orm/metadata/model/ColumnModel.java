@@ -0,0 +1,71 @@
+package com.custom.orm.metadata.model;
+
+import com.custom.orm.accessor.PropertyAccessor;
+import com.custom.orm.lazy.LazyReference;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+
+/**
+ * Immutable description of one persistent column of an entity.
+ * Values are read and written through the accessor, which is created once together with the model.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class ColumnModel {
+
+    private final Field field;
+
+    private final String name;
+
+    private final String sqlType;
+
+    private final boolean id;
+
+    private final boolean joinColumn;
+
+    private final boolean composedPrimaryKey;
+
+    private final boolean nullable;
+
+    private final boolean unique;
+
+    private final PropertyAccessor accessor;
+
+    public String getFieldName() {
+        return field.getName();
+    }
+
+    public Class<?> getJavaType() {
+        return field.getType();
+    }
+
+    public Object getValue(Object entity) {
+        return accessor.get(entity);
+    }
+
+    public void setValue(Object entity, Object value) {
+        accessor.set(entity, value);
+    }
+
+    /**
+     * This method returns the value as it is written to the column: for a join column it is the id
+     * of the referenced entity (a LazyReference is not loaded for it), otherwise the value of the field.
+     */
+    public Object getColumnValue(Object entity) {
+        return toColumnValue(accessor.get(entity));
+    }
+
+    /**
+     * This method converts a value of the field to the value of the column, see getColumnValue().
+     */
+    public Object toColumnValue(Object value) {
+        if (value instanceof LazyReference)
+            return ((LazyReference<?>) value).getId();
+        if (joinColumn && value != null)
+            return EntityModelRegistry.getModel(value.getClass()).getId(value);
+        return value;
+    }
+}
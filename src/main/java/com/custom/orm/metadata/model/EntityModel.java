@@ -0,0 +1,194 @@
+package com.custom.orm.metadata.model;
+
+import com.custom.orm.accessor.EntityInstantiator;
+import com.custom.orm.accessor.PropertyAccessor;
+import com.custom.orm.enums.RelationType;
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Immutable mapping of an entity class, built once by EntityModelRegistry.
+ * It holds everything the metadata classes used to derive from getDeclaredFields() on every call:
+ * table names, the id column, ordered persistent columns, join columns and relations.
+ */
+@Getter
+public final class EntityModel {
+
+    private static final String COMMA_AND_SPACE = ", ";
+    private static final String QUESTION_MARK = "?";
+
+    private final Class<?> entityClass;
+
+    private final String tableName;
+
+    private final String tableNameWithoutSchema;
+
+    /**
+     * All persistent columns in declaration order (including the id and join columns).
+     */
+    private final List<ColumnModel> columns;
+
+    /**
+     * Persistent columns without the id, in the order they are written by INSERT.
+     */
+    private final List<ColumnModel> insertColumns;
+
+    private final List<ColumnModel> joinColumns;
+
+    private final List<ColumnModel> composedPrimaryKeyColumns;
+
+    private final List<RelationModel> relations;
+
+    /**
+     * The @OneToMany and @ManyToMany relations, they are not read by the find query of the entity.
+     */
+    private final List<RelationModel> collectionRelations;
+
+    /**
+     * Column names of insertColumns joined with ", ".
+     */
+    private final String insertColumnNames;
+
+    /**
+     * One "?" per insert column joined with ", ".
+     */
+    private final String insertPlaceholders;
+
+    private final ColumnModel idColumn;
+
+    private final Map<Field, ColumnModel> columnsByField;
+
+    private final Map<Field, RelationModel> relationsByField;
+
+    private final EntityInstantiator instantiator;
+
+    /**
+     * Persistent columns and relation fields in declaration order.
+     */
+    private final List<Field> propertyFields;
+
+    EntityModel(Class<?> entityClass, String tableName, String tableNameWithoutSchema, List<Field> propertyFields,
+                List<ColumnModel> columns, List<RelationModel> relations, EntityInstantiator instantiator) {
+        this.entityClass = entityClass;
+        this.instantiator = instantiator;
+        this.propertyFields = List.copyOf(propertyFields);
+        this.tableName = tableName;
+        this.tableNameWithoutSchema = tableNameWithoutSchema;
+        this.columns = List.copyOf(columns);
+        this.relations = List.copyOf(relations);
+        this.collectionRelations = relations.stream()
+                .filter(RelationModel::isCollection)
+                .collect(Collectors.toUnmodifiableList());
+        this.idColumn = columns.stream().filter(ColumnModel::isId).findFirst().orElse(null);
+        this.insertColumns = columns.stream().filter(column -> !column.isId()).collect(Collectors.toUnmodifiableList());
+        this.joinColumns = columns.stream().filter(ColumnModel::isJoinColumn).collect(Collectors.toUnmodifiableList());
+        this.composedPrimaryKeyColumns = columns.stream()
+                .filter(ColumnModel::isComposedPrimaryKey)
+                .collect(Collectors.toUnmodifiableList());
+        this.insertColumnNames = insertColumns.stream().map(ColumnModel::getName).collect(joining(COMMA_AND_SPACE));
+        this.insertPlaceholders = insertColumns.stream().map(column -> QUESTION_MARK).collect(joining(COMMA_AND_SPACE));
+
+        Map<Field, ColumnModel> byField = new HashMap<>();
+        columns.forEach(column -> byField.put(column.getField(), column));
+        this.columnsByField = Collections.unmodifiableMap(byField);
+
+        Map<Field, RelationModel> relationByField = new HashMap<>();
+        relations.forEach(relation -> relationByField.put(relation.getField(), relation));
+        this.relationsByField = Collections.unmodifiableMap(relationByField);
+    }
+
+    /**
+     * This method returns the column marked with @Id.
+     * The absence of the id is only reported when it is requested, so that models of classes without @Id can
+     * still be built and validated.
+     */
+    public ColumnModel getIdColumn() {
+        if (idColumn == null)
+            throw new UnsupportedOperationException("Entity doesn't have ID!");
+        return idColumn;
+    }
+
+    /**
+     * This method creates a new instance of the entity through its no-arg constructor.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T newInstance() {
+        return (T) instantiator.newInstance();
+    }
+
+    public Object getId(Object entity) {
+        return getIdColumn().getValue(entity);
+    }
+
+    public void setId(Object entity, Object id) {
+        getIdColumn().setValue(entity, id);
+    }
+
+    public boolean hasId() {
+        return idColumn != null;
+    }
+
+    public boolean hasForeignKey() {
+        return !joinColumns.isEmpty();
+    }
+
+    public boolean hasComposedPrimaryKey() {
+        return !composedPrimaryKeyColumns.isEmpty();
+    }
+
+    public Optional<ColumnModel> findColumn(Field field) {
+        return Optional.ofNullable(columnsByField.get(field));
+    }
+
+    /**
+     * This method returns the column of the field with the given name.
+     */
+    public Optional<ColumnModel> findColumn(String fieldName) {
+        return columns.stream()
+                .filter(column -> column.getFieldName().equals(fieldName))
+                .findFirst();
+    }
+
+    public Optional<RelationModel> findRelation(Field field) {
+        return Optional.ofNullable(relationsByField.get(field));
+    }
+
+    /**
+     * This method returns the relation of the field with the given name, e.g. the field named by mappedBy.
+     */
+    public Optional<RelationModel> findRelation(String fieldName) {
+        return relations.stream()
+                .filter(relation -> relation.getField().getName().equals(fieldName))
+                .findFirst();
+    }
+
+    /**
+     * This method returns the accessor of a column or relation field of the entity.
+     */
+    public Optional<PropertyAccessor> findAccessor(Field field) {
+        ColumnModel column = columnsByField.get(field);
+        if (column != null)
+            return Optional.of(column.getAccessor());
+        return findRelation(field).map(RelationModel::getAccessor);
+    }
+
+    /**
+     * This method returns the accessor of the column or relation field with the given name,
+     * generated mappers use it for private fields.
+     */
+    public Optional<PropertyAccessor> findAccessor(String fieldName) {
+        return findColumn(fieldName).map(ColumnModel::getAccessor)
+                .or(() -> findRelation(fieldName).map(RelationModel::getAccessor));
+    }
+
+    public List<RelationModel> getRelations(RelationType type) {
+        return relations.stream()
+                .filter(relation -> relation.getType() == type)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,229 @@
+package com.custom.orm.metadata.model;
+
+import com.custom.orm.accessor.EntityInstantiator;
+import com.custom.orm.accessor.PropertyAccessor;
+import com.custom.orm.annotations.Column;
+import com.custom.orm.annotations.ComposedPrimaryKey;
+import com.custom.orm.annotations.Id;
+import com.custom.orm.annotations.Table;
+import com.custom.orm.annotations.relations.*;
+import com.custom.orm.enums.CascadeType;
+import com.custom.orm.enums.FetchType;
+import com.custom.orm.enums.FieldType;
+import com.custom.orm.enums.RelationType;
+import com.custom.orm.lazy.LazyReference;
+import lombok.experimental.UtilityClass;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+
+import static java.util.Optional.ofNullable;
+
+@UtilityClass
+public class EntityModelFactory {
+
+    private static final String EMPTY_LINE = StringUtils.EMPTY;
+    private static final String DOT = ".";
+    private static final String UNDERSCORE = "_";
+    private static final String ID = "id";
+
+    /*
+     * Walks the declared fields of the class once and builds its immutable model together with the accessors
+     * of its properties.
+     * */
+    EntityModel create(Class<?> entityClass) {
+        List<Field> propertyFields = new ArrayList<>();
+        List<ColumnModel> columns = new ArrayList<>();
+        List<RelationModel> relations = new ArrayList<>();
+
+        for (Field field : entityClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic())
+                continue;
+
+            field.setAccessible(true);
+
+            ColumnModel column = null;
+            boolean relation = isRelation(field);
+            if (!relation || field.isAnnotationPresent(JoinColumn.class)) {
+                column = createColumn(field);
+                columns.add(column);
+            }
+            if (relation)
+                relations.add(createRelation(field, column));
+            propertyFields.add(field);
+        }
+
+        return new EntityModel(entityClass, resolveTableName(entityClass), resolveTableNameWithoutSchema(entityClass),
+                propertyFields, columns, relations, EntityInstantiator.of(entityClass));
+    }
+
+    /**
+     * This method returns the name of the given column.
+     * It returns either name specified in @JoinColumn, in @Column or the field's name itself.
+     */
+    public String resolveColumnName(Field field) {
+        return ofNullable(field.getAnnotation(JoinColumn.class))
+                .map(JoinColumn::name)
+                .orElse(ofNullable(field.getAnnotation(Column.class))
+                        .filter(annotation -> annotation.name().length() > 0)
+                        .map(Column::name)
+                        .orElse(field.getName()));
+    }
+
+    /**
+     * This method maps Java-types into SQL-types. It works with the limited (most vital) Java-types.
+     * You may specify necessary SQL-type in @Column. Otherwise, it maps Java-types by switch-operator.
+     * Please, note that if neither of switch-cases succeed, it presumes that field-type is another entity,
+     * therefore it will be mapped into "BIGINT", so in database it will be used as id of that other entity
+     * (if necessary - as foreign key). So be careful while using type that is not specified in switch-operator.
+     * Please, note that field annotated with @Id are always mapped into "SERIAL", so it will be autoincrementing.
+     */
+    public String resolveColumnType(Field field) {
+        if (field.isAnnotationPresent(Column.class)
+                && !(field.getAnnotation(Column.class).type().equals(FieldType.DEFAULT)))
+            return field.getAnnotation(Column.class).type().toString();
+
+        if (field.isAnnotationPresent(Id.class))
+            return "SERIAL";
+
+        String fieldType = field.getType().getSimpleName();
+
+        switch (fieldType) {
+            case ("Long"):
+                return "BIGINT";
+            case ("Integer"):
+                return "INTEGER";
+            case ("String"):
+                return "VARCHAR";
+            case ("LocalDateTime"):
+                return "DATETIME";
+            case ("LocalDate"):
+                return "DATE";
+            case ("LocalTime"):
+                return "TIME";
+            case ("Boolean"):
+                return "BOOLEAN";
+        }
+        return "BIGINT";
+    }
+
+    /**
+     * This method returns the name of the table with the schema taken from @Table,
+     * or the lower-cased name of the class if it is not annotated.
+     */
+    public String resolveTableName(Class<?> entityClass) {
+        return ofNullable(entityClass.getAnnotation(Table.class))
+                .map(tableAnnotation -> tableAnnotation.schema().equals(EMPTY_LINE) ?
+                        tableAnnotation.name() : tableAnnotation.schema() + DOT + tableAnnotation.name())
+                .orElse(entityClass.getSimpleName().toLowerCase());
+    }
+
+    /**
+     * This method returns either the name specified in @Table or the lower-cased name of the class.
+     */
+    public String resolveTableNameWithoutSchema(Class<?> entityClass) {
+        return ofNullable(entityClass.getAnnotation(Table.class))
+                .map(Table::name)
+                .filter(name -> name.length() > 0)
+                .orElse(entityClass.getSimpleName().toLowerCase());
+    }
+
+    private boolean isRelation(Field field) {
+        return field.isAnnotationPresent(OneToOne.class)
+                || field.isAnnotationPresent(OneToMany.class)
+                || field.isAnnotationPresent(ManyToOne.class)
+                || field.isAnnotationPresent(ManyToMany.class);
+    }
+
+    private ColumnModel createColumn(Field field) {
+        Column column = field.getAnnotation(Column.class);
+
+        return new ColumnModel(field,
+                resolveColumnName(field),
+                resolveColumnType(field),
+                field.isAnnotationPresent(Id.class),
+                field.isAnnotationPresent(JoinColumn.class),
+                field.isAnnotationPresent(ComposedPrimaryKey.class),
+                column == null || column.nullable(),
+                column != null && column.unique(),
+                PropertyAccessor.of(field));
+    }
+
+    private RelationModel createRelation(Field field, ColumnModel joinColumn) {
+        RelationType type;
+        String mappedBy;
+        CascadeType[] cascade;
+        FetchType fetch;
+
+        if (field.isAnnotationPresent(OneToOne.class)) {
+            type = RelationType.ONE_TO_ONE;
+            mappedBy = field.getAnnotation(OneToOne.class).mappedBy();
+            cascade = field.getAnnotation(OneToOne.class).cascade();
+            fetch = field.getAnnotation(OneToOne.class).fetch();
+        } else if (field.isAnnotationPresent(OneToMany.class)) {
+            type = RelationType.ONE_TO_MANY;
+            mappedBy = field.getAnnotation(OneToMany.class).mappedBy();
+            cascade = field.getAnnotation(OneToMany.class).cascade();
+            fetch = field.getAnnotation(OneToMany.class).fetch();
+        } else if (field.isAnnotationPresent(ManyToOne.class)) {
+            type = RelationType.MANY_TO_ONE;
+            mappedBy = field.getAnnotation(ManyToOne.class).mappedBy();
+            cascade = field.getAnnotation(ManyToOne.class).cascade();
+            fetch = field.getAnnotation(ManyToOne.class).fetch();
+        } else {
+            type = RelationType.MANY_TO_MANY;
+            mappedBy = field.getAnnotation(ManyToMany.class).mappedBy();
+            cascade = field.getAnnotation(ManyToMany.class).cascade();
+            fetch = field.getAnnotation(ManyToMany.class).fetch();
+        }
+
+        Set<CascadeType> cascadeTypes = cascade.length == 0
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(EnumSet.copyOf(Arrays.asList(cascade)));
+
+        Class<?> targetClass = resolveTargetClass(field);
+        JoinTableModel joinTable = type == RelationType.MANY_TO_MANY && mappedBy.isEmpty()
+                ? createJoinTable(field, targetClass)
+                : null;
+
+        return new RelationModel(field, type, targetClass, mappedBy, cascadeTypes, joinColumn,
+                joinColumn != null ? joinColumn.getAccessor() : PropertyAccessor.of(field), fetch, joinTable);
+    }
+
+    /*
+     * Takes the names from @JoinTable, missing ones are derived from the table names of both sides
+     * */
+    private JoinTableModel createJoinTable(Field field, Class<?> targetClass) {
+        String ownerTable = resolveTableNameWithoutSchema(field.getDeclaringClass());
+        String targetTable = resolveTableNameWithoutSchema(targetClass);
+        JoinTable joinTable = field.getAnnotation(JoinTable.class);
+
+        String name = joinTable != null && !joinTable.name().isEmpty()
+                ? joinTable.name() : ownerTable + UNDERSCORE + targetTable;
+        String joinColumn = joinTable != null && !joinTable.joinColumn().isEmpty()
+                ? joinTable.joinColumn() : ownerTable + UNDERSCORE + ID;
+        String inverseJoinColumn = joinTable != null && !joinTable.inverseJoinColumn().isEmpty()
+                ? joinTable.inverseJoinColumn() : targetTable + UNDERSCORE + ID;
+        return new JoinTableModel(name, joinColumn, inverseJoinColumn);
+    }
+
+    /*
+     * For collection and LazyReference fields returns their type argument, otherwise the type of the field.
+     * */
+    private Class<?> resolveTargetClass(Field field) {
+        if (!Collection.class.isAssignableFrom(field.getType()) && field.getType() != LazyReference.class)
+            return field.getType();
+
+        Type genericType = field.getGenericType();
+        if (genericType instanceof ParameterizedType) {
+            Type argument = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+            if (argument instanceof Class)
+                return (Class<?>) argument;
+        }
+        return field.getType();
+    }
+}
@@ -0,0 +1,27 @@
+package com.custom.orm.metadata.model;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@UtilityClass
+public class EntityModelRegistry {
+
+    private final Map<Class<?>, EntityModel> models = new ConcurrentHashMap<>();
+
+    /**
+     * This method returns the model of the given class, building it on the first request.
+     * Models are immutable, so the same instance is shared by all threads and sessions.
+     */
+    public EntityModel getModel(Class<?> entityClass) {
+        EntityModel model = models.get(entityClass);
+        if (model != null)
+            return model;
+        return models.computeIfAbsent(entityClass, EntityModelFactory::create);
+    }
+
+    public boolean isRegistered(Class<?> entityClass) {
+        return models.containsKey(entityClass);
+    }
+}
@@ -0,0 +1,119 @@
+package com.custom.orm.metadata.model;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.enums.RelationType;
+import lombok.experimental.UtilityClass;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+@UtilityClass
+public class EntityModelValidator {
+
+    private static final String DOT = ".";
+
+    /**
+     * This method checks the mapping of the entity class and returns the problems found, or an empty list.
+     * Problems that would otherwise only show up when a statement is generated or executed are reported here:
+     * a missing or duplicated @Id, a missing no-arg constructor, relations to classes that are not entities,
+     * @JoinColumn to an entity without @Id, mappedBy naming a field that does not exist, lazy relations
+     * that can't be loaded, eager relations that are not joined and collections that can't be fetched or written.
+     */
+    public List<String> validate(Class<?> entityClass) {
+        List<String> problems = new ArrayList<>();
+        String name = entityClass.getName();
+
+        if (!entityClass.isAnnotationPresent(Entity.class))
+            problems.add(name + " is not annotated with @Entity");
+
+        EntityModel model = EntityModelRegistry.getModel(entityClass);
+
+        long idColumns = model.getColumns().stream().filter(ColumnModel::isId).count();
+        if (idColumns == 0 && !model.hasComposedPrimaryKey())
+            problems.add(name + " doesn't have a field annotated with @Id");
+        if (idColumns > 1)
+            problems.add(name + " has more than one field annotated with @Id, use @ComposedPrimaryKey instead");
+
+        if (!model.getInstantiator().canInstantiate())
+            problems.add(name + " doesn't have a no-arg constructor");
+
+        for (RelationModel relation : model.getRelations()) {
+            String fieldName = name + DOT + relation.getField().getName();
+            Class<?> targetClass = relation.getTargetClass();
+
+            if (!targetClass.isAnnotationPresent(Entity.class)) {
+                problems.add(fieldName + " refers to " + targetClass.getName() + ", which is not an @Entity");
+                continue;
+            }
+
+            if (relation.isOwningSide() && !EntityModelRegistry.getModel(targetClass).hasId())
+                problems.add(fieldName + " is a @JoinColumn to " + targetClass.getName() + ", which doesn't have an @Id");
+
+            if (relation.isMappedBy() && !hasField(targetClass, relation.getMappedBy()))
+                problems.add(fieldName + " is mapped by \"" + relation.getMappedBy() + "\", which is not a field of "
+                        + targetClass.getName());
+
+            if (relation.isLazy() && isSingleValued(relation) && !relation.isReference())
+                problems.add(fieldName + " is fetched lazily, so it has to be declared as LazyReference<"
+                        + targetClass.getSimpleName() + ">");
+
+            if (relation.isLazy() && relation.isMappedBy() && isSingleValued(relation)
+                    && EntityModelRegistry.getModel(targetClass).findColumn(relation.getMappedBy())
+                    .filter(ColumnModel::isJoinColumn).isEmpty())
+                problems.add(fieldName + " is fetched lazily and mapped by \"" + relation.getMappedBy()
+                        + "\", which is not a @JoinColumn of " + targetClass.getName());
+
+            if (relation.getType() == RelationType.MANY_TO_ONE && !relation.isLazy() && !relation.isOwningSide())
+                problems.add(fieldName + " is a @ManyToOne without @JoinColumn, which is not joined by the find query,"
+                        + " so it has to be fetched lazily");
+
+            if (relation.isCollection())
+                problems.addAll(validateCollection(fieldName, relation));
+        }
+        return problems;
+    }
+
+    private List<String> validateCollection(String fieldName, RelationModel relation) {
+        List<String> problems = new ArrayList<>();
+        Class<?> targetClass = relation.getTargetClass();
+        EntityModel targetModel = EntityModelRegistry.getModel(targetClass);
+
+        Class<?> fieldType = relation.getField().getType();
+        if (fieldType != List.class && fieldType != Set.class && fieldType != Collection.class)
+            problems.add(fieldName + " is a collection, so it has to be declared as List<" + targetClass.getSimpleName()
+                    + ">, Set<" + targetClass.getSimpleName() + "> or Collection<" + targetClass.getSimpleName() + ">");
+
+        if (relation.isLazy())
+            problems.add(fieldName + " is a collection, which is fetched by its own query, so it can't be fetched lazily");
+
+        if (relation.getType() == RelationType.ONE_TO_MANY
+                && targetModel.findColumn(relation.getMappedBy()).filter(ColumnModel::isJoinColumn).isEmpty())
+            problems.add(fieldName + " is a @OneToMany, so it has to be mapped by a @JoinColumn of " + targetClass.getName());
+
+        if (relation.getType() == RelationType.MANY_TO_MANY && relation.isMappedBy()
+                && targetModel.findRelation(relation.getMappedBy())
+                .filter(owner -> owner.getType() == RelationType.MANY_TO_MANY && owner.getJoinTable() != null)
+                .isEmpty())
+            problems.add(fieldName + " is mapped by \"" + relation.getMappedBy() + "\", which is not a @ManyToMany of "
+                    + targetClass.getName() + " without mappedBy");
+
+        JoinTableModel joinTable = relation.getJoinTable();
+        if (joinTable != null && joinTable.getJoinColumn().equals(joinTable.getInverseJoinColumn()))
+            problems.add(fieldName + " has the join table " + joinTable.getName() + " whose both columns are named "
+                    + joinTable.getJoinColumn() + ", name them in @JoinTable");
+        return problems;
+    }
+
+    private boolean isSingleValued(RelationModel relation) {
+        return relation.getType() == RelationType.ONE_TO_ONE || relation.getType() == RelationType.MANY_TO_ONE;
+    }
+
+    private boolean hasField(Class<?> entityClass, String fieldName) {
+        return EntityModelRegistry.getModel(entityClass).getPropertyFields().stream()
+                .map(Field::getName)
+                .anyMatch(fieldName::equals);
+    }
+}
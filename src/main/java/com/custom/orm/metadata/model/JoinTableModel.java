@@ -0,0 +1,32 @@
+package com.custom.orm.metadata.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable description of the join table of a @ManyToMany, seen from one side of the relation:
+ * the join column refers to the entity declaring the field, the inverse join column to the elements of its collection.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class JoinTableModel {
+
+    /**
+     * Both columns hold ids of entities, so they have the type of a @JoinColumn, see EntityModelFactory.resolveColumnType().
+     */
+    public static final String COLUMN_TYPE = "BIGINT";
+
+    private final String name;
+
+    private final String joinColumn;
+
+    private final String inverseJoinColumn;
+
+    /**
+     * This method returns the same table seen from the other side of the relation.
+     */
+    public JoinTableModel inverse() {
+        return new JoinTableModel(name, inverseJoinColumn, joinColumn);
+    }
+}
@@ -0,0 +1,127 @@
+package com.custom.orm.metadata.model;
+
+import com.custom.orm.accessor.PropertyAccessor;
+import com.custom.orm.enums.CascadeType;
+import com.custom.orm.enums.FetchType;
+import com.custom.orm.enums.RelationType;
+import com.custom.orm.lazy.LazyReference;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Immutable description of a field annotated with @OneToOne, @OneToMany, @ManyToOne or @ManyToMany.
+ * For collection fields the target class is the element type of the collection,
+ * for LazyReference fields it is the type argument of the reference.
+ * The join column is null when the relation is owned by the other side (mappedBy), the join table is set only
+ * for the owning side of a @ManyToMany.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class RelationModel {
+
+    private final Field field;
+
+    private final RelationType type;
+
+    private final Class<?> targetClass;
+
+    private final String mappedBy;
+
+    private final Set<CascadeType> cascade;
+
+    private final ColumnModel joinColumn;
+
+    private final PropertyAccessor accessor;
+
+    private final FetchType fetch;
+
+    private final JoinTableModel joinTable;
+
+    public boolean hasCascade(CascadeType type1, CascadeType type2) {
+        return cascade.contains(type1) || cascade.contains(type2);
+    }
+
+    public boolean isMappedBy() {
+        return !mappedBy.isEmpty();
+    }
+
+    public boolean isOwningSide() {
+        return joinColumn != null;
+    }
+
+    public boolean isLazy() {
+        return fetch == FetchType.LAZY;
+    }
+
+    public boolean isCollection() {
+        return type == RelationType.ONE_TO_MANY || type == RelationType.MANY_TO_MANY;
+    }
+
+    /**
+     * This method returns the join table of a @ManyToMany seen from this side. The mappedBy side uses the table
+     * of the owning field with its columns swapped.
+     */
+    public JoinTableModel resolveJoinTable() {
+        if (joinTable != null)
+            return joinTable;
+
+        return EntityModelRegistry.getModel(targetClass).findRelation(mappedBy)
+                .map(RelationModel::getJoinTable)
+                .map(JoinTableModel::inverse)
+                .orElseThrow(() -> new IllegalStateException(field + " doesn't have a join table"));
+    }
+
+    /**
+     * This method checks whether the field is declared as a LazyReference to the target entity.
+     */
+    public boolean isReference() {
+        return field.getType() == LazyReference.class;
+    }
+
+    public Object getValue(Object entity) {
+        return accessor.get(entity);
+    }
+
+    public void setValue(Object entity, Object value) {
+        accessor.set(entity, value);
+    }
+
+    /**
+     * This method returns the related entity, a LazyReference is resolved (and loaded if it is not loaded yet).
+     */
+    public Object getTarget(Object entity) {
+        Object value = accessor.get(entity);
+        return value instanceof LazyReference ? ((LazyReference<?>) value).get() : value;
+    }
+
+    /**
+     * This method returns the elements of the collection field, an empty collection if the field is null.
+     */
+    public Collection<?> getElements(Object entity) {
+        Object value = accessor.get(entity);
+        return value == null ? Collections.emptyList() : (Collection<?>) value;
+    }
+
+    /**
+     * This method returns an empty collection assignable to the collection field: a LinkedHashSet for a Set,
+     * otherwise an ArrayList.
+     */
+    public Collection<Object> newCollection() {
+        return Set.class.isAssignableFrom(field.getType()) ? new LinkedHashSet<>() : new ArrayList<>();
+    }
+
+    /**
+     * This method sets the related entity, wrapped into an initialized LazyReference if the field is declared as one.
+     */
+    public void setTarget(Object entity, Object target) {
+        accessor.set(entity, isReference() ? LazyReference.of(target) : target);
+    }
+}
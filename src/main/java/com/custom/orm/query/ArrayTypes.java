@@ -0,0 +1,41 @@
+package com.custom.orm.query;
+
+import lombok.experimental.UtilityClass;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+
+/**
+ * PostgreSQL element types of the arrays bound by the compiled queries (IN of a criteria, a collection argument
+ * of a @Query method), by the Java type of the values. The column types of FieldType can't be used for this,
+ * DATETIME is not a type of PostgreSQL.
+ */
+@UtilityClass
+class ArrayTypes {
+
+    /**
+     * The Java types that can be bound as arrays, as they are named in the error messages.
+     */
+    final String SUPPORTED = "Long, Integer, String, Boolean, LocalDate, LocalTime or LocalDateTime";
+
+    private final Map<Class<?>, String> TYPES = Map.ofEntries(
+            Map.entry(Long.class, "BIGINT"),
+            Map.entry(long.class, "BIGINT"),
+            Map.entry(Integer.class, "INTEGER"),
+            Map.entry(int.class, "INTEGER"),
+            Map.entry(String.class, "VARCHAR"),
+            Map.entry(Boolean.class, "BOOLEAN"),
+            Map.entry(boolean.class, "BOOLEAN"),
+            Map.entry(LocalDate.class, "DATE"),
+            Map.entry(LocalTime.class, "TIME"),
+            Map.entry(LocalDateTime.class, "TIMESTAMP"));
+
+    /**
+     * This method returns the array element type of the values of the Java type, null if it isn't supported.
+     */
+    String of(Class<?> javaType) {
+        return TYPES.get(javaType);
+    }
+}
@@ -0,0 +1,88 @@
+package com.custom.orm.query;
+
+import com.custom.orm.metadata.model.ColumnModel;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * SQL text of a criteria together with the values of its parameters. The text is shared by all the criteria
+ * of the same structure, the parameters belong to one execution.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class CompiledQuery {
+
+    private final String sql;
+
+    private final List<Object> parameters;
+
+    /**
+     * The array element type of every parameter bound as an array (IN), null for the other parameters.
+     */
+    private final List<String> arrayTypes;
+
+    /**
+     * The selected columns of a projection, empty if the query reads whole entities.
+     */
+    private final List<ColumnModel> projection;
+
+    /**
+     * The tables read by the query, their changes invalidate its results in the query cache.
+     * Null if they are unknown (the SQL of a @Query method), then the results are not cached.
+     */
+    private final Set<String> tables;
+
+    /**
+     * This method binds the parameters to the statement of the query, collections are bound as arrays
+     * and a null collection as a NULL array.
+     */
+    public void bind(PreparedStatement preparedStatement) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            String arrayType = arrayTypes.get(i);
+            if (arrayType == null) {
+                preparedStatement.setObject(i + 1, parameters.get(i));
+                continue;
+            }
+            Object parameter = parameters.get(i);
+            if (parameter == null) {
+                preparedStatement.setNull(i + 1, Types.ARRAY);
+                continue;
+            }
+            Object[] values = ((Collection<?>) parameter).toArray();
+            preparedStatement.setArray(i + 1, preparedStatement.getConnection()
+                    .createArrayOf(arrayType.toLowerCase(Locale.ROOT), values));
+        }
+    }
+
+    /**
+     * This method reads the values of the selected columns of the current row of a projection,
+     * the value of a join column is the id of the referenced entity.
+     */
+    public Object[] readProjection(ResultSet resultSet) throws SQLException {
+        Object[] row = new Object[projection.size()];
+        for (int i = 0; i < row.length; i++) {
+            ColumnModel column = projection.get(i);
+            Class<?> type = column.isJoinColumn() ? Long.class : column.getJavaType();
+            row[i] = resultSet.getObject(i + 1, type);
+        }
+        return row;
+    }
+
+    public boolean isCacheable() {
+        return tables != null;
+    }
+
+    public boolean isProjection() {
+        return !projection.isEmpty();
+    }
+}
@@ -0,0 +1,140 @@
+package com.custom.orm.query;
+
+import com.custom.orm.enums.Operator;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * Query of the entities of one class, built fluently and executed by Session.list() or Session.project():
+ * <pre>
+ * Criteria.from(User.class)
+ *         .where("age", Operator.GREATER_THAN, 18)
+ *         .orderBy("lastname")
+ *         .limit(20);
+ * </pre>
+ * Fields are named by the fields of the entity class, conditions are combined with AND.
+ * The criteria is compiled to the find query of the entity (see CriteriaCompiler), every value is bound
+ * as a parameter, so criteria of the same structure share one SQL text whatever their values are.
+ */
+@Getter
+public class Criteria<T> {
+
+    private final Class<T> entityClass;
+
+    private final List<Condition> conditions = new ArrayList<>();
+
+    private final List<Order> orders = new ArrayList<>();
+
+    private final List<String> projection = new ArrayList<>();
+
+    private Integer limit;
+
+    private Integer offset;
+
+    private List<Object> after;
+
+    private Criteria(Class<T> entityClass) {
+        this.entityClass = entityClass;
+    }
+
+    public static <T> Criteria<T> from(Class<T> entityClass) {
+        return new Criteria<>(entityClass);
+    }
+
+    /**
+     * This method adds the condition comparing the field with the value. The value of IN is a collection.
+     */
+    public Criteria<T> where(String field, Operator operator, Object value) {
+        if (!operator.hasValue())
+            throw new IllegalArgumentException(operator + " doesn't take a value");
+        if (operator == Operator.IN && !(value instanceof Collection))
+            throw new IllegalArgumentException("Value of IN must be a collection: " + value);
+
+        conditions.add(new Condition(field, operator,
+                operator == Operator.IN ? List.copyOf((Collection<?>) value) : value));
+        return this;
+    }
+
+    /**
+     * This method adds the condition without a value, IS_NULL or IS_NOT_NULL.
+     */
+    public Criteria<T> where(String field, Operator operator) {
+        if (operator.hasValue())
+            throw new IllegalArgumentException(operator + " needs a value");
+
+        conditions.add(new Condition(field, operator, null));
+        return this;
+    }
+
+    public Criteria<T> orderBy(String field) {
+        orders.add(new Order(field, false));
+        return this;
+    }
+
+    public Criteria<T> orderByDescending(String field) {
+        orders.add(new Order(field, true));
+        return this;
+    }
+
+    public Criteria<T> limit(int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+
+        this.limit = limit;
+        return this;
+    }
+
+    public Criteria<T> offset(int offset) {
+        if (offset < 0)
+            throw new IllegalArgumentException("Offset must not be negative: " + offset);
+
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * This method restricts the rows to the ones following the given values of the order fields (keyset pagination),
+     * one value per orderBy() in the same order, e.g. the values of the last row of the previous page.
+     * Unlike offset(), the skipped rows are not read by the database when the order fields are indexed.
+     */
+    public Criteria<T> after(Object... values) {
+        this.after = Arrays.asList(values);
+        return this;
+    }
+
+    /**
+     * This method selects only the given fields, the rows are returned by Session.project() as arrays
+     * of their values.
+     */
+    public Criteria<T> select(String... fields) {
+        projection.addAll(Arrays.asList(fields));
+        return this;
+    }
+
+    public boolean isProjection() {
+        return !projection.isEmpty();
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Condition {
+
+        private final String field;
+
+        private final Operator operator;
+
+        private final Object value;
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Order {
+
+        private final String field;
+
+        private final boolean descending;
+    }
+}
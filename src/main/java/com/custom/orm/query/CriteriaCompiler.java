@@ -0,0 +1,256 @@
+package com.custom.orm.query;
+
+import com.custom.orm.enums.Operator;
+import com.custom.orm.mapper.SqlTemplateCache;
+import com.custom.orm.mapper.SqlTemplates;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Compiles criteria to SQL. A criteria of an entity is its find query (see SqlTemplateCache.getFindAll())
+ * with the conditions, the order and the page appended, so its rows are read by the row mapper of the entity.
+ * Columns are qualified with the table alias of the find query (users.age), a projection selects them with the same
+ * aliases (users.age AS users_age).
+ * The SQL is generated once per structure of the criteria (the class, the fields and operators of the conditions,
+ * the order, whether there is a limit, an offset or a keyset, the projection) and the values are bound as parameters,
+ * so at steady state compiling a criteria only collects its values. The structures are kept by the compiler
+ * of every session factory.
+ */
+public class CriteriaCompiler {
+
+    private static final String SELECT = "SELECT ";
+    private static final String FROM = " FROM ";
+    private static final String WHERE = " WHERE ";
+    private static final String AND = " AND ";
+    private static final String ORDER_BY = " ORDER BY ";
+    private static final String DESCENDING = " DESC";
+    private static final String LIMIT = " LIMIT ?";
+    private static final String OFFSET = " OFFSET ?";
+    private static final String PARAMETER = "?";
+    private static final String DOT = ".";
+    private static final String UNDERSCORE = "_";
+    private static final String AS = " AS ";
+    private static final String COMMA_AND_SPACE = ", ";
+    private static final String SEPARATOR = "|";
+
+    /*
+     * A join column is compared with the ids of the referenced entities, which are bound as Long
+     * */
+    private static final String ID_ARRAY_TYPE = "BIGINT";
+
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+
+    private final SqlTemplateCache sqlTemplates;
+
+    public CriteriaCompiler(SqlTemplateCache sqlTemplates) {
+        this.sqlTemplates = sqlTemplates;
+    }
+
+    /**
+     * This method returns the SQL of the criteria with the values of its parameters.
+     *
+     * @throws IllegalArgumentException if a field isn't a column of the entity, a field compared by IN
+     *                                  can't be bound as an array or the keyset doesn't match the order.
+     */
+    public CompiledQuery compile(Criteria<?> criteria) {
+        String key = getShapeKey(criteria);
+        Shape shape = shapes.get(key);
+        if (shape == null)
+            shape = shapes.computeIfAbsent(key, ignored -> createShape(criteria));
+
+        return new CompiledQuery(shape.sql, getParameters(criteria, shape), shape.arrayTypes, shape.projection, shape.tables);
+    }
+
+    /**
+     * This method returns the number of structures compiled so far.
+     */
+    public int size() {
+        return shapes.size();
+    }
+
+    private String getShapeKey(Criteria<?> criteria) {
+        StringBuilder key = new StringBuilder(criteria.getEntityClass().getName());
+        for (Criteria.Condition condition : criteria.getConditions()) {
+            key.append(SEPARATOR).append(condition.getField()).append(' ').append(condition.getOperator());
+        }
+        key.append(SEPARATOR).append(ORDER_BY);
+        for (Criteria.Order order : criteria.getOrders()) {
+            key.append(order.getField()).append(order.isDescending() ? DESCENDING : "").append(' ');
+        }
+        if (criteria.getAfter() != null)
+            key.append(SEPARATOR).append("after ").append(criteria.getAfter().size());
+        if (criteria.getLimit() != null)
+            key.append(SEPARATOR).append(LIMIT);
+        if (criteria.getOffset() != null)
+            key.append(SEPARATOR).append(OFFSET);
+        if (criteria.isProjection())
+            key.append(SEPARATOR).append(SELECT).append(String.join(" ", criteria.getProjection()));
+        return key.toString();
+    }
+
+    /*
+     * The values in the order of the parameters of the SQL: conditions, keyset, limit and offset.
+     * The entities compared with a join column are replaced by their ids
+     * */
+    private List<Object> getParameters(Criteria<?> criteria, Shape shape) {
+        List<Object> parameters = new ArrayList<>();
+        List<Criteria.Condition> conditions = criteria.getConditions();
+        for (int i = 0; i < conditions.size(); i++) {
+            Criteria.Condition condition = conditions.get(i);
+            if (condition.getOperator().hasValue())
+                parameters.add(getConditionValue(condition, shape.conditionColumns.get(i)));
+        }
+        if (criteria.getAfter() != null)
+            parameters.addAll(criteria.getAfter());
+        if (criteria.getLimit() != null)
+            parameters.add(criteria.getLimit());
+        if (criteria.getOffset() != null)
+            parameters.add(criteria.getOffset());
+        return parameters;
+    }
+
+    private Object getConditionValue(Criteria.Condition condition, ColumnModel column) {
+        Object value = condition.getValue();
+        if (!column.isJoinColumn() || value == null)
+            return value;
+        if (condition.getOperator() != Operator.IN)
+            return column.toColumnValue(value);
+
+        List<Object> ids = new ArrayList<>();
+        for (Object element : (Collection<?>) value) {
+            ids.add(column.toColumnValue(element));
+        }
+        return ids;
+    }
+
+    private Shape createShape(Criteria<?> criteria) {
+        EntityModel model = EntityModelRegistry.getModel(criteria.getEntityClass());
+        String alias = model.getTableNameWithoutSchema();
+
+        StringBuilder sql = new StringBuilder();
+        List<ColumnModel> projection = new ArrayList<>();
+        Set<String> tables;
+        if (criteria.isProjection()) {
+            for (String field : criteria.getProjection()) {
+                projection.add(getColumn(model, field));
+            }
+            sql.append(SELECT)
+                    .append(projection.stream()
+                            .map(column -> alias + DOT + column.getName() + AS + alias + UNDERSCORE + column.getName())
+                            .collect(joining(COMMA_AND_SPACE)))
+                    .append(FROM).append(model.getTableName());
+            tables = Set.of(alias);
+        } else {
+            SqlTemplates templates = sqlTemplates.getTemplates(criteria.getEntityClass());
+            sql.append(templates.getFindAll().trim());
+            tables = templates.getTables();
+        }
+
+        List<String> predicates = new ArrayList<>();
+        List<String> arrayTypes = new ArrayList<>();
+        List<ColumnModel> conditionColumns = new ArrayList<>();
+        for (Criteria.Condition condition : criteria.getConditions()) {
+            ColumnModel column = getColumn(model, condition.getField());
+            conditionColumns.add(column);
+            predicates.add(condition.getOperator().format(alias + DOT + column.getName()));
+            if (condition.getOperator() == Operator.IN)
+                arrayTypes.add(getArrayType(model, column));
+            else if (condition.getOperator().hasValue())
+                arrayTypes.add(null);
+        }
+        if (criteria.getAfter() != null) {
+            predicates.add(getKeysetPredicate(criteria, model, alias));
+            criteria.getAfter().forEach(value -> arrayTypes.add(null));
+        }
+        if (!predicates.isEmpty())
+            sql.append(WHERE).append(String.join(AND, predicates));
+
+        if (!criteria.getOrders().isEmpty()) {
+            sql.append(ORDER_BY).append(criteria.getOrders().stream()
+                    .map(order -> alias + DOT + getColumn(model, order.getField()).getName()
+                            + (order.isDescending() ? DESCENDING : ""))
+                    .collect(joining(COMMA_AND_SPACE)));
+        }
+        if (criteria.getLimit() != null) {
+            sql.append(LIMIT);
+            arrayTypes.add(null);
+        }
+        if (criteria.getOffset() != null) {
+            sql.append(OFFSET);
+            arrayTypes.add(null);
+        }
+        return new Shape(sql.toString(), Collections.unmodifiableList(arrayTypes), List.copyOf(conditionColumns),
+                List.copyOf(projection), tables);
+    }
+
+    /*
+     * The element type of the array an IN condition is bound as, by the Java type of the field
+     * */
+    private String getArrayType(EntityModel model, ColumnModel column) {
+        if (column.isJoinColumn())
+            return ID_ARRAY_TYPE;
+        String arrayType = ArrayTypes.of(column.getJavaType());
+        if (arrayType == null)
+            throw new IllegalArgumentException("Field " + column.getFieldName() + " of "
+                    + model.getEntityClass().getName() + " can't be compared by IN, it must be a "
+                    + ArrayTypes.SUPPORTED + ", not " + column.getJavaType().getName());
+        return arrayType;
+    }
+
+    /*
+     * Compares the order columns with the keyset as a row, (a, b) > (?, ?), which needs the same direction
+     * for all the columns
+     * */
+    private String getKeysetPredicate(Criteria<?> criteria, EntityModel model, String alias) {
+        List<Criteria.Order> orders = criteria.getOrders();
+        if (orders.isEmpty())
+            throw new IllegalArgumentException("Keyset of " + criteria.getEntityClass().getName() + " needs an order");
+        if (orders.size() != criteria.getAfter().size())
+            throw new IllegalArgumentException("Keyset of " + criteria.getEntityClass().getName() + " has "
+                    + criteria.getAfter().size() + " values for " + orders.size() + " order fields");
+
+        boolean descending = orders.get(0).isDescending();
+        if (orders.stream().anyMatch(order -> order.isDescending() != descending))
+            throw new IllegalArgumentException("Keyset of " + criteria.getEntityClass().getName()
+                    + " needs the same direction of all the order fields");
+
+        return "(" + orders.stream()
+                .map(order -> alias + DOT + getColumn(model, order.getField()).getName())
+                .collect(joining(COMMA_AND_SPACE))
+                + (descending ? ") < (" : ") > (")
+                + String.join(COMMA_AND_SPACE, Collections.nCopies(orders.size(), PARAMETER)) + ")";
+    }
+
+    private ColumnModel getColumn(EntityModel model, String field) {
+        return model.findColumn(field).orElseThrow(() -> new IllegalArgumentException(
+                "Field " + field + " is not a column of " + model.getEntityClass().getName()));
+    }
+
+    private static final class Shape {
+
+        private final String sql;
+
+        private final List<String> arrayTypes;
+
+        private final List<ColumnModel> conditionColumns;
+
+        private final List<ColumnModel> projection;
+
+        private final Set<String> tables;
+
+        private Shape(String sql, List<String> arrayTypes, List<ColumnModel> conditionColumns,
+                      List<ColumnModel> projection, Set<String> tables) {
+            this.sql = sql;
+            this.arrayTypes = arrayTypes;
+            this.conditionColumns = conditionColumns;
+            this.projection = projection;
+            this.tables = tables;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.custom.orm.query;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Param;
+import com.custom.orm.annotations.Query;
+import com.custom.orm.exceptions.QueryDefinitionException;
+import com.custom.orm.mapper.SqlTemplateCache;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Method of a repository interface annotated with @Query, parsed and validated once when the repository is created.
+ * The named parameters of its SQL are replaced with "?" and resolved to the indexes of the method arguments,
+ * so a call only collects its arguments into the parameters of the compiled query.
+ * A collection argument is bound as an array (e.g. "WHERE users.id = ANY(:ids)"), the type of the array is resolved
+ * from the element type of the parameter.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class QueryMethod {
+
+    /**
+     * How the rows are returned: the entity itself (null if there is no row), Optional, List or Stream.
+     */
+    public enum ResultType {
+        SINGLE, OPTIONAL, LIST, STREAM
+    }
+
+    private static final String SELECT = "SELECT ";
+    private static final String FROM = " FROM ";
+    private static final char COLON = ':';
+    private static final char QUOTE = '\'';
+    private static final char PARAMETER = '?';
+
+    private static final Map<Class<?>, ResultType> RESULT_TYPES = Map.of(
+            Optional.class, ResultType.OPTIONAL,
+            List.class, ResultType.LIST,
+            Stream.class, ResultType.STREAM);
+
+    private final Method method;
+
+    private final Class<?> entityClass;
+
+    private final ResultType resultType;
+
+    private final String sql;
+
+    /*
+     * The index of the method argument bound to every "?" of the SQL
+     * */
+    private final int[] argumentIndexes;
+
+    private final List<String> arrayTypes;
+
+    /**
+     * This method parses the SQL of the method and resolves its result type and named parameters.
+     *
+     * @param sqlTemplates the templates of the session factory, a fragment is appended to the find query of the entity.
+     * @throws QueryDefinitionException with all the problems of the method.
+     */
+    public static QueryMethod of(Method method, SqlTemplateCache sqlTemplates) {
+        List<String> problems = new ArrayList<>();
+        String name = method.getDeclaringClass().getName() + "." + method.getName();
+
+        Query query = method.getAnnotation(Query.class);
+        if (query == null)
+            throw new QueryDefinitionException(name + " isn't annotated with @Query");
+
+        ResultType resultType = null;
+        Class<?> entityClass = null;
+        Type returnType = method.getGenericReturnType();
+        if (returnType instanceof Class) {
+            resultType = ResultType.SINGLE;
+            entityClass = (Class<?>) returnType;
+        } else if (returnType instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) returnType;
+            resultType = RESULT_TYPES.get((Class<?>) parameterized.getRawType());
+            Type element = parameterized.getActualTypeArguments()[0];
+            entityClass = element instanceof Class ? (Class<?>) element : null;
+        }
+        if (resultType == null || entityClass == null || !entityClass.isAnnotationPresent(Entity.class))
+            problems.add(name + " must return an entity, Optional, List or Stream of an entity, not " + returnType);
+
+        List<String> argumentNames = new ArrayList<>();
+        for (Parameter parameter : method.getParameters()) {
+            Param param = parameter.getAnnotation(Param.class);
+            if (param != null)
+                argumentNames.add(param.value());
+            else if (parameter.isNamePresent())
+                argumentNames.add(parameter.getName());
+            else
+                problems.add(name + " has an argument without @Param");
+        }
+
+        List<String> placeholders = new ArrayList<>();
+        String parsed = replaceNamedParameters(query.value().trim(), placeholders);
+
+        int[] argumentIndexes = new int[placeholders.size()];
+        for (int i = 0; i < placeholders.size(); i++) {
+            argumentIndexes[i] = argumentNames.indexOf(placeholders.get(i));
+            if (argumentIndexes[i] < 0)
+                problems.add(name + " has no argument for the parameter :" + placeholders.get(i));
+        }
+        for (String argumentName : argumentNames) {
+            if (!placeholders.contains(argumentName))
+                problems.add(name + " doesn't use the argument " + argumentName);
+        }
+
+        List<String> arrayTypes = new ArrayList<>(argumentIndexes.length);
+        for (int argumentIndex : argumentIndexes) {
+            Parameter parameter = argumentIndex < 0 ? null : method.getParameters()[argumentIndex];
+            if (parameter == null || !Collection.class.isAssignableFrom(parameter.getType())) {
+                arrayTypes.add(null);
+                continue;
+            }
+            String arrayType = resolveArrayType(parameter.getParameterizedType());
+            if (arrayType == null)
+                problems.add(name + " binds the argument " + argumentNames.get(argumentIndex) + " as an array,"
+                        + " it must be a collection of " + ArrayTypes.SUPPORTED
+                        + ", not " + parameter.getParameterizedType());
+            arrayTypes.add(arrayType);
+        }
+
+        String sql = null;
+        if (problems.isEmpty()) {
+            sql = resolveSql(sqlTemplates, entityClass, parsed);
+            if (sql == null)
+                problems.add(name + " must select the columns of the find query of " + entityClass.getName()
+                        + " (SELECT " + sqlTemplates.getSelectPlan(entityClass).getSelectList() + " ...)");
+        }
+        if (!problems.isEmpty())
+            throw new QueryDefinitionException(String.join("\n", problems));
+
+        return new QueryMethod(method, entityClass, resultType, sql, argumentIndexes,
+                Collections.unmodifiableList(arrayTypes));
+    }
+
+    /**
+     * This method returns the compiled query with the arguments of a call as its parameters.
+     */
+    public CompiledQuery compile(Object[] arguments) {
+        List<Object> parameters = new ArrayList<>(argumentIndexes.length);
+        for (int index : argumentIndexes) {
+            parameters.add(arguments[index]);
+        }
+        return new CompiledQuery(sql, parameters, arrayTypes, Collections.emptyList(), null);
+    }
+
+    /*
+     * A fragment is appended to the find query, a whole SELECT must read the columns of the find query in its order,
+     * otherwise null is returned
+     * */
+    private static String resolveSql(SqlTemplateCache sqlTemplates, Class<?> entityClass, String sql) {
+        if (!sql.regionMatches(true, 0, SELECT, 0, SELECT.length()))
+            return sqlTemplates.getTemplates(entityClass).getFindAll().trim() + " " + sql;
+
+        String columns = normalize(SELECT + sqlTemplates.getSelectPlan(entityClass).getSelectList() + FROM);
+        String normalized = normalize(sql);
+        return normalized.regionMatches(true, 0, columns, 0, columns.length()) ? sql : null;
+    }
+
+    /*
+     * The SQL type of the array of a collection parameter, null if its element type is unknown
+     * */
+    private static String resolveArrayType(Type parameterType) {
+        if (!(parameterType instanceof ParameterizedType))
+            return null;
+
+        Type element = ((ParameterizedType) parameterType).getActualTypeArguments()[0];
+        return element instanceof Class ? ArrayTypes.of((Class<?>) element) : null;
+    }
+
+    private static String normalize(String sql) {
+        return sql.replaceAll("\\s+", " ");
+    }
+
+    /*
+     * Replaces every :name outside of string literals with "?" and collects the names in their order,
+     * PostgreSQL casts (::type) are kept
+     * */
+    static String replaceNamedParameters(String sql, List<String> names) {
+        StringBuilder parsed = new StringBuilder(sql.length());
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char current = sql.charAt(i);
+            if (current == QUOTE)
+                quoted = !quoted;
+
+            boolean parameter = !quoted && current == COLON && i + 1 < sql.length()
+                    && Character.isJavaIdentifierStart(sql.charAt(i + 1)) && (i == 0 || sql.charAt(i - 1) != COLON);
+            if (!parameter) {
+                parsed.append(current);
+                continue;
+            }
+
+            int end = i + 1;
+            while (end < sql.length() && Character.isJavaIdentifierPart(sql.charAt(end))) {
+                end++;
+            }
+            names.add(sql.substring(i + 1, end));
+            parsed.append(PARAMETER);
+            i = end - 1;
+        }
+        return parsed.toString();
+    }
+}
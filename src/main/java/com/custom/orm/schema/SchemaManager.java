@@ -0,0 +1,351 @@
+package com.custom.orm.schema;
+
+import com.custom.orm.connection.ConnectionProvider;
+import com.custom.orm.enums.SchemaMode;
+import com.custom.orm.exceptions.ConnectionSQLException;
+import com.custom.orm.exceptions.SchemaValidationException;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.JoinTableModel;
+import com.custom.orm.metadata.model.RelationModel;
+import com.custom.orm.util.OrmProperties;
+import com.custom.orm.util.TableCreator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of the entity tables that are known to be ready for use in the database of one session factory.
+ * Tables are prepared according to "db.schema.mode":
+ * none - the schema is not touched, validate - tables and their columns must exist,
+ * create - missing tables are created, create-drop - tables are dropped and created, and dropped again by shutdown().
+ * Referenced tables are always prepared before the tables whose @JoinColumn points to them, join tables of
+ * @ManyToMany relations are prepared together with the owning side, after the tables of both sides.
+ * Once a class is registered, ensureTable() is a set lookup and no catalogue query is made for it again.
+ */
+public class SchemaManager {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaManager.class);
+
+    private final Set<Class<?>> readyTables = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Tables created in the create-drop mode in the order they were created.
+     */
+    private final List<Class<?>> createdTables = new CopyOnWriteArrayList<>();
+
+    /**
+     * Owning sides of the @ManyToMany relations whose join tables were created in the create-drop mode.
+     */
+    private final List<RelationModel> createdJoinTables = new CopyOnWriteArrayList<>();
+
+    /*
+     * Advisory lock of the transactions creating tables, the key is the hash of "SchemaManager"
+     * */
+    private static final String SCHEMA_LOCK = "SELECT pg_advisory_xact_lock(" + "SchemaManager".hashCode() + ")";
+
+    /**
+     * Serializes initialize() and shutdown(), ensureTable() runs in the transactions of the sessions.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final TableCreator tableCreator = new TableCreator();
+
+    private volatile SchemaMode mode;
+
+    /**
+     * Creates the registry with the mode of "db.schema.mode".
+     */
+    public SchemaManager() {
+        this(SchemaMode.of(OrmProperties.getString("db.schema.mode", "create")));
+    }
+
+    public SchemaManager(SchemaMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * This method prepares the tables of all the given entity classes with the mode of "db.schema.mode".
+     */
+    public void initialize(ConnectionProvider connectionProvider, Collection<Class<?>> entityClasses) {
+        initialize(connectionProvider, entityClasses, mode);
+    }
+
+    /**
+     * This method prepares the tables of all the given entity classes (and of the classes they reference)
+     * on one connection borrowed from the provider, in one transaction. The mode is kept for the classes
+     * that are registered later by ensureTable().
+     */
+    public void initialize(ConnectionProvider connectionProvider, Collection<Class<?>> entityClasses,
+                           SchemaMode schemaMode) {
+        lock.lock();
+        try {
+            mode = schemaMode;
+            long start = System.nanoTime();
+
+            List<Class<?>> entityClassesInOrder = sortByDependencies(entityClasses);
+            prepare(connectionProvider, entityClassesInOrder, schemaMode == SchemaMode.CREATE_DROP);
+
+            log.info("Schema of " + entityClassesInOrder.size() + " entities was prepared in mode " + schemaMode
+                    + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method makes sure the table of the entity is ready before it is written. For a registered class, or a class
+     * already prepared by the same transaction, it returns immediately. Otherwise the tables of the class and of all
+     * the classes related to it are prepared with the current mode on the connection of the caller's transaction,
+     * so the DDL commits or rolls back with the caller's writes and no other connection is borrowed.
+     * In the create modes the transaction first takes a PostgreSQL advisory lock, which serializes the DDL
+     * of concurrent transactions until they end.
+     * The prepared classes are added to the given set of the transaction, which has to be passed to register()
+     * once the transaction is committed, so the registry never refers to a rolled back table.
+     * Classes passed to initialize() at startup never take this path.
+     */
+    public void ensureTable(Connection connection, Class<?> entityClass, Set<Class<?>> preparedByTransaction) {
+        if (readyTables.contains(entityClass) || preparedByTransaction.contains(entityClass))
+            return;
+
+        Set<Class<?>> related = new LinkedHashSet<>();
+        collectRelated(entityClass, related);
+
+        List<Class<?>> missing = sortByDependencies(related).stream()
+                .filter(dependency -> !readyTables.contains(dependency) && !preparedByTransaction.contains(dependency))
+                .collect(Collectors.toList());
+        SchemaMode schemaMode = mode;
+        try {
+            if (schemaMode == SchemaMode.CREATE || schemaMode == SchemaMode.CREATE_DROP)
+                execute(connection, SCHEMA_LOCK);
+            prepare(connection, missing, false, schemaMode);
+        } catch (SQLException e) {
+            throw new ConnectionSQLException(e);
+        }
+        preparedByTransaction.addAll(missing);
+    }
+
+    /**
+     * This method registers the classes prepared by ensureTable() once the transaction that prepared them
+     * is committed.
+     */
+    public void register(Collection<Class<?>> entityClasses) {
+        register(new ArrayList<>(entityClasses), mode);
+    }
+
+    /**
+     * This method drops the tables created in the create-drop mode, tables referencing others are dropped first.
+     * In other modes it does nothing.
+     */
+    public void shutdown(ConnectionProvider connectionProvider) {
+        lock.lock();
+        try {
+            if (mode != SchemaMode.CREATE_DROP || createdTables.isEmpty())
+                return;
+
+            List<Class<?>> tables = new ArrayList<>(createdTables);
+            Collections.reverse(tables);
+            inTransaction(connectionProvider, connection -> {
+                for (RelationModel relation : createdJoinTables) {
+                    execute(connection, tableCreator.dropJoinTableIfExists(relation));
+                }
+                for (Class<?> entityClass : tables) {
+                    execute(connection, tableCreator.dropTableIfExists(entityClass));
+                }
+            });
+
+            readyTables.removeAll(tables);
+            createdTables.clear();
+            createdJoinTables.clear();
+            log.info("Schema of " + tables.size() + " entities was dropped");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isReady(Class<?> entityClass) {
+        return readyTables.contains(entityClass);
+    }
+
+    public SchemaMode getMode() {
+        return mode;
+    }
+
+    /**
+     * This method returns the given classes and the classes they reference by @JoinColumn or by the join table
+     * of a @ManyToMany they own, every class after the classes it references.
+     * Cycles are broken at the first class visited twice.
+     */
+    List<Class<?>> sortByDependencies(Collection<Class<?>> entityClasses) {
+        Set<Class<?>> sorted = new LinkedHashSet<>();
+        for (Class<?> entityClass : entityClasses) {
+            visit(entityClass, sorted, new HashSet<>());
+        }
+        return new ArrayList<>(sorted);
+    }
+
+    private void collectRelated(Class<?> entityClass, Set<Class<?>> related) {
+        if (!related.add(entityClass))
+            return;
+
+        for (RelationModel relation : EntityModelRegistry.getModel(entityClass).getRelations()) {
+            collectRelated(relation.getTargetClass(), related);
+        }
+    }
+
+    private void visit(Class<?> entityClass, Set<Class<?>> sorted, Set<Class<?>> visiting) {
+        if (sorted.contains(entityClass) || !visiting.add(entityClass))
+            return;
+
+        EntityModel model = EntityModelRegistry.getModel(entityClass);
+        for (ColumnModel joinColumn : model.getJoinColumns()) {
+            // the type of a lazy join column is LazyReference, the referenced class is the target of its relation
+            Class<?> referencedClass = model.findRelation(joinColumn.getField())
+                    .<Class<?>>map(RelationModel::getTargetClass)
+                    .orElse(joinColumn.getJavaType());
+            visit(referencedClass, sorted, visiting);
+        }
+        for (RelationModel relation : getJoinTableRelations(List.of(entityClass))) {
+            visit(relation.getTargetClass(), sorted, visiting);
+        }
+        sorted.add(entityClass);
+    }
+
+    /*
+     * Validates or creates the tables in the given order in one transaction of their own,
+     * they are registered only after the commit
+     * */
+    private void prepare(ConnectionProvider connectionProvider, List<Class<?>> entityClasses, boolean dropFirst) {
+        if (entityClasses.isEmpty())
+            return;
+
+        SchemaMode schemaMode = mode;
+        inTransaction(connectionProvider, connection -> prepare(connection, entityClasses, dropFirst, schemaMode));
+        register(entityClasses, schemaMode);
+    }
+
+    private void prepare(Connection connection, List<Class<?>> entityClasses, boolean dropFirst,
+                         SchemaMode schemaMode) throws SQLException {
+        if (entityClasses.isEmpty() || schemaMode == SchemaMode.NONE)
+            return;
+
+        List<RelationModel> joinTableRelations = getJoinTableRelations(entityClasses);
+        if (dropFirst) {
+            for (RelationModel relation : joinTableRelations) {
+                execute(connection, tableCreator.dropJoinTableIfExists(relation));
+            }
+            for (int i = entityClasses.size() - 1; i >= 0; i--) {
+                execute(connection, tableCreator.dropTableIfExists(entityClasses.get(i)));
+            }
+        }
+        for (Class<?> entityClass : entityClasses) {
+            if (schemaMode == SchemaMode.VALIDATE)
+                validate(connection, entityClass);
+            else
+                execute(connection, tableCreator.createTableIfNotExists(entityClass));
+        }
+        for (RelationModel relation : joinTableRelations) {
+            if (schemaMode == SchemaMode.VALIDATE)
+                validateJoinTable(connection, relation.getJoinTable());
+            else
+                execute(connection, tableCreator.createJoinTableIfNotExists(relation));
+        }
+    }
+
+    private void register(List<Class<?>> entityClasses, SchemaMode schemaMode) {
+        if (schemaMode == SchemaMode.CREATE_DROP) {
+            createdTables.addAll(entityClasses);
+            createdJoinTables.addAll(getJoinTableRelations(entityClasses));
+        }
+        readyTables.addAll(entityClasses);
+    }
+
+    /*
+     * Owning sides of the @ManyToMany relations of the classes, their join tables are prepared with the classes
+     * */
+    private List<RelationModel> getJoinTableRelations(List<Class<?>> entityClasses) {
+        List<RelationModel> relations = new ArrayList<>();
+        for (Class<?> entityClass : entityClasses) {
+            for (RelationModel relation : EntityModelRegistry.getModel(entityClass).getCollectionRelations()) {
+                if (relation.getJoinTable() != null)
+                    relations.add(relation);
+            }
+        }
+        return relations;
+    }
+
+    /*
+     * Checks that the table exists and has every mapped column
+     * */
+    private void validate(Connection connection, Class<?> entityClass) throws SQLException {
+        EntityModel model = EntityModelRegistry.getModel(entityClass);
+        validate(connection, model.getTableNameWithoutSchema(), model.getTableName(), model.getColumns().stream()
+                .map(ColumnModel::getName)
+                .collect(Collectors.toList()));
+    }
+
+    private void validateJoinTable(Connection connection, JoinTableModel joinTable) throws SQLException {
+        validate(connection, joinTable.getName(), joinTable.getName(),
+                List.of(joinTable.getJoinColumn(), joinTable.getInverseJoinColumn()));
+    }
+
+    private void validate(Connection connection, String tableNameWithoutSchema, String tableName,
+                          List<String> columns) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+
+        Set<String> existingColumns = new HashSet<>();
+        try (ResultSet resultSet = metaData.getColumns(null, null, tableNameWithoutSchema, null)) {
+            while (resultSet.next()) {
+                existingColumns.add(resultSet.getString("COLUMN_NAME").toLowerCase());
+            }
+        }
+
+        if (existingColumns.isEmpty())
+            throw new SchemaValidationException("Table \"" + tableName + "\" doesn't exist!");
+
+        List<String> missingColumns = columns.stream()
+                .filter(name -> !existingColumns.contains(name.toLowerCase()))
+                .collect(Collectors.toList());
+        if (!missingColumns.isEmpty())
+            throw new SchemaValidationException(
+                    "Table \"" + tableName + "\" doesn't have columns " + missingColumns + "!");
+    }
+
+    private void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private void inTransaction(ConnectionProvider connectionProvider, SchemaWork work) {
+        try (Connection connection = connectionProvider.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                work.execute(connection);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new ConnectionSQLException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SchemaWork {
+
+        void execute(Connection connection) throws SQLException;
+    }
+}
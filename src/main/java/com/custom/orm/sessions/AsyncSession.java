@@ -0,0 +1,106 @@
+package com.custom.orm.sessions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade of the sessions. Every call is a task that runs in a transaction of its own short-lived session
+ * on a dedicated executor, and its result is returned as a CompletableFuture.
+ * The executor has as many threads as the pool has connections, so tasks never wait for a connection, and a bounded
+ * queue. When the queue is full a call doesn't block and doesn't pile up work, it returns a future completed
+ * with RejectedExecutionException at once, so the caller can shed the load or retry later.
+ * The session of a task is closed when the task completes, so lazy references and collections of the returned objects
+ * must be loaded inside the task, e.g. with inTransaction().
+ */
+public class AsyncSession {
+
+    private final Logger log = LoggerFactory.getLogger(AsyncSession.class);
+
+    private static final String THREAD_NAME_PREFIX = "orm-async-";
+
+    private final Supplier<Session> sessions;
+
+    private final ThreadPoolExecutor executor;
+
+    AsyncSession(Supplier<Session> sessions, int threads, int queueCapacity) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        if (queueCapacity < 1)
+            throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+
+        this.sessions = sessions;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new AsyncThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public <T> CompletableFuture<T> findById(Class<T> objectClass, Long key) {
+        return inTransaction(session -> session.findById(objectClass, key));
+    }
+
+    public <T> CompletableFuture<List<T>> findAll(Class<T> objectClass) {
+        return inTransaction(session -> session.findAll(objectClass));
+    }
+
+    public <T> CompletableFuture<Boolean> create(T object) {
+        return inTransaction(session -> session.create(object));
+    }
+
+    public <T> CompletableFuture<Void> update(T object) {
+        return inTransaction(session -> {
+            session.update(object);
+            return null;
+        });
+    }
+
+    public <T> CompletableFuture<Void> delete(T object) {
+        return inTransaction(session -> {
+            session.delete(object);
+            return null;
+        });
+    }
+
+    /**
+     * This method runs the whole work as one task, in one transaction of a new session. The transaction is committed
+     * when the work completes and rolled back when it throws, then the future is completed exceptionally.
+     */
+    public <R> CompletableFuture<R> inTransaction(Function<Session, R> work) {
+        try {
+            return CompletableFuture.supplyAsync(() -> SessionFactory.inTransaction(sessions.get(), work), executor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Asynchronous task was rejected, " + executor.getQueue().size() + " tasks are queued");
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * This method returns the number of tasks waiting for a thread.
+     */
+    public int getQueuedTasks() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * This method stops accepting tasks, the queued ones still run.
+     */
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static final class AsyncThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, THREAD_NAME_PREFIX + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.custom.orm.sessions;
+
+import com.custom.orm.metadata.model.RelationModel;
+
+import java.util.*;
+
+/**
+ * Keys of the unloaded lazy references of a session, by relation, and the entities already loaded for them.
+ * When a reference is accessed, its relation is loaded for its key and up to "db.fetch.batchSize" - 1 other queued
+ * keys with one query (see SessionImpl), the entities of the other keys are kept here until their references
+ * are accessed. An entity is handed out once and then forgotten, references sharing its key find it
+ * in the persistence context of the session; the queue is emptied when the transaction ends, so neither
+ * the keys nor the entities outlive it.
+ * Like the session, the queue is used by one thread at a time.
+ */
+class BatchFetchQueue {
+
+    private final int batchSize;
+
+    private final Map<RelationModel, Set<Object>> queued = new HashMap<>();
+
+    private final Map<RelationModel, Map<Object, Object>> loaded = new HashMap<>();
+
+    BatchFetchQueue(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * This method queues the key of an unloaded reference, unless its entity is loaded already.
+     */
+    void enqueue(RelationModel relation, Object key) {
+        if (!isLoaded(relation, key))
+            queued.computeIfAbsent(relation, k -> new LinkedHashSet<>()).add(key);
+    }
+
+    boolean isLoaded(RelationModel relation, Object key) {
+        Map<Object, Object> entities = loaded.get(relation);
+        return entities != null && entities.containsKey(key);
+    }
+
+    /**
+     * This method removes and returns the entity loaded for the key, null if there is none.
+     */
+    Object take(RelationModel relation, Object key) {
+        Map<Object, Object> entities = loaded.get(relation);
+        if (entities == null)
+            return null;
+
+        Object entity = entities.remove(key);
+        if (entities.isEmpty())
+            loaded.remove(relation);
+        return entity;
+    }
+
+    /**
+     * This method returns the given key followed by the keys queued first, at most batchSize keys.
+     * The returned keys are removed from the queue, they have to be passed to loaded() afterwards.
+     */
+    List<Object> nextBatch(RelationModel relation, Object key) {
+        List<Object> batch = new ArrayList<>();
+        batch.add(key);
+
+        Set<Object> keys = queued.getOrDefault(relation, Collections.emptySet());
+        keys.remove(key);
+        for (Iterator<Object> iterator = keys.iterator(); iterator.hasNext() && batch.size() < batchSize; ) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        if (keys.isEmpty())
+            queued.remove(relation);
+        return batch;
+    }
+
+    /**
+     * This method keeps the entity loaded for the key (null if there is none).
+     */
+    void loaded(RelationModel relation, Object key, Object entity) {
+        loaded.computeIfAbsent(relation, k -> new HashMap<>()).put(key, entity);
+    }
+
+    void clear() {
+        queued.clear();
+        loaded.clear();
+    }
+}
@@ -0,0 +1,190 @@
+package com.custom.orm.sessions;
+
+import com.custom.orm.connection.ConnectionProvider;
+import com.custom.orm.exceptions.ConnectionSQLException;
+import com.custom.orm.mapper.ResultSetStreams;
+import com.custom.orm.mapper.RowMapper;
+import com.custom.orm.mapper.SqlTemplateCache;
+import com.custom.orm.mapper.SqlTemplates;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.util.OrmProperties;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Scan of a whole entity table split into partitions by ranges of the id. The bounds are probed with one
+ * MIN/MAX query and the range between them is split into partitions of equal width, so the partitions are balanced
+ * as long as the ids are dense (e.g. generated by a sequence). Every partition is read with the find query
+ * of the entity restricted to its range, on its own connection borrowed from the pool and through a cursor,
+ * so at most one connection per partition is used and the rows are hydrated only when they are consumed.
+ * Like stream() of a session, the objects are not added to any persistence context and their collections
+ * are not fetched. Unlike it, there is no session to load their lazy references, so the objects are detached
+ * and accessing an unloaded reference throws LazyInitializationException; relations needed by the scan
+ * have to be fetched eagerly.
+ */
+class PartitionedScan<T> {
+
+    private static final int FETCH_SIZE = OrmProperties.getInt("db.fetch.size", 1000);
+
+    private final ConnectionProvider connectionProvider;
+
+    private final SqlTemplateCache sqlTemplates;
+
+    private final Class<T> entityClass;
+
+    private final int partitions;
+
+    /*
+     * The number of partitions is limited by the size of the pool, otherwise the partitions over the limit
+     * would wait for the connection of another partition
+     * */
+    PartitionedScan(ConnectionProvider connectionProvider, SqlTemplateCache sqlTemplates, Class<T> entityClass,
+                    int partitions) {
+        if (partitions < 1)
+            throw new IllegalArgumentException("Number of partitions must be positive: " + partitions);
+        if (!EntityModelRegistry.getModel(entityClass).hasId())
+            throw new IllegalArgumentException(entityClass.getName() + " has no @Id to be partitioned by");
+
+        this.connectionProvider = connectionProvider;
+        this.sqlTemplates = sqlTemplates;
+        this.entityClass = entityClass;
+        this.partitions = Math.min(partitions, connectionProvider.getMaximumPoolSize());
+    }
+
+    /**
+     * This method returns one parallel stream of the rows of all the partitions. Every partition is read by the thread
+     * of the stream that takes it, and its connection is returned to the pool once the partition is consumed.
+     * The stream should be closed, e.g. with try-with-resources.
+     */
+    Stream<T> stream() {
+        return probe().parallelStream().flatMap(this::stream);
+    }
+
+    /**
+     * This method reads every partition on its own thread and passes the stream of its rows to the action.
+     * The streams are closed after the action returns. It returns once all the partitions are read and throws
+     * the first failure of a partition.
+     */
+    void forEachPartition(Consumer<Stream<T>> action) {
+        List<IdRange> ranges = probe();
+        if (ranges.isEmpty())
+            return;
+
+        ExecutorService executor = Executors.newFixedThreadPool(ranges.size());
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (IdRange range : ranges) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try (Stream<T> rows = stream(range)) {
+                        action.accept(rows);
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * This method reads the smallest and the largest id and splits the range between them, an empty table
+     * has no partitions.
+     */
+    List<IdRange> probe() {
+        Transaction transaction = new Transaction(connectionProvider);
+        transaction.begin();
+        try {
+            PreparedStatement preparedStatement = transaction.prepareStatement(sqlTemplates.getIdBounds(entityClass));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                long min = resultSet.getLong(1);
+                if (resultSet.wasNull())
+                    return Collections.emptyList();
+                return split(min, resultSet.getLong(2), partitions);
+            }
+        } catch (SQLException e) {
+            throw new ConnectionSQLException(e);
+        } finally {
+            transaction.close();
+        }
+    }
+
+    /*
+     * Reads one partition in its own transaction, which is closed together with the stream
+     * */
+    private Stream<T> stream(IdRange range) {
+        Transaction transaction = new Transaction(connectionProvider);
+        transaction.begin();
+        try {
+            SqlTemplates templates = sqlTemplates.getTemplates(entityClass);
+            PreparedStatement preparedStatement = transaction.getConnection().prepareStatement(
+                    sqlTemplates.getFindByIdRange(entityClass), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            preparedStatement.setFetchSize(FETCH_SIZE);
+            preparedStatement.setLong(1, range.getFrom());
+            preparedStatement.setLong(2, range.getTo());
+
+            ResultSet resultSet = preparedStatement.executeQuery();
+
+            RowMapper<T> rowMapper = templates.getRowMapper();
+            return ResultSetStreams.of(preparedStatement, resultSet, rowMapper)
+                    .onClose(transaction::close);
+        } catch (SQLException e) {
+            transaction.close();
+            throw new ConnectionSQLException(e);
+        } catch (RuntimeException e) {
+            transaction.close();
+            throw e;
+        }
+    }
+
+    /**
+     * This method splits the ids from min to max (both inclusive) into at most the given number of ranges
+     * of equal width, the last range may be narrower.
+     * Distances between ids are unsigned, so ids from Long.MIN_VALUE to Long.MAX_VALUE don't overflow.
+     */
+    static List<IdRange> split(long min, long max, int partitions) {
+        // every range but the last one ends "step" ids after its start
+        long step = Long.divideUnsigned(max - min, partitions);
+
+        List<IdRange> ranges = new ArrayList<>();
+        long from = min;
+        while (Long.compareUnsigned(max - from, step) > 0) {
+            ranges.add(new IdRange(from, from + step));
+            from += step + 1;
+        }
+        ranges.add(new IdRange(from, max));
+        return ranges;
+    }
+
+    /**
+     * Range of ids of one partition, both bounds are inclusive.
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class IdRange {
+
+        private final long from;
+
+        private final long to;
+
+        @Override
+        public String toString() {
+            return "[" + from + ", " + to + "]";
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.custom.orm.sessions;
+
+import com.custom.orm.mapper.IdentityResolver;
+import com.custom.orm.mapper.RelationLoader;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.RelationModel;
+
+import java.util.*;
+
+/**
+ * First-level cache of a session. Every entity loaded or created by the session is kept by (entity class, id),
+ * so the same row is always represented by the same instance and repeated lookups by id don't reach the database.
+ * Together with the instance a snapshot of its column values is kept, it is compared with the current state
+ * to find the columns that have to be written by flush.
+ * A session is used by one thread at a time, so the map is not synchronized.
+ * Lazy relations of the entities hydrated into the context are loaded by the relation loader of its session.
+ * Collections are not part of the rows, the entities hydrated with collections wait in the context until their
+ * session fetches the collections of all of them at once, see takePendingCollections().
+ */
+class PersistenceContext implements IdentityResolver {
+
+    private final Map<EntityKey, EntityEntry> entries = new LinkedHashMap<>();
+
+    private final List<EntityEntry> pendingCollections = new ArrayList<>();
+
+    private final RelationLoader relationLoader;
+
+    PersistenceContext() {
+        this(RelationLoader.DETACHED);
+    }
+
+    PersistenceContext(RelationLoader relationLoader) {
+        this.relationLoader = relationLoader;
+    }
+
+    @Override
+    public Object find(EntityModel model, Object id) {
+        EntityEntry entry = entries.get(new EntityKey(model.getEntityClass(), id));
+        return entry == null ? null : entry.entity;
+    }
+
+    @Override
+    public void register(EntityModel model, Object id, Object entity) {
+        EntityEntry entry = new EntityEntry(model, entity);
+        if (entries.putIfAbsent(new EntityKey(model.getEntityClass(), id), entry) == null
+                && !model.getCollectionRelations().isEmpty())
+            pendingCollections.add(entry);
+    }
+
+    @Override
+    public RelationLoader getRelationLoader() {
+        return relationLoader;
+    }
+
+    /**
+     * This method returns the managed instance of the given class with the given id, or null.
+     */
+    <T> T get(Class<T> entityClass, Object id) {
+        EntityEntry entry = entries.get(new EntityKey(entityClass, id));
+        return entry == null ? null : entityClass.cast(entry.entity);
+    }
+
+    /**
+     * This method adds the entity to the context, entities without an id yet are ignored.
+     */
+    void add(Object entity) {
+        EntityModel model = EntityModelRegistry.getModel(entity.getClass());
+        if (!model.hasId())
+            return;
+
+        Object id = model.getId(entity);
+        if (id != null)
+            entries.put(new EntityKey(entity.getClass(), id), new EntityEntry(model, entity));
+    }
+
+    void remove(Object entity) {
+        EntityModel model = EntityModelRegistry.getModel(entity.getClass());
+        if (!model.hasId())
+            return;
+
+        Object id = model.getId(entity);
+        if (id == null)
+            return;
+
+        EntityKey key = new EntityKey(entity.getClass(), id);
+        EntityEntry entry = entries.get(key);
+        if (entry != null && entry.entity == entity)
+            entries.remove(key);
+    }
+
+    boolean contains(Object entity) {
+        EntityModel model = EntityModelRegistry.getModel(entity.getClass());
+        if (!model.hasId())
+            return false;
+
+        Object id = model.getId(entity);
+        if (id == null)
+            return false;
+
+        EntityEntry entry = entries.get(new EntityKey(entity.getClass(), id));
+        return entry != null && entry.entity == entity;
+    }
+
+    /**
+     * This method returns the entries of all managed entities in the order they became managed.
+     */
+    Collection<EntityEntry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * This method returns the entries of the entities hydrated with collections since the last call,
+     * their collections are not fetched yet.
+     */
+    List<EntityEntry> takePendingCollections() {
+        if (pendingCollections.isEmpty())
+            return Collections.emptyList();
+
+        List<EntityEntry> pending = new ArrayList<>(pendingCollections);
+        pendingCollections.clear();
+        return pending;
+    }
+
+    void clear() {
+        entries.clear();
+        pendingCollections.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /*
+     * A managed entity with the column values it had when it was loaded, created or last flushed, and the ids of
+     * the elements of its collections when they were fetched or last flushed (none for a created entity)
+     * */
+    static final class EntityEntry {
+
+        private final EntityModel model;
+
+        private final Object entity;
+
+        private Object[] loadedState;
+
+        private final Map<RelationModel, Set<Object>> loadedCollections = new HashMap<>();
+
+        private EntityEntry(EntityModel model, Object entity) {
+            this.model = model;
+            this.entity = entity;
+            this.loadedState = takeSnapshot();
+        }
+
+        EntityModel getModel() {
+            return model;
+        }
+
+        Object getEntity() {
+            return entity;
+        }
+
+        /**
+         * This method returns the insert columns whose values differ from the snapshot, in the order of the model.
+         */
+        List<ColumnModel> getDirtyColumns() {
+            List<ColumnModel> columns = model.getInsertColumns();
+            List<ColumnModel> dirtyColumns = new ArrayList<>();
+            for (int i = 0; i < columns.size(); i++) {
+                if (!Objects.equals(loadedState[i], columns.get(i).getColumnValue(entity)))
+                    dirtyColumns.add(columns.get(i));
+            }
+            return dirtyColumns;
+        }
+
+        /**
+         * This method takes a new snapshot, called once the changes are written to the database.
+         */
+        void resetLoadedState() {
+            loadedState = takeSnapshot();
+            model.getCollectionRelations().forEach(this::resetLoadedCollection);
+        }
+
+        /**
+         * This method returns the elements added to the collection since the snapshot: elements without an id
+         * and elements whose id is not in the snapshot.
+         */
+        List<Object> getAddedElements(RelationModel relation) {
+            Set<Object> loadedIds = loadedCollections.getOrDefault(relation, Collections.emptySet());
+            EntityModel elementModel = EntityModelRegistry.getModel(relation.getTargetClass());
+
+            List<Object> added = new ArrayList<>();
+            for (Object element : relation.getElements(entity)) {
+                Object id = elementModel.getId(element);
+                if (id == null || !loadedIds.contains(id))
+                    added.add(element);
+            }
+            return added;
+        }
+
+        /**
+         * This method returns the ids of the elements of the snapshot which are no longer in the collection.
+         */
+        Set<Object> getRemovedIds(RelationModel relation) {
+            Set<Object> removed = new LinkedHashSet<>(loadedCollections.getOrDefault(relation, Collections.emptySet()));
+            if (!removed.isEmpty())
+                removed.removeAll(getElementIds(relation));
+            return removed;
+        }
+
+        /**
+         * This method takes a new snapshot of the collection, called once it is fetched or written.
+         */
+        void resetLoadedCollection(RelationModel relation) {
+            loadedCollections.put(relation, getElementIds(relation));
+        }
+
+        private Set<Object> getElementIds(RelationModel relation) {
+            EntityModel elementModel = EntityModelRegistry.getModel(relation.getTargetClass());
+            Set<Object> ids = new HashSet<>();
+            for (Object element : relation.getElements(entity)) {
+                Object id = elementModel.getId(element);
+                if (id != null)
+                    ids.add(id);
+            }
+            return ids;
+        }
+
+        private Object[] takeSnapshot() {
+            List<ColumnModel> columns = model.getInsertColumns();
+            Object[] state = new Object[columns.size()];
+            for (int i = 0; i < state.length; i++) {
+                state[i] = columns.get(i).getColumnValue(entity);
+            }
+            return state;
+        }
+    }
+
+    private static final class EntityKey {
+
+        private final Class<?> entityClass;
+
+        private final Object id;
+
+        private EntityKey(Class<?> entityClass, Object id) {
+            this.entityClass = entityClass;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            EntityKey entityKey = (EntityKey) o;
+            return entityClass == entityKey.entityClass && id.equals(entityKey.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(entityClass, id);
+        }
+    }
+}
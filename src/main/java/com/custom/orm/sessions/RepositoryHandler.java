@@ -0,0 +1,118 @@
+package com.custom.orm.sessions;
+
+import com.custom.orm.annotations.Query;
+import com.custom.orm.exceptions.QueryDefinitionException;
+import com.custom.orm.mapper.SqlTemplateCache;
+import com.custom.orm.query.QueryMethod;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of a repository interface. Its @Query methods are parsed and validated when the repository
+ * is created (see QueryMethod), a call compiles only the arguments into the parameters and executes the query
+ * on the current session of the factory, so the caller must have begun a transaction of that session.
+ * Default methods of the interface are called as they are.
+ */
+class RepositoryHandler implements InvocationHandler {
+
+    private final Class<?> repositoryInterface;
+
+    private final Map<Method, QueryMethod> queryMethods;
+
+    private final Supplier<Session> sessions;
+
+    private RepositoryHandler(Class<?> repositoryInterface, Map<Method, QueryMethod> queryMethods,
+                              Supplier<Session> sessions) {
+        this.repositoryInterface = repositoryInterface;
+        this.queryMethods = queryMethods;
+        this.sessions = sessions;
+    }
+
+    /**
+     * This method creates the proxy of the repository interface.
+     *
+     * @throws QueryDefinitionException with the problems of all the methods of the interface.
+     */
+    static <R> R create(Class<R> repositoryInterface, Supplier<Session> sessions, SqlTemplateCache sqlTemplates) {
+        if (!repositoryInterface.isInterface())
+            throw new QueryDefinitionException(repositoryInterface.getName() + " isn't an interface");
+
+        List<String> problems = new ArrayList<>();
+        Map<Method, QueryMethod> queryMethods = new HashMap<>();
+        for (Method method : repositoryInterface.getMethods()) {
+            if (method.isDefault() || Modifier.isStatic(method.getModifiers()))
+                continue;
+            if (!method.isAnnotationPresent(Query.class)) {
+                problems.add(repositoryInterface.getName() + "." + method.getName() + " isn't annotated with @Query");
+                continue;
+            }
+            try {
+                queryMethods.put(method, QueryMethod.of(method, sqlTemplates));
+            } catch (QueryDefinitionException e) {
+                problems.add(e.getMessage());
+            }
+        }
+        if (!problems.isEmpty())
+            throw new QueryDefinitionException(String.join("\n", problems));
+
+        Object proxy = Proxy.newProxyInstance(repositoryInterface.getClassLoader(), new Class[]{repositoryInterface},
+                new RepositoryHandler(repositoryInterface, Map.copyOf(queryMethods), sessions));
+        return repositoryInterface.cast(proxy);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class)
+            return invokeObjectMethod(proxy, method, args);
+        if (method.isDefault())
+            return MethodHandles.privateLookupIn(repositoryInterface, MethodHandles.lookup())
+                    .unreflectSpecial(method, repositoryInterface)
+                    .bindTo(proxy)
+                    .invokeWithArguments(args == null ? new Object[0] : args);
+
+        QueryMethod queryMethod = queryMethods.get(method);
+        Session session = sessions.get();
+        Object[] arguments = args == null ? new Object[0] : args;
+
+        switch (queryMethod.getResultType()) {
+            case STREAM:
+                return session.stream(queryMethod.getEntityClass(), queryMethod.compile(arguments));
+            case LIST:
+                return session.list(queryMethod.getEntityClass(), queryMethod.compile(arguments));
+            case OPTIONAL:
+                return Optional.ofNullable(single(session, queryMethod, arguments));
+            default:
+                return single(session, queryMethod, arguments);
+        }
+    }
+
+    /*
+     * The only object of the result, null if there is none
+     * */
+    private Object single(Session session, QueryMethod queryMethod, Object[] arguments) {
+        List<?> result = session.list(queryMethod.getEntityClass(), queryMethod.compile(arguments));
+        if (result.size() > 1)
+            throw new IllegalStateException(repositoryInterface.getName() + "." + queryMethod.getMethod().getName()
+                    + " returned " + result.size() + " objects instead of one");
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return repositoryInterface.getName() + " repository";
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+}
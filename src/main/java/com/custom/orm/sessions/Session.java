@@ -1,7 +1,11 @@
 package com.custom.orm.sessions;
 
+import com.custom.orm.query.CompiledQuery;
+import com.custom.orm.query.Criteria;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface Session {
 
@@ -9,14 +13,32 @@ public interface Session {
 
     <T> List<T> findAll(Class<T> objectClass);
 
+    <T> Stream<T> stream(Class<T> objectClass);
+
+    <T> List<T> list(Criteria<T> criteria);
+
+    List<Object[]> project(Criteria<?> criteria);
+
+    <T> List<T> list(Class<T> objectClass, CompiledQuery query);
+
+    <T> Stream<T> stream(Class<T> objectClass, CompiledQuery query);
+
     <T> boolean create(T object);
 
+    <T> boolean createAll(Collection<T> objects);
+
+    <T> long copyIn(Class<T> objectClass, Stream<T> objects);
+
     <T> void update(T object);
 
     <T> void delete(T object);
 
     Transaction beginTransaction();
 
+    void flush();
+
+    void clear();
+
     void close();
 
     void cancelQuery();
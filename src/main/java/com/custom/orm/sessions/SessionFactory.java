@@ -0,0 +1,285 @@
+package com.custom.orm.sessions;
+
+import com.custom.orm.cache.QueryCache;
+import com.custom.orm.cache.SecondLevelCache;
+import com.custom.orm.connection.ConnectionProvider;
+import com.custom.orm.connection.ConnectionProviders;
+import com.custom.orm.exceptions.EntityMappingException;
+import com.custom.orm.exceptions.QueryDefinitionException;
+import com.custom.orm.mapper.SqlTemplateCache;
+import com.custom.orm.metadata.model.EntityModelValidator;
+import com.custom.orm.query.CriteriaCompiler;
+import com.custom.orm.schema.SchemaManager;
+import com.custom.orm.util.EntityScanner;
+import com.custom.orm.util.OrmProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Entry point of the ORM. At startup it scans the configured packages for @Entity classes, validates their mappings
+ * and builds everything the sessions need: entity models with their accessors, SQL templates and row mappers.
+ * Then the tables are prepared by SchemaManager. So the first request for an entity doesn't pay for reflection,
+ * SQL generation or catalogue queries, and mapping errors are reported at startup instead of at the first call.
+ * Repository interfaces of the same packages (interfaces with @Query methods) are implemented at startup as well,
+ * their SQL is parsed and validated once.
+ * The factory is thread-safe and meant to be created once per database. The schema registry, the SQL templates,
+ * the compiled criteria and both caches belong to the factory and are shared only by its sessions, so factories
+ * of different databases in one process never see each other's tables or rows. Everything it builds is immutable
+ * or guarded by locks (not monitors, so virtual threads are never pinned), while a session only holds the state
+ * of one unit of work and is cheap to open, so every thread or request works with its own session.
+ */
+public class SessionFactory {
+
+    private final Logger log = LoggerFactory.getLogger(SessionFactory.class);
+
+    private static final String PACKAGES_DELIMITER = ",";
+
+    private static final int ASYNC_QUEUE_CAPACITY = OrmProperties.getInt("db.async.queueCapacity", 100);
+
+    private final ConnectionProvider connectionProvider;
+
+    private final Set<Class<?>> entityClasses;
+
+    private final SchemaManager schemaManager = new SchemaManager();
+
+    private final SqlTemplateCache sqlTemplates = new SqlTemplateCache();
+
+    private final SecondLevelCache secondLevelCache = new SecondLevelCache(sqlTemplates);
+
+    private final QueryCache queryCache = new QueryCache();
+
+    private final CriteriaCompiler criteriaCompiler = new CriteriaCompiler(sqlTemplates);
+
+    private final long warmUpMillis;
+
+    private final Map<Class<?>, Object> repositories;
+
+    private final ThreadLocal<Session> currentSession = new ThreadLocal<>();
+
+    private final AsyncSession asyncSession;
+
+    /**
+     * Creates the factory for the packages listed in "db.entity.packages" (separated by commas)
+     * with the default connection provider.
+     */
+    public SessionFactory() {
+        this(ConnectionProviders.getDefault(), OrmProperties.getString("db.entity.packages").split(PACKAGES_DELIMITER));
+    }
+
+    public SessionFactory(ConnectionProvider connectionProvider, String... packageNames) {
+        log.info("Starting session factory...");
+        long start = System.nanoTime();
+
+        this.connectionProvider = connectionProvider;
+
+        Set<Class<?>> scanned = new LinkedHashSet<>();
+        Set<Class<?>> repositoryInterfaces = new LinkedHashSet<>();
+        for (String packageName : packageNames) {
+            scanned.addAll(EntityScanner.scan(packageName.trim()));
+            repositoryInterfaces.addAll(EntityScanner.scanRepositories(packageName.trim()));
+        }
+        this.entityClasses = Collections.unmodifiableSet(scanned);
+
+        validate(entityClasses);
+        entityClasses.forEach(sqlTemplates::getTemplates);
+        this.repositories = createRepositories(repositoryInterfaces);
+        schemaManager.initialize(connectionProvider, entityClasses);
+        this.asyncSession = new AsyncSession(this::openSession, connectionProvider.getMaximumPoolSize(),
+                ASYNC_QUEUE_CAPACITY);
+
+        this.warmUpMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Session factory was started with " + entityClasses.size() + " entities and "
+                + repositories.size() + " repositories, warm-up took " + warmUpMillis + " ms");
+    }
+
+    /**
+     * This method opens a new session. A session must not be shared between threads, it borrows a connection
+     * from the pool only while its transaction is active.
+     */
+    public Session openSession() {
+        return new SessionImpl(connectionProvider, schemaManager, sqlTemplates, secondLevelCache, queryCache,
+                criteriaCompiler);
+    }
+
+    /**
+     * This method returns the session bound to the calling thread, it is opened on the first call of the thread.
+     * Since every virtual thread has its own binding, a thread per request gets a session per request.
+     * The session stays bound until closeCurrentSession() is called.
+     */
+    public Session getCurrentSession() {
+        Session session = currentSession.get();
+        if (session == null) {
+            session = openSession();
+            currentSession.set(session);
+        }
+        return session;
+    }
+
+    /**
+     * This method closes the session bound to the calling thread, if there is one, and unbinds it.
+     */
+    public void closeCurrentSession() {
+        Session session = currentSession.get();
+        if (session == null)
+            return;
+
+        currentSession.remove();
+        session.close();
+    }
+
+    /**
+     * This method runs the work in a transaction of a new session and returns its result. The transaction is committed
+     * when the work completes and rolled back when it throws, the session is closed in both cases.
+     */
+    public <R> R inTransaction(Function<Session, R> work) {
+        return inTransaction(openSession(), work);
+    }
+
+    /**
+     * This method reads the whole table of the entity split into partitions by ranges of the id, every partition
+     * on its own connection, and returns the rows of all of them as one parallel stream.
+     * The number of partitions is limited by the size of the pool. The stream should be closed.
+     */
+    public <T> Stream<T> parallelStream(Class<T> entityClass, int partitions) {
+        return new PartitionedScan<>(connectionProvider, sqlTemplates, entityClass, partitions).stream();
+    }
+
+    /**
+     * This method reads the whole table of the entity split into partitions by ranges of the id and passes
+     * the stream of every partition to the action on the partition's own thread and connection.
+     * It returns once all the partitions are read.
+     */
+    public <T> void forEachPartition(Class<T> entityClass, int partitions, Consumer<Stream<T>> action) {
+        new PartitionedScan<>(connectionProvider, sqlTemplates, entityClass, partitions).forEachPartition(action);
+    }
+
+    /**
+     * This method returns the asynchronous facade of the factory. Its executor has as many threads as the pool
+     * has connections and a queue of "db.async.queueCapacity" tasks.
+     */
+    public AsyncSession getAsyncSession() {
+        return asyncSession;
+    }
+
+    /**
+     * This method returns the implementation of the repository interface created at startup. Its methods run
+     * on the current session of the calling thread (see getCurrentSession()), which must have an active transaction.
+     */
+    public <R> R getRepository(Class<R> repositoryInterface) {
+        Object repository = repositories.get(repositoryInterface);
+        if (repository == null)
+            throw new IllegalArgumentException(repositoryInterface.getName()
+                    + " isn't a repository of the scanned packages");
+        return repositoryInterface.cast(repository);
+    }
+
+    public Set<Class<?>> getEntityClasses() {
+        return entityClasses;
+    }
+
+    /**
+     * This method returns how long the scan, the validation, the metadata warm-up and the schema preparation took.
+     */
+    public long getWarmUpMillis() {
+        return warmUpMillis;
+    }
+
+    public ConnectionProvider getConnectionProvider() {
+        return connectionProvider;
+    }
+
+    public SchemaManager getSchemaManager() {
+        return schemaManager;
+    }
+
+    public SqlTemplateCache getSqlTemplates() {
+        return sqlTemplates;
+    }
+
+    public SecondLevelCache getSecondLevelCache() {
+        return secondLevelCache;
+    }
+
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * This method stops the asynchronous facade, drops the tables in the create-drop schema mode
+     * and closes the connection provider.
+     */
+    public void close() {
+        asyncSession.close();
+        schemaManager.shutdown(connectionProvider);
+        connectionProvider.close();
+    }
+
+    /*
+     * Runs the work in a transaction of the given session and closes the session, shared with AsyncSession
+     * */
+    static <R> R inTransaction(Session session, Function<Session, R> work) {
+        try {
+            Transaction transaction = session.beginTransaction();
+            try {
+                R result = work.apply(session);
+                transaction.commit();
+                return result;
+            } catch (RuntimeException e) {
+                rollback(transaction, e);
+                throw e;
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    /*
+     * Rolls back after a failed work, a failure of the rollback itself is added to the original exception
+     * */
+    private static void rollback(Transaction transaction, RuntimeException cause) {
+        if (!transaction.isActive())
+            return;
+
+        try {
+            transaction.rollback();
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /*
+     * Collects the problems of all the repositories, so that all of them are reported at once
+     * */
+    private Map<Class<?>, Object> createRepositories(Set<Class<?>> repositoryInterfaces) {
+        Map<Class<?>, Object> created = new HashMap<>();
+        List<String> problems = new ArrayList<>();
+        for (Class<?> repositoryInterface : repositoryInterfaces) {
+            try {
+                created.put(repositoryInterface, RepositoryHandler.create(repositoryInterface, this::getCurrentSession,
+                        sqlTemplates));
+            } catch (QueryDefinitionException e) {
+                problems.add(e.getMessage());
+            }
+        }
+        if (!problems.isEmpty())
+            throw new QueryDefinitionException("Invalid repository query:\n" + String.join("\n", problems));
+        return Map.copyOf(created);
+    }
+
+    /*
+     * Collects the problems of all the entities, so that all of them are reported at once
+     * */
+    private void validate(Set<Class<?>> entityClasses) {
+        List<String> problems = new ArrayList<>();
+        for (Class<?> entityClass : entityClasses) {
+            problems.addAll(EntityModelValidator.validate(entityClass));
+        }
+        if (!problems.isEmpty())
+            throw new EntityMappingException("Invalid entity mapping:\n" + String.join("\n", problems));
+    }
+}
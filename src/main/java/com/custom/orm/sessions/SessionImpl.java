@@ -1,49 +1,180 @@
 package com.custom.orm.sessions;
 
+import com.custom.orm.cache.EntityRegion;
+import com.custom.orm.cache.QueryCache;
+import com.custom.orm.cache.SecondLevelCache;
+import com.custom.orm.connection.ConnectionProvider;
+import com.custom.orm.connection.ConnectionProviders;
+import com.custom.orm.copy.CopySink;
+import com.custom.orm.copy.EntityCopyWriter;
+import com.custom.orm.copy.PgCopySink;
 import com.custom.orm.enums.CascadeType;
-import com.custom.orm.mapper.EntitiesMapper;
-import com.custom.orm.mapper.EntitiesMapperImpl;
+import com.custom.orm.enums.RelationType;
+import com.custom.orm.exceptions.LazyInitializationException;
+import com.custom.orm.exceptions.TransientEntityException;
+import com.custom.orm.mapper.EntityRowMapper;
 import com.custom.orm.mapper.FieldsMapper;
 import com.custom.orm.mapper.FieldsMapperImpl;
-import com.custom.orm.metadata.ColumnMetaData;
+import com.custom.orm.mapper.IdentityResolver;
+import com.custom.orm.mapper.JoinTableTemplates;
+import com.custom.orm.mapper.RelationLoader;
+import com.custom.orm.mapper.ResultSetStreams;
+import com.custom.orm.mapper.RowMapper;
+import com.custom.orm.mapper.SqlTemplateCache;
+import com.custom.orm.mapper.SqlTemplates;
 import com.custom.orm.metadata.DeclaredFieldsMetaData;
-import com.custom.orm.metadata.TableMetaData;
-import com.custom.orm.metadata.implementation.ColumnMetaDataImpl;
+import com.custom.orm.metadata.ForeignKeyMetaData;
 import com.custom.orm.metadata.implementation.DeclaredFieldsMetaDataImpl;
-import com.custom.orm.metadata.implementation.TableMetaDataImpl;
-import com.custom.orm.util.TableCreator;
+import com.custom.orm.metadata.implementation.ForeignKeyMetaDataImpl;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.JoinTableModel;
+import com.custom.orm.metadata.model.RelationModel;
+import com.custom.orm.query.CompiledQuery;
+import com.custom.orm.query.Criteria;
+import com.custom.orm.query.CriteriaCompiler;
+import com.custom.orm.schema.SchemaManager;
+import com.custom.orm.util.OrmProperties;
 import lombok.SneakyThrows;
 
 import java.lang.reflect.Field;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class SessionImpl implements Session {
 
+    private final ConnectionProvider connectionProvider;
+
+    private final SchemaManager schemaManager;
+
+    private final SqlTemplateCache sqlTemplates;
+
+    private final SecondLevelCache secondLevelCache;
+
+    private final QueryCache queryCache;
+
+    private final CriteriaCompiler criteriaCompiler;
+
     private Transaction transaction;
 
-    private final TableMetaData tableMetaData = new TableMetaDataImpl();
-    private final FieldsMapper fieldsMapper = new FieldsMapperImpl();
-    private final TableCreator tableCreator = new TableCreator();
-    private final EntitiesMapper entitiesMapper = new EntitiesMapperImpl();
-    private final ColumnMetaData columnMetaData = new ColumnMetaDataImpl();
-    private final DeclaredFieldsMetaData declaredFieldsMetaData = new DeclaredFieldsMetaDataImpl();
+    /**
+     * Keys of the lazy references hydrated by this session that are not loaded yet, see loadRelation().
+     */
+    private final BatchFetchQueue batchFetchQueue = new BatchFetchQueue(FETCH_BATCH_SIZE);
+
+    private final PersistenceContext persistenceContext = new PersistenceContext(new RelationLoader() {
+        @Override
+        public Object load(RelationModel relation, Object key) {
+            return loadRelation(relation, key);
+        }
+
+        @Override
+        public void register(RelationModel relation, Object key) {
+            batchFetchQueue.enqueue(relation, key);
+        }
+    });
+
+    /*
+     * Resolver of the streamed rows: they are neither registered in the persistence context nor queued for batch
+     * fetching, so a scan of a large table is not retained, but their lazy references are still loaded
+     * by the session on access
+     * */
+    private final IdentityResolver streamResolver = new IdentityResolver() {
+        @Override
+        public Object find(EntityModel model, Object id) {
+            return null;
+        }
+
+        @Override
+        public void register(EntityModel model, Object id, Object entity) {
+        }
+
+        @Override
+        public RelationLoader getRelationLoader() {
+            return SessionImpl.this::loadRelation;
+        }
+    };
+
+    /**
+     * Ids of the rows written by the current transaction, by class (null if the rows are unknown).
+     * They are invalidated in the second-level cache once the transaction is committed.
+     */
+    private final Map<Class<?>, Set<Object>> pendingInvalidations = new LinkedHashMap<>();
+
+    /**
+     * Classes whose tables were prepared by the current transaction, see SchemaManager.ensureTable().
+     * They are registered once the transaction is committed.
+     */
+    private final Set<Class<?>> preparedTables = new LinkedHashSet<>();
+
+    /*
+     * The mappers only read the entity metadata and keep no state of their own, so one instance of each is shared
+     * by all the sessions instead of being created for every session
+     * */
+    private static final FieldsMapper fieldsMapper = new FieldsMapperImpl();
+    private static final DeclaredFieldsMetaData declaredFieldsMetaData = new DeclaredFieldsMetaDataImpl();
+    private static final ForeignKeyMetaData foreignKeyMetaData = new ForeignKeyMetaDataImpl();
 
-    private static final String FIND_BY_ID_SQL_QUERY = "%s WHERE %s = ?;";
-    private static final String CREATE_SQL_QUERY = "INSERT INTO %s (%s) VALUES (%s)";
-    private static final String UPDATE_SQL_QUERY = "UPDATE %s SET %s WHERE id = %s";
-    private static final String DELETE_SQL_QUERY = "DELETE FROM %s WHERE id = %s";
+    private static final int BATCH_SIZE = OrmProperties.getInt("db.batch.size", 100);
+    private static final int FETCH_SIZE = OrmProperties.getInt("db.fetch.size", 1000);
+    private static final int FETCH_BATCH_SIZE = OrmProperties.getInt("db.fetch.batchSize", 16);
 
+    public SessionImpl() {
+        this(ConnectionProviders.getDefault());
+    }
+
+    /**
+     * Creates a session outside of a session factory, it has its own schema registry, statements and caches.
+     */
+    public SessionImpl(ConnectionProvider connectionProvider) {
+        this(connectionProvider, new SchemaManager(), new SqlTemplateCache());
+    }
+
+    private SessionImpl(ConnectionProvider connectionProvider, SchemaManager schemaManager,
+                        SqlTemplateCache sqlTemplates) {
+        this(connectionProvider, schemaManager, sqlTemplates, new SecondLevelCache(sqlTemplates), new QueryCache(),
+                new CriteriaCompiler(sqlTemplates));
+    }
+
+    /*
+     * Session of a factory, which shares its schema registry, statements and caches with the other sessions
+     * of the factory
+     * */
+    SessionImpl(ConnectionProvider connectionProvider, SchemaManager schemaManager, SqlTemplateCache sqlTemplates,
+                SecondLevelCache secondLevelCache, QueryCache queryCache, CriteriaCompiler criteriaCompiler) {
+        this.connectionProvider = connectionProvider;
+        this.schemaManager = schemaManager;
+        this.sqlTemplates = sqlTemplates;
+        this.secondLevelCache = secondLevelCache;
+        this.queryCache = queryCache;
+        this.criteriaCompiler = criteriaCompiler;
+    }
+
+    /**
+     * This method starts a new transaction on a connection borrowed from the pool.
+     * If the previous transaction of this session still holds a connection, it is returned to the pool first.
+     */
     @Override
     public Transaction beginTransaction() {
-        transaction = new Transaction();
+        if (transaction != null)
+            transaction.close();
+
+        pendingInvalidations.clear();
+        preparedTables.clear();
+        batchFetchQueue.clear();
+        transaction = new Transaction(connectionProvider, this::flush, this::afterCommit, this::afterRollback);
         transaction.begin();
         return transaction;
     }
 
     /**
      * This method returns an object by key (id) from the database.
+     * Objects already loaded or created by this session are returned from the persistence context without a query.
+     * Objects of @Cacheable classes are hydrated from the second-level cache if their row is cached there.
+     * Collections of the object (and of the objects it joins) are read by one more query per collection field.
      *
      * @param object type of the class is passed, which is analogous to the table in the database.
      * @param key    key that will be used to search for a record in the database.
@@ -53,32 +184,42 @@ public class SessionImpl implements Session {
     @Override
     public <T> T findById(Class<T> object, Long key) {
 
-        Connection connection = transaction.getConnection();
-
-        PreparedStatement preparedStatement = connection.prepareStatement(String.format(
-                FIND_BY_ID_SQL_QUERY,
-                entitiesMapper.getFindQuery(object),
-                tableMetaData.getTableNameWithoutSchema(object) + "." + "id"));
+        T managed = persistenceContext.get(object, key);
+        if (managed != null)
+            return managed;
 
-        preparedStatement.setLong(1, key);
+        Optional<EntityRegion> region = secondLevelCache.getRegion(object);
+        if (region.isPresent() && !hasPendingChanges(region.get())) {
+            T cached = findCached(region.get(), object, key);
+            fetchCollections();
+            return cached;
+        }
 
-        T entity = object.getDeclaredConstructor().newInstance();
+        SqlTemplates templates = sqlTemplates.getTemplates(object);
+        PreparedStatement preparedStatement = transaction.prepareStatement(templates.getFindById());
 
-        ResultSet resultSet = preparedStatement.executeQuery();
+        preparedStatement.setLong(1, key);
 
-        if (!resultSet.next()) {
-            return null;
-        }
+        T result;
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            if (!resultSet.next()) {
+                return null;
+            }
 
-        for (Field field : object.getDeclaredFields()) {
-            fieldsMapper.fillField(object, entity, resultSet, field, null);
+            RowMapper<T> rowMapper = templates.getRowMapper();
+            result = rowMapper.mapRow(resultSet, persistenceContext);
         }
-        return entity;
+        fetchCollections();
+        return result;
     }
 
     /**
      * This method returns a List of all objects from the database,
      * according to the instance of the class that is passed as a parameter to the method.
+     * Rows of objects that are already managed by this session are resolved to the managed instances.
+     * With "db.queryCache.enabled=true" the rows are taken from the query cache while none of the tables read by
+     * the query was changed.
+     * Collections of all the objects are read by one more query per collection field, not by a join.
      *
      * @param object type of the class is passed, which is analogous to the table in the database.
      * @return list of all objects from the database table that were returned in response to the SQL request.
@@ -87,28 +228,166 @@ public class SessionImpl implements Session {
     @Override
     public <T> List<T> findAll(Class<T> object) {
 
-        String sql = entitiesMapper.getFindQuery(object);
+        SqlTemplates templates = sqlTemplates.getTemplates(object);
+        if (queryCache.isEnabled() && !hasPendingChanges(templates.getTables())) {
+            List<T> cached = findAllCached(templates, object);
+            fetchCollections();
+            return cached;
+        }
 
-        Connection connection = transaction.getConnection();
+        PreparedStatement preparedStatement = transaction.prepareStatement(templates.getFindAll());
 
-        PreparedStatement preparedStatement = connection.prepareStatement(String.format(sql,
-                tableMetaData.getTableName(object)));
+        List<T> result = new ArrayList<>();
+        RowMapper<T> rowMapper = templates.getRowMapper();
 
-        ResultSet resultSet = preparedStatement.executeQuery();
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                result.add(rowMapper.mapRow(resultSet, persistenceContext));
+            }
+        }
+        fetchCollections();
+        return result;
+    }
+
+    /**
+     * This method returns the objects matching the criteria, filtered, ordered and paged by the database.
+     */
+    @Override
+    public <T> List<T> list(Criteria<T> criteria) {
+        if (criteria.isProjection())
+            throw new IllegalArgumentException("Criteria with a projection is executed by project()");
+
+        return list(criteria.getEntityClass(), criteriaCompiler.compile(criteria));
+    }
+
+    /**
+     * This method returns the objects read by the compiled query of a criteria or of a @Query method.
+     * Rows are mapped like the rows of findAll(): objects already managed by the session are reused and
+     * collections are fetched afterwards. With the query cache enabled the rows are cached by the SQL and its values,
+     * unless the tables read by the query are unknown.
+     * Pending changes of the session are not flushed before the query, call flush() to have them matched.
+     */
+    @SneakyThrows
+    @Override
+    public <T> List<T> list(Class<T> object, CompiledQuery query) {
+        if (query.isCacheable() && queryCache.isEnabled() && !hasPendingChanges(query.getTables())) {
+            List<T> cached = listCached(object, query);
+            fetchCollections();
+            return cached;
+        }
+
+        PreparedStatement preparedStatement = transaction.prepareStatement(query.getSql());
+        query.bind(preparedStatement);
 
         List<T> result = new ArrayList<>();
+        RowMapper<T> rowMapper = sqlTemplates.getTemplates(object).getRowMapper();
 
-        while (resultSet.next()) {
-            T entity = object.getDeclaredConstructor().newInstance();
-            for (Field field : object.getDeclaredFields()) {
-                field.setAccessible(true);
-                fieldsMapper.fillField(object, entity, resultSet, field, null);
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                result.add(rowMapper.mapRow(resultSet, persistenceContext));
             }
-            result.add(entity);
         }
+        fetchCollections();
         return result;
     }
 
+    /**
+     * This method returns the objects read by the compiled query as a lazily populated stream,
+     * with the same cursor, the same restrictions and the same loading of lazy references as stream().
+     */
+    @SneakyThrows
+    @Override
+    public <T> Stream<T> stream(Class<T> object, CompiledQuery query) {
+
+        Connection connection = transaction.getConnection();
+
+        PreparedStatement preparedStatement = connection.prepareStatement(query.getSql(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            preparedStatement.setFetchSize(FETCH_SIZE);
+            query.bind(preparedStatement);
+
+            ResultSet resultSet = preparedStatement.executeQuery();
+
+            RowMapper<T> rowMapper = sqlTemplates.getTemplates(object).getRowMapper();
+            return ResultSetStreams.of(preparedStatement, resultSet, rowMapper, streamResolver);
+        } catch (SQLException | RuntimeException e) {
+            closeFailed(preparedStatement, e);
+            throw e;
+        }
+    }
+
+    /*
+     * Closes the statement of a stream that failed before it was returned, the statement isn't cached
+     * by the transaction. A failure of the close is added to the cause
+     * */
+    private static void closeFailed(Statement statement, Exception cause) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * This method returns the values of the fields selected by the criteria, one array per row.
+     * No objects are created, so nothing is added to the persistence context.
+     */
+    @SneakyThrows
+    @Override
+    public List<Object[]> project(Criteria<?> criteria) {
+        if (!criteria.isProjection())
+            throw new IllegalArgumentException("Criteria without a projection is executed by list()");
+
+        CompiledQuery query = criteriaCompiler.compile(criteria);
+        PreparedStatement preparedStatement = transaction.prepareStatement(query.getSql());
+        query.bind(preparedStatement);
+
+        List<Object[]> result = new ArrayList<>();
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                result.add(query.readProjection(resultSet));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * This method returns all objects of the table as a lazily populated stream.
+     * The statement uses a fetch size of "db.fetch.size" rows, so within the (non-autocommit) transaction
+     * PostgreSQL reads the table through a cursor and rows are hydrated only when they are consumed.
+     * The stream must be consumed before the transaction ends and should be closed (for example with
+     * try-with-resources), which closes the statement and the result set.
+     * The statement is not taken from the statement cache of the transaction, because closing the stream closes it.
+     * Streamed objects are not added to the persistence context, so a scan of a large table is not retained,
+     * and their collections are not fetched. Their lazy references are loaded by the session one by one on access,
+     * only while the transaction is active, and the loaded entities are managed by the session.
+     *
+     * @param object type of the class is passed, which is analogous to the table in the database.
+     * @return stream of all objects from the database table.
+     */
+    @SneakyThrows
+    @Override
+    public <T> Stream<T> stream(Class<T> object) {
+
+        Connection connection = transaction.getConnection();
+
+        SqlTemplates templates = sqlTemplates.getTemplates(object);
+        PreparedStatement preparedStatement = connection.prepareStatement(templates.getFindAll(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            preparedStatement.setFetchSize(FETCH_SIZE);
+
+            ResultSet resultSet = preparedStatement.executeQuery();
+
+            RowMapper<T> rowMapper = templates.getRowMapper();
+            return ResultSetStreams.of(preparedStatement, resultSet, rowMapper, streamResolver);
+        } catch (SQLException | RuntimeException e) {
+            closeFailed(preparedStatement, e);
+            throw e;
+        }
+    }
+
     /**
      * This method adds the object to the database.
      *
@@ -119,33 +398,65 @@ public class SessionImpl implements Session {
      * they indicate the relationship of objects on the side of the Java application.
      * If the CascadeType value "ALL" or "ADD" is present in the @OneToOne annotation,
      * then when adding an object to the database, an object that has a relationship with our object will also be added.
+     * The table is checked only for the first object of the class, see SchemaManager.
      */
     @SneakyThrows
     @Override
     public <T> boolean create(T object) {
 
-        Connection connection = transaction.getConnection();
-
-        if (!tableCreator.checkTableExists(connection, object.getClass())) {
-            connection.createStatement().execute(tableCreator.createTableIfNotExists(object));
-        }
+        schemaManager.ensureTable(transaction.getConnection(), object.getClass(), preparedTables);
 
-        PreparedStatement preparedStatement = connection.prepareStatement(String.format(
-                CREATE_SQL_QUERY,
-                tableMetaData.getTableName(object.getClass()),
-                columnMetaData.getColumnNames(object),
-                columnMetaData.getOperatorsFromFields(object)), Statement.RETURN_GENERATED_KEYS);
+        PreparedStatement preparedStatement = transaction.prepareStatement(
+                sqlTemplates.getTemplates(object.getClass()).getInsert(), Statement.RETURN_GENERATED_KEYS);
         fieldsMapper.setValuesFromFields(object, preparedStatement);
 
         fieldsMapper.setGeneratedKeyToObject(object, preparedStatement);
+        persistenceContext.add(object);
+        markChanged(object);
 
         declaredFieldsMetaData.getObjectsFromFieldsOneToOne(object, CascadeType.ALL, CascadeType.ADD).forEach(this::create);
 
         return true;
     }
 
+    /**
+     * This method adds all the objects to the database using JDBC batches.
+     * Objects are grouped by class, every group is written with one prepared INSERT statement
+     * in batches of "db.batch.size" rows, and the generated keys of each batch are assigned back to the objects.
+     * Objects related by @OneToOne with CascadeType "ALL" or "ADD" are collected from the whole group
+     * and added the same way, after their owners received their ids.
+     *
+     * @param objects java objects of the application, which should be recorded in the database.
+     */
+    @SneakyThrows
+    @Override
+    public <T> boolean createAll(Collection<T> objects) {
+
+        Map<Class<?>, List<Object>> objectsByClass = new LinkedHashMap<>();
+        for (T object : objects) {
+            objectsByClass.computeIfAbsent(object.getClass(), key -> new ArrayList<>()).add(object);
+        }
+
+        for (List<Object> group : objectsByClass.values()) {
+            insertBatch(group);
+            group.forEach(persistenceContext::add);
+            group.forEach(this::markChanged);
+
+            List<Object> cascaded = new ArrayList<>();
+            for (Object object : group) {
+                cascaded.addAll(declaredFieldsMetaData.getObjectsFromFieldsOneToOne(object, CascadeType.ALL, CascadeType.ADD));
+            }
+            if (!cascaded.isEmpty())
+                createAll(cascaded);
+        }
+        return true;
+    }
+
     /**
      * This method updates the record in the database according to the object that is passed to the method as a parameter.
+     * Every column of the object is written by the parameterized UPDATE of the entity class, null fields set
+     * their columns to NULL.
+     * Objects managed by this session are not written immediately, their changed columns are written by flush().
      *
      * @param object java application object that should update a record in a database table.
      */
@@ -153,32 +464,28 @@ public class SessionImpl implements Session {
     @Override
     public <T> void update(T object) {
 
-        StringBuilder columnAndValue = new StringBuilder();
-
-        Connection connection = transaction.getConnection();
+        if (persistenceContext.contains(object))
+            return;
 
-        List<Field> declaredFieldsForUpdate = declaredFieldsMetaData.getDeclaredFieldsForUpdate(object);
+        EntityModel model = EntityModelRegistry.getModel(object.getClass());
+        List<ColumnModel> columns = model.getInsertColumns();
 
-        for (int i = 0; i < declaredFieldsForUpdate.size(); i++) {
-            Field field = declaredFieldsForUpdate.get(i);
-            field.setAccessible(true);
-            columnAndValue.append(field.getName()).append(" = '").append(field.get(object)).append("'");
-            if (i < declaredFieldsForUpdate.size() - 1) {
-                columnAndValue.append(",");
-            }
+        PreparedStatement preparedStatement = transaction.prepareStatement(
+                sqlTemplates.getTemplates(object.getClass()).getUpdate());
+        for (int i = 0; i < columns.size(); i++) {
+            setParameter(preparedStatement, i + 1, columns.get(i).getColumnValue(object));
         }
-
-        connection.prepareStatement(String.format(
-                        UPDATE_SQL_QUERY,
-                        tableMetaData.getTableName(object.getClass()),
-                        columnAndValue,
-                        columnMetaData.getIdColumnValues(object))).execute();
+        preparedStatement.setObject(columns.size() + 1, model.getId(object));
+        preparedStatement.executeUpdate();
+        markChanged(object);
     }
 
     /**
-     * This method deletes an object from the database.
+     * This method deletes an object from the database with the parameterized DELETE of the entity class.
      * If the CascadeType value "ALL" or "REMOVE" is present in the @OneToOne annotation,
      * then when delete an object from the database, an object that has a relationship with our object will also be deleted.
+     * The same applies to the elements of a @OneToMany, and the join table rows of the object's @ManyToMany
+     * relations are deleted in any case.
      *
      * @param object java application object that should delete a record in a database table.
      */
@@ -186,23 +493,646 @@ public class SessionImpl implements Session {
     @Override
     public <T> void delete(T object) {
 
+        deleteDependents(object);
+
+        PreparedStatement preparedStatement = transaction.prepareStatement(
+                sqlTemplates.getTemplates(object.getClass()).getDelete());
+        preparedStatement.setObject(1, EntityModelRegistry.getModel(object.getClass()).getId(object));
+        preparedStatement.executeUpdate();
+
+        persistenceContext.remove(object);
+        markChanged(object);
+    }
+
+    /**
+     * This method writes the changes of the objects managed by this session, it is also called by Transaction.commit().
+     * Every managed object is compared with the snapshot taken when it was loaded, created or last flushed,
+     * and only its changed columns are updated. Objects of the same class with the same changed columns share
+     * one prepared UPDATE, which is executed in batches of "db.batch.size" rows.
+     * Collections are compared with the element ids they had when they were fetched or last flushed, only the added
+     * and removed elements are written, see flushCollections().
+     */
+    @SneakyThrows
+    @Override
+    public void flush() {
+
+        flushCollections();
+
+        Map<Class<?>, Map<List<ColumnModel>, List<PersistenceContext.EntityEntry>>> dirtyEntries = new LinkedHashMap<>();
+        for (PersistenceContext.EntityEntry entry : persistenceContext.getEntries()) {
+            List<ColumnModel> dirtyColumns = entry.getDirtyColumns();
+            if (dirtyColumns.isEmpty())
+                continue;
+
+            dirtyEntries.computeIfAbsent(entry.getModel().getEntityClass(), key -> new LinkedHashMap<>())
+                    .computeIfAbsent(List.copyOf(dirtyColumns), key -> new ArrayList<>())
+                    .add(entry);
+        }
+        for (Map.Entry<Class<?>, Map<List<ColumnModel>, List<PersistenceContext.EntityEntry>>> byClass : dirtyEntries.entrySet()) {
+            for (Map.Entry<List<ColumnModel>, List<PersistenceContext.EntityEntry>> byColumns : byClass.getValue().entrySet()) {
+                updateBatch(sqlTemplates.getUpdate(byClass.getKey(), byColumns.getKey()),
+                        byColumns.getKey(), byColumns.getValue());
+            }
+        }
+    }
+
+    /**
+     * This method loads the objects into the table with PostgreSQL COPY ... FROM STDIN.
+     * Objects are encoded in the COPY text format while the stream is consumed, so the stream is never held in memory.
+     * Unlike create(), the generated ids are not assigned to the objects and related objects are not cascaded.
+     *
+     * @param objectClass type of the class whose objects will be written to the database.
+     * @param objects     stream of objects, it is closed when the load is finished.
+     * @return number of rows loaded.
+     */
+    @SneakyThrows
+    @Override
+    public <T> long copyIn(Class<T> objectClass, Stream<T> objects) {
+
+        schemaManager.ensureTable(transaction.getConnection(), objectClass, preparedTables);
+
         Connection connection = transaction.getConnection();
+        CopySink sink = PgCopySink.open(connection, sqlTemplates.getTemplates(objectClass).getCopyIn());
+        markChanged(objectClass, null);
+        return new EntityCopyWriter<>(objectClass, sink).write(objects);
+    }
+
+    /*
+     * Inserts objects of the same class with one statement, executing it every BATCH_SIZE rows
+     * */
+    private void insertBatch(List<Object> objects) throws SQLException {
+        Object first = objects.get(0);
+
+        schemaManager.ensureTable(transaction.getConnection(), first.getClass(), preparedTables);
+
+        PreparedStatement preparedStatement = transaction.prepareStatement(
+                sqlTemplates.getTemplates(first.getClass()).getInsert(), Statement.RETURN_GENERATED_KEYS);
+
+        for (int from = 0; from < objects.size(); from += BATCH_SIZE) {
+            List<Object> batch = objects.subList(from, Math.min(from + BATCH_SIZE, objects.size()));
+
+            for (Object object : batch) {
+                fieldsMapper.setParametersFromFields(object, preparedStatement);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            fieldsMapper.setGeneratedKeysToObjects(batch, preparedStatement);
+        }
+    }
+
+    /**
+     * This method detaches all the objects managed by this session, the next lookups go to the database again.
+     */
+    @Override
+    public void clear() {
+        persistenceContext.clear();
+        batchFetchQueue.clear();
+    }
+
+    /*
+     * Updates the given columns of the entries with one statement, executing it every BATCH_SIZE rows
+     * */
+    private void updateBatch(String sql, List<ColumnModel> columns, List<PersistenceContext.EntityEntry> entries) throws SQLException {
+
+        PreparedStatement preparedStatement = transaction.prepareStatement(sql);
+        for (int from = 0; from < entries.size(); from += BATCH_SIZE) {
+            List<PersistenceContext.EntityEntry> batch = entries.subList(from, Math.min(from + BATCH_SIZE, entries.size()));
+
+            for (PersistenceContext.EntityEntry entry : batch) {
+                Object entity = entry.getEntity();
+                for (int i = 0; i < columns.size(); i++) {
+                    setParameter(preparedStatement, i + 1, columns.get(i).getColumnValue(entity));
+                }
+                preparedStatement.setObject(columns.size() + 1, entry.getModel().getId(entity));
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+        entries.forEach(PersistenceContext.EntityEntry::resetLoadedState);
+        entries.forEach(entry -> markChanged(entry.getEntity()));
+    }
+
+    /*
+     * Binds a null value with setNull(), so the column is set to NULL whatever its type
+     * */
+    private static void setParameter(PreparedStatement preparedStatement, int index, Object value) throws SQLException {
+        if (value == null)
+            preparedStatement.setNull(index, Types.NULL);
+        else
+            preparedStatement.setObject(index, value);
+    }
+
+    /*
+     * Reads the row of the entity from the second-level cache, or from the database and caches it.
+     * Either way the entity is hydrated into the persistence context, so the session gets its own instance
+     * */
+    private <T> T findCached(EntityRegion region, Class<T> object, Long key) throws SQLException {
+        EntityRowMapper<T> rowMapper = region.getRowMapper();
+
+        Object[] row = region.get(key);
+        if (row != null)
+            return rowMapper.hydrate(row, persistenceContext);
+
+        long versionAtRead = region.getVersion();
+        PreparedStatement preparedStatement = transaction.prepareStatement(
+                sqlTemplates.getTemplates(object).getFindById());
+        preparedStatement.setLong(1, key);
+
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            if (!resultSet.next())
+                return null;
+
+            row = rowMapper.extract(resultSet);
+        }
+        region.put(key, row, versionAtRead);
+        return rowMapper.hydrate(row, persistenceContext);
+    }
+
+    /*
+     * Reads the rows of findAll from the query cache, or from the database and caches them
+     * */
+    private <T> List<T> findAllCached(SqlTemplates templates, Class<T> object) throws SQLException {
+        EntityRowMapper<T> rowMapper = sqlTemplates.getSelectPlan(object).getRowMapper();
+
+        List<Object[]> rows = queryCache.get(templates.getFindAll(), List.of());
+        if (rows == null) {
+            Map<String, Long> versionsAtRead = queryCache.getVersions(templates.getTables());
+            PreparedStatement preparedStatement = transaction.prepareStatement(templates.getFindAll());
+
+            rows = new ArrayList<>();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(rowMapper.extract(resultSet));
+                }
+            }
+            queryCache.put(templates.getFindAll(), List.of(), versionsAtRead, rows);
+        }
 
+        List<T> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(rowMapper.hydrate(row, persistenceContext));
+        }
+        return result;
+    }
+
+    /*
+     * Like findAllCached(), the rows of the criteria are cached by its SQL and the values of its parameters
+     * */
+    private <T> List<T> listCached(Class<T> object, CompiledQuery query) throws SQLException {
+        EntityRowMapper<T> rowMapper = sqlTemplates.getSelectPlan(object).getRowMapper();
+
+        List<Object[]> rows = queryCache.get(query.getSql(), query.getParameters());
+        if (rows == null) {
+            Map<String, Long> versionsAtRead = queryCache.getVersions(query.getTables());
+            PreparedStatement preparedStatement = transaction.prepareStatement(query.getSql());
+            query.bind(preparedStatement);
+
+            rows = new ArrayList<>();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(rowMapper.extract(resultSet));
+                }
+            }
+            queryCache.put(query.getSql(), query.getParameters(), versionsAtRead, rows);
+        }
+
+        List<T> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(rowMapper.hydrate(row, persistenceContext));
+        }
+        return result;
+    }
+
+    /*
+     * Loads the entity of a lazy relation on the first access to its LazyReference. The relation is loaded
+     * together for up to FETCH_BATCH_SIZE keys queued by the other unloaded references, so iterating over the owners
+     * runs one query per batch instead of one per owner
+     * */
+    @SneakyThrows
+    private Object loadRelation(RelationModel relation, Object key) {
+        if (transaction == null || !transaction.isActive())
+            throw new LazyInitializationException("Relation " + relation.getField()
+                    + " can't be loaded, the session doesn't have an active transaction");
+
+        if (!batchFetchQueue.isLoaded(relation, key)) {
+            loadBatch(relation, batchFetchQueue.nextBatch(relation, key));
+            fetchCollections();
+        }
+        return batchFetchQueue.take(relation, key);
+    }
+
+    /*
+     * Reads the related entities of all the keys with one query: by id if the owner holds the join column,
+     * otherwise by the join column of the other side, which refers to the owner. Entities already managed by
+     * the session or cached in the second-level cache are not read, keys without a row are loaded as null
+     * */
+    private void loadBatch(RelationModel relation, List<Object> keys) throws SQLException {
+        Class<?> targetClass = relation.getTargetClass();
+
+        ColumnModel column;
+        String arrayType;
+        List<Object> missing = new ArrayList<>();
+        if (relation.isOwningSide()) {
+            column = EntityModelRegistry.getModel(targetClass).getIdColumn();
+            arrayType = foreignKeyMetaData.getForeignKeyType(relation.getField());
+
+            Optional<EntityRegion> region = secondLevelCache.getRegion(targetClass)
+                    .filter(found -> !hasPendingChanges(found));
+            for (Object key : keys) {
+                Object known = persistenceContext.get(targetClass, key);
+                Object[] row = known == null && region.isPresent() ? region.get().get(key) : null;
+                if (row != null)
+                    known = region.get().getRowMapper().hydrate(row, persistenceContext);
+
+                if (known != null)
+                    batchFetchQueue.loaded(relation, key, known);
+                else
+                    missing.add(key);
+            }
+        } else {
+            column = getMappedByColumn(relation);
+            arrayType = foreignKeyMetaData.getForeignKeyType(column.getField());
+            missing.addAll(keys);
+        }
+        if (missing.isEmpty())
+            return;
+
+        missing.forEach(key -> batchFetchQueue.loaded(relation, key, null));
+        for (Object entity : findAllByAny(targetClass, column, arrayType, missing.toArray())) {
+            batchFetchQueue.loaded(relation, column.getColumnValue(entity), entity);
+        }
+    }
+
+    /*
+     * Fills the collections of the entities hydrated since the last call, with one query per collection field
+     * for all the entities of a class, so the rows of the entities are not repeated for every element as by a join.
+     * Elements hydrated by these queries may have collections as well, they are filled by the next round
+     * */
+    private void fetchCollections() throws SQLException {
+        List<PersistenceContext.EntityEntry> pending = persistenceContext.takePendingCollections();
+        while (!pending.isEmpty()) {
+            Map<EntityModel, List<PersistenceContext.EntityEntry>> entriesByModel = new LinkedHashMap<>();
+            for (PersistenceContext.EntityEntry entry : pending) {
+                entriesByModel.computeIfAbsent(entry.getModel(), key -> new ArrayList<>()).add(entry);
+            }
+            for (Map.Entry<EntityModel, List<PersistenceContext.EntityEntry>> byModel : entriesByModel.entrySet()) {
+                for (RelationModel relation : byModel.getKey().getCollectionRelations()) {
+                    fetchCollection(byModel.getKey(), relation, byModel.getValue());
+                }
+            }
+            pending = persistenceContext.takePendingCollections();
+        }
+    }
+
+    /*
+     * The elements of a @OneToMany are read by the join column of the other side, the elements of a @ManyToMany
+     * by their ids taken from the join table, only the ones not managed yet
+     * */
+    private void fetchCollection(EntityModel model, RelationModel relation,
+                                 List<PersistenceContext.EntityEntry> owners) throws SQLException {
+        Map<Object, Collection<Object>> collections = new HashMap<>();
+        for (PersistenceContext.EntityEntry owner : owners) {
+            Collection<Object> collection = relation.newCollection();
+            relation.setValue(owner.getEntity(), collection);
+            collections.put(model.getId(owner.getEntity()), collection);
+        }
+        Object[] ownerIds = collections.keySet().toArray();
+        Class<?> targetClass = relation.getTargetClass();
+
+        if (relation.getType() == RelationType.ONE_TO_MANY) {
+            ColumnModel joinColumn = getMappedByColumn(relation);
+            for (Object element : findAllByAny(targetClass, joinColumn,
+                    foreignKeyMetaData.getForeignKeyType(joinColumn.getField()), ownerIds)) {
+                Collection<Object> collection = collections.get(joinColumn.getColumnValue(element));
+                // an element already managed may have been moved to another owner in memory
+                if (collection != null)
+                    collection.add(element);
+            }
+        } else {
+            PreparedStatement preparedStatement = transaction.prepareStatement(
+                    sqlTemplates.getJoinTableTemplates(relation).getSelect());
+            preparedStatement.setArray(1, createArray(JoinTableModel.COLUMN_TYPE, ownerIds));
+
+            List<Object[]> pairs = new ArrayList<>();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    pairs.add(new Object[]{resultSet.getObject(1), resultSet.getObject(2)});
+                }
+            }
+
+            Set<Object> missing = new LinkedHashSet<>();
+            for (Object[] pair : pairs) {
+                if (persistenceContext.get(targetClass, pair[1]) == null)
+                    missing.add(pair[1]);
+            }
+            if (!missing.isEmpty())
+                findAllByAny(targetClass, EntityModelRegistry.getModel(targetClass).getIdColumn(),
+                        JoinTableModel.COLUMN_TYPE, missing.toArray());
+
+            for (Object[] pair : pairs) {
+                Object element = persistenceContext.get(targetClass, pair[1]);
+                if (element != null)
+                    collections.get(pair[0]).add(element);
+            }
+        }
+        owners.forEach(owner -> owner.resetLoadedCollection(relation));
+    }
+
+    /*
+     * Reads the entities whose column has one of the values with one "= ANY(?)" query. Rows of a @Cacheable class
+     * are put into its region as well
+     * */
+    private List<Object> findAllByAny(Class<?> entityClass, ColumnModel column, String arrayType,
+                                      Object[] values) throws SQLException {
+        Optional<EntityRegion> region = secondLevelCache.getRegion(entityClass)
+                .filter(found -> !hasPendingChanges(found));
+        long versionAtRead = region.map(EntityRegion::getVersion).orElse(0L);
+
+        PreparedStatement preparedStatement = transaction.prepareStatement(
+                sqlTemplates.getFindByAny(entityClass, column));
+        preparedStatement.setArray(1, createArray(arrayType, values));
+
+        List<Object> result = new ArrayList<>();
+        RowMapper<?> rowMapper = sqlTemplates.getTemplates(entityClass).getRowMapper();
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                if (region.isEmpty()) {
+                    result.add(rowMapper.mapRow(resultSet, persistenceContext));
+                    continue;
+                }
+
+                EntityRowMapper<Object> cachedRowMapper = region.get().getRowMapper();
+                Object[] row = cachedRowMapper.extract(resultSet);
+                Object entity = cachedRowMapper.hydrate(row, persistenceContext);
+                region.get().put(EntityModelRegistry.getModel(entityClass).getId(entity), row, versionAtRead);
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * The driver resolves array element types by their PostgreSQL names, which are lower case
+     * */
+    private Array createArray(String sqlType, Object[] values) throws SQLException {
+        return transaction.getConnection().createArrayOf(sqlType.toLowerCase(Locale.ROOT), values);
+    }
+
+    /*
+     * The join column of the other side of a relation mapped by it
+     * */
+    private ColumnModel getMappedByColumn(RelationModel relation) {
+        return EntityModelRegistry.getModel(relation.getTargetClass()).findColumn(relation.getMappedBy())
+                .filter(ColumnModel::isJoinColumn)
+                .orElseThrow();
+    }
+
+    /*
+     * Writes the added and removed elements of the collections of the managed entities. New elements of
+     * a @OneToMany or an owning @ManyToMany with CascadeType ALL or ADD are created; the back reference of a
+     * @OneToMany element is set to the owner, or cleared when it is removed (the element is deleted instead with
+     * CascadeType ALL or REMOVE), the UPDATE of its join column is then written by the dirty check.
+     * Rows of a join table are inserted and deleted in batches. The mappedBy side of a @ManyToMany is not written,
+     * its changes have to be made on the owning side. Entities created here may have collections of their own,
+     * so the collections are compared again until nothing is created
+     * */
+    private void flushCollections() throws SQLException {
+        boolean created = true;
+        while (created) {
+            List<Object> newElements = new ArrayList<>();
+            Map<RelationModel, List<Object[]>> insertedPairs = new LinkedHashMap<>();
+            Map<RelationModel, List<Object[]>> deletedPairs = new LinkedHashMap<>();
+            List<Object> orphans = new ArrayList<>();
+            List<Runnable> snapshots = new ArrayList<>();
+
+            for (PersistenceContext.EntityEntry entry : new ArrayList<>(persistenceContext.getEntries())) {
+                for (RelationModel relation : entry.getModel().getCollectionRelations()) {
+                    if (relation.getType() == RelationType.MANY_TO_MANY && relation.isMappedBy())
+                        continue;
+
+                    List<Object> added = entry.getAddedElements(relation);
+                    Set<Object> removed = entry.getRemovedIds(relation);
+                    if (added.isEmpty() && removed.isEmpty())
+                        continue;
+
+                    Object owner = entry.getEntity();
+                    Object ownerId = entry.getModel().getId(owner);
+                    for (Object element : added) {
+                        if (EntityModelRegistry.getModel(relation.getTargetClass()).getId(element) == null) {
+                            if (!relation.hasCascade(CascadeType.ALL, CascadeType.ADD))
+                                throw new TransientEntityException(relation.getField() + " holds a new "
+                                        + relation.getTargetClass().getSimpleName()
+                                        + ", which has to be created first or cascaded with CascadeType.ADD");
+                            newElements.add(element);
+                        }
+                    }
+
+                    if (relation.getType() == RelationType.ONE_TO_MANY)
+                        collectChildChanges(relation, owner, ownerId, added, removed, orphans);
+                    else
+                        collectPairChanges(relation, ownerId, added, removed, insertedPairs, deletedPairs);
+                    snapshots.add(() -> entry.resetLoadedCollection(relation));
+                }
+            }
+
+            if (!newElements.isEmpty())
+                createAll(newElements);
+            for (Map.Entry<RelationModel, List<Object[]>> pairs : deletedPairs.entrySet()) {
+                executeJoinTableBatch(sqlTemplates.getJoinTableTemplates(pairs.getKey()).getDelete(),
+                        pairs.getKey(), pairs.getValue());
+            }
+            for (Map.Entry<RelationModel, List<Object[]>> pairs : insertedPairs.entrySet()) {
+                executeJoinTableBatch(sqlTemplates.getJoinTableTemplates(pairs.getKey()).getInsert(),
+                        pairs.getKey(), pairs.getValue());
+            }
+            if (!orphans.isEmpty())
+                deleteBatch(orphans);
+            snapshots.forEach(Runnable::run);
+
+            created = !newElements.isEmpty();
+        }
+    }
+
+    private void collectChildChanges(RelationModel relation, Object owner, Object ownerId, List<Object> added,
+                                     Set<Object> removed, List<Object> orphans) {
+        Class<?> targetClass = relation.getTargetClass();
+        RelationModel backReference = EntityModelRegistry.getModel(targetClass)
+                .findRelation(relation.getMappedBy())
+                .orElseThrow();
+        ColumnModel joinColumn = getMappedByColumn(relation);
+
+        for (Object child : added) {
+            if (!Objects.equals(joinColumn.getColumnValue(child), ownerId))
+                backReference.setTarget(child, owner);
+            // a detached child isn't compared by the dirty check, so its join column is written at once
+            if (EntityModelRegistry.getModel(targetClass).getId(child) != null && !persistenceContext.contains(child))
+                update(child);
+        }
+        for (Object id : removed) {
+            Object child = persistenceContext.get(targetClass, id);
+            if (child == null)
+                continue;
+
+            if (relation.hasCascade(CascadeType.ALL, CascadeType.REMOVE))
+                orphans.add(child);
+            else if (Objects.equals(joinColumn.getColumnValue(child), ownerId))
+                backReference.setTarget(child, null);
+        }
+    }
+
+    private void collectPairChanges(RelationModel relation, Object ownerId, List<Object> added, Set<Object> removed,
+                                    Map<RelationModel, List<Object[]>> insertedPairs,
+                                    Map<RelationModel, List<Object[]>> deletedPairs) {
+        for (Object element : added) {
+            insertedPairs.computeIfAbsent(relation, key -> new ArrayList<>()).add(new Object[]{ownerId, element});
+        }
+        for (Object id : removed) {
+            deletedPairs.computeIfAbsent(relation, key -> new ArrayList<>()).add(new Object[]{ownerId, id});
+        }
+    }
+
+    /*
+     * Executes the statement of the join table for the pairs (owner id, element or element id), every BATCH_SIZE pairs
+     * */
+    private void executeJoinTableBatch(String sql, RelationModel relation, List<Object[]> pairs) throws SQLException {
+        EntityModel elementModel = EntityModelRegistry.getModel(relation.getTargetClass());
+
+        PreparedStatement preparedStatement = transaction.prepareStatement(sql);
+        for (int from = 0; from < pairs.size(); from += BATCH_SIZE) {
+            for (Object[] pair : pairs.subList(from, Math.min(from + BATCH_SIZE, pairs.size()))) {
+                Object element = pair[1];
+                preparedStatement.setObject(1, pair[0]);
+                preparedStatement.setObject(2, elementModel.getEntityClass().isInstance(element)
+                        ? elementModel.getId(element) : element);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    /*
+     * Deletes what has to go before the row of the object: objects cascaded by @OneToOne and @OneToMany
+     * with CascadeType ALL or REMOVE, and the rows of the join tables referring to the object
+     * */
+    private void deleteDependents(Object object) throws SQLException {
         declaredFieldsMetaData.getObjectsFromFieldsOneToOne(object, CascadeType.ALL, CascadeType.REMOVE).forEach(this::delete);
 
-        connection.prepareStatement(String.format(
-                        DELETE_SQL_QUERY,
-                        tableMetaData.getTableName(object.getClass()),
-                        columnMetaData.getIdColumnValues(object))).execute();
+        EntityModel model = EntityModelRegistry.getModel(object.getClass());
+        for (RelationModel relation : model.getCollectionRelations()) {
+            if (relation.getType() == RelationType.ONE_TO_MANY) {
+                if (relation.hasCascade(CascadeType.ALL, CascadeType.REMOVE))
+                    new ArrayList<>(relation.getElements(object)).forEach(this::delete);
+                continue;
+            }
+
+            JoinTableTemplates joinTable = sqlTemplates.getJoinTableTemplates(relation);
+            PreparedStatement preparedStatement = transaction.prepareStatement(joinTable.getDeleteAll());
+            preparedStatement.setObject(1, model.getId(object));
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    /*
+     * Deletes objects of the same class with one statement, executing it every BATCH_SIZE rows
+     * */
+    private void deleteBatch(List<Object> objects) throws SQLException {
+        Map<Class<?>, List<Object>> objectsByClass = new LinkedHashMap<>();
+        for (Object object : objects) {
+            deleteDependents(object);
+            objectsByClass.computeIfAbsent(object.getClass(), key -> new ArrayList<>()).add(object);
+        }
+
+        for (Map.Entry<Class<?>, List<Object>> group : objectsByClass.entrySet()) {
+            EntityModel model = EntityModelRegistry.getModel(group.getKey());
+            List<Object> classObjects = group.getValue();
+
+            PreparedStatement preparedStatement = transaction.prepareStatement(
+                    sqlTemplates.getTemplates(group.getKey()).getDelete());
+            for (int from = 0; from < classObjects.size(); from += BATCH_SIZE) {
+                for (Object object : classObjects.subList(from, Math.min(from + BATCH_SIZE, classObjects.size()))) {
+                    preparedStatement.setObject(1, model.getId(object));
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+            }
+            classObjects.forEach(persistenceContext::remove);
+            classObjects.forEach(this::markChanged);
+        }
+    }
+
+    /*
+     * The query cache is bypassed while the transaction has uncommitted writes to any of the tables
+     * */
+    private boolean hasPendingChanges(Set<String> tables) {
+        for (Class<?> entityClass : pendingInvalidations.keySet()) {
+            if (tables.contains(EntityModelRegistry.getModel(entityClass).getTableNameWithoutSchema()))
+                return true;
+        }
+        return false;
+    }
+
+    /*
+     * The region is bypassed while the transaction has uncommitted writes to any of its tables,
+     * so other sessions never see them and this session sees its own writes
+     * */
+    private boolean hasPendingChanges(EntityRegion region) {
+        for (Class<?> entityClass : region.getEntityClasses()) {
+            if (pendingInvalidations.containsKey(entityClass))
+                return true;
+        }
+        return false;
+    }
+
+    private void markChanged(Object entity) {
+        EntityModel model = EntityModelRegistry.getModel(entity.getClass());
+        markChanged(entity.getClass(), model.hasId() ? model.getId(entity) : null);
+    }
+
+    private void markChanged(Class<?> entityClass, Object id) {
+        pendingInvalidations.computeIfAbsent(entityClass, key -> new HashSet<>()).add(id);
+    }
+
+    /*
+     * Registers the tables prepared by the transaction, forgets the keys of its batch fetching and invalidates
+     * the rows it wrote
+     * */
+    private void afterCommit() {
+        schemaManager.register(preparedTables);
+        preparedTables.clear();
+        batchFetchQueue.clear();
+        invalidateCommitted();
+    }
+
+    private void afterRollback() {
+        preparedTables.clear();
+        pendingInvalidations.clear();
+        batchFetchQueue.clear();
+    }
+
+    private void invalidateCommitted() {
+        secondLevelCache.invalidate(pendingInvalidations);
+        queryCache.invalidateTables(pendingInvalidations.keySet().stream()
+                .map(entityClass -> EntityModelRegistry.getModel(entityClass).getTableNameWithoutSchema())
+                .collect(Collectors.toSet()));
+        pendingInvalidations.clear();
     }
 
     @Override
     public void close() {
-        transaction.close();
+        persistenceContext.clear();
+        batchFetchQueue.clear();
+        if (transaction != null)
+            transaction.close();
     }
 
+    /**
+     * This method rolls back the current transaction. The persistence context is cleared as well,
+     * because it may hold objects whose rows were never committed.
+     */
     @Override
     public void cancelQuery() {
         transaction.rollback();
+        persistenceContext.clear();
+        batchFetchQueue.clear();
     }
 }
@@ -1,51 +1,75 @@
 package com.custom.orm.sessions;
 
+import com.custom.orm.connection.ConnectionProvider;
+import com.custom.orm.connection.ConnectionProviders;
+import com.custom.orm.connection.StatementCache;
 import com.custom.orm.exceptions.ConnectionSQLException;
-import com.custom.orm.exceptions.PropertyNotFoundException;
-import com.custom.orm.util.PropertiesReader;
+import com.custom.orm.util.OrmProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.sql.*;
-import java.util.Properties;
 
 
 public class Transaction {
 
     private final Logger log = LoggerFactory.getLogger(Transaction.class);
 
+    private static final Runnable NOTHING = () -> {
+    };
 
-    private static final Properties properties;
+    private static final int STATEMENT_CACHE_SIZE = OrmProperties.getInt("db.statement.cacheSize", 64);
 
-    static {
-        try {
-            properties = PropertiesReader.getProperties("app.properties");
-        } catch (IOException e) {
-            throw new PropertyNotFoundException(e);
-        }
-    }
+    private final ConnectionProvider connectionProvider;
+
+    private final Runnable beforeCommit;
 
-    private static final String DB_URL = properties.getProperty("db.url");
-    private static final String USER = properties.getProperty("db.username");
-    private static final String PASS = properties.getProperty("db.password");
+    private final Runnable afterCommit;
+
+    private final Runnable afterRollback;
 
     private Connection connection = null;
 
-    // starts new connection
+    private StatementCache statementCache = null;
+
+    public Transaction() {
+        this(ConnectionProviders.getDefault());
+    }
+
+    public Transaction(ConnectionProvider connectionProvider) {
+        this(connectionProvider, NOTHING, NOTHING, NOTHING);
+    }
+
+    /*
+     * beforeCommit is run by commit() before the connection is committed, the session uses it to flush its changes,
+     * afterCommit once the commit succeeded and afterRollback after rollback()
+     * */
+    Transaction(ConnectionProvider connectionProvider, Runnable beforeCommit, Runnable afterCommit,
+                Runnable afterRollback) {
+        this.connectionProvider = connectionProvider;
+        this.beforeCommit = beforeCommit;
+        this.afterCommit = afterCommit;
+        this.afterRollback = afterRollback;
+    }
+
+    // borrows a connection from the pool
     public void begin() {
         log.info("Starting connection...");
         try {
-            connection = DriverManager.getConnection(DB_URL, USER, PASS);
+            connection = connectionProvider.getConnection();
             connection.setAutoCommit(false);
+            statementCache = new StatementCache(connection, STATEMENT_CACHE_SIZE);
             log.info("Connection was successfully started: " + connection);
         } catch (SQLException e) {
             throw new ConnectionSQLException(e);
         }
     }
 
-    // closing connection after saving applied changes
+    // flushes pending changes of the session and saves them, then the session invalidates the second-level cache;
+    // the connection stays open until close()
     public void commit() {
+        beforeCommit.run();
+
         log.info("Committing connection...");
         try {
             connection.commit();
@@ -53,6 +77,8 @@ public class Transaction {
         } catch (SQLException e) {
             throw new ConnectionSQLException(e);
         }
+
+        afterCommit.run();
     }
 
     public void rollback() {
@@ -62,20 +88,57 @@ public class Transaction {
             log.info("Connection was successfully rollbacked: " + connection + "\n");
         } catch (SQLException e) {
             throw new ConnectionSQLException(e);
+        } finally {
+            afterRollback.run();
         }
     }
 
-    // closing connection without saving applied changes
+    // closes the cached statements and returns the connection to the pool, uncommitted changes are rolled back by the pool
     public void close() {
+        if (!isActive())
+            return;
+
         log.info("Closing connection");
+        try (Connection closing = connection) {
+            statementCache.close();
+        } catch (SQLException e) {
+            throw new ConnectionSQLException(e);
+        } finally {
+            connection = null;
+        }
+        log.info("Connection was successfully returned to the pool\n");
+    }
+
+    /**
+     * This method returns a prepared statement of the transaction's connection without generated keys.
+     * Statements are cached by the transaction (up to "db.statement.cacheSize"), so the caller must not close them.
+     */
+    public PreparedStatement prepareStatement(String sql) {
+        return prepareStatement(sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * This method returns a cached prepared statement for the SQL text and generated-keys mode.
+     */
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) {
         try {
-            connection.close();
-            log.info("Connection was successfully closed\n");
+            return statementCache.prepareStatement(sql, autoGeneratedKeys);
         } catch (SQLException e) {
             throw new ConnectionSQLException(e);
         }
     }
 
+    /**
+     * This method returns the statement cache of the current connection with its hit, miss and eviction counts.
+     */
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    public boolean isActive() {
+        return connection != null;
+    }
+
     public Connection getConnection() {
         return connection;
     }
@@ -0,0 +1,123 @@
+package com.custom.orm.util;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Query;
+import com.custom.orm.exceptions.CustomClassNotFoundException;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+@UtilityClass
+public class EntityScanner {
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String FILE_PROTOCOL = "file";
+    private static final String JAR_PROTOCOL = "jar";
+    private static final char DOT = '.';
+    private static final char SLASH = '/';
+
+    /**
+     * This method returns the classes annotated with @Entity in the given package and its sub-packages,
+     * sorted by name. Both directories and jar files of the class path are scanned,
+     * the classes are loaded without being initialized.
+     */
+    public Set<Class<?>> scan(String packageName) {
+        Set<Class<?>> entityClasses = new LinkedHashSet<>();
+        for (Class<?> candidate : scanClasses(packageName)) {
+            if (candidate.isAnnotationPresent(Entity.class))
+                entityClasses.add(candidate);
+        }
+        return entityClasses;
+    }
+
+    /**
+     * This method returns the interfaces of the given package and its sub-packages that declare
+     * at least one method annotated with @Query, sorted by name.
+     */
+    public Set<Class<?>> scanRepositories(String packageName) {
+        Set<Class<?>> repositories = new LinkedHashSet<>();
+        for (Class<?> candidate : scanClasses(packageName)) {
+            if (candidate.isInterface() && Arrays.stream(candidate.getDeclaredMethods())
+                    .anyMatch(method -> method.isAnnotationPresent(Query.class)))
+                repositories.add(candidate);
+        }
+        return repositories;
+    }
+
+    @SneakyThrows
+    private Set<Class<?>> scanClasses(String packageName) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null)
+            classLoader = EntityScanner.class.getClassLoader();
+
+        String path = packageName.replace(DOT, SLASH);
+        Set<String> classNames = new TreeSet<>();
+
+        Enumeration<URL> resources = classLoader.getResources(path);
+        while (resources.hasMoreElements()) {
+            URL resource = resources.nextElement();
+            if (FILE_PROTOCOL.equals(resource.getProtocol()))
+                scanDirectory(Paths.get(resource.toURI()), packageName, classNames);
+            else if (JAR_PROTOCOL.equals(resource.getProtocol()))
+                scanJar(resource, path, classNames);
+        }
+
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (String className : classNames) {
+            classes.add(loadClass(className, classLoader));
+        }
+        return classes;
+    }
+
+    private void scanDirectory(Path directory, String packageName, Set<String> classNames) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.map(file -> directory.relativize(file).toString())
+                    .filter(EntityScanner::isClassFile)
+                    .forEach(file -> classNames.add(packageName + DOT + toClassName(file.replace(File.separatorChar, SLASH))));
+        }
+    }
+
+    private void scanJar(URL resource, String path, Set<String> classNames) throws IOException {
+        JarURLConnection connection = (JarURLConnection) resource.openConnection();
+        connection.setUseCaches(false);
+
+        try (JarFile jarFile = connection.getJarFile()) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.startsWith(path + SLASH) && isClassFile(name))
+                    classNames.add(toClassName(name));
+            }
+        }
+    }
+
+    /*
+     * Skips package-info and module-info, their names are not valid class names
+     * */
+    private boolean isClassFile(String name) {
+        return name.endsWith(CLASS_SUFFIX) && !name.contains("-");
+    }
+
+    private String toClassName(String file) {
+        return file.substring(0, file.length() - CLASS_SUFFIX.length()).replace(SLASH, DOT);
+    }
+
+    private Class<?> loadClass(String className, ClassLoader classLoader) {
+        try {
+            return Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new CustomClassNotFoundException(e);
+        }
+    }
+}
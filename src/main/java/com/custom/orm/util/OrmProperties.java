@@ -0,0 +1,53 @@
+package com.custom.orm.util;
+
+import com.custom.orm.exceptions.PropertyNotFoundException;
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.util.Properties;
+
+@UtilityClass
+public class OrmProperties {
+
+    private static final String PROPERTIES_FILE = "app.properties";
+
+    private final Properties properties = load();
+
+    /*
+     * Returns the value of the property or throws PropertyNotFoundException if it is not specified.
+     * */
+    public String getString(String key) {
+        String value = properties.getProperty(key);
+        if (value == null)
+            throw new PropertyNotFoundException("Property \"" + key + "\" is not specified in " + PROPERTIES_FILE);
+        return value.trim();
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    private Properties load() {
+        try {
+            return PropertiesReader.getProperties(PROPERTIES_FILE);
+        } catch (IOException e) {
+            throw new PropertyNotFoundException(e);
+        }
+    }
+}
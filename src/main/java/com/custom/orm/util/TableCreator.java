@@ -1,26 +1,26 @@
 package com.custom.orm.util;
 
-import com.custom.orm.annotations.Column;
-import com.custom.orm.annotations.ComposedPrimaryKey;
 import com.custom.orm.annotations.Entity;
-import com.custom.orm.annotations.relations.JoinColumn;
-import com.custom.orm.annotations.relations.ManyToOne;
-import com.custom.orm.annotations.relations.OneToMany;
-import com.custom.orm.annotations.relations.OneToOne;
 import com.custom.orm.exceptions.EntityNotFoundException;
 import com.custom.orm.metadata.*;
 import com.custom.orm.metadata.implementation.*;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.JoinTableModel;
+import com.custom.orm.metadata.model.RelationModel;
 import org.apache.commons.lang3.StringUtils;
 import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Arrays;
 
 public class TableCreator {
 
     private static final String CREATE_TABLE_QUERY = "CREATE TABLE IF NOT EXISTS %s (%s%s, %s);";
+    private static final String DROP_TABLE_QUERY = "DROP TABLE IF EXISTS %s;";
+    private static final String CREATE_JOIN_TABLE_QUERY = "CREATE TABLE IF NOT EXISTS %s (%s %s NOTNULL, %s %s NOTNULL, "
+            + "CONSTRAINT pk_%s PRIMARY KEY (%s, %s), %s, %s);";
     private static final String FOREIGN_KEY_QUERY = "CONSTRAINT %s FOREIGN KEY (%s) REFERENCES %s(%s)";
     private static final String PRIMARY_KEY_QUERY = "CONSTRAINT pk_%s PRIMARY KEY (%s)";
     private static final String EMPTY_LINE = StringUtils.EMPTY;
@@ -41,7 +41,13 @@ public class TableCreator {
      * primary key and foreign key. It composes SQL-query, produced by other methods.
      */
     public <T> String createTableIfNotExists(T entity) {
-        Class<?> entityClass = entity.getClass();
+        return createTableIfNotExists(entity.getClass());
+    }
+
+    /**
+     * This method returns the same SQL-query as createTableIfNotExists(entity), only by the class of the entity.
+     */
+    public String createTableIfNotExists(Class<?> entityClass) {
         StringBuilder result = new StringBuilder();
 
         if (!entityClass.isAnnotationPresent(Entity.class))
@@ -58,6 +64,37 @@ public class TableCreator {
         return result.toString();
     }
 
+    /**
+     * This method returns SQL-query that drops the table of the entity. Tables referencing it have to be dropped first.
+     */
+    public String dropTableIfExists(Class<?> entityClass) {
+        return String.format(DROP_TABLE_QUERY, tableMetaData.getTableName(entityClass));
+    }
+
+    /**
+     * This method returns SQL-query that creates the join table of the owning side of a @ManyToMany.
+     * Both columns are foreign keys, together they are the primary key, so a pair can't be stored twice.
+     */
+    public String createJoinTableIfNotExists(RelationModel relation) {
+        JoinTableModel joinTable = relation.getJoinTable();
+        Class<?> ownerClass = relation.getField().getDeclaringClass();
+        Class<?> targetClass = relation.getTargetClass();
+
+        return String.format(CREATE_JOIN_TABLE_QUERY, joinTable.getName(),
+                joinTable.getJoinColumn(), JoinTableModel.COLUMN_TYPE,
+                joinTable.getInverseJoinColumn(), JoinTableModel.COLUMN_TYPE,
+                joinTable.getName(), joinTable.getJoinColumn(), joinTable.getInverseJoinColumn(),
+                getJoinTableForeignKeyQuery(joinTable, joinTable.getJoinColumn(), ownerClass),
+                getJoinTableForeignKeyQuery(joinTable, joinTable.getInverseJoinColumn(), targetClass));
+    }
+
+    /**
+     * This method returns SQL-query that drops the join table of the owning side of a @ManyToMany.
+     */
+    public String dropJoinTableIfExists(RelationModel relation) {
+        return String.format(DROP_TABLE_QUERY, relation.getJoinTable().getName());
+    }
+
     /**
      * This method returns part of the SQL-query, that specifies foreign key creation. It creates foreign key as a separate
      * constraints and specifies its name. SQL-query will be returned only if entities are properly mapped with @JoinColumn.
@@ -83,24 +120,23 @@ public class TableCreator {
         return result.toString();
     }
 
+    private String getJoinTableForeignKeyQuery(JoinTableModel joinTable, String column, Class<?> referenceClass) {
+        return String.format(FOREIGN_KEY_QUERY, "fk_" + joinTable.getName() + "_" + column, column,
+                tableMetaData.getTableName(referenceClass), columnMetaData.getIdColumnName(referenceClass));
+    }
+
     /**
      * This method returns part of SQL-query that specifies names, types and constraints
      * (except primary key and foreign key) of the table's columns.
      */
     private <T> StringBuilder getTableNamesTypesConstraintsQuery(Class<T> entityClass) {
         StringBuilder result = new StringBuilder();
-        for (Field field : entityClass.getDeclaredFields()) {
-            if ((field.isAnnotationPresent(OneToOne.class) ||
-                    field.isAnnotationPresent(OneToMany.class) ||
-                    field.isAnnotationPresent(ManyToOne.class)) &&
-                    !field.isAnnotationPresent(JoinColumn.class))
-                continue;
-
-            result.append(String.format("%s %s %s, ", columnMetaData.getColumnName(field),
-                    columnMetaData.getColumnType(field),
-                    getConstraints(field)));
-
-            if (getConstraints(field).isEmpty())
+        for (ColumnModel column : EntityModelRegistry.getModel(entityClass).getColumns()) {
+            result.append(String.format("%s %s %s, ", column.getName(),
+                    column.getSqlType(),
+                    getConstraints(column)));
+
+            if (getConstraints(column).isEmpty())
                 trimGetTableNamesTypesConstraintsQuery(result);
         }
         return result;
@@ -111,8 +147,7 @@ public class TableCreator {
      */
     private String getPrimaryKeyQuery(Class<?> entityClass) {
 
-        if (Arrays.stream(entityClass.getDeclaredFields())
-                .anyMatch(field -> field.isAnnotationPresent(ComposedPrimaryKey.class)))
+        if (EntityModelRegistry.getModel(entityClass).hasComposedPrimaryKey())
             return String.format(PRIMARY_KEY_QUERY, tableMetaData.getTableNameWithoutSchema(entityClass),
                     pkMetaData.getComposedPrimaryKeyColumnsNames(entityClass));
 
@@ -124,17 +159,13 @@ public class TableCreator {
      * This method returns parts of SQL-query, that specifies constraints for each column. You can specify necessary
      * constraints in @Column.
      */
-    private String getConstraints(Field field) {
-        if (!field.isAnnotationPresent(Column.class))
-            return EMPTY_LINE;
-
+    private String getConstraints(ColumnModel column) {
         StringBuilder constraintQuery = new StringBuilder();
-        Column column = field.getAnnotation(Column.class);
 
-        if (!column.nullable())
+        if (!column.isNullable())
             constraintQuery.append(NOT_NULL);
 
-        if (column.unique())
+        if (column.isUnique())
             constraintQuery.append(UNIQUE);
 
         return constraintQuery.toString();
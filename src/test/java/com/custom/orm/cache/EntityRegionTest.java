@@ -0,0 +1,115 @@
+package com.custom.orm.cache;
+
+import com.custom.orm.annotations.Cacheable;
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Id;
+import com.custom.orm.annotations.relations.JoinColumn;
+import com.custom.orm.annotations.relations.OneToOne;
+import com.custom.orm.enums.CascadeType;
+import com.custom.orm.mapper.SelectPlan;
+import com.custom.orm.mapper.SqlTemplateCache;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class EntityRegionTest {
+
+    private final AtomicLong time = new AtomicLong();
+
+    private final EntityRegion region = new EntityRegion(Holder.class, SelectPlan.of(Holder.class), 2, 100,
+            time::get);
+
+    @Test
+    public void rowIsReturnedAsCopy() {
+        Object[] row = {1L, "Stepan"};
+        region.put(1L, row, region.getVersion());
+        row[1] = "changed";
+
+        Object[] cached = region.get(1L);
+        cached[0] = 2L;
+
+        assertArrayEquals(new Object[]{1L, "Stepan"}, region.get(1L));
+        assertEquals(2, region.getStatistics().getHits());
+    }
+
+    @Test
+    public void leastRecentlyUsedRowIsEvicted() {
+        region.put(1L, new Object[]{1L}, region.getVersion());
+        region.put(2L, new Object[]{2L}, region.getVersion());
+        region.get(1L);
+        region.put(3L, new Object[]{3L}, region.getVersion());
+
+        assertNotNull(region.get(1L));
+        assertNull(region.get(2L));
+        assertEquals(2, region.size());
+        assertEquals(1, region.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void expiredRowIsMissing() {
+        region.put(1L, new Object[]{1L}, region.getVersion());
+        time.set(101);
+
+        assertNull(region.get(1L));
+        assertEquals(1, region.getStatistics().getExpirations());
+        assertEquals(0.0, region.getStatistics().getHitRate(), 0.0);
+    }
+
+    @Test
+    public void rowReadBeforeInvalidationIsNotCached() {
+        long versionAtRead = region.getVersion();
+        region.evict(1L);
+        region.put(1L, new Object[]{1L}, versionAtRead);
+
+        assertNull(region.get(1L));
+        assertEquals(0, region.getStatistics().getPuts());
+    }
+
+    @Test
+    public void regionDependsOnJoinedEntities() {
+        assertTrue(region.dependsOn(Holder.class));
+        assertTrue(region.dependsOn(Passport.class));
+        assertFalse(region.dependsOn(String.class));
+    }
+
+    @Test
+    public void invalidationOfJoinedEntityClearsDependentRegion() {
+        SecondLevelCache cache = new SecondLevelCache(new SqlTemplateCache());
+        EntityRegion passports = cache.getRegion(Passport.class).orElseThrow();
+        passports.put(5L, new Object[]{5L, "BC254125", 1L, "Stepan"}, passports.getVersion());
+        passports.put(6L, new Object[]{6L, "BC254126", 2L, "Ivan"}, passports.getVersion());
+
+        cache.invalidate(Holder.class, 1L);
+
+        assertEquals(0, passports.size());
+        assertFalse(cache.isCacheable(Holder.class));
+    }
+
+    @Entity
+    static class Holder {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        @OneToOne(mappedBy = "holder", cascade = CascadeType.ALL)
+        private Passport passport;
+    }
+
+    @Entity
+    @Cacheable
+    static class Passport {
+
+        @Id
+        private Long id;
+
+        private String number;
+
+        @OneToOne
+        @JoinColumn(name = "holder_id")
+        private Holder holder;
+    }
+}
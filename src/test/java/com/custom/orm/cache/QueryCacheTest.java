@@ -0,0 +1,58 @@
+package com.custom.orm.cache;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class QueryCacheTest {
+
+    private static final String SQL = "SELECT t.id AS t_id FROM t WHERE t.id > ?";
+
+    private final QueryCache queryCache = new QueryCache();
+
+    private final List<Object[]> rows = List.of(new Object[]{1L}, new Object[]{2L});
+
+    @Test
+    public void resultIsKeyedBySqlAndParameters() {
+        queryCache.put(SQL, List.of(0L), queryCache.getVersions(Set.of("t")), rows);
+
+        assertSame(rows.get(0), queryCache.get(SQL, List.of(0L)).get(0));
+        assertNull(queryCache.get(SQL, List.of(1L)));
+    }
+
+    @Test
+    public void changeOfTableInvalidatesResult() {
+        queryCache.put(SQL, List.of(0L), queryCache.getVersions(Set.of("t", "u")), rows);
+
+        queryCache.invalidateTables(Set.of("u"));
+
+        assertNull(queryCache.get(SQL, List.of(0L)));
+        assertEquals(0, queryCache.size());
+    }
+
+    @Test
+    public void resultReadBeforeChangeIsNotCached() {
+        Map<String, Long> versionsAtRead = queryCache.getVersions(Set.of("t"));
+        queryCache.invalidateTables(Set.of("t"));
+
+        queryCache.put(SQL, List.of(0L), versionsAtRead, rows);
+
+        assertNull(queryCache.get(SQL, List.of(0L)));
+    }
+
+    @Test
+    public void expiredResultIsMissing() {
+        long now = System.nanoTime();
+        queryCache.setTicker(() -> now);
+        queryCache.put(SQL, List.of(0L), queryCache.getVersions(Set.of("t")), rows);
+
+        queryCache.setTicker(() -> now + TimeUnit.DAYS.toNanos(1));
+
+        assertNull(queryCache.get(SQL, List.of(0L)));
+    }
+}
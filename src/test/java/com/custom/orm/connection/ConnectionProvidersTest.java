@@ -0,0 +1,36 @@
+package com.custom.orm.connection;
+
+import com.custom.orm.sessions.Transaction;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConnectionProvidersTest {
+
+    private final FakeConnectionProvider connectionProvider = new FakeConnectionProvider();
+
+    @After
+    public void reset() {
+        ConnectionProviders.setDefault(null);
+    }
+
+    @Test
+    public void registeredProviderIsDefault() {
+        ConnectionProviders.setDefault(connectionProvider);
+
+        assertSame(connectionProvider, ConnectionProviders.getDefault());
+    }
+
+    @Test
+    public void transactionWithoutProviderBorrowsFromDefault() {
+        ConnectionProviders.setDefault(connectionProvider);
+
+        Transaction transaction = new Transaction();
+        transaction.begin();
+        assertEquals(1, connectionProvider.getOpenConnections());
+
+        transaction.close();
+        assertEquals(0, connectionProvider.getOpenConnections());
+    }
+}
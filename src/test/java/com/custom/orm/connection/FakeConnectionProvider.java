@@ -0,0 +1,312 @@
+package com.custom.orm.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection provider of the tests that need JDBC without a database. Its connections record every statement,
+ * bound parameter, batch, transaction call and closed statement or result in one log, queries return the rows added for a fragment of their SQL,
+ * INSERT batches return generated keys 1, 2, 3 ... and the catalogue returns the columns added for a table.
+ */
+public class FakeConnectionProvider implements ConnectionProvider {
+
+    private final List<String> log = Collections.synchronizedList(new ArrayList<>());
+
+    private final Map<String, List<Object[]>> rows = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private final Map<String, List<String>> tableColumns = Collections.synchronizedMap(new HashMap<>());
+
+    private final AtomicLong nextKey = new AtomicLong(1);
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    private volatile String failingSql;
+
+    /**
+     * Queries whose SQL contains the fragment return the rows, the values are read by their index.
+     */
+    public FakeConnectionProvider addRows(String sqlFragment, Object[]... values) {
+        rows.computeIfAbsent(sqlFragment, key -> Collections.synchronizedList(new ArrayList<>()))
+                .addAll(Arrays.asList(values));
+        return this;
+    }
+
+    /**
+     * DatabaseMetaData.getColumns() of the table returns the columns.
+     */
+    public FakeConnectionProvider addTable(String table, String... columns) {
+        tableColumns.put(table, List.of(columns));
+        return this;
+    }
+
+    /**
+     * Statements whose SQL contains the fragment fail when they are executed.
+     */
+    public FakeConnectionProvider failOn(String sqlFragment) {
+        failingSql = sqlFragment;
+        return this;
+    }
+
+    public List<String> getLog() {
+        synchronized (log) {
+            return new ArrayList<>(log);
+        }
+    }
+
+    /**
+     * This method returns the entries of the log that start with the prefix.
+     */
+    public List<String> getLog(String prefix) {
+        List<String> entries = new ArrayList<>();
+        for (String entry : getLog()) {
+            if (entry.startsWith(prefix))
+                entries.add(entry);
+        }
+        return entries;
+    }
+
+    public void clearLog() {
+        log.clear();
+    }
+
+    /**
+     * This method returns the number of connections borrowed and not closed yet.
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    @Override
+    public Connection getConnection() {
+        openConnections.incrementAndGet();
+        return proxy(Connection.class, new FakeConnection());
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        return 4;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void execute(String sql) throws SQLException {
+        String failing = failingSql;
+        if (failing != null && sql.contains(failing))
+            throw new SQLException("failed: " + sql);
+    }
+
+    private List<Object[]> getRows(String sql) {
+        synchronized (rows) {
+            for (Map.Entry<String, List<Object[]>> entry : rows.entrySet()) {
+                if (sql.contains(entry.getKey()))
+                    return new ArrayList<>(entry.getValue());
+            }
+        }
+        return List.of();
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeConnectionProvider.class.getClassLoader(), new Class[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "toString":
+                            return type.getSimpleName() + "@" + System.identityHashCode(proxy);
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return handler.invoke(proxy, method, args);
+                    }
+                }));
+    }
+
+    private final class FakeConnection implements InvocationHandler {
+
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "setAutoCommit":
+                case "setReadOnly":
+                case "setTransactionIsolation":
+                    return null;
+                case "commit":
+                case "rollback":
+                    log.add(method.getName());
+                    return null;
+                case "close":
+                    if (!closed)
+                        openConnections.decrementAndGet();
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "prepareStatement":
+                    log.add("prepare: " + args[0]);
+                    return proxy(PreparedStatement.class, new FakeStatement((Connection) proxy, (String) args[0]));
+                case "createStatement":
+                    return proxy(Statement.class, new FakeStatement((Connection) proxy, null));
+                case "createArrayOf":
+                    return proxy(Array.class, (array, arrayMethod, arrayArgs) ->
+                            arrayMethod.getName().equals("getArray") ? args[1] : null);
+                case "getMetaData":
+                    return proxy(DatabaseMetaData.class, (metaData, metaDataMethod, metaDataArgs) -> {
+                        if (!metaDataMethod.getName().equals("getColumns"))
+                            throw new UnsupportedOperationException(metaDataMethod.getName());
+                        List<Object[]> columns = new ArrayList<>();
+                        for (String column : tableColumns.getOrDefault((String) metaDataArgs[2], List.of())) {
+                            columns.add(new Object[]{column});
+                        }
+                        return resultSet(List.of("COLUMN_NAME"), columns);
+                    });
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+
+    private final class FakeStatement implements InvocationHandler {
+
+        private final Connection connection;
+
+        private final String sql;
+
+        private final List<Long> generatedKeys = new ArrayList<>();
+
+        private int batchSize;
+
+        private boolean closed;
+
+        private FakeStatement(Connection connection, String sql) {
+            this.connection = connection;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            switch (method.getName()) {
+                case "setObject":
+                case "setLong":
+                case "setInt":
+                case "setString":
+                case "setArray":
+                    log.add("set " + args[0] + ": " + format(args[1]));
+                    return null;
+                case "setNull":
+                    log.add("setNull " + args[0]);
+                    return null;
+                case "setFetchSize":
+                case "setQueryTimeout":
+                case "clearParameters":
+                case "clearBatch":
+                    return null;
+                case "addBatch":
+                    batchSize++;
+                    return null;
+                case "executeBatch":
+                    execute(sql);
+                    log.add("executeBatch: " + batchSize);
+                    generatedKeys.clear();
+                    for (int i = 0; i < batchSize; i++) {
+                        generatedKeys.add(nextKey.getAndIncrement());
+                    }
+                    int[] counts = new int[batchSize];
+                    Arrays.fill(counts, 1);
+                    batchSize = 0;
+                    return counts;
+                case "executeUpdate":
+                    execute(sql);
+                    log.add("executeUpdate: " + sql);
+                    generatedKeys.clear();
+                    generatedKeys.add(nextKey.getAndIncrement());
+                    return 1;
+                case "execute":
+                    String executed = args == null ? sql : (String) args[0];
+                    execute(executed);
+                    log.add("execute: " + executed);
+                    return false;
+                case "executeQuery":
+                    execute(sql);
+                    log.add("executeQuery: " + sql);
+                    return resultSet(List.of(), getRows(sql));
+                case "getGeneratedKeys":
+                    List<Object[]> keys = new ArrayList<>();
+                    for (Long key : generatedKeys) {
+                        keys.add(new Object[]{key});
+                    }
+                    return resultSet(List.of("id"), keys);
+                case "getConnection":
+                    return connection;
+                case "cancel":
+                    log.add("cancel");
+                    return null;
+                case "close":
+                    if (!closed)
+                        log.add("close statement");
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        private String format(Object value) throws SQLException {
+            if (value instanceof Array)
+                return Arrays.toString((Object[]) ((Array) value).getArray());
+            return String.valueOf(value);
+        }
+    }
+
+    /*
+     * Values are read by index, or by the label for the catalogue and the generated keys
+     * */
+    private ResultSet resultSet(List<String> labels, List<Object[]> values) {
+        Iterator<Object[]> iterator = values.iterator();
+        Object[][] current = {null};
+        boolean[] wasNull = {false};
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    current[0] = iterator.hasNext() ? iterator.next() : null;
+                    return current[0] != null;
+                case "close":
+                    log.add("close result");
+                    return null;
+                case "wasNull":
+                    return wasNull[0];
+                default:
+                    if (!method.getName().startsWith("get") || args == null)
+                        throw new UnsupportedOperationException(method.getName());
+                    int index = args[0] instanceof String ? labels.indexOf(args[0]) : (Integer) args[0] - 1;
+                    Object value = current[0][index];
+                    wasNull[0] = value == null;
+                    return convert(value, method.getReturnType());
+            }
+        });
+    }
+
+    private static Object convert(Object value, Class<?> type) {
+        if (type == long.class)
+            return value == null ? 0L : ((Number) value).longValue();
+        if (type == int.class)
+            return value == null ? 0 : ((Number) value).intValue();
+        if (type == double.class)
+            return value == null ? 0.0 : ((Number) value).doubleValue();
+        if (type == boolean.class)
+            return value != null && (Boolean) value;
+        if (type == String.class)
+            return value == null ? null : value.toString();
+        return value;
+    }
+}
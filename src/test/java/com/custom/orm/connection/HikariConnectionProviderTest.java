@@ -0,0 +1,40 @@
+package com.custom.orm.connection;
+
+import com.custom.orm.util.OrmProperties;
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HikariConnectionProviderTest {
+
+    private final HikariConfig config = HikariConnectionProvider.createConfig();
+
+    @Test
+    public void connectionIsTakenFromProperties() {
+        assertEquals("customORM-pool", config.getPoolName());
+        assertEquals(OrmProperties.getString("db.url"), config.getJdbcUrl());
+        assertEquals(OrmProperties.getString("db.username"), config.getUsername());
+        assertFalse(config.isAutoCommit());
+    }
+
+    @Test
+    public void poolPropertiesAreApplied() {
+        assertEquals(OrmProperties.getInt("db.pool.maximumPoolSize", 0), config.getMaximumPoolSize());
+        assertEquals(OrmProperties.getInt("db.pool.minimumIdle", 0), config.getMinimumIdle());
+        assertEquals(OrmProperties.getLong("db.pool.idleTimeout", 0), config.getIdleTimeout());
+        assertEquals(OrmProperties.getLong("db.pool.maxLifetime", 0), config.getMaxLifetime());
+        assertEquals(OrmProperties.getLong("db.pool.connectionTimeout", 0), config.getConnectionTimeout());
+        assertEquals(OrmProperties.getLong("db.pool.leakDetectionThreshold", 0), config.getLeakDetectionThreshold());
+    }
+
+    @Test
+    public void statementCacheIsPassedToDriver() {
+        assertEquals(OrmProperties.getInt("db.statement.prepareThreshold", 0),
+                config.getDataSourceProperties().get("prepareThreshold"));
+        assertEquals(OrmProperties.getInt("db.statement.cacheQueries", 0),
+                config.getDataSourceProperties().get("preparedStatementCacheQueries"));
+        assertEquals(OrmProperties.getInt("db.statement.cacheSizeMiB", 0),
+                config.getDataSourceProperties().get("preparedStatementCacheSizeMiB"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.custom.orm.connection;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StatementCacheTest {
+
+    private final List<FakeStatement> prepared = new ArrayList<>();
+
+    private final StatementCache statementCache = new StatementCache(fakeConnection(), 2);
+
+    @Test
+    public void statementIsReused() throws Exception {
+        PreparedStatement first = statementCache.prepareStatement("SELECT 1", Statement.NO_GENERATED_KEYS);
+
+        assertSame(first, statementCache.prepareStatement("SELECT 1", Statement.NO_GENERATED_KEYS));
+        assertNotSame(first, statementCache.prepareStatement("SELECT 1", Statement.RETURN_GENERATED_KEYS));
+        assertEquals(1, statementCache.getHits());
+        assertEquals(2, statementCache.getMisses());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedAndClosed() throws Exception {
+        statementCache.prepareStatement("SELECT 1", Statement.NO_GENERATED_KEYS);
+        statementCache.prepareStatement("SELECT 2", Statement.NO_GENERATED_KEYS);
+        statementCache.prepareStatement("SELECT 1", Statement.NO_GENERATED_KEYS);
+        statementCache.prepareStatement("SELECT 3", Statement.NO_GENERATED_KEYS);
+
+        assertEquals(2, statementCache.size());
+        assertEquals(1, statementCache.getEvictions());
+        assertFalse(prepared.get(0).closed);
+        assertTrue(prepared.get(1).closed);
+    }
+
+    @Test
+    public void closeClosesAllStatements() throws Exception {
+        statementCache.prepareStatement("SELECT 1", Statement.NO_GENERATED_KEYS);
+        statementCache.prepareStatement("SELECT 2", Statement.NO_GENERATED_KEYS);
+
+        statementCache.close();
+
+        assertEquals(0, statementCache.size());
+        assertTrue(prepared.stream().allMatch(statement -> statement.closed));
+    }
+
+    private Connection fakeConnection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("prepareStatement"))
+                        throw new UnsupportedOperationException(method.getName());
+                    FakeStatement statement = new FakeStatement();
+                    prepared.add(statement);
+                    return statement.proxy;
+                });
+    }
+
+    private static class FakeStatement {
+
+        private boolean closed;
+
+        private final PreparedStatement proxy = (PreparedStatement) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            closed = true;
+                            return null;
+                        case "isClosed":
+                            return closed;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
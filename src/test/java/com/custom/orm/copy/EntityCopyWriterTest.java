@@ -0,0 +1,99 @@
+package com.custom.orm.copy;
+
+import com.custom.orm.entity.Profile;
+import com.custom.orm.entity.User;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class EntityCopyWriterTest {
+
+    @Test
+    public void writesTextFormat() {
+        CapturingSink sink = new CapturingSink();
+        User user = User.builder()
+                .firstname("Stepan")
+                .lastname("Tab\tNew\nLine\\")
+                .birthDate(LocalDate.of(1921, 1, 20))
+                .build();
+
+        long rows = new EntityCopyWriter<>(User.class, sink).write(Stream.of(user));
+
+        assertEquals(1, rows);
+        assertEquals("Stepan\tTab\\tNew\\nLine\\\\\t1921-01-20\t\\N\n", sink.getPayload());
+    }
+
+    @Test
+    public void writesIdOfJoinColumn() {
+        CapturingSink sink = new CapturingSink();
+        User user = User.builder().id(42L).build();
+        Profile profile = Profile.builder().passport("BC254125").build();
+        profile.setUser(user);
+
+        new EntityCopyWriter<>(Profile.class, sink).write(Stream.of(profile));
+
+        assertEquals("42\tBC254125\n", sink.getPayload());
+    }
+
+    @Test
+    public void streamsInChunks() {
+        CapturingSink sink = new CapturingSink();
+
+        long rows = new EntityCopyWriter<>(User.class, sink).write(IntStream.range(0, 20_000)
+                .mapToObj(i -> User.builder().firstname("name" + i).age(i).build()));
+
+        assertEquals(20_000, rows);
+        assertTrue(sink.writes > 1);
+        assertTrue(sink.getPayload().endsWith("name19999\t\\N\t\\N\t19999\n"));
+    }
+
+    @Test
+    public void cancelsOnFailure() {
+        CapturingSink sink = new CapturingSink();
+
+        try {
+            new EntityCopyWriter<>(User.class, sink).write(Stream.of(User.builder().build())
+                    .peek(user -> {
+                        throw new IllegalStateException();
+                    }));
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(sink.cancelled);
+        }
+    }
+
+    private static class CapturingSink implements CopySink {
+
+        private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+
+        private int writes;
+
+        private boolean cancelled;
+
+        @Override
+        public void write(byte[] data, int offset, int length) {
+            writes++;
+            payload.write(data, offset, length);
+        }
+
+        @Override
+        public long finish() {
+            return getPayload().chars().filter(c -> c == '\n').count();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        String getPayload() {
+            return payload.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.custom.orm.mapper;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Id;
+import com.custom.orm.annotations.relations.JoinColumn;
+import com.custom.orm.annotations.relations.ManyToOne;
+import com.custom.orm.annotations.relations.OneToOne;
+import com.custom.orm.entity.User;
+import com.custom.orm.enums.FetchType;
+import com.custom.orm.exceptions.LazyInitializationException;
+import com.custom.orm.lazy.LazyReference;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.RelationModel;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class EntityRowMapperTest {
+
+    private final SelectPlan<User> plan = SelectPlan.of(User.class);
+
+    @Test
+    public void aliasesFollowSelectOrder() {
+        assertEquals(List.of("users_id", "users_firstname", "users_lastname", "users_birthdate", "users_age",
+                "profile_id", "profile_passport"), plan.getAliases());
+        assertEquals(7, plan.getRowMapper().getColumnCount());
+    }
+
+    @Test
+    public void hydrateWithOneToOne() {
+        Object[] row = {1L, "Stepan", "Bandera", LocalDate.of(1921, 1, 20), 600, 5L, "BC254125"};
+
+        User user = plan.getRowMapper().hydrate(row);
+
+        assertEquals(Long.valueOf(1L), user.getId());
+        assertEquals("Bandera", user.getLastname());
+        assertEquals(LocalDate.of(1921, 1, 20), user.getBirthDate());
+        assertEquals(Integer.valueOf(600), user.getAge());
+        assertEquals(Long.valueOf(5L), user.getProfile().getId());
+        assertEquals("BC254125", user.getProfile().getPassport());
+        assertSame(user, user.getProfile().getUser());
+    }
+
+    @Test
+    public void missingJoinedRowLeavesRelationEmpty() {
+        Object[] row = {1L, "Stepan", "Bandera", null, null, null, null};
+
+        User user = plan.getRowMapper().hydrate(row);
+
+        assertNull(user.getProfile());
+        assertNull(user.getAge());
+    }
+
+    @Test
+    public void lazyRelationIsNotJoined() {
+        assertEquals(List.of("book_id", "book_title", "book_author_id"), SelectPlan.of(Book.class).getAliases());
+        assertEquals(List.of("author_id", "author_name"), SelectPlan.of(Author.class).getAliases());
+
+        SqlTemplates templates = new SqlTemplateCache().getTemplates(Book.class);
+        assertEquals("SELECT book.id AS book_id, book.title AS book_title, book.author_id AS book_author_id FROM book ",
+                templates.getFindAll());
+        assertEquals(Set.of("book"), templates.getTables());
+    }
+
+    @Test
+    public void lazyReferenceIsLoadedOnFirstAccess() {
+        RecordingResolver resolver = new RecordingResolver();
+
+        Book book = SelectPlan.of(Book.class).getRowMapper().hydrate(new Object[]{1L, "Kobzar", 7L}, resolver);
+
+        assertFalse(book.author.isInitialized());
+        assertEquals(7L, book.author.getId());
+        assertEquals(7L, EntityModelRegistry.getModel(Book.class).getJoinColumns().get(0).getColumnValue(book));
+        assertTrue(resolver.loads.isEmpty());
+
+        Author author = book.author.get();
+        assertSame(author, book.author.get());
+        assertEquals(List.of("author:7"), resolver.loads);
+    }
+
+    @Test
+    public void lazyReferenceOfInverseSideIsLoadedByOwnerId() {
+        RecordingResolver resolver = new RecordingResolver();
+
+        Author author = SelectPlan.of(Author.class).getRowMapper().hydrate(new Object[]{3L, "Taras"}, resolver);
+
+        assertNull(author.book.getId());
+        assertNotNull(author.book.get());
+        assertEquals(List.of("book:3"), resolver.loads);
+    }
+
+    @Test
+    public void knownEntityInitializesLazyReference() {
+        RecordingResolver resolver = new RecordingResolver();
+        Author known = new Author();
+        resolver.known.put(7L, known);
+
+        Book book = SelectPlan.of(Book.class).getRowMapper().hydrate(new Object[]{1L, "Kobzar", 7L}, resolver);
+
+        assertTrue(book.author.isInitialized());
+        assertSame(known, book.author.get());
+        assertTrue(resolver.loads.isEmpty());
+    }
+
+    @Test
+    public void missingForeignKeyGivesEmptyReference() {
+        Book book = SelectPlan.of(Book.class).getRowMapper().hydrate(new Object[]{1L, "Kobzar", null});
+
+        assertTrue(book.author.isInitialized());
+        assertNull(book.author.get());
+    }
+
+    @Test
+    public void unloadedReferencesAreRegistered() {
+        RecordingResolver resolver = new RecordingResolver();
+        resolver.known.put(7L, new Author());
+        EntityRowMapper<Book> rowMapper = SelectPlan.of(Book.class).getRowMapper();
+
+        rowMapper.hydrate(new Object[]{1L, "Kobzar", 7L}, resolver);
+        rowMapper.hydrate(new Object[]{2L, "Haidamaky", 8L}, resolver);
+        rowMapper.hydrate(new Object[]{3L, "Kateryna", null}, resolver);
+
+        assertEquals(List.of("author:8"), resolver.registrations);
+        assertTrue(resolver.loads.isEmpty());
+    }
+
+    @Test
+    public void eagerManyToOneIsJoined() {
+        assertEquals(List.of("player_id", "player_name", "club_id", "club_name"),
+                SelectPlan.of(Player.class).getAliases());
+
+        SqlTemplates templates = new SqlTemplateCache().getTemplates(Player.class);
+        assertTrue(templates.getFindAll(), templates.getFindAll().contains("LEFT JOIN club ON club.id = player.club_id"));
+        assertEquals(Set.of("player", "club"), templates.getTables());
+    }
+
+    @Test
+    public void hydrateWithManyToOne() {
+        Player player = SelectPlan.of(Player.class).getRowMapper().hydrate(new Object[]{1L, "Shevchenko", 4L, "Dynamo"});
+
+        assertEquals("Shevchenko", player.name);
+        assertEquals(Long.valueOf(4L), player.club.id);
+        assertEquals("Dynamo", player.club.name);
+    }
+
+    @Test
+    public void missingManyToOneRowLeavesRelationEmpty() {
+        Player player = SelectPlan.of(Player.class).getRowMapper().hydrate(new Object[]{1L, "Shevchenko", null, null});
+
+        assertNull(player.club);
+    }
+
+    @Test(expected = LazyInitializationException.class)
+    public void detachedReferenceCantBeLoaded() {
+        Book book = SelectPlan.of(Book.class).getRowMapper().hydrate(new Object[]{1L, "Kobzar", 7L});
+
+        book.author.get();
+    }
+
+    /*
+     * Knows the authors put into the map and records the relations it is asked to register and load
+     * */
+    private static final class RecordingResolver implements IdentityResolver {
+
+        private final Map<Object, Object> known = new HashMap<>();
+
+        private final List<String> registrations = new ArrayList<>();
+
+        private final List<String> loads = new ArrayList<>();
+
+        @Override
+        public Object find(EntityModel model, Object id) {
+            return model.getEntityClass() == Author.class ? known.get(id) : null;
+        }
+
+        @Override
+        public void register(EntityModel model, Object id, Object entity) {
+        }
+
+        @Override
+        public RelationLoader getRelationLoader() {
+            return new RelationLoader() {
+                @Override
+                public Object load(RelationModel relation, Object key) {
+                    loads.add(relation.getField().getName() + ":" + key);
+                    return EntityModelRegistry.getModel(relation.getTargetClass()).newInstance();
+                }
+
+                @Override
+                public void register(RelationModel relation, Object key) {
+                    registrations.add(relation.getField().getName() + ":" + key);
+                }
+            };
+        }
+    }
+
+    @Entity
+    static class Author {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        @OneToOne(mappedBy = "author", fetch = FetchType.LAZY)
+        private LazyReference<Book> book;
+    }
+
+    @Entity
+    static class Book {
+
+        @Id
+        private Long id;
+
+        @OneToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "author_id")
+        private LazyReference<Author> author;
+
+        private String title;
+    }
+
+    @Entity
+    static class Club {
+
+        @Id
+        private Long id;
+
+        private String name;
+    }
+
+    @Entity
+    static class Player {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        @ManyToOne
+        @JoinColumn(name = "club_id")
+        private Club club;
+    }
+}
@@ -0,0 +1,98 @@
+package com.custom.orm.mapper;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Id;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+
+public class GeneratedMappersTest {
+
+    @Test
+    public void generatedMapperIsFoundByName() {
+        assertTrue(GeneratedMappers.find(Sample.class).isPresent());
+        assertSame(GeneratedMappers.find(Sample.class).get(), GeneratedMappers.find(Sample.class).get());
+    }
+
+    @Test
+    public void classWithoutGeneratedMapperUsesReflectivePath() {
+        assertFalse(GeneratedMappers.isGenerated(Unmapped.class));
+        assertTrue(new SqlTemplateCache().getTemplates(Unmapped.class).getRowMapper() instanceof EntityRowMapper);
+    }
+
+    @Test
+    public void templatesAreTakenFromGeneratedMapper() {
+        SqlTemplates templates = new SqlTemplateCache().getTemplates(Sample.class);
+
+        assertEquals(Sample_Mapper.FIND_ALL, templates.getFindAll());
+        assertTrue(templates.<Sample>getRowMapper() instanceof Sample_Mapper);
+    }
+
+    @Entity
+    public static class Sample {
+
+        @Id
+        private Long id;
+    }
+
+    /*
+     * A nested class, the processor generates no mapper for it even when the tests are compiled with it
+     * */
+    @Entity
+    public static class Unmapped {
+
+        @Id
+        private Long id;
+    }
+
+    /*
+     * Stands for a mapper written by the processor, the name is looked up as <entity class name>_Mapper
+     * */
+    public static class Sample_Mapper implements GeneratedMapper<Sample> {
+
+        static final String FIND_ALL = "SELECT sample.id AS sample_id FROM sample ";
+
+        @Override
+        public Class<Sample> getEntityClass() {
+            return Sample.class;
+        }
+
+        @Override
+        public String getFindAll() {
+            return FIND_ALL;
+        }
+
+        @Override
+        public String getFindById() {
+            return FIND_ALL + " WHERE sample.id = ?;";
+        }
+
+        @Override
+        public String getInsert() {
+            return "INSERT INTO sample () VALUES ()";
+        }
+
+        @Override
+        public String getUpdate() {
+            return "UPDATE sample SET  WHERE id = ?";
+        }
+
+        @Override
+        public String getDelete() {
+            return "DELETE FROM sample WHERE id = ?";
+        }
+
+        @Override
+        public void bindInsert(Sample entity, PreparedStatement preparedStatement) {
+        }
+
+        @Override
+        public Sample mapRow(ResultSet resultSet, IdentityResolver identityResolver) throws SQLException {
+            return new Sample();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.custom.orm.mapper;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Id;
+import com.custom.orm.annotations.relations.JoinColumn;
+import com.custom.orm.annotations.relations.ManyToOne;
+import com.custom.orm.connection.FakeConnectionProvider;
+import com.custom.orm.enums.FetchType;
+import com.custom.orm.exceptions.LazyInitializationException;
+import com.custom.orm.lazy.LazyReference;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ResultSetStreamsTest {
+
+    private final FakeConnectionProvider connectionProvider = new FakeConnectionProvider()
+            .addRows("FROM chapter", new Object[]{1L, "First", 7L}, new Object[]{2L, "Second", 7L});
+
+    @Test
+    public void rowsAreMappedWhenConsumed() throws Exception {
+        List<Long> mapped = new ArrayList<>();
+        RowMapper<Long> rowMapper = resultSet -> {
+            mapped.add(resultSet.getLong(1));
+            return resultSet.getLong(1);
+        };
+
+        try (Stream<Long> rows = stream(rowMapper, IdentityResolver.NONE)) {
+            Iterator<Long> iterator = rows.iterator();
+            assertEquals(Long.valueOf(1L), iterator.next());
+            assertEquals(List.of(1L), mapped);
+            assertTrue(connectionProvider.getLog("close").isEmpty());
+        }
+        assertEquals(List.of("close result", "close statement"), connectionProvider.getLog("close"));
+    }
+
+    @Test
+    public void referencesAreLoadedByRelationLoaderOfResolver() throws Exception {
+        List<String> loads = new ArrayList<>();
+        IdentityResolver resolver = new IdentityResolver() {
+            @Override
+            public Object find(EntityModel model, Object id) {
+                return null;
+            }
+
+            @Override
+            public void register(EntityModel model, Object id, Object entity) {
+            }
+
+            @Override
+            public RelationLoader getRelationLoader() {
+                return (relation, key) -> {
+                    loads.add(relation.getField().getName() + ":" + key);
+                    return EntityModelRegistry.getModel(relation.getTargetClass()).newInstance();
+                };
+            }
+        };
+
+        try (Stream<Chapter> rows = stream(SelectPlan.of(Chapter.class).getRowMapper(), resolver)) {
+            for (Chapter chapter : (Iterable<Chapter>) rows::iterator) {
+                assertNotNull(chapter.volume.get());
+            }
+        }
+        assertEquals(List.of("volume:7", "volume:7"), loads);
+    }
+
+    @Test(expected = LazyInitializationException.class)
+    public void referencesAreDetachedWithoutResolver() throws Exception {
+        Connection connection = connectionProvider.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement("SELECT * FROM chapter");
+        ResultSet resultSet = preparedStatement.executeQuery();
+
+        try (Stream<Chapter> rows = ResultSetStreams.of(preparedStatement, resultSet,
+                SelectPlan.of(Chapter.class).getRowMapper())) {
+            rows.findFirst().orElseThrow().volume.get();
+        }
+    }
+
+    private <T> Stream<T> stream(RowMapper<T> rowMapper, IdentityResolver resolver) throws Exception {
+        Connection connection = connectionProvider.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement("SELECT * FROM chapter");
+        ResultSet resultSet = preparedStatement.executeQuery();
+        return ResultSetStreams.of(preparedStatement, resultSet, rowMapper, resolver);
+    }
+
+    @Entity
+    static class Volume {
+
+        @Id
+        private Long id;
+
+        private String title;
+    }
+
+    @Entity
+    static class Chapter {
+
+        @Id
+        private Long id;
+
+        private String title;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "volume_id")
+        private LazyReference<Volume> volume;
+    }
+}
@@ -0,0 +1,183 @@
+package com.custom.orm.mapper;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Id;
+import com.custom.orm.annotations.relations.JoinColumn;
+import com.custom.orm.annotations.relations.ManyToMany;
+import com.custom.orm.annotations.relations.ManyToOne;
+import com.custom.orm.annotations.relations.OneToMany;
+import com.custom.orm.entity.Profile;
+import com.custom.orm.entity.User;
+import com.custom.orm.enums.CascadeType;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SqlTemplateCacheTest {
+
+    private final SqlTemplateCache sqlTemplates = new SqlTemplateCache();
+
+    @Test
+    public void templatesAreGeneratedOnce() {
+        SqlTemplates templates = sqlTemplates.getTemplates(User.class);
+        long misses = sqlTemplates.getMisses();
+        long hits = sqlTemplates.getHits();
+
+        for (int i = 0; i < 10; i++) {
+            assertSame(templates, sqlTemplates.getTemplates(User.class));
+        }
+
+        assertEquals(misses, sqlTemplates.getMisses());
+        assertEquals(hits + 10, sqlTemplates.getHits());
+    }
+
+    @Test
+    public void userTemplates() {
+        SqlTemplates templates = sqlTemplates.getTemplates(User.class);
+
+        assertEquals("SELECT users.id AS users_id, users.firstname AS users_firstname, "
+                        + "users.lastname AS users_lastname, users.birthdate AS users_birthdate, users.age AS users_age, "
+                        + "profile.id AS profile_id, profile.passport AS profile_passport "
+                        + "FROM public.users LEFT JOIN profile ON users.id = profile.user_id ",
+                templates.getFindAll());
+        assertEquals(templates.getFindAll() + " WHERE users.id = ?;", templates.getFindById());
+        assertEquals("INSERT INTO public.users (firstname, lastname, birthdate, age) VALUES (?, ?, ?, ?)",
+                templates.getInsert());
+        assertEquals("UPDATE public.users SET firstname = ?, lastname = ?, birthdate = ?, age = ? WHERE id = ?",
+                templates.getUpdate());
+        assertEquals("DELETE FROM public.users WHERE id = ?", templates.getDelete());
+        assertEquals(Set.of("users", "profile"), templates.getTables());
+    }
+
+    @Test
+    public void partialUpdateIsGeneratedOncePerColumnSet() {
+        List<ColumnModel> columns = EntityModelRegistry.getModel(User.class).getInsertColumns();
+
+        String update = sqlTemplates.getUpdate(User.class, List.of(columns.get(1), columns.get(3)));
+
+        assertEquals("UPDATE public.users SET lastname = ?, age = ? WHERE id = ?", update);
+        assertSame(update, sqlTemplates.getUpdate(User.class, List.of(columns.get(1), columns.get(3))));
+    }
+
+    @Test
+    public void partialUpdatesAreBoundedPerEntity() {
+        List<ColumnModel> columns = EntityModelRegistry.getModel(Wide.class).getInsertColumns();
+
+        // every non-empty subset of the 7 columns, twice the cached limit
+        for (int mask = 1; mask < 1 << columns.size(); mask++) {
+            List<ColumnModel> dirtyColumns = new ArrayList<>();
+            for (int i = 0; i < columns.size(); i++) {
+                if ((mask & 1 << i) != 0)
+                    dirtyColumns.add(columns.get(i));
+            }
+            assertTrue(sqlTemplates.getUpdate(Wide.class, List.copyOf(dirtyColumns)).startsWith("UPDATE wide SET "));
+        }
+
+        assertEquals(64, sqlTemplates.getPartialUpdateCount(Wide.class));
+        assertEquals("UPDATE wide SET a = ?, b = ?, c = ?, d = ?, e = ?, f = ?, g = ? WHERE id = ?",
+                sqlTemplates.getUpdate(Wide.class, columns));
+    }
+
+    @Test
+    public void findByAnyBindsValuesAsArray() {
+        ColumnModel userId = EntityModelRegistry.getModel(Profile.class).getJoinColumns().get(0);
+
+        String findByAny = sqlTemplates.getFindByAny(Profile.class, userId);
+
+        assertEquals(sqlTemplates.getTemplates(Profile.class).getFindAll() + " WHERE profile.user_id = ANY(?)",
+                findByAny);
+        assertSame(findByAny, sqlTemplates.getFindByAny(Profile.class, userId));
+    }
+
+    @Test
+    public void idRangeTemplates() {
+        assertEquals(sqlTemplates.getTemplates(User.class).getFindAll() + " WHERE users.id BETWEEN ? AND ?",
+                sqlTemplates.getFindByIdRange(User.class));
+        assertEquals("SELECT MIN(id), MAX(id) FROM public.users", sqlTemplates.getIdBounds(User.class));
+    }
+
+    @Test
+    public void profileTemplates() {
+        SqlTemplates templates = sqlTemplates.getTemplates(Profile.class);
+
+        assertEquals("INSERT INTO profile (user_id, passport) VALUES (?, ?)", templates.getInsert());
+        assertEquals("DELETE FROM profile WHERE id = ?", templates.getDelete());
+        assertEquals(Set.of("profile", "users"), templates.getTables());
+    }
+
+    @Test
+    public void collectionsAreNotJoined() {
+        SqlTemplates templates = sqlTemplates.getTemplates(Team.class);
+
+        assertEquals("SELECT team.id AS team_id, team.name AS team_name FROM team ", templates.getFindAll());
+        assertEquals(Set.of("team"), templates.getTables());
+    }
+
+    @Test
+    public void joinTableTemplatesOfBothSides() {
+        JoinTableTemplates owning = sqlTemplates.getJoinTableTemplates(
+                EntityModelRegistry.getModel(Team.class).findRelation("tags").orElseThrow());
+
+        assertEquals("SELECT team_id, tag_id FROM team_tag WHERE team_id = ANY(?)", owning.getSelect());
+        assertEquals("INSERT INTO team_tag (team_id, tag_id) VALUES (?, ?)", owning.getInsert());
+        assertEquals("DELETE FROM team_tag WHERE team_id = ? AND tag_id = ?", owning.getDelete());
+        assertEquals("DELETE FROM team_tag WHERE team_id = ?", owning.getDeleteAll());
+
+        JoinTableTemplates inverse = sqlTemplates.getJoinTableTemplates(
+                EntityModelRegistry.getModel(Tag.class).findRelation("teams").orElseThrow());
+
+        assertEquals("SELECT tag_id, team_id FROM team_tag WHERE tag_id = ANY(?)", inverse.getSelect());
+        assertEquals("DELETE FROM team_tag WHERE tag_id = ?", inverse.getDeleteAll());
+    }
+
+    @Entity
+    static class Wide {
+
+        @Id
+        private Long id;
+
+        private String a, b, c, d, e, f, g;
+    }
+
+    @Entity
+    static class Team {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        @OneToMany(mappedBy = "team", cascade = CascadeType.ALL)
+        private List<Member> members;
+
+        @ManyToMany
+        private Set<Tag> tags;
+    }
+
+    @Entity
+    static class Member {
+
+        @Id
+        private Long id;
+
+        @ManyToOne
+        @JoinColumn(name = "team_id")
+        private Team team;
+    }
+
+    @Entity
+    static class Tag {
+
+        @Id
+        private Long id;
+
+        @ManyToMany(mappedBy = "tags")
+        private List<Team> teams;
+    }
+}
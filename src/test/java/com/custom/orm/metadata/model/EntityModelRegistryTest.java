@@ -0,0 +1,140 @@
+package com.custom.orm.metadata.model;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Id;
+import com.custom.orm.annotations.relations.JoinColumn;
+import com.custom.orm.annotations.relations.JoinTable;
+import com.custom.orm.annotations.relations.ManyToMany;
+import com.custom.orm.annotations.relations.ManyToOne;
+import com.custom.orm.annotations.relations.OneToMany;
+import com.custom.orm.entity.Profile;
+import com.custom.orm.entity.User;
+import com.custom.orm.enums.CascadeType;
+import com.custom.orm.enums.RelationType;
+import com.custom.orm.metadata.implementation.MappingMetaDataImpl;
+import org.junit.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class EntityModelRegistryTest {
+
+    @Test
+    public void modelIsBuiltOnce() {
+        assertSame(EntityModelRegistry.getModel(User.class), EntityModelRegistry.getModel(User.class));
+    }
+
+    @Test
+    public void userModel() {
+        EntityModel model = EntityModelRegistry.getModel(User.class);
+
+        assertEquals("public.users", model.getTableName());
+        assertEquals("users", model.getTableNameWithoutSchema());
+        assertEquals("id", model.getIdColumn().getName());
+        assertEquals(List.of("id", "firstname", "lastname", "birthdate", "age"), columnNames(model.getColumns()));
+        assertEquals("firstname, lastname, birthdate, age", model.getInsertColumnNames());
+        assertEquals("?, ?, ?, ?", model.getInsertPlaceholders());
+        assertFalse(model.hasForeignKey());
+
+        RelationModel profile = model.getRelations().get(0);
+        assertEquals(RelationType.ONE_TO_ONE, profile.getType());
+        assertEquals(Profile.class, profile.getTargetClass());
+        assertTrue(profile.isMappedBy());
+        assertTrue(profile.hasCascade(CascadeType.ALL, CascadeType.ADD));
+    }
+
+    @Test
+    public void profileModel() {
+        EntityModel model = EntityModelRegistry.getModel(Profile.class);
+
+        assertEquals("profile", model.getTableName());
+        assertEquals(List.of("id", "user_id", "passport"), columnNames(model.getColumns()));
+        assertEquals(List.of("user_id"), columnNames(model.getJoinColumns()));
+        assertTrue(model.getRelations().get(0).isOwningSide());
+    }
+
+    @Test
+    public void accessors() {
+        EntityModel model = EntityModelRegistry.getModel(User.class);
+        User user = model.newInstance();
+
+        model.setId(user, 7L);
+        model.getColumns().get(1).setValue(user, "Stepan");
+
+        assertEquals(7L, model.getId(user));
+        assertEquals("Stepan", user.getFirstname());
+        assertEquals("Stepan", model.getColumns().get(1).getValue(user));
+    }
+
+    @Test
+    public void collectionRelations() {
+        EntityModel model = EntityModelRegistry.getModel(Team.class);
+
+        RelationModel members = model.findRelation("members").orElseThrow();
+        assertEquals(Member.class, members.getTargetClass());
+        assertTrue(members.isCollection());
+        assertNull(members.getJoinTable());
+        assertTrue(members.newCollection() instanceof List);
+
+        RelationModel tags = model.findRelation("tags").orElseThrow();
+        assertEquals(Tag.class, tags.getTargetClass());
+        assertEquals("team_tags", tags.getJoinTable().getName());
+        assertEquals("team_id", tags.getJoinTable().getJoinColumn());
+        assertEquals("label_id", tags.getJoinTable().getInverseJoinColumn());
+        assertTrue(tags.newCollection() instanceof LinkedHashSet);
+
+        JoinTableModel inverse = EntityModelRegistry.getModel(Tag.class).findRelation("teams").orElseThrow()
+                .resolveJoinTable();
+        assertEquals("team_tags", inverse.getName());
+        assertEquals("label_id", inverse.getJoinColumn());
+        assertEquals("team_id", inverse.getInverseJoinColumn());
+
+        assertEquals(List.of(members, tags), model.getCollectionRelations());
+        assertEquals(Set.of(Member.class.getName()),
+                new MappingMetaDataImpl().getOneToManyForeignKeyClassNames(Team.class));
+        assertEquals(List.of(), EntityModelValidator.validate(Team.class));
+    }
+
+    private List<String> columnNames(List<ColumnModel> columns) {
+        return columns.stream().map(ColumnModel::getName).collect(Collectors.toList());
+    }
+
+    @Entity
+    static class Team {
+
+        @Id
+        private Long id;
+
+        @OneToMany(mappedBy = "team", cascade = CascadeType.ALL)
+        private List<Member> members;
+
+        @ManyToMany
+        @JoinTable(name = "team_tags", inverseJoinColumn = "label_id")
+        private Set<Tag> tags;
+    }
+
+    @Entity
+    static class Member {
+
+        @Id
+        private Long id;
+
+        @ManyToOne
+        @JoinColumn(name = "team_id")
+        private Team team;
+    }
+
+    @Entity
+    static class Tag {
+
+        @Id
+        private Long id;
+
+        @ManyToMany(mappedBy = "tags")
+        private List<Team> teams;
+    }
+}
@@ -0,0 +1,138 @@
+package com.custom.orm.metadata.model;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Id;
+import com.custom.orm.annotations.relations.JoinColumn;
+import com.custom.orm.annotations.relations.ManyToMany;
+import com.custom.orm.annotations.relations.ManyToOne;
+import com.custom.orm.annotations.relations.OneToMany;
+import com.custom.orm.annotations.relations.OneToOne;
+import com.custom.orm.entity.Profile;
+import com.custom.orm.entity.User;
+import com.custom.orm.enums.FetchType;
+import com.custom.orm.lazy.LazyReference;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EntityModelValidatorTest {
+
+    @Test
+    public void validEntities() {
+        assertEquals(List.of(), EntityModelValidator.validate(User.class));
+        assertEquals(List.of(), EntityModelValidator.validate(Profile.class));
+    }
+
+    @Test
+    public void missingIdAndConstructor() {
+        List<String> problems = EntityModelValidator.validate(WithoutId.class);
+
+        assertEquals(2, problems.size());
+        assertTrue(problems.get(0).endsWith("doesn't have a field annotated with @Id"));
+        assertTrue(problems.get(1).endsWith("doesn't have a no-arg constructor"));
+    }
+
+    @Test
+    public void brokenRelations() {
+        List<String> problems = EntityModelValidator.validate(WithBrokenRelations.class);
+
+        assertEquals(2, problems.size());
+        assertTrue(problems.get(0).endsWith("which doesn't have an @Id"));
+        assertTrue(problems.get(1).contains("is mapped by \"owner\""));
+    }
+
+    @Test
+    public void lazyRelations() {
+        List<String> problems = EntityModelValidator.validate(WithLazyRelations.class);
+
+        assertEquals(2, problems.size());
+        assertTrue(problems.get(0).endsWith("has to be declared as LazyReference<Profile>"));
+        assertTrue(problems.get(1).contains("is fetched lazily and mapped by \"passport\""));
+    }
+
+    @Test
+    public void brokenCollections() {
+        List<String> problems = EntityModelValidator.validate(WithBrokenCollections.class);
+
+        assertEquals(4, problems.size());
+        assertTrue(problems.get(0).endsWith("has to be mapped by a @JoinColumn of " + User.class.getName()));
+        assertTrue(problems.get(1).endsWith("has to be declared as List<Profile>, Set<Profile> or Collection<Profile>"));
+        assertTrue(problems.get(2).endsWith("so it can't be fetched lazily"));
+        assertTrue(problems.get(3).contains("is mapped by \"user\", which is not a @ManyToMany"));
+    }
+
+    @Test
+    public void eagerManyToOneWithoutJoinColumn() {
+        List<String> problems = EntityModelValidator.validate(WithUnjoinedManyToOne.class);
+
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0).endsWith("so it has to be fetched lazily"));
+    }
+
+    @Entity
+    static class WithoutId {
+
+        private String name;
+
+        WithoutId(String name) {
+            this.name = name;
+        }
+    }
+
+    @Entity
+    static class WithBrokenRelations {
+
+        @Id
+        private Long id;
+
+        @OneToOne
+        @JoinColumn(name = "without_id")
+        private WithoutId withoutId;
+
+        @OneToOne(mappedBy = "owner")
+        private User user;
+    }
+
+    @Entity
+    static class WithLazyRelations {
+
+        @Id
+        private Long id;
+
+        @OneToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "profile_id")
+        private Profile profile;
+
+        @OneToOne(mappedBy = "passport", fetch = FetchType.LAZY)
+        private LazyReference<Profile> byPassport;
+    }
+
+    @Entity
+    static class WithBrokenCollections {
+
+        @Id
+        private Long id;
+
+        @OneToMany
+        private List<User> users;
+
+        @ManyToMany(fetch = FetchType.LAZY)
+        private ArrayList<Profile> profiles;
+
+        @ManyToMany(mappedBy = "user")
+        private List<Profile> byUser;
+    }
+
+    @Entity
+    static class WithUnjoinedManyToOne {
+
+        @Id
+        private Long id;
+
+        @ManyToOne(mappedBy = "user")
+        private Profile profile;
+    }
+}
@@ -0,0 +1,147 @@
+package com.custom.orm.query;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Id;
+import com.custom.orm.annotations.relations.JoinColumn;
+import com.custom.orm.annotations.relations.ManyToOne;
+import com.custom.orm.entity.User;
+import com.custom.orm.enums.Operator;
+import com.custom.orm.mapper.SqlTemplateCache;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CriteriaCompilerTest {
+
+    private final SqlTemplateCache sqlTemplates = new SqlTemplateCache();
+
+    private final CriteriaCompiler compiler = new CriteriaCompiler(sqlTemplates);
+
+    private final String findAll = sqlTemplates.getTemplates(User.class).getFindAll().trim();
+
+    @Test
+    public void conditionsOrderAndPageAreAppendedToFindQuery() {
+        CompiledQuery query = compiler.compile(Criteria.from(User.class)
+                .where("age", Operator.GREATER_OR_EQUAL, 18)
+                .where("birthDate", Operator.IS_NOT_NULL)
+                .orderBy("lastname")
+                .orderByDescending("id")
+                .limit(20)
+                .offset(40));
+
+        assertEquals(findAll + " WHERE users.age >= ? AND users.birthdate IS NOT NULL"
+                + " ORDER BY users.lastname, users.id DESC LIMIT ? OFFSET ?", query.getSql());
+        assertEquals(List.of(18, 20, 40), query.getParameters());
+        assertEquals(sqlTemplates.getTemplates(User.class).getTables(), query.getTables());
+    }
+
+    @Test
+    public void sameStructureSharesSql() {
+        CompiledQuery first = compiler.compile(Criteria.from(User.class)
+                .where("firstname", Operator.EQUAL, "Ivan"));
+        int size = compiler.size();
+        CompiledQuery second = compiler.compile(Criteria.from(User.class)
+                .where("firstname", Operator.EQUAL, "Petro"));
+
+        assertSame(first.getSql(), second.getSql());
+        assertEquals(size, compiler.size());
+        assertEquals(List.of("Petro"), second.getParameters());
+    }
+
+    @Test
+    public void inBindsValuesAsArray() {
+        CompiledQuery query = compiler.compile(Criteria.from(User.class)
+                .where("id", Operator.IN, List.of(1L, 2L, 3L)));
+
+        assertEquals(findAll + " WHERE users.id = ANY(?)", query.getSql());
+        assertEquals(List.of(List.of(1L, 2L, 3L)), query.getParameters());
+        assertEquals(List.of("BIGINT"), query.getArrayTypes());
+    }
+
+    @Test
+    public void inOnTemporalColumnUsesPostgresArrayType() {
+        List<LocalDateTime> starts = List.of(LocalDateTime.of(2024, 5, 1, 18, 0), LocalDateTime.of(2024, 5, 2, 18, 0));
+        CompiledQuery query = compiler.compile(Criteria.from(Event.class).where("startsAt", Operator.IN, starts));
+
+        assertEquals(List.of(starts), query.getParameters());
+        assertEquals(List.of("TIMESTAMP"), query.getArrayTypes());
+    }
+
+    @Test
+    public void joinColumnIsComparedWithReferencedId() {
+        Venue first = new Venue();
+        first.id = 3L;
+        Venue second = new Venue();
+        second.id = 5L;
+
+        CompiledQuery equal = compiler.compile(Criteria.from(Event.class).where("venue", Operator.EQUAL, first));
+        CompiledQuery in = compiler.compile(Criteria.from(Event.class)
+                .where("venue", Operator.IN, List.of(first, second)));
+
+        assertEquals(List.of(3L), equal.getParameters());
+        assertEquals(List.of(List.of(3L, 5L)), in.getParameters());
+        assertEquals(List.of("BIGINT"), in.getArrayTypes());
+    }
+
+    @Test
+    public void keysetComparesOrderColumnsAsRow() {
+        CompiledQuery query = compiler.compile(Criteria.from(User.class)
+                .orderBy("lastname")
+                .orderBy("id")
+                .after("Shevchenko", 7L)
+                .limit(10));
+
+        assertEquals(findAll + " WHERE (users.lastname, users.id) > (?, ?) ORDER BY users.lastname, users.id LIMIT ?",
+                query.getSql());
+        assertEquals(Arrays.asList("Shevchenko", 7L, 10), query.getParameters());
+        assertEquals(Arrays.asList(null, null, null), query.getArrayTypes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void keysetNeedsSameDirection() {
+        compiler.compile(Criteria.from(User.class).orderBy("lastname").orderByDescending("id").after("a", 1L));
+    }
+
+    @Test
+    public void projectionUsesAliasesOfFindQuery() {
+        CompiledQuery query = compiler.compile(Criteria.from(User.class)
+                .select("firstname", "birthDate")
+                .where("birthDate", Operator.LESS_THAN, LocalDate.of(2000, 1, 1)));
+
+        assertEquals("SELECT users.firstname AS users_firstname, users.birthdate AS users_birthdate FROM public.users"
+                + " WHERE users.birthdate < ?", query.getSql());
+        assertTrue(query.isProjection());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFieldIsRejected() {
+        compiler.compile(Criteria.from(User.class).where("nickname", Operator.EQUAL, "x"));
+    }
+
+    @Entity
+    static class Venue {
+
+        @Id
+        private Long id;
+
+        private String name;
+    }
+
+    @Entity
+    static class Event {
+
+        @Id
+        private Long id;
+
+        private LocalDateTime startsAt;
+
+        @ManyToOne
+        @JoinColumn(name = "venue_id")
+        private Venue venue;
+    }
+}
@@ -0,0 +1,146 @@
+package com.custom.orm.query;
+
+import com.custom.orm.annotations.Param;
+import com.custom.orm.annotations.Query;
+import com.custom.orm.connection.FakeConnectionProvider;
+import com.custom.orm.entity.User;
+import com.custom.orm.exceptions.QueryDefinitionException;
+import com.custom.orm.mapper.SqlTemplateCache;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class QueryMethodTest {
+
+    private final SqlTemplateCache sqlTemplates = new SqlTemplateCache();
+
+    private final String findAll = sqlTemplates.getTemplates(User.class).getFindAll().trim();
+
+    @Test
+    public void fragmentIsAppendedToFindQuery() throws Exception {
+        QueryMethod queryMethod = QueryMethod.of(UserRepository.class.getMethod("findOlderThan", int.class),
+                sqlTemplates);
+
+        assertEquals(findAll + " WHERE users.age > ? ORDER BY users.lastname", queryMethod.getSql());
+        assertEquals(QueryMethod.ResultType.LIST, queryMethod.getResultType());
+        assertEquals(User.class, queryMethod.getEntityClass());
+        assertEquals(List.of(30), queryMethod.compile(new Object[]{30}).getParameters());
+        assertFalse(queryMethod.compile(new Object[]{30}).isCacheable());
+    }
+
+    @Test
+    public void parameterUsedTwiceIsBoundTwice() throws Exception {
+        QueryMethod queryMethod = QueryMethod.of(
+                UserRepository.class.getMethod("findByName", String.class, int.class), sqlTemplates);
+
+        assertEquals(findAll + " WHERE (users.firstname = ? OR users.lastname = ?) AND users.age = ?",
+                queryMethod.getSql());
+        assertEquals(QueryMethod.ResultType.OPTIONAL, queryMethod.getResultType());
+        assertEquals(List.of("Taras", "Taras", 47), queryMethod.compile(new Object[]{"Taras", 47}).getParameters());
+    }
+
+    @Test
+    public void castsAndLiteralsAreNotParameters() {
+        List<String> names = new ArrayList<>();
+
+        String sql = QueryMethod.replaceNamedParameters(
+                "WHERE users.birthdate < :date::date AND users.firstname <> 'a:b'", names);
+
+        assertEquals("WHERE users.birthdate < ?::date AND users.firstname <> 'a:b'", sql);
+        assertEquals(List.of("date"), names);
+    }
+
+    @Test
+    public void wholeSelectMustReadColumnsOfFindQuery() throws Exception {
+        QueryMethod queryMethod = QueryMethod.of(UserRepository.class.getMethod("streamBornBefore", LocalDate.class),
+                sqlTemplates);
+
+        assertEquals(QueryMethod.ResultType.STREAM, queryMethod.getResultType());
+        assertTrue(queryMethod.getSql().startsWith(findAll));
+    }
+
+    @Test
+    public void allProblemsOfMethodAreReported() throws Exception {
+        try {
+            QueryMethod.of(BrokenRepository.class.getMethod("findAll", int.class), sqlTemplates);
+            fail();
+        } catch (QueryDefinitionException e) {
+            assertTrue(e.getMessage().contains("must return an entity"));
+            assertTrue(e.getMessage().contains("no argument for the parameter :age"));
+            assertTrue(e.getMessage().contains("doesn't use the argument years"));
+        }
+    }
+
+    @Test
+    public void collectionIsBoundAsArrayOfItsElementType() throws Exception {
+        QueryMethod queryMethod = QueryMethod.of(
+                UserRepository.class.getMethod("findByIds", Set.class, int.class), sqlTemplates);
+
+        CompiledQuery query = queryMethod.compile(new Object[]{Set.of(1L), 18});
+        assertEquals(findAll + " WHERE users.id = ANY(?) AND users.age > ?", query.getSql());
+        assertEquals(Arrays.asList("BIGINT", null), query.getArrayTypes());
+
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider();
+        query.bind(connectionProvider.getConnection().prepareStatement(query.getSql()));
+        assertEquals(List.of("set 1: [1]", "set 2: 18"), connectionProvider.getLog("set"));
+    }
+
+    @Test
+    public void nullCollectionIsBoundAsNullArray() throws Exception {
+        QueryMethod queryMethod = QueryMethod.of(
+                UserRepository.class.getMethod("findByIds", Set.class, int.class), sqlTemplates);
+
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider();
+        CompiledQuery query = queryMethod.compile(new Object[]{null, 18});
+        query.bind(connectionProvider.getConnection().prepareStatement(query.getSql()));
+
+        assertEquals(List.of("setNull 1", "set 2: 18"), connectionProvider.getLog("set"));
+    }
+
+    @Test
+    public void collectionOfUnknownElementTypeIsRejected() throws Exception {
+        try {
+            QueryMethod.of(BrokenRepository.class.getMethod("findByAnything", List.class), sqlTemplates);
+            fail();
+        } catch (QueryDefinitionException e) {
+            assertTrue(e.getMessage().contains("binds the argument values as an array"));
+            assertTrue(e.getMessage().endsWith("not java.util.List<java.lang.Object>"));
+        }
+    }
+
+    public interface UserRepository {
+
+        @Query("WHERE users.id = ANY(:ids) AND users.age > :age")
+        List<User> findByIds(@Param("ids") Set<Long> ids, @Param("age") int age);
+
+        @Query("WHERE users.age > :age ORDER BY users.lastname")
+        List<User> findOlderThan(@Param("age") int age);
+
+        @Query("WHERE (users.firstname = :name OR users.lastname = :name) AND users.age = :age")
+        Optional<User> findByName(@Param("name") String name, @Param("age") int age);
+
+        @Query("SELECT users.id AS users_id, users.firstname AS users_firstname, users.lastname AS users_lastname, "
+                + "users.birthdate AS users_birthdate, users.age AS users_age, "
+                + "profile.id AS profile_id, profile.passport AS profile_passport "
+                + "FROM public.users LEFT JOIN profile ON users.id = profile.user_id WHERE users.birthdate < :date")
+        Stream<User> streamBornBefore(@Param("date") LocalDate date);
+    }
+
+    interface BrokenRepository {
+
+        @Query("WHERE users.age > :age")
+        Map<String, User> findAll(@Param("years") int years);
+
+        @Query("WHERE users.firstname = ANY(:values)")
+        List<User> findByAnything(@Param("values") List<Object> values);
+    }
+}
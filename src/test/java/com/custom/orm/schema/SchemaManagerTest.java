@@ -0,0 +1,160 @@
+package com.custom.orm.schema;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Id;
+import com.custom.orm.annotations.relations.JoinColumn;
+import com.custom.orm.annotations.relations.ManyToOne;
+import com.custom.orm.connection.FakeConnectionProvider;
+import com.custom.orm.entity.Profile;
+import com.custom.orm.entity.User;
+import com.custom.orm.enums.FetchType;
+import com.custom.orm.enums.SchemaMode;
+import com.custom.orm.exceptions.SchemaValidationException;
+import com.custom.orm.lazy.LazyReference;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SchemaManagerTest {
+
+    private final SchemaManager schemaManager = new SchemaManager();
+
+    @Test
+    public void referencedTablesComeFirst() {
+        assertEquals(List.of(User.class, Profile.class), schemaManager.sortByDependencies(List.of(Profile.class)));
+        assertEquals(List.of(User.class, Profile.class),
+                schemaManager.sortByDependencies(List.of(Profile.class, User.class)));
+        assertEquals(List.of(User.class), schemaManager.sortByDependencies(List.of(User.class)));
+        assertEquals(List.of(Department.class, Employee.class),
+                schemaManager.sortByDependencies(List.of(Employee.class, Department.class)));
+    }
+
+    @Test
+    public void modeIsParsedFromProperty() {
+        assertEquals(SchemaMode.CREATE, schemaManager.getMode());
+        assertEquals(SchemaMode.CREATE_DROP, SchemaMode.of("create-drop"));
+        assertEquals(SchemaMode.VALIDATE, SchemaMode.of(" Validate "));
+        assertEquals(SchemaMode.NONE, SchemaMode.of("none"));
+    }
+
+    @Test
+    public void validateModeAcceptsMappedColumns() {
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider()
+                .addTable("department", "ID", "NAME")
+                .addTable("employee", "id", "name", "department_id", "salary");
+
+        schemaManager.initialize(connectionProvider, List.of(Employee.class), SchemaMode.VALIDATE);
+
+        assertTrue(schemaManager.isReady(Department.class));
+        assertTrue(schemaManager.isReady(Employee.class));
+        assertTrue(connectionProvider.getLog("execute").isEmpty());
+        assertEquals(List.of("commit"), connectionProvider.getLog("commit"));
+    }
+
+    @Test
+    public void validateModeRejectsMissingColumns() {
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider()
+                .addTable("department", "id", "name")
+                .addTable("employee", "id", "name");
+
+        try {
+            schemaManager.initialize(connectionProvider, List.of(Employee.class), SchemaMode.VALIDATE);
+            fail();
+        } catch (SchemaValidationException e) {
+            assertEquals("Table \"employee\" doesn't have columns [department_id]!", e.getMessage());
+        }
+        assertEquals(List.of("rollback"), connectionProvider.getLog("rollback"));
+        assertEquals(0, connectionProvider.getOpenConnections());
+    }
+
+    @Test
+    public void validateModeRejectsMissingTable() {
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider().addTable("employee", "id");
+
+        try {
+            schemaManager.initialize(connectionProvider, List.of(Employee.class), SchemaMode.VALIDATE);
+            fail();
+        } catch (SchemaValidationException e) {
+            assertEquals("Table \"department\" doesn't exist!", e.getMessage());
+        }
+    }
+
+    @Test
+    public void createModePreparesRelatedTablesOnCallersConnection() {
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider();
+        Connection connection = connectionProvider.getConnection();
+        Set<Class<?>> prepared = new LinkedHashSet<>();
+
+        schemaManager.ensureTable(connection, Order.class, prepared);
+
+        List<String> statements = connectionProvider.getLog("execute");
+        assertEquals(3, statements.size());
+        assertTrue(statements.get(0).startsWith("execute: SELECT pg_advisory_xact_lock("));
+        assertTrue(statements.get(1).startsWith("execute: CREATE TABLE IF NOT EXISTS customer "));
+        assertTrue(statements.get(2).startsWith("execute: CREATE TABLE IF NOT EXISTS public.orders "));
+        assertEquals(1, connectionProvider.getOpenConnections());
+        assertTrue(connectionProvider.getLog("commit").isEmpty());
+
+        // nothing is registered until the caller's transaction is committed
+        assertEquals(List.of(Customer.class, Order.class), List.copyOf(prepared));
+        assertFalse(schemaManager.isReady(Order.class));
+
+        connectionProvider.clearLog();
+        schemaManager.ensureTable(connection, Customer.class, prepared);
+        assertTrue(connectionProvider.getLog().isEmpty());
+
+        schemaManager.register(prepared);
+        assertTrue(schemaManager.isReady(Customer.class));
+        assertTrue(schemaManager.isReady(Order.class));
+        schemaManager.ensureTable(connection, Order.class, new LinkedHashSet<>());
+        assertTrue(connectionProvider.getLog().isEmpty());
+    }
+
+    @Entity
+    static class Department {
+
+        @Id
+        private Long id;
+
+        private String name;
+    }
+
+    @Entity
+    static class Employee {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "department_id")
+        private LazyReference<Department> department;
+    }
+
+    @Entity
+    static class Customer {
+
+        @Id
+        private Long id;
+
+        private String name;
+    }
+
+    @Entity
+    @com.custom.orm.annotations.Table(name = "orders")
+    static class Order {
+
+        @Id
+        private Long id;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "customer_id")
+        private LazyReference<Customer> customer;
+    }
+}
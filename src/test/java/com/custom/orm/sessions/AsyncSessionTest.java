@@ -0,0 +1,133 @@
+package com.custom.orm.sessions;
+
+import com.custom.orm.connection.ConnectionProvider;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+public class AsyncSessionTest {
+
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private AsyncSession asyncSession;
+
+    @After
+    public void close() {
+        release.countDown();
+        asyncSession.close();
+    }
+
+    @Test
+    public void taskRunsInCommittedTransaction() throws Exception {
+        asyncSession = new AsyncSession(() -> fakeSession(false), 2, 2);
+
+        assertEquals("found", asyncSession.findById(String.class, 1L).get());
+        assertEquals(List.of("commit", "session.close"), calls);
+    }
+
+    @Test
+    public void failedTaskIsRolledBack() throws Exception {
+        asyncSession = new AsyncSession(() -> fakeSession(false), 2, 2);
+
+        CompletableFuture<Object> future = asyncSession.inTransaction(session -> {
+            throw new IllegalStateException("broken");
+        });
+
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(List.of("rollback", "session.close"), calls);
+    }
+
+    @Test
+    public void fullQueueFailsFast() {
+        asyncSession = new AsyncSession(() -> fakeSession(true), 1, 1);
+
+        // the first task is handed to the new thread directly, the second one waits in the queue
+        CompletableFuture<String> running = asyncSession.findById(String.class, 1L);
+        CompletableFuture<String> queued = asyncSession.findById(String.class, 2L);
+        CompletableFuture<String> rejected = asyncSession.findById(String.class, 3L);
+
+        assertFalse(running.isDone());
+        assertFalse(queued.isDone());
+        assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.join();
+            fail();
+        } catch (Exception e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(1, asyncSession.getQueuedTasks());
+    }
+
+    private Session fakeSession(boolean blocking) {
+        ConnectionProvider connectionProvider = new ConnectionProvider() {
+            @Override
+            public Connection getConnection() {
+                return fakeConnection();
+            }
+
+            @Override
+            public int getMaximumPoolSize() {
+                return 1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        return (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Session.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "beginTransaction":
+                            Transaction transaction = new Transaction(connectionProvider);
+                            transaction.begin();
+                            return transaction;
+                        case "findById":
+                            if (blocking)
+                                release.await();
+                            return "found";
+                        case "close":
+                            calls.add("session.close");
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private Connection fakeConnection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setAutoCommit":
+                        case "toString":
+                        case "close":
+                            return null;
+                        case "commit":
+                        case "rollback":
+                            calls.add(method.getName());
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,68 @@
+package com.custom.orm.sessions;
+
+import com.custom.orm.entity.Profile;
+import com.custom.orm.entity.User;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.RelationModel;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchFetchQueueTest {
+
+    private final RelationModel relation = EntityModelRegistry.getModel(User.class).getRelations().get(0);
+
+    private final BatchFetchQueue queue = new BatchFetchQueue(3);
+
+    @Test
+    public void batchStartsWithAccessedKeyAndTakesQueuedKeysInOrder() {
+        for (long key = 1; key <= 5; key++) {
+            queue.enqueue(relation, key);
+        }
+
+        assertEquals(List.of(4L, 1L, 2L), queue.nextBatch(relation, 4L));
+        assertEquals(List.of(3L, 5L), queue.nextBatch(relation, 3L));
+        assertEquals(List.of(6L), queue.nextBatch(relation, 6L));
+    }
+
+    @Test
+    public void loadedKeyIsNotQueuedAgain() {
+        Profile profile = new Profile();
+        queue.loaded(relation, 1L, profile);
+        queue.loaded(relation, 2L, null);
+
+        queue.enqueue(relation, 1L);
+        queue.enqueue(relation, 2L);
+        queue.enqueue(relation, 3L);
+
+        assertTrue(queue.isLoaded(relation, 2L));
+        assertEquals(List.of(4L, 3L), queue.nextBatch(relation, 4L));
+    }
+
+    @Test
+    public void loadedEntityIsHandedOutOnce() {
+        Profile profile = new Profile();
+        queue.loaded(relation, 1L, profile);
+        queue.loaded(relation, 2L, null);
+
+        assertSame(profile, queue.take(relation, 1L));
+        assertNull(queue.take(relation, 2L));
+
+        assertFalse(queue.isLoaded(relation, 1L));
+        assertFalse(queue.isLoaded(relation, 2L));
+        assertNull(queue.take(relation, 1L));
+    }
+
+    @Test
+    public void clearForgetsQueuedAndLoadedKeys() {
+        queue.enqueue(relation, 1L);
+        queue.loaded(relation, 2L, new Profile());
+
+        queue.clear();
+
+        assertFalse(queue.isLoaded(relation, 2L));
+        assertEquals(List.of(3L), queue.nextBatch(relation, 3L));
+    }
+}
@@ -0,0 +1,112 @@
+package com.custom.orm.sessions;
+
+import com.custom.orm.connection.FakeConnectionProvider;
+import com.custom.orm.entity.User;
+import com.custom.orm.exceptions.ConnectionSQLException;
+import com.custom.orm.mapper.SqlTemplateCache;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class PartitionedScanTest {
+
+    private final FakeConnectionProvider connectionProvider = new FakeConnectionProvider()
+            .addRows("MIN(id), MAX(id)", new Object[]{1L, 8L})
+            .addRows("BETWEEN", new Object[]{1L, "Stepan", "Bandera", null, null, null, null},
+                    new Object[]{2L, "Lesya", "Ukrainka", null, null, null, null});
+
+    private final PartitionedScan<User> scan = new PartitionedScan<>(connectionProvider, new SqlTemplateCache(),
+            User.class, 2);
+
+    @Test
+    public void rangeIsSplitIntoPartitionsOfEqualWidth() {
+        assertEquals("[[1, 4], [5, 8], [9, 10]]", toString(PartitionedScan.split(1, 10, 3)));
+        assertEquals("[[1, 4], [5, 8], [9, 12]]", toString(PartitionedScan.split(1, 12, 3)));
+    }
+
+    @Test
+    public void narrowRangeHasFewerPartitions() {
+        assertEquals("[[1, 1], [2, 2]]", toString(PartitionedScan.split(1, 2, 4)));
+        assertEquals("[[7, 7]]", toString(PartitionedScan.split(7, 7, 4)));
+    }
+
+    @Test
+    public void lastPartitionEndsAtLargestId() {
+        assertEquals("[[" + (Long.MAX_VALUE - 1) + ", " + Long.MAX_VALUE + "]]",
+                toString(PartitionedScan.split(Long.MAX_VALUE - 1, Long.MAX_VALUE, 1)));
+    }
+
+    @Test
+    public void wholeRangeOfLongDoesNotOverflow() {
+        assertEquals("[[" + Long.MIN_VALUE + ", -1], [0, " + Long.MAX_VALUE + "]]",
+                toString(PartitionedScan.split(Long.MIN_VALUE, Long.MAX_VALUE, 2)));
+        assertEquals("[[" + Long.MIN_VALUE + ", " + Long.MAX_VALUE + "]]",
+                toString(PartitionedScan.split(Long.MIN_VALUE, Long.MAX_VALUE, 1)));
+        assertEquals("[[-5, 0], [1, 5]]", toString(PartitionedScan.split(-5, 5, 2)));
+    }
+
+    @Test
+    public void streamReturnsConnectionOfEveryPartition() {
+        try (Stream<User> users = scan.stream()) {
+            assertEquals(4, users.count());
+        }
+
+        assertEquals(List.of("set 1: 1", "set 1: 5", "set 2: 4", "set 2: 8"),
+                connectionProvider.getLog("set").stream().sorted().collect(Collectors.toList()));
+        assertEquals(3, connectionProvider.getLog("close statement").size());
+        assertEquals(0, connectionProvider.getOpenConnections());
+    }
+
+    @Test
+    public void forEachPartitionReturnsConnectionOfEveryPartition() {
+        List<Long> counts = Collections.synchronizedList(new ArrayList<>());
+
+        scan.forEachPartition(users -> counts.add(users.count()));
+
+        assertEquals(List.of(2L, 2L), counts);
+        assertEquals(0, connectionProvider.getOpenConnections());
+    }
+
+    @Test
+    public void failureOfPartitionIsRethrown() {
+        try {
+            scan.forEachPartition(users -> {
+                users.count();
+                throw new IllegalStateException("partition failed");
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("partition failed", e.getMessage());
+        }
+        assertEquals(0, connectionProvider.getOpenConnections());
+    }
+
+    @Test
+    public void failedQueryOfPartitionClosesItsConnection() {
+        connectionProvider.failOn("BETWEEN");
+
+        try {
+            scan.forEachPartition(users -> fail());
+            fail();
+        } catch (ConnectionSQLException e) {
+            assertEquals(0, connectionProvider.getOpenConnections());
+        }
+
+        try (Stream<User> users = scan.stream()) {
+            users.count();
+            fail();
+        } catch (ConnectionSQLException e) {
+            assertEquals(0, connectionProvider.getOpenConnections());
+        }
+    }
+
+    private String toString(List<PartitionedScan.IdRange> ranges) {
+        return ranges.stream().map(PartitionedScan.IdRange::toString).collect(Collectors.joining(", ", "[", "]"));
+    }
+}
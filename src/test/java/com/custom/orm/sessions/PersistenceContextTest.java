@@ -0,0 +1,184 @@
+package com.custom.orm.sessions;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Id;
+import com.custom.orm.annotations.relations.JoinColumn;
+import com.custom.orm.annotations.relations.ManyToOne;
+import com.custom.orm.annotations.relations.OneToMany;
+import com.custom.orm.entity.Profile;
+import com.custom.orm.entity.User;
+import com.custom.orm.mapper.EntityRowMapper;
+import com.custom.orm.mapper.SelectPlan;
+import com.custom.orm.metadata.model.ColumnModel;
+import com.custom.orm.metadata.model.EntityModel;
+import com.custom.orm.metadata.model.EntityModelRegistry;
+import com.custom.orm.metadata.model.RelationModel;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class PersistenceContextTest {
+
+    private final EntityRowMapper<User> rowMapper = SelectPlan.of(User.class).getRowMapper();
+
+    private final PersistenceContext persistenceContext = new PersistenceContext();
+
+    @Test
+    public void sameRowIsHydratedOnce() {
+        Object[] row = {1L, "Stepan", "Bandera", LocalDate.of(1921, 1, 20), 600, 5L, "BC254125"};
+
+        User first = rowMapper.hydrate(row, persistenceContext);
+        User second = rowMapper.hydrate(row.clone(), persistenceContext);
+
+        assertSame(first, second);
+        assertSame(first, persistenceContext.get(User.class, 1L));
+        assertSame(first.getProfile(), persistenceContext.get(Profile.class, 5L));
+        assertEquals(2, persistenceContext.size());
+    }
+
+    @Test
+    public void joinedEntityIsDeduplicated() {
+        Profile profile = Profile.builder().id(5L).passport("BC254125").build();
+        persistenceContext.add(profile);
+
+        User user = rowMapper.hydrate(new Object[]{1L, "Stepan", "Bandera", null, null, 5L, "other"}, persistenceContext);
+
+        assertSame(profile, user.getProfile());
+        assertEquals("BC254125", profile.getPassport());
+    }
+
+    @Test
+    public void dirtyColumnsAreComparedWithSnapshot() {
+        User user = rowMapper.hydrate(new Object[]{1L, "Stepan", "Bandera", null, 600, 5L, "BC254125"}, persistenceContext);
+        PersistenceContext.EntityEntry userEntry = persistenceContext.getEntries().stream()
+                .filter(entry -> entry.getEntity() == user)
+                .findFirst()
+                .orElseThrow();
+
+        assertTrue(userEntry.getDirtyColumns().isEmpty());
+
+        user.setAge(200);
+        user.setBirthDate(LocalDate.of(1921, 1, 20));
+
+        assertEquals(List.of("birthdate", "age"), userEntry.getDirtyColumns().stream()
+                .map(ColumnModel::getName)
+                .collect(Collectors.toList()));
+
+        userEntry.resetLoadedState();
+
+        assertTrue(userEntry.getDirtyColumns().isEmpty());
+    }
+
+    @Test
+    public void joinColumnIsComparedById() {
+        User user = rowMapper.hydrate(new Object[]{1L, "Stepan", "Bandera", null, 600, 5L, "BC254125"}, persistenceContext);
+        PersistenceContext.EntityEntry profileEntry = persistenceContext.getEntries().stream()
+                .filter(entry -> entry.getEntity() == user.getProfile())
+                .findFirst()
+                .orElseThrow();
+
+        assertTrue(profileEntry.getDirtyColumns().isEmpty());
+
+        user.getProfile().setUser(User.builder().id(2L).build());
+
+        assertEquals("user_id", profileEntry.getDirtyColumns().get(0).getName());
+    }
+
+    @Test
+    public void addAndRemove() {
+        User user = User.builder().id(7L).build();
+        User transientUser = User.builder().build();
+
+        persistenceContext.add(user);
+        persistenceContext.add(transientUser);
+
+        assertTrue(persistenceContext.contains(user));
+        assertFalse(persistenceContext.contains(transientUser));
+        assertNull(persistenceContext.get(Profile.class, 7L));
+
+        persistenceContext.remove(user);
+
+        assertNull(persistenceContext.get(User.class, 7L));
+        assertEquals(0, persistenceContext.size());
+    }
+
+    @Test
+    public void hydratedCollectionsWaitForFetch() {
+        EntityModel model = EntityModelRegistry.getModel(Team.class);
+        Team team = new Team();
+        team.id = 1L;
+
+        persistenceContext.register(model, 1L, team);
+        persistenceContext.register(model, 1L, new Team());
+        persistenceContext.register(EntityModelRegistry.getModel(User.class), 2L, User.builder().id(2L).build());
+
+        List<PersistenceContext.EntityEntry> pending = persistenceContext.takePendingCollections();
+        assertEquals(1, pending.size());
+        assertSame(team, pending.get(0).getEntity());
+        assertTrue(persistenceContext.takePendingCollections().isEmpty());
+    }
+
+    @Test
+    public void collectionIsComparedWithSnapshot() {
+        RelationModel members = EntityModelRegistry.getModel(Team.class).findRelation("members").orElseThrow();
+        Team team = new Team();
+        team.id = 1L;
+        Member first = member(10L);
+        Member second = member(11L);
+        team.members = new ArrayList<>(List.of(first, second));
+
+        persistenceContext.register(EntityModelRegistry.getModel(Team.class), 1L, team);
+        PersistenceContext.EntityEntry entry = persistenceContext.takePendingCollections().get(0);
+        entry.resetLoadedCollection(members);
+
+        assertTrue(entry.getAddedElements(members).isEmpty());
+        assertTrue(entry.getRemovedIds(members).isEmpty());
+
+        Member added = member(12L);
+        Member created = member(null);
+        team.members.remove(first);
+        team.members.add(added);
+        team.members.add(created);
+
+        assertEquals(List.of(added, created), entry.getAddedElements(members));
+        assertEquals(Set.of(10L), entry.getRemovedIds(members));
+
+        entry.resetLoadedState();
+
+        assertEquals(List.of(created), entry.getAddedElements(members));
+        assertTrue(entry.getRemovedIds(members).isEmpty());
+    }
+
+    private Member member(Long id) {
+        Member member = new Member();
+        member.id = id;
+        return member;
+    }
+
+    @Entity
+    static class Team {
+
+        @Id
+        private Long id;
+
+        @OneToMany(mappedBy = "team")
+        private List<Member> members;
+    }
+
+    @Entity
+    static class Member {
+
+        @Id
+        private Long id;
+
+        @ManyToOne
+        @JoinColumn(name = "team_id")
+        private Team team;
+    }
+}
@@ -0,0 +1,94 @@
+package com.custom.orm.sessions;
+
+import com.custom.orm.annotations.Param;
+import com.custom.orm.annotations.Query;
+import com.custom.orm.entity.User;
+import com.custom.orm.exceptions.QueryDefinitionException;
+import com.custom.orm.mapper.SqlTemplateCache;
+import com.custom.orm.query.CompiledQuery;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class RepositoryHandlerTest {
+
+    private final SqlTemplateCache sqlTemplates = new SqlTemplateCache();
+
+    private final List<CompiledQuery> executed = new ArrayList<>();
+
+    private List<Object> rows = List.of();
+
+    @Test
+    public void methodsRunOnSessionOfSupplier() {
+        User user = User.builder().id(1L).firstname("Lesya").build();
+        rows = List.of(user);
+
+        UserRepository repository = RepositoryHandler.create(UserRepository.class, this::fakeSession, sqlTemplates);
+
+        assertEquals(List.of(user), repository.findByFirstname("Lesya"));
+        assertEquals(Optional.of(user), repository.findById(1L));
+        assertEquals(user, repository.getById(1L));
+        assertEquals(user, repository.getByIdOrFail(1L));
+        assertEquals(List.of("Lesya"), executed.get(0).getParameters());
+        assertEquals(4, executed.size());
+    }
+
+    @Test
+    public void missingRowIsNullOrEmpty() {
+        UserRepository repository = RepositoryHandler.create(UserRepository.class, this::fakeSession, sqlTemplates);
+
+        assertNull(repository.getById(1L));
+        assertEquals(Optional.empty(), repository.findById(1L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void severalRowsOfSingleResultAreRejected() {
+        rows = List.of(new User(), new User());
+
+        RepositoryHandler.create(UserRepository.class, this::fakeSession, sqlTemplates).getById(1L);
+    }
+
+    @Test(expected = QueryDefinitionException.class)
+    public void methodWithoutQueryIsRejected() {
+        RepositoryHandler.create(WithoutQuery.class, this::fakeSession, sqlTemplates);
+    }
+
+    private Session fakeSession() {
+        return (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Session.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("list") || !(args[1] instanceof CompiledQuery))
+                        throw new UnsupportedOperationException(method.getName());
+                    executed.add((CompiledQuery) args[1]);
+                    return rows;
+                });
+    }
+
+    interface UserRepository {
+
+        @Query("WHERE users.firstname = :firstname")
+        List<User> findByFirstname(@Param("firstname") String firstname);
+
+        @Query("WHERE users.id = :id")
+        Optional<User> findById(@Param("id") Long id);
+
+        @Query("WHERE users.id = :id")
+        User getById(@Param("id") Long id);
+
+        default User getByIdOrFail(Long id) {
+            return findById(id).orElseThrow();
+        }
+    }
+
+    interface WithoutQuery {
+
+        @Query("WHERE users.id = :id")
+        User getById(@Param("id") Long id);
+
+        User getByName(String name);
+    }
+}
@@ -0,0 +1,103 @@
+package com.custom.orm.sessions;
+
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Id;
+import com.custom.orm.connection.FakeConnectionProvider;
+import com.custom.orm.entity.User;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class SessionFactoryTest {
+
+    private static final String ENTITY_PACKAGE = "com.custom.orm.entity";
+
+    private static final String CREATE_INVOICE = "execute: CREATE TABLE IF NOT EXISTS invoice";
+
+    private final FakeConnectionProvider firstDatabase = new FakeConnectionProvider();
+
+    private final FakeConnectionProvider secondDatabase = new FakeConnectionProvider();
+
+    private final SessionFactory first = new SessionFactory(firstDatabase, ENTITY_PACKAGE);
+
+    private final SessionFactory second = new SessionFactory(secondDatabase, ENTITY_PACKAGE);
+
+    @After
+    public void close() {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void tablesPreparedByOneFactoryAreNotReadyForAnother() {
+        assertTrue(first.getSchemaManager().isReady(User.class));
+        assertTrue(second.getSchemaManager().isReady(User.class));
+
+        first.inTransaction(session -> session.create(new Invoice()));
+
+        assertTrue(first.getSchemaManager().isReady(Invoice.class));
+        assertFalse(second.getSchemaManager().isReady(Invoice.class));
+        assertEquals(1, firstDatabase.getLog(CREATE_INVOICE).size());
+        assertTrue(secondDatabase.getLog(CREATE_INVOICE).isEmpty());
+
+        second.inTransaction(session -> session.create(new Invoice()));
+
+        assertEquals(1, secondDatabase.getLog(CREATE_INVOICE).size());
+        assertTrue(second.getSchemaManager().isReady(Invoice.class));
+    }
+
+    @Test
+    public void factoriesHaveTheirOwnTemplatesAndCaches() {
+        assertNotSame(first.getSqlTemplates(), second.getSqlTemplates());
+        assertEquals(first.getSqlTemplates().getTemplates(User.class).getFindAll(),
+                second.getSqlTemplates().getTemplates(User.class).getFindAll());
+
+        String sql = first.getSqlTemplates().getTemplates(User.class).getFindAll();
+        first.getQueryCache().put(sql, List.of(), first.getQueryCache().getVersions(Set.of("users")),
+                List.<Object[]>of(new Object[]{1L}));
+
+        assertEquals(1, first.getQueryCache().size());
+        assertNull(second.getQueryCache().get(sql, List.of()));
+        assertNotSame(first.getSecondLevelCache(), second.getSecondLevelCache());
+    }
+
+    @Test
+    public void currentSessionIsBoundToThread() throws Exception {
+        Session session = first.getCurrentSession();
+
+        assertSame(session, first.getCurrentSession());
+        assertNotSame(session, second.getCurrentSession());
+        assertNotSame(session, CompletableFuture.supplyAsync(first::getCurrentSession).get());
+
+        second.closeCurrentSession();
+    }
+
+    @Test
+    public void closedCurrentSessionIsReplaced() {
+        Session session = first.getCurrentSession();
+        session.beginTransaction();
+        assertEquals(1, firstDatabase.getOpenConnections());
+
+        first.closeCurrentSession();
+
+        assertEquals(0, firstDatabase.getOpenConnections());
+        assertNotSame(session, first.getCurrentSession());
+
+        first.closeCurrentSession();
+        first.closeCurrentSession();
+    }
+
+    @Entity
+    static class Invoice {
+
+        @Id
+        private Long id;
+
+        private String number;
+    }
+}
@@ -1,13 +1,31 @@
 package com.custom.orm.sessions;
 
+import com.custom.orm.annotations.Entity;
+import com.custom.orm.annotations.Id;
+import com.custom.orm.annotations.relations.JoinColumn;
+import com.custom.orm.annotations.relations.ManyToOne;
+import com.custom.orm.cache.QueryCache;
+import com.custom.orm.cache.SecondLevelCache;
+import com.custom.orm.connection.FakeConnectionProvider;
 import com.custom.orm.entity.Profile;
 import com.custom.orm.entity.User;
+import com.custom.orm.enums.FetchType;
+import com.custom.orm.enums.SchemaMode;
+import com.custom.orm.lazy.LazyReference;
+import com.custom.orm.mapper.SqlTemplateCache;
+import com.custom.orm.query.CompiledQuery;
+import com.custom.orm.query.Criteria;
+import com.custom.orm.query.CriteriaCompiler;
+import com.custom.orm.schema.SchemaManager;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
 
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 public class SessionImplTest {
 
@@ -40,4 +58,207 @@ public class SessionImplTest {
 
         assertTrue(check);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void createAllWritesEveryClassInBatches() {
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider();
+        List<Object> objects = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            User created = User.builder().firstname("User " + i).build();
+            Profile.builder().passport("P" + i).build().setUser(created);
+            objects.add(created);
+        }
+
+        Session session = new SessionImpl(connectionProvider);
+        Transaction transaction = session.beginTransaction();
+        connectionProvider.clearLog();
+        session.createAll(objects);
+
+        // users are inserted in batches of "db.batch.size", then their cascaded profiles with the users' ids
+        List<String> statements = connectionProvider.getLog("prepare: INSERT");
+        assertEquals(2, statements.size());
+        assertTrue(statements.get(0).startsWith("prepare: INSERT INTO public.users "));
+        assertTrue(statements.get(1).startsWith("prepare: INSERT INTO profile "));
+        assertEquals(List.of("executeBatch: 100", "executeBatch: 100", "executeBatch: 50",
+                "executeBatch: 100", "executeBatch: 100", "executeBatch: 50"), connectionProvider.getLog("executeBatch"));
+
+        for (int i = 0; i < 250; i++) {
+            User created = (User) objects.get(i);
+            assertEquals(Long.valueOf(i + 1), created.getId());
+            assertEquals(Long.valueOf(i + 251), created.getProfile().getId());
+        }
+        List<String> log = connectionProvider.getLog();
+        int firstProfile = log.indexOf(statements.get(1));
+        assertEquals("set 1: 1", log.get(firstProfile + 1));
+        assertEquals("set 2: P0", log.get(firstProfile + 2));
+
+        transaction.close();
+        session.close();
+    }
+
+    @Test
+    public void updateAndDeleteAreParameterized() {
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider();
+        User detached = User.builder().id(1L).firstname("Stepan").age(600).build();
+
+        Session session = new SessionImpl(connectionProvider);
+        Transaction transaction = session.beginTransaction();
+        session.update(detached);
+
+        assertEquals(List.of(
+                "prepare: UPDATE public.users SET firstname = ?, lastname = ?, birthdate = ?, age = ? WHERE id = ?",
+                "set 1: Stepan", "setNull 2", "setNull 3", "set 4: 600", "set 5: 1",
+                "executeUpdate: UPDATE public.users SET firstname = ?, lastname = ?, birthdate = ?, age = ? WHERE id = ?"),
+                connectionProvider.getLog());
+
+        connectionProvider.clearLog();
+        session.delete(detached);
+
+        assertEquals(List.of("prepare: DELETE FROM public.users WHERE id = ?", "set 1: 1",
+                "executeUpdate: DELETE FROM public.users WHERE id = ?"), connectionProvider.getLog());
+
+        transaction.close();
+        session.close();
+    }
+
+    @Test
+    public void tablesAreRegisteredOnlyByCommit() {
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider();
+        SchemaManager schemaManager = new SchemaManager(SchemaMode.CREATE);
+        SqlTemplateCache sqlTemplates = new SqlTemplateCache();
+        Session session = new SessionImpl(connectionProvider, schemaManager, sqlTemplates,
+                new SecondLevelCache(sqlTemplates), new QueryCache(), new CriteriaCompiler(sqlTemplates));
+
+        Transaction transaction = session.beginTransaction();
+        session.create(new Ledger());
+        session.create(new Ledger());
+        transaction.rollback();
+        assertFalse(schemaManager.isReady(Ledger.class));
+
+        transaction = session.beginTransaction();
+        session.create(new Ledger());
+        transaction.commit();
+        assertTrue(schemaManager.isReady(Ledger.class));
+
+        // the table is created once per transaction, on the connection of the transaction
+        assertEquals(2, connectionProvider.getLog("execute: CREATE TABLE IF NOT EXISTS ledger").size());
+        assertEquals(1, connectionProvider.getOpenConnections());
+
+        transaction.close();
+        session.close();
+    }
+
+    @Test
+    public void beginTransactionReleasesPreviousConnection() {
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider();
+        Session session = new SessionImpl(connectionProvider);
+
+        Transaction first = session.beginTransaction();
+        Transaction second = session.beginTransaction();
+
+        assertFalse(first.isActive());
+        assertTrue(second.isActive());
+        assertEquals(1, connectionProvider.getOpenConnections());
+
+        second.close();
+        session.close();
+        assertEquals(0, connectionProvider.getOpenConnections());
+    }
+
+    @Test
+    public void streamedObjectsLoadReferencesWithoutBeingManaged() {
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider()
+                .addRows("FROM chapter", new Object[]{1L, "First", 7L})
+                .addRows("FROM volume", new Object[]{7L, "Kobzar"});
+
+        Session session = new SessionImpl(connectionProvider);
+        Transaction transaction = session.beginTransaction();
+
+        Chapter chapter;
+        try (Stream<Chapter> chapters = session.stream(Chapter.class)) {
+            chapter = chapters.findFirst().orElseThrow();
+        }
+        assertEquals("Kobzar", chapter.volume.get().title);
+        assertSame(chapter.volume.get(), session.findById(Volume.class, 7L));
+        assertNotSame(chapter, session.findById(Chapter.class, 1L));
+
+        transaction.close();
+        session.close();
+    }
+
+    @Test
+    public void statementOfFailedStreamIsClosed() {
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider().failOn("FROM chapter");
+        CompiledQuery query = new CriteriaCompiler(new SqlTemplateCache()).compile(Criteria.from(Chapter.class));
+
+        Session session = new SessionImpl(connectionProvider);
+        Transaction transaction = session.beginTransaction();
+        try {
+            session.stream(Chapter.class, query);
+            fail();
+        } catch (Exception e) {
+            assertTrue(e.getMessage().startsWith("failed: "));
+            assertEquals(List.of("close statement"), connectionProvider.getLog("close"));
+        }
+        try {
+            session.stream(Chapter.class);
+            fail();
+        } catch (Exception e) {
+            assertEquals(List.of("close statement", "close statement"), connectionProvider.getLog("close"));
+        }
+
+        transaction.close();
+        session.close();
+    }
+
+    @Test
+    public void commitForgetsUnloadedReferences() {
+        FakeConnectionProvider connectionProvider = new FakeConnectionProvider()
+                .addRows("FROM chapter", new Object[]{1L, "First", 7L}, new Object[]{2L, "Second", 8L})
+                .addRows("FROM volume", new Object[]{7L, "Kobzar"});
+
+        Session session = new SessionImpl(connectionProvider);
+        Transaction transaction = session.beginTransaction();
+        List<Chapter> chapters = session.findAll(Chapter.class);
+        transaction.commit();
+        connectionProvider.clearLog();
+
+        // the key of the second chapter was queued by the committed transaction, it is not fetched any more
+        assertEquals("Kobzar", chapters.get(0).volume.get().title);
+        assertEquals(List.of("set 1: [7]"), connectionProvider.getLog("set"));
+
+        transaction.close();
+        session.close();
+    }
+
+    @Entity
+    static class Ledger {
+
+        @Id
+        private Long id;
+
+        private String title;
+    }
+
+    @Entity
+    static class Volume {
+
+        @Id
+        private Long id;
+
+        private String title;
+    }
+
+    @Entity
+    static class Chapter {
+
+        @Id
+        private Long id;
+
+        private String title;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "volume_id")
+        private LazyReference<Volume> volume;
+    }
+}
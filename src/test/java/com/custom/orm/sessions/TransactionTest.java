@@ -0,0 +1,29 @@
+package com.custom.orm.sessions;
+
+import com.custom.orm.connection.FakeConnectionProvider;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TransactionTest {
+
+    private final FakeConnectionProvider connectionProvider = new FakeConnectionProvider();
+
+    @Test
+    public void closeReturnsConnectionToPool() {
+        Transaction transaction = new Transaction(connectionProvider);
+        transaction.begin();
+        transaction.prepareStatement("SELECT 1");
+        transaction.commit();
+        assertEquals(1, connectionProvider.getOpenConnections());
+
+        transaction.close();
+
+        assertEquals(0, connectionProvider.getOpenConnections());
+        assertFalse(transaction.isActive());
+        assertEquals(1, connectionProvider.getLog("close statement").size());
+
+        transaction.close();
+        assertEquals(0, connectionProvider.getOpenConnections());
+    }
+}
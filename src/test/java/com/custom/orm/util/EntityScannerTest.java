@@ -0,0 +1,35 @@
+package com.custom.orm.util;
+
+import com.custom.orm.entity.Profile;
+import com.custom.orm.entity.User;
+import com.custom.orm.query.QueryMethodTest;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class EntityScannerTest {
+
+    @Test
+    public void findsEntitiesOfPackage() {
+        assertEquals(Set.of(Profile.class, User.class), EntityScanner.scan("com.custom.orm.entity"));
+    }
+
+    @Test
+    public void skipsClassesWithoutEntity() {
+        assertTrue(EntityScanner.scan("com.custom.orm.util").isEmpty());
+    }
+
+    @Test
+    public void findsInterfacesWithQueryMethods() {
+        assertTrue(EntityScanner.scanRepositories("com.custom.orm.query")
+                .contains(QueryMethodTest.UserRepository.class));
+        assertTrue(EntityScanner.scanRepositories("com.custom.orm.entity").isEmpty());
+    }
+
+    @Test
+    public void unknownPackageIsEmpty() {
+        assertTrue(EntityScanner.scan("com.custom.orm.missing").isEmpty());
+    }
+}
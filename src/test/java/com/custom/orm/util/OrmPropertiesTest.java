@@ -0,0 +1,30 @@
+package com.custom.orm.util;
+
+import com.custom.orm.exceptions.PropertyNotFoundException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OrmPropertiesTest {
+
+    @Test
+    public void valuesAreReadFromAppProperties() {
+        assertEquals("com.custom.orm.entity", OrmProperties.getString("db.entity.packages"));
+        assertEquals(100, OrmProperties.getInt("db.batch.size", 1));
+        assertEquals(600000L, OrmProperties.getLong("db.pool.idleTimeout", 1));
+        assertTrue(OrmProperties.getBoolean("db.cache.enabled", false));
+    }
+
+    @Test
+    public void missingValuesFallBackToDefault() {
+        assertEquals("x", OrmProperties.getString("db.missing", "x"));
+        assertEquals(7, OrmProperties.getInt("db.missing", 7));
+        assertEquals(7L, OrmProperties.getLong("db.missing", 7L));
+        assertTrue(OrmProperties.getBoolean("db.missing", true));
+    }
+
+    @Test(expected = PropertyNotFoundException.class)
+    public void missingRequiredValueIsRejected() {
+        OrmProperties.getString("db.missing");
+    }
+}